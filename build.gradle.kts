@@ -12,6 +12,19 @@ plugins {
 
 //----------------------------------------------------------------------
 
+// Repositories and dependencies
+
+repositories {
+    mavenCentral()
+}
+
+dependencies {
+    testImplementation("org.junit.jupiter:junit-jupiter:5.10.2")
+    testRuntimeOnly("org.junit.platform:junit-platform-launcher")
+}
+
+//----------------------------------------------------------------------
+
 // Functions
 
 fun _path(vararg components : String): String =
@@ -43,6 +56,22 @@ val jarFilename = "crosswordEditor.jar"
 
 tasks.compileJava {
     options.release.set(javaVersion)
+    options.compilerArgs.addAll(listOf("--add-modules", "jdk.incubator.vector"))
+}
+
+//----------------------------------------------------------------------
+
+// Test
+
+tasks.compileTestJava {
+    options.release.set(javaVersion)
+    options.compilerArgs.addAll(listOf("--add-modules", "jdk.incubator.vector"))
+}
+
+tasks.test {
+    useJUnitPlatform()
+    jvmArgs("--add-modules", "jdk.incubator.vector")
+    systemProperty("java.awt.headless", "true")
 }
 
 //----------------------------------------------------------------------
@@ -68,6 +97,19 @@ tasks.jar {
 tasks.register<JavaExec>("runMain") {
     classpath = sourceSets["main"].runtimeClasspath
     mainClass.set(mainClassName)
+    jvmArgs("--add-modules", "jdk.incubator.vector")
+
+    systemProperties(_appSystemProperties())
+}
+
+//----------------------------------------------------------------------
+
+// Run batch capture
+
+tasks.register<JavaExec>("runBatchCapture") {
+    classpath = sourceSets["main"].runtimeClasspath
+    mainClass.set("uk.blankaspect.${packageName}.BatchCapture")
+    jvmArgs("--add-modules", "jdk.incubator.vector")
 
     systemProperties(_appSystemProperties())
 }
@@ -78,6 +120,7 @@ tasks.register<JavaExec>("runMain") {
 
 tasks.register<JavaExec>("runJar") {
     classpath = files(tasks.jar)
+    jvmArgs("--add-modules", "jdk.incubator.vector")
 
     systemProperties(_appSystemProperties())
 }
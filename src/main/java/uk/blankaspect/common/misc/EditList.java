@@ -15,28 +15,42 @@ package uk.blankaspect.common.misc;
 //----------------------------------------------------------------------
 
 
-// IMPORTS
-
-
-import java.util.LinkedList;
-
-//----------------------------------------------------------------------
-
-
 // CLASS: EDIT LIST
 
 
+/**
+ * This class implements a list of edits that supports undo and redo.  The edits are stored in a circular buffer, so
+ * that adding, undoing and redoing an edit and discarding the oldest edit are all constant-time operations.
+ * <p>
+ * The list is bounded by a maximum number of edits and, optionally, by a maximum total size of the memory that is
+ * retained by the edits, as estimated by {@link IEdit#retainedSize()}.  When an edit is added, the oldest edits are
+ * discarded until both limits are satisfied.  The most recently added edit is never discarded, even if it exceeds the
+ * size limit by itself.
+ * </p>
+ */
+
 public class EditList
 {
 
+////////////////////////////////////////////////////////////////////////
+//  Constants
+////////////////////////////////////////////////////////////////////////
+
+	private static final	int		INITIAL_CAPACITY	= 16;
+
 ////////////////////////////////////////////////////////////////////////
 //  Instance variables
 ////////////////////////////////////////////////////////////////////////
 
-	protected	int					maxLength;
-	protected	int					currentIndex;
-	protected	int					unchangedIndex;
-	protected	LinkedList<IEdit>	edits;
+	protected	int			maxLength;
+	protected	long		maxSize;
+	protected	int			currentIndex;
+	protected	int			unchangedIndex;
+	protected	IEdit[]		edits;
+	protected	long[]		editSizes;
+	protected	int			startIndex;
+	protected	int			length;
+	protected	long		size;
 
 ////////////////////////////////////////////////////////////////////////
 //  Constructors
@@ -44,10 +58,22 @@ public class EditList
 
 	public EditList(
 		int	maxLength)
+	{
+		// Call alternative constructor
+		this(maxLength, Long.MAX_VALUE);
+	}
+
+	//------------------------------------------------------------------
+
+	public EditList(
+		int		maxLength,
+		long	maxSize)
 	{
 		// Initialise instance variables
 		this.maxLength = maxLength;
-		edits = new LinkedList<>();
+		this.maxSize = maxSize;
+		edits = new IEdit[getInitialCapacity()];
+		editSizes = new long[edits.length];
 	}
 
 	//------------------------------------------------------------------
@@ -58,28 +84,28 @@ public class EditList
 
 	public IEdit getUndo()
 	{
-		return canUndo() ? edits.get(currentIndex - 1) : null;
+		return canUndo() ? edits[getBufferIndex(currentIndex - 1)] : null;
 	}
 
 	//------------------------------------------------------------------
 
 	public IEdit getRedo()
 	{
-		return canRedo() ? edits.get(currentIndex) : null;
+		return canRedo() ? edits[getBufferIndex(currentIndex)] : null;
 	}
 
 	//------------------------------------------------------------------
 
 	public IEdit removeUndo()
 	{
-		return canUndo() ? edits.get(--currentIndex) : null;
+		return canUndo() ? edits[getBufferIndex(--currentIndex)] : null;
 	}
 
 	//------------------------------------------------------------------
 
 	public IEdit removeRedo()
 	{
-		return canRedo() ? edits.get(currentIndex++) : null;
+		return canRedo() ? edits[getBufferIndex(currentIndex++)] : null;
 	}
 
 	//------------------------------------------------------------------
@@ -93,14 +119,14 @@ public class EditList
 
 	public boolean canRedo()
 	{
-		return (currentIndex < edits.size());
+		return (currentIndex < length);
 	}
 
 	//------------------------------------------------------------------
 
 	public boolean isEmpty()
 	{
-		return edits.isEmpty();
+		return (length == 0);
 	}
 
 	//------------------------------------------------------------------
@@ -119,6 +145,19 @@ public class EditList
 
 	//------------------------------------------------------------------
 
+	/**
+	 * Returns the estimated total size (in bytes) of the memory that is retained by the edits in this list.
+	 *
+	 * @return the estimated total size of the memory that is retained by the edits in this list.
+	 */
+
+	public long getSize()
+	{
+		return size;
+	}
+
+	//------------------------------------------------------------------
+
 	public void add(
 		IEdit	edit)
 	{
@@ -127,8 +166,7 @@ public class EditList
 			return;
 
 		// Remove redos
-		while (edits.size() > currentIndex)
-			edits.removeLast();
+		removeRedos();
 
 		// Preserve changed status if unchanged state cannot be recovered
 		if (unchangedIndex > currentIndex)
@@ -137,18 +175,31 @@ public class EditList
 		// Process edit
 		edit = processEdit(edit);
 
-		// Remove oldest edits while list is full
-		while (edits.size() >= maxLength)
+		// Remove oldest edits while list is full or the size limit would be exceeded
+		long editSize = Math.max(0, edit.retainedSize());
+		while ((length > 0) && ((length >= maxLength) || (size + editSize > maxSize)))
 		{
-			edits.removeFirst();
+			edits[startIndex] = null;
+			size -= editSizes[startIndex];
+			if (++startIndex >= edits.length)
+				startIndex = 0;
+			--length;
+
 			if (--unchangedIndex < 0)
 				unchangedIndex = -1;
 			if (--currentIndex < 0)
 				currentIndex = 0;
 		}
 
+		// Increase capacity of buffer if it is full
+		if (length >= edits.length)
+			setCapacity((int)Math.min(2L * edits.length, maxLength));
+
 		// Add new edit
-		edits.add(edit);
+		int index = getBufferIndex(length++);
+		edits[index] = edit;
+		editSizes[index] = editSize;
+		size += editSize;
 		++currentIndex;
 	}
 
@@ -156,7 +207,11 @@ public class EditList
 
 	public void clear()
 	{
-		edits.clear();
+		edits = new IEdit[getInitialCapacity()];
+		editSizes = new long[edits.length];
+		startIndex = 0;
+		length = 0;
+		size = 0;
 		unchangedIndex = currentIndex = 0;
 	}
 
@@ -164,9 +219,7 @@ public class EditList
 
 	public void reset()
 	{
-		while (edits.size() > currentIndex)
-			edits.removeLast();
-
+		removeRedos();
 		unchangedIndex = currentIndex;
 	}
 
@@ -188,6 +241,51 @@ public class EditList
 
 	//------------------------------------------------------------------
 
+	private int getInitialCapacity()
+	{
+		return Math.max(1, Math.min(maxLength, INITIAL_CAPACITY));
+	}
+
+	//------------------------------------------------------------------
+
+	private int getBufferIndex(
+		int	index)
+	{
+		index += startIndex;
+		return (index < edits.length) ? index : index - edits.length;
+	}
+
+	//------------------------------------------------------------------
+
+	private void removeRedos()
+	{
+		while (length > currentIndex)
+		{
+			int index = getBufferIndex(--length);
+			edits[index] = null;
+			size -= editSizes[index];
+		}
+	}
+
+	//------------------------------------------------------------------
+
+	private void setCapacity(
+		int	capacity)
+	{
+		IEdit[] newEdits = new IEdit[capacity];
+		long[] newEditSizes = new long[capacity];
+		int length1 = Math.min(length, edits.length - startIndex);
+		System.arraycopy(edits, startIndex, newEdits, 0, length1);
+		System.arraycopy(editSizes, startIndex, newEditSizes, 0, length1);
+		System.arraycopy(edits, 0, newEdits, length1, length - length1);
+		System.arraycopy(editSizes, 0, newEditSizes, length1, length - length1);
+		edits = newEdits;
+		editSizes = newEditSizes;
+		startIndex = 0;
+	}
+
+	//------------------------------------------------------------------
+
 ////////////////////////////////////////////////////////////////////////
 //  Member interfaces
 ////////////////////////////////////////////////////////////////////////
@@ -218,6 +316,24 @@ public class EditList
 
 		//--------------------------------------------------------------
 
+		/**
+		 * Returns an estimate of the size (in bytes) of the memory that is retained by this edit.  The estimate is
+		 * used to limit the total size of the edits in an edit list.
+		 * <p>
+		 * The default implementation returns zero, so an edit that does not override this method is limited only by
+		 * the maximum number of edits in an edit list.
+		 * </p>
+		 *
+		 * @return an estimate of the size (in bytes) of the memory that is retained by this edit.
+		 */
+
+		default long retainedSize()
+		{
+			return 0;
+		}
+
+		//--------------------------------------------------------------
+
 	}
 
 	//==================================================================
@@ -47,6 +47,8 @@ import uk.blankaspect.common.exception.FileException;
 
 import uk.blankaspect.common.filesystem.PathnameUtils;
 
+import uk.blankaspect.common.function.IProcedure1;
+
 import uk.blankaspect.common.misc.SystemUtils;
 
 import uk.blankaspect.common.property.Property;
@@ -103,6 +105,7 @@ class AppConfig
 		String	BAR_GRID						= "barGrid";
 		String	BAR_WIDTH						= "barWidth";
 		String	BLOCK_IMAGE						= "blockImage";
+		String	CAPTURE_TEXT					= "captureText";
 		String	CELL_OFFSET_LEFT				= "cellOffsetLeft";
 		String	CELL_OFFSET_TOP					= "cellOffsetTop";
 		String	CELL_SIZE						= "cellSize";
@@ -137,11 +140,13 @@ class AppConfig
 		String	MAIN_WINDOW_LOCATION			= "mainWindowLocation";
 		String	MAIN_WINDOW_SIZE				= "mainWindowSize";
 		String	MAX_EDIT_LIST_LENGTH			= "maxEditListLength";
+		String	MAX_EDIT_LIST_SIZE				= "maxEditListSize";
 		String	NAVIGATE_OVER_SEPARATORS		= "navigateOverSeparators";
 		String	NUM_LINES						= "numLines";
 		String	OPEN_CROSSWORD_DIRECTORY		= "openCrosswordDirectory";
 		String	PARAMETER_SET_FILE				= "parameterSetFile";
 		String	PATH							= "path";
+		String	PERSISTENT_DETECTION_CACHE		= "persistentDetectionCache";
 		String	PRINT_ONLY						= "printOnly";
 		String	REFERENCE_KEYWORD				= "referenceKeyword";
 		String	SAVE_CROSSWORD_DIRECTORY		= "saveCrosswordDirectory";
@@ -280,6 +285,23 @@ class AppConfig
 //  Instance methods
 ////////////////////////////////////////////////////////////////////////
 
+	/**
+	 * Returns the directory of the configuration file.  If no configuration file was read, the default directory of
+	 * the configuration file is returned.
+	 *
+	 * @return the directory of the configuration file, or {@code null} if there is no default directory.
+	 */
+
+	public File getDirectory()
+	{
+		if (file != null)
+			return file.getAbsoluteFile().getParentFile();
+		String pathname = Utils.getPropertiesPathname();
+		return (pathname == null) ? null : new File(pathname);
+	}
+
+	//------------------------------------------------------------------
+
 	public File chooseFile(Component parent)
 	{
 		if (fileChooser == null)
@@ -305,6 +327,22 @@ class AppConfig
 	//------------------------------------------------------------------
 
 	public void read()
+	{
+		read(AppConfig::showErrorMessage);
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Reads the configuration file and sets the properties of this configuration from it.  An error that occurs when
+	 * reading the file is passed to the specified handler, and the properties are then set to their default values.
+	 *
+	 * @param errorHandler
+	 *          the handler of an error that occurs when reading the configuration file.
+	 */
+
+	public void read(
+		IProcedure1<AppException>	errorHandler)
 	{
 		// Read configuration file
 		fileRead = false;
@@ -321,7 +359,7 @@ class AppConfig
 		}
 		catch (AppException e)
 		{
-			showErrorMessage(e);
+			errorHandler.invoke(e);
 		}
 
 		// Get properties
@@ -978,6 +1016,57 @@ class AppConfig
 	//==================================================================
 
 
+	// PROPERTY CLASS: MAXIMUM EDIT LIST SIZE
+
+
+	private class CPMaxEditListSize
+		extends Property.IntegerProperty
+	{
+
+	////////////////////////////////////////////////////////////////////
+	//  Constructors
+	////////////////////////////////////////////////////////////////////
+
+		private CPMaxEditListSize()
+		{
+			super(concatenateKeys(Key.GENERAL, Key.MAX_EDIT_LIST_SIZE),
+				  CrosswordDocument.MIN_MAX_EDIT_LIST_SIZE, CrosswordDocument.MAX_MAX_EDIT_LIST_SIZE);
+			value = CrosswordDocument.DEFAULT_MAX_EDIT_LIST_SIZE;
+		}
+
+		//--------------------------------------------------------------
+
+	}
+
+	//------------------------------------------------------------------
+
+//::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::
+//  Instance methods : associated methods in enclosing class
+//::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::
+
+	public int getMaxEditListSize()
+	{
+		return cpMaxEditListSize.getValue();
+	}
+
+	//------------------------------------------------------------------
+
+	public void setMaxEditListSize(int value)
+	{
+		cpMaxEditListSize.setValue(value);
+	}
+
+	//------------------------------------------------------------------
+
+//::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::
+//  Instance variables : associated variables in enclosing class
+//::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::
+
+	private	CPMaxEditListSize	cpMaxEditListSize	= new CPMaxEditListSize();
+
+	//==================================================================
+
+
 	// PROPERTY CLASS: CLEAR EDIT LIST ON SAVE
 
 
@@ -1774,6 +1863,107 @@ class AppConfig
 	//==================================================================
 
 
+	// PROPERTY CLASS: PERSISTENT GRID-DETECTION CACHE
+
+
+	private class CPPersistentGridDetectionCache
+		extends Property.BooleanProperty
+	{
+
+	////////////////////////////////////////////////////////////////////
+	//  Constructors
+	////////////////////////////////////////////////////////////////////
+
+		private CPPersistentGridDetectionCache()
+		{
+			super(concatenateKeys(Key.GRID, Key.PERSISTENT_DETECTION_CACHE));
+			value = false;
+		}
+
+		//--------------------------------------------------------------
+
+	}
+
+	//------------------------------------------------------------------
+
+//::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::
+//  Instance methods : associated methods in enclosing class
+//::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::
+
+	public boolean isPersistentGridDetectionCache()
+	{
+		return cpPersistentGridDetectionCache.getValue();
+	}
+
+	//------------------------------------------------------------------
+
+	public void setPersistentGridDetectionCache(boolean value)
+	{
+		cpPersistentGridDetectionCache.setValue(value);
+	}
+
+	//------------------------------------------------------------------
+
+//::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::
+//  Instance variables : associated variables in enclosing class
+//::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::
+
+	private	CPPersistentGridDetectionCache	cpPersistentGridDetectionCache	=
+																		new CPPersistentGridDetectionCache();
+
+	//==================================================================
+
+
+	// PROPERTY CLASS: CAPTURE GRID TEXT
+
+
+	private class CPCaptureGridText
+		extends Property.BooleanProperty
+	{
+
+	////////////////////////////////////////////////////////////////////
+	//  Constructors
+	////////////////////////////////////////////////////////////////////
+
+		private CPCaptureGridText()
+		{
+			super(concatenateKeys(Key.GRID, Key.CAPTURE_TEXT));
+			value = false;
+		}
+
+		//--------------------------------------------------------------
+
+	}
+
+	//------------------------------------------------------------------
+
+//::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::
+//  Instance methods : associated methods in enclosing class
+//::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::
+
+	public boolean isCaptureGridText()
+	{
+		return cpCaptureGridText.getValue();
+	}
+
+	//------------------------------------------------------------------
+
+	public void setCaptureGridText(boolean value)
+	{
+		cpCaptureGridText.setValue(value);
+	}
+
+	//------------------------------------------------------------------
+
+//::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::
+//  Instance variables : associated variables in enclosing class
+//::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::
+
+	private	CPCaptureGridText	cpCaptureGridText	= new CPCaptureGridText();
+
+	//==================================================================
+
+
 	// PROPERTY CLASS: CLUE DIRECTION KEYWORDS
 
 
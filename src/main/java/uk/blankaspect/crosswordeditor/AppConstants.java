@@ -65,6 +65,10 @@ interface AppConstants
 	String	HTML_FILENAME_EXTENSION	= ".html";
 	String	ICON_FILENAME_EXTENSION	= ".ico";
 	String	JAR_FILENAME_EXTENSION	= ".jar";
+	String	PNG_FILENAME_EXTENSION	= ".png";
+	String	TIF_FILENAME_EXTENSION	= ".tif";
+	String	TIFF_FILENAME_EXTENSION	= ".tiff";
+	String	TXT_FILENAME_EXTENSION	= ".txt";
 	String	XML_FILENAME_EXTENSION	= ".xml";
 
 	// File-filter descriptions
@@ -77,6 +81,9 @@ interface AppConstants
 			new FilenameSuffixFilter("HTML files", HTML_FILENAME_EXTENSION);
 	FilenameSuffixFilter ICON_FILE_FILTER	=
 			new FilenameSuffixFilter("Windows icon files", ICON_FILENAME_EXTENSION);
+	FilenameSuffixFilter IMAGE_FILE_FILTER	=
+			new FilenameSuffixFilter("PNG and TIFF files", PNG_FILENAME_EXTENSION, TIF_FILENAME_EXTENSION,
+									 TIFF_FILENAME_EXTENSION);
 	FilenameSuffixFilter JAR_FILE_FILTER	=
 			new FilenameSuffixFilter("JAR files", JAR_FILENAME_EXTENSION);
 	FilenameSuffixFilter XML_FILE_FILTER	=
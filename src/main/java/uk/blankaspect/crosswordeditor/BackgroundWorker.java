@@ -0,0 +1,361 @@
+/*====================================================================*\
+
+BackgroundWorker.java
+
+Class: background worker.
+
+\*====================================================================*/
+
+
+// PACKAGE
+
+
+package uk.blankaspect.crosswordeditor;
+
+//----------------------------------------------------------------------
+
+
+// IMPORTS
+
+
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+
+import uk.blankaspect.common.exception.AppException;
+import uk.blankaspect.common.exception.TaskCancelledException;
+
+import uk.blankaspect.common.function.IProcedure1;
+
+import uk.blankaspect.common.thread.DaemonFactory;
+
+//----------------------------------------------------------------------
+
+
+// CLASS: BACKGROUND WORKER
+
+
+/**
+ * This class implements a worker that performs one job at a time on a background thread on behalf of a component on
+ * the event-dispatch thread.
+ * <ul>
+ *   <li>A job that is submitted is not started until no other job has been submitted for the debounce delay, so that
+ *       a burst of submissions (for example, from a spinner whose button is held down) results in a single job.</li>
+ *   <li>A job supersedes the job that is in progress when it is started: the thread of the superseded job is
+ *       interrupted, and its result is discarded.  A job is expected to test the interrupted status of its thread and
+ *       to throw a {@link TaskCancelledException} if it has been interrupted.</li>
+ *   <li>The result of a job that is neither cancelled nor superseded is passed to the result handler on the
+ *       event-dispatch thread.  An unchecked exception or error that is thrown by a job is passed to the handler as
+ *       an {@link AppException}, so that the worker does not remain busy after the thread of the job has
+ *       terminated.</li>
+ * </ul>
+ * <p>
+ * The methods of this class must be called on the event-dispatch thread.
+ * </p>
+ *
+ * @param <T>
+ *          the type of the value that is computed by a job.
+ */
+
+class BackgroundWorker<T>
+{
+
+////////////////////////////////////////////////////////////////////////
+//  Instance variables
+////////////////////////////////////////////////////////////////////////
+
+	private	String					name;
+	private	IProcedure1<Result<T>>	resultHandler;
+	private	Timer					timer;
+	private	IJob<T>					pendingJob;
+	private	Thread					thread;
+	private	int						generation;
+
+////////////////////////////////////////////////////////////////////////
+//  Constructors
+////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Creates a new instance of a background worker.
+	 *
+	 * @param name
+	 *          the name of the threads on which jobs will be performed.
+	 * @param delay
+	 *          the debounce delay (in milliseconds).
+	 * @param resultHandler
+	 *          the procedure that will be invoked on the event-dispatch thread with the result of each job that is
+	 *          completed.
+	 */
+
+	public BackgroundWorker(
+		String					name,
+		int						delay,
+		IProcedure1<Result<T>>	resultHandler)
+	{
+		// Initialise instance variables
+		this.name = name;
+		this.resultHandler = resultHandler;
+		timer = new Timer(delay, event -> startPendingJob());
+		timer.setRepeats(false);
+	}
+
+	//------------------------------------------------------------------
+
+////////////////////////////////////////////////////////////////////////
+//  Instance methods
+////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Returns {@code true} if a job has been submitted and its result has not yet been passed to the result handler.
+	 *
+	 * @return {@code true} if a job is pending or in progress.
+	 */
+
+	public boolean isBusy()
+	{
+		return (pendingJob != null) || (thread != null);
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Submits the specified job, which will be started when the debounce delay has elapsed without another job being
+	 * submitted.  A job that was submitted previously and has not yet started is discarded.
+	 *
+	 * @param job
+	 *          the job that will be performed.
+	 */
+
+	public void submit(
+		IJob<T>	job)
+	{
+		pendingJob = job;
+		timer.restart();
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Submits the specified job and starts it immediately.
+	 *
+	 * @param job
+	 *          the job that will be performed.
+	 */
+
+	public void submitNow(
+		IJob<T>	job)
+	{
+		timer.stop();
+		pendingJob = job;
+		startPendingJob();
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Discards the pending job, if there is one, and cancels the job that is in progress, if there is one.  The result
+	 * of the cancelled job will not be passed to the result handler.
+	 */
+
+	public void cancel()
+	{
+		timer.stop();
+		pendingJob = null;
+		stopThread();
+	}
+
+	//------------------------------------------------------------------
+
+	private void startPendingJob()
+	{
+		// Test for pending job
+		if (pendingJob == null)
+			return;
+
+		// Cancel job in progress
+		stopThread();
+
+		// Start pending job
+		IJob<T> job = pendingJob;
+		pendingJob = null;
+		int jobGeneration = generation;
+		thread = DaemonFactory.create(name, () ->
+		{
+			// Perform job
+			T value = null;
+			AppException exception = null;
+			try
+			{
+				value = job.run();
+			}
+			catch (TaskCancelledException e)
+			{
+				return;
+			}
+			catch (AppException e)
+			{
+				exception = e;
+			}
+			catch (OutOfMemoryError e)
+			{
+				exception = new AppException(ErrorId.NOT_ENOUGH_MEMORY, e);
+			}
+			catch (RuntimeException | Error e)
+			{
+				exception = new AppException(ErrorId.UNEXPECTED_ERROR, e, e.toString());
+			}
+
+			// Pass result to handler if job has not been superseded or cancelled
+			Result<T> result = new Result<>(value, exception);
+			SwingUtilities.invokeLater(() ->
+			{
+				if (jobGeneration == generation)
+				{
+					thread = null;
+					resultHandler.invoke(result);
+				}
+			});
+		});
+		thread.start();
+	}
+
+	//------------------------------------------------------------------
+
+	private void stopThread()
+	{
+		++generation;
+		if (thread != null)
+		{
+			thread.interrupt();
+			thread = null;
+		}
+	}
+
+	//------------------------------------------------------------------
+
+////////////////////////////////////////////////////////////////////////
+//  Enumerated types
+////////////////////////////////////////////////////////////////////////
+
+
+	// ENUMERATION: ERROR IDENTIFIERS
+
+
+	private enum ErrorId
+		implements AppException.IId
+	{
+
+	////////////////////////////////////////////////////////////////////
+	//  Constants
+	////////////////////////////////////////////////////////////////////
+
+		NOT_ENOUGH_MEMORY
+		("There was not enough memory to complete the task."),
+
+		UNEXPECTED_ERROR
+		("An unexpected error occurred.\n(%1)");
+
+	////////////////////////////////////////////////////////////////////
+	//  Instance variables
+	////////////////////////////////////////////////////////////////////
+
+		private	String	message;
+
+	////////////////////////////////////////////////////////////////////
+	//  Constructors
+	////////////////////////////////////////////////////////////////////
+
+		private ErrorId(
+			String	message)
+		{
+			this.message = message;
+		}
+
+		//--------------------------------------------------------------
+
+	////////////////////////////////////////////////////////////////////
+	//  Instance methods : AppException.IId interface
+	////////////////////////////////////////////////////////////////////
+
+		@Override
+		public String getMessage()
+		{
+			return message;
+		}
+
+		//--------------------------------------------------------------
+
+	}
+
+	//==================================================================
+
+////////////////////////////////////////////////////////////////////////
+//  Member interfaces
+////////////////////////////////////////////////////////////////////////
+
+
+	// INTERFACE: JOB
+
+
+	/**
+	 * This functional interface defines the method that must be implemented by a job that is performed by a {@link
+	 * BackgroundWorker}.
+	 *
+	 * @param <T>
+	 *          the type of the value that is computed by the job.
+	 */
+
+	@FunctionalInterface
+	interface IJob<T>
+	{
+
+	////////////////////////////////////////////////////////////////////
+	//  Methods
+	////////////////////////////////////////////////////////////////////
+
+		/**
+		 * Performs the job and returns its result.
+		 *
+		 * @return the value that is computed by the job.
+		 * @throws TaskCancelledException
+		 *           if the thread of the job was interrupted.
+		 * @throws AppException
+		 *           if an error occurred when performing the job.
+		 */
+
+		T run()
+			throws AppException;
+
+		//--------------------------------------------------------------
+
+	}
+
+	//==================================================================
+
+////////////////////////////////////////////////////////////////////////
+//  Member records
+////////////////////////////////////////////////////////////////////////
+
+
+	// RECORD: RESULT OF JOB
+
+
+	/**
+	 * This record encapsulates the result of a job: either the value that was computed by the job or the exception
+	 * that was thrown by it.
+	 *
+	 * @param value
+	 *          the value that was computed by the job, or {@code null} if an exception was thrown.
+	 * @param exception
+	 *          the exception that was thrown by the job, or {@code null} if the job completed normally.
+	 */
+
+	public record Result<T>(
+		T				value,
+		AppException	exception)
+	{ }
+
+	//==================================================================
+
+}
+
+//----------------------------------------------------------------------
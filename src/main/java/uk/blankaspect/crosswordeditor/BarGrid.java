@@ -20,11 +20,15 @@ package uk.blankaspect.crosswordeditor;
 
 import java.awt.Color;
 
-import java.awt.image.BufferedImage;
-
 import java.io.IOException;
 
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+import java.nio.ByteOrder;
+
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.EnumSet;
 import java.util.List;
 import java.util.Set;
@@ -61,34 +65,78 @@ class BarGrid
 
 	private static final	double	OFFSET_FACTOR	= 0.01;
 
+	private static final	int		MALFORMED_BOUNDARY			= -1;
+	private static final	int		MAX_NUM_REPORTED_BOUNDARIES	= 16;
+
 	private static final	String	BORDER_WIDTH_PROPERTY	= "border-%s-width";
 
 	private static final	String	GRID_DEF_CHARS	= "0123";
 
 	private static final	String	PIXEL_SIZE_STR	= "%dpx";
 
-	private static final	EnumSet<Edge>		SECONDARY_BARS		= EnumSet.of(Edge.BOTTOM, Edge.RIGHT);
-	private static final	List<EnumSet<Edge>>	SECONDARY_BAR_SETS	= List.of
-	(
-		EnumSet.noneOf(Edge.class),
-		EnumSet.of(Edge.BOTTOM),
-		EnumSet.of(Edge.RIGHT),
+	private static final	String	VERTICAL_BOUNDARY_STR	= "Row %d, between columns %d and %d";
+	private static final	String	HORIZONTAL_BOUNDARY_STR	= "Column %d, between rows %d and %d";
+	private static final	String	MORE_BOUNDARIES_STR		= "... and %d more";
+
+	private static final	int		SECONDARY_BARS		= Edge.BOTTOM.getMask() | Edge.RIGHT.getMask();
+	private static final	int[]	SECONDARY_BAR_MASKS	=
+	{
+		0,
+		Edge.BOTTOM.getMask(),
+		Edge.RIGHT.getMask(),
 		SECONDARY_BARS
-	);
+	};
+
+	/**
+	 * For each symmetry, indexed by its ordinal, the masks of the images of the edges of every mask under the
+	 * symmetry, indexed by the mask.
+	 */
+	private static final	byte[][]	IMAGE_MASKS;
+
+	/** A view of an array of cell masks as little-endian words, each of which holds the masks of eight cells. */
+	private static final	VarHandle	LONG_VIEW	=
+			MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+	/** The number of cell masks in a word of {@link #LONG_VIEW}. */
+	private static final	int		MASKS_PER_WORD	= Long.BYTES;
+
+	/** The low bit of each byte of a word. */
+	private static final	long	LOW_BITS	= 0x0101010101010101L;
 
-	private enum GridState
+////////////////////////////////////////////////////////////////////////
+//  Static initialiser
+////////////////////////////////////////////////////////////////////////
+
+	static
 	{
-		START,
-		LEADING_LIGHT,
-		DARK,
-		TRAILING_LIGHT
+		IMAGE_MASKS = new byte[Symmetry.values().length][1 << Edge.values().length];
+		for (Symmetry symmetry : Symmetry.values())
+		{
+			byte[] imageMasks = IMAGE_MASKS[symmetry.ordinal()];
+			for (int mask = 0; mask < imageMasks.length; mask++)
+			{
+				imageMasks[mask] = (byte)switch (symmetry)
+				{
+					case ROTATION_HALF              -> Edge.rotateQuarter(mask, 2);
+					case ROTATION_QUARTER           -> Edge.rotateQuarter(mask, 1);
+					case REFLECTION_VERTICAL_AXIS   -> Edge.reflectVAxis(mask);
+					case REFLECTION_HORIZONTAL_AXIS -> Edge.reflectHAxis(mask);
+					default                         -> mask;
+				};
+			}
+		}
 	}
 
 ////////////////////////////////////////////////////////////////////////
 //  Instance variables
 ////////////////////////////////////////////////////////////////////////
 
-	private	Cell[][]	cells;
+	/**
+	 * The bars of the cells of this grid in row-major order, as a bit mask of the {@linkplain Edge#getMask() masks}
+	 * of the edges of the bars of each cell.
+	 */
+	private	byte[]		bars;
+
 	private	EditList	editList;
 
 ////////////////////////////////////////////////////////////////////////
@@ -122,22 +170,23 @@ class BarGrid
 		this.symmetry = symmetry;
 
 		// Parse grid definition
-		List<EnumSet<Edge>> barSets = new ArrayList<>();
+		byte[] barMasks = new byte[definition.length()];
 		for (int i = 0; i < definition.length(); i++)
 		{
 			char ch = definition.charAt(i);
 			int index = GRID_DEF_CHARS.indexOf(Character.toUpperCase(ch));
 			if (index < 0)
 				throw new AppException(ErrorId.ILLEGAL_CHARACTER_IN_GRID_DEFINITION, Character.toString(ch));
-			barSets.add(SECONDARY_BAR_SETS.get(index));
+			barMasks[i] = (byte)SECONDARY_BAR_MASKS[index];
 		}
 		int[] dimensions = symmetry.getPrincipalDimensions(numColumns, numRows);
-		if (barSets.size() != dimensions[0] * dimensions[1])
+		if (barMasks.length != dimensions[0] * dimensions[1])
 			throw new AppException(ErrorId.MALFORMED_GRID_DEFINITION);
 
 		// Initialise cells
-		for (int i = 0; i < barSets.size(); i++)
-			setCellBars(i / dimensions[0], i % dimensions[0], SECONDARY_BARS, barSets.get(i));
+		for (int i = 0; i < barMasks.length; i++)
+			setCellBars(i / dimensions[0], i % dimensions[0], SECONDARY_BARS, barMasks[i], false);
+		initAsymmetricCellCounts();
 
 		// Initialise fields
 		initFields();
@@ -148,7 +197,7 @@ class BarGrid
 	public BarGrid(
 		int				numColumns,
 		int				numRows,
-		BufferedImage	image,
+		PixelRaster		raster,
 		int				xOffset,
 		int				yOffset,
 		double			brightnessThreshold,
@@ -159,49 +208,95 @@ class BarGrid
 		this(numColumns, numRows);
 
 		// Initialise local variables
-		int imageWidth = image.getWidth();
-		int imageHeight = image.getHeight();
+		int imageWidth = raster.getWidth();
+		int imageHeight = raster.getHeight();
+		int darkLimit = PixelRaster.getDarkLimit(brightnessThreshold);
 		double cellWidth = (double)imageWidth / (double)numColumns;
 		double cellHeight = (double)imageHeight / (double)numRows;
 		double dx = (double)xOffset * OFFSET_FACTOR * cellWidth;
 		double dy = (double)yOffset * OFFSET_FACTOR * cellHeight;
 
-		// Detect vertical bars in image
+		// Get coordinates of centres of cells in image.  An offset may move the centres of the outermost cells beyond
+		// the bounds of the image, so the centres are clamped to the bounds.
+		int[] columnCentres = new int[numColumns];
+		double x = 0.5 * cellWidth;
+		for (int column = 0; column < numColumns; column++)
+		{
+			columnCentres[column] = Math.max(0, Math.min((int)Math.round(x + dx), imageWidth - 1));
+			x += cellWidth;
+		}
+		int[] rowCentres = new int[numRows];
 		double y = 0.5 * cellHeight;
 		for (int row = 0; row < numRows; row++)
 		{
-			int iy = (int)Math.round(y + dy);
-			int prevImageX = -1;
-			double x = 0.5 * cellWidth;
-			for (int column = 0; column < numColumns; column++)
+			rowCentres[row] = Math.max(0, Math.min((int)Math.round(y + dy), imageHeight - 1));
+			y += cellHeight;
+		}
+
+		// Measure the widths of the bars between adjacent cells along each scanline through the centres of cells.  The
+		// widths of the vertical bars of a row are at indices [row * (numColumns - 1), (row + 1) * (numColumns - 1)),
+		// and the widths of the horizontal bars of a column are at indices [column * (numRows - 1),
+		// (column + 1) * (numRows - 1)).
+		int startX = columnCentres[0];
+		int endX = columnCentres[numColumns - 1] + 1;
+		long[] mask = new long[PixelRaster.getNumMaskWords(endX - startX)];
+		int numVerticalBars = numColumns - 1;
+		int[] verticalBarWidths = new int[numRows * numVerticalBars];
+		for (int row = 0; row < numRows; row++)
+		{
+			raster.getRowDarkMask(darkLimit, rowCentres[row], startX, endX, mask);
+			measureBars(mask, columnCentres, verticalBarWidths, row * numVerticalBars);
+		}
+
+		int startY = rowCentres[0];
+		int endY = rowCentres[numRows - 1] + 1;
+		mask = new long[PixelRaster.getNumMaskWords(endY - startY)];
+		int numHorizontalBars = numRows - 1;
+		int[] horizontalBarWidths = new int[numColumns * numHorizontalBars];
+		for (int column = 0; column < numColumns; column++)
+		{
+			raster.getColumnDarkMask(darkLimit, columnCentres[column], startY, endY, mask);
+			measureBars(mask, rowCentres, horizontalBarWidths, column * numHorizontalBars);
+		}
+
+		// Test for malformed boundaries between cells
+		List<String> malformedBoundaries = new ArrayList<>();
+		for (int row = 0; row < numRows; row++)
+		{
+			for (int column = 1; column < numColumns; column++)
 			{
-				int imageX = (int)Math.round(x + dx);
-				if ((prevImageX >= 0)
-						&& isBar(prevImageX, imageX, iy, true, image, brightnessThreshold, barWidthThreshold))
-					cells[row][column].addBar(Edge.LEFT);
-				prevImageX = imageX;
-				x += cellWidth;
+				if (verticalBarWidths[row * numVerticalBars + column - 1] == MALFORMED_BOUNDARY)
+					malformedBoundaries.add(String.format(VERTICAL_BOUNDARY_STR, row + 1, column, column + 1));
+			}
+		}
+		for (int column = 0; column < numColumns; column++)
+		{
+			for (int row = 1; row < numRows; row++)
+			{
+				if (horizontalBarWidths[column * numHorizontalBars + row - 1] == MALFORMED_BOUNDARY)
+					malformedBoundaries.add(String.format(HORIZONTAL_BOUNDARY_STR, column + 1, row, row + 1));
 			}
-			y += cellHeight;
 		}
+		if (!malformedBoundaries.isEmpty())
+			throw new AppException(ErrorId.MALFORMED_GRID_IMAGE, Integer.toString(malformedBoundaries.size()),
+								   createBoundaryList(malformedBoundaries));
 
-		// Detect horizontal bars in image
-		double x = 0.5 * cellWidth;
+		// Set bars from their widths
+		for (int row = 0; row < numRows; row++)
+		{
+			for (int column = 1; column < numColumns; column++)
+			{
+				if (verticalBarWidths[row * numVerticalBars + column - 1] >= barWidthThreshold)
+					addBar(row, column, Edge.LEFT);
+			}
+		}
 		for (int column = 0; column < numColumns; column++)
 		{
-			int ix = (int)Math.round(x + dx);
-			int prevImageY = -1;
-			y = 0.5 * cellHeight;
-			for (int row = 0; row < numRows; row++)
+			for (int row = 1; row < numRows; row++)
 			{
-				int imageY = (int)Math.round(y + dy);
-				if ((prevImageY >= 0)
-						&& isBar(prevImageY, imageY, ix, false, image, brightnessThreshold, barWidthThreshold))
-					cells[row][column].addBar(Edge.TOP);
-				prevImageY = imageY;
-				y += cellHeight;
+				if (horizontalBarWidths[column * numHorizontalBars + row - 1] >= barWidthThreshold)
+					addBar(row, column, Edge.TOP);
 			}
-			x += cellWidth;
 		}
 
 		// Initialise remaining bars
@@ -209,15 +304,14 @@ class BarGrid
 		{
 			for (int column = 0; column < numColumns; column++)
 			{
-				Cell cell = cells[row][column];
-				if ((row < numRows - 1) && cells[row + 1][column].hasBar(Edge.TOP))
-					cell.addBar(Edge.BOTTOM);
-				if ((column < numColumns - 1) && cells[row][column + 1].hasBar(Edge.LEFT))
-					cell.addBar(Edge.RIGHT);
-				if ((row > 0) && cells[row - 1][column].hasBar(Edge.BOTTOM))
-					cell.addBar(Edge.TOP);
-				if ((column > 0) && cells[row][column - 1].hasBar(Edge.RIGHT))
-					cell.addBar(Edge.LEFT);
+				if ((row < numRows - 1) && hasCellBar(row + 1, column, Edge.TOP))
+					addBar(row, column, Edge.BOTTOM);
+				if ((column < numColumns - 1) && hasCellBar(row, column + 1, Edge.LEFT))
+					addBar(row, column, Edge.RIGHT);
+				if ((row > 0) && hasCellBar(row - 1, column, Edge.BOTTOM))
+					addBar(row, column, Edge.TOP);
+				if ((column > 0) && hasCellBar(row, column - 1, Edge.RIGHT))
+					addBar(row, column, Edge.LEFT);
 			}
 		}
 
@@ -225,6 +319,7 @@ class BarGrid
 		initFields();
 
 		// Update symmetry
+		initAsymmetricCellCounts();
 		updateSymmetry();
 	}
 
@@ -236,17 +331,17 @@ class BarGrid
 		// Initialise instance variables
 		this(grid.numColumns, grid.numRows);
 		symmetry = grid.symmetry;
-		editList = new EditList(AppConfig.INSTANCE.getMaxEditListLength());
+		AppConfig config = AppConfig.INSTANCE;
+		editList = new EditList(config.getMaxEditListLength(), (long)config.getMaxEditListSize() << 20);
 
 		// Initialise cells
-		for (int row = 0; row < numRows; row++)
-		{
-			for (int column = 0; column < numColumns; column++)
-				cells[row][column].bars = grid.cells[row][column].bars.clone();
-		}
+		System.arraycopy(grid.bars, 0, bars, 0, bars.length);
 
 		// Initialise fields
-		initFields();
+		copyFields(grid);
+
+		// Initialise symmetry state
+		copyAsymmetricCellCounts(grid);
 	}
 
 	//------------------------------------------------------------------
@@ -259,12 +354,7 @@ class BarGrid
 		super(numColumns, numRows);
 
 		// Initialise instance variables
-		cells = new Cell[numRows][numColumns];
-		for (int row = 0; row < numRows; row++)
-		{
-			for (int column = 0; column < numColumns; column++)
-				cells[row][column] = new Cell();
-		}
+		bars = new byte[numRows * numColumns];
 	}
 
 	//------------------------------------------------------------------
@@ -273,71 +363,74 @@ class BarGrid
 //  Class methods
 ////////////////////////////////////////////////////////////////////////
 
-	private static Cell[][] copyCells(
-		Cell[][]	cells)
+	/**
+	 * Measures the widths of the bars that lie between adjacent cell centres on a scanline from the specified mask of
+	 * the dark pixels of the scanline.  The segment between two adjacent centres must consist of light pixels, a
+	 * single run of dark pixels and light pixels; the width of a segment that does not have that form is set to
+	 * {@link #MALFORMED_BOUNDARY}.  The runs are found with {@link PixelRaster#nextSetBit(long[], int, int)} and
+	 * {@link PixelRaster#nextClearBit(long[], int, int)}, so the light pixels of a segment are skipped a word at a
+	 * time.
+	 *
+	 * @param mask
+	 *          the mask of the dark pixels of the scanline, whose first bit corresponds to the first cell centre.
+	 * @param centres
+	 *          the coordinates of the cell centres along the scanline, in ascending order.
+	 * @param barWidths
+	 *          the array in which the widths of the bars will be stored.
+	 * @param offset
+	 *          the index in {@code barWidths} of the width of the first bar.
+	 */
+
+	private static void measureBars(
+		long[]	mask,
+		int[]	centres,
+		int[]	barWidths,
+		int		offset)
 	{
-		Cell[][] outCells = new Cell[cells.length][];
-		for (int i = 0; i < cells.length; i++)
+		int origin = centres[0];
+		for (int i = 1; i < centres.length; i++)
 		{
-			int length = cells[i].length;
-			outCells[i] = new Cell[length];
-			for (int j = 0; j < length; j++)
-				outCells[i][j] = cells[i][j].clone();
+			// Get the bounds of the segment; the end of the segment is inclusive
+			int startIndex = centres[i - 1] - origin;
+			int endIndex = centres[i] - origin;
+			int length = endIndex + 1;
+
+			// Find the dark run of the segment and test that light pixels precede and follow it
+			int lineWidth = MALFORMED_BOUNDARY;
+			if (((mask[startIndex >>> 6] >>> startIndex) & 1) == 0)
+			{
+				int runStart = PixelRaster.nextSetBit(mask, startIndex + 1, length);
+				if (runStart < length)
+				{
+					int runEnd = PixelRaster.nextClearBit(mask, runStart, length);
+					if ((runEnd < length) && (PixelRaster.nextSetBit(mask, runEnd, length) == length))
+						lineWidth = runEnd - runStart;
+				}
+			}
+
+			// Set width of bar
+			barWidths[offset++] = lineWidth;
 		}
-		return outCells;
 	}
 
 	//------------------------------------------------------------------
 
-	private static boolean isBar(
-		int				startIndex,
-		int				endIndex,
-		int				fixedCoord,
-		boolean			vertical,
-		BufferedImage	image,
-		double			brightnessThreshold,
-		int				barWidthThreshold)
-		throws AppException
+	private static String createBoundaryList(
+		List<String>	boundaries)
 	{
-		int lineWidth = 0;
-		GridState state = GridState.START;
-		for (int i = startIndex; i <= endIndex; i++)
+		StringBuilder buffer = new StringBuilder(256);
+		int numBoundaries = Math.min(boundaries.size(), MAX_NUM_REPORTED_BOUNDARIES);
+		for (int i = 0; i < numBoundaries; i++)
 		{
-			int rgb = image.getRGB(vertical ? i : fixedCoord, vertical ? fixedCoord : i);
-			boolean dark = (ColourUtils.getBrightness(rgb) < brightnessThreshold);
-			switch (state)
-			{
-				case START:
-					if (dark)
-						throw new AppException(ErrorId.MALFORMED_GRID_IMAGE);
-					state = GridState.LEADING_LIGHT;
-					break;
-
-				case LEADING_LIGHT:
-					if (dark)
-					{
-						++lineWidth;
-						state = GridState.DARK;
-					}
-					break;
-
-				case DARK:
-					if (dark)
-						++lineWidth;
-					else
-						state = GridState.TRAILING_LIGHT;
-					break;
-
-				case TRAILING_LIGHT:
-					if (dark)
-						throw new AppException(ErrorId.MALFORMED_GRID_IMAGE);
-					break;
-			}
+			buffer.append('\n');
+			buffer.append(boundaries.get(i));
 		}
-		if (state != GridState.TRAILING_LIGHT)
-			throw new AppException(ErrorId.MALFORMED_GRID_IMAGE);
-
-		return (lineWidth >= barWidthThreshold);
+		if (boundaries.size() > numBoundaries)
+		{
+			buffer.append('\n');
+			buffer.append(String.format(MORE_BOUNDARIES_STR, boundaries.size() - numBoundaries));
+		}
+		return buffer.toString();
 	}
 
 	//------------------------------------------------------------------
@@ -432,6 +525,28 @@ class BarGrid
 
 	//------------------------------------------------------------------
 
+	/**
+	 * Returns the images under the specified symmetry of the eight cell masks of the specified word.  The symmetry
+	 * must not be a quarter-turn rotation.
+	 */
+
+	private static long transformMasks(
+		long		masks,
+		Symmetry	symmetry)
+	{
+		return switch (symmetry)
+		{
+			case ROTATION_HALF              -> ((masks << 2) | (masks >>> 2)) & 0x0F0F0F0F0F0F0F0FL;
+			case REFLECTION_VERTICAL_AXIS   -> (masks & 0x0505050505050505L) | ((masks & 0x0202020202020202L) << 2)
+													| ((masks & 0x0808080808080808L) >>> 2);
+			case REFLECTION_HORIZONTAL_AXIS -> (masks & 0x0A0A0A0A0A0A0A0AL) | ((masks & 0x0101010101010101L) << 2)
+													| ((masks & 0x0404040404040404L) >>> 2);
+			default                         -> masks;
+		};
+	}
+
+	//------------------------------------------------------------------
+
 ////////////////////////////////////////////////////////////////////////
 //  Instance methods : overriding methods
 ////////////////////////////////////////////////////////////////////////
@@ -449,7 +564,7 @@ class BarGrid
 		int	row,
 		int	column)
 	{
-		return cells[row][column];
+		return new Cell(row, column);
 	}
 
 	//------------------------------------------------------------------
@@ -462,10 +577,10 @@ class BarGrid
 		{
 			for (int column = 0; column < numColumns; column++)
 			{
-				if (((column == 0) || cells[row][column].hasBar(Edge.LEFT))
-						&& ((column == numColumns - 1) || cells[row][column + 1].hasBar(Edge.LEFT))
-						&& ((row == 0) || cells[row][column].hasBar(Edge.TOP))
-						&& ((row == numRows - 1) || cells[row + 1][column].hasBar(Edge.TOP)))
+				if (((column == 0) || hasCellBar(row, column, Edge.LEFT))
+						&& ((column == numColumns - 1) || hasCellBar(row, column + 1, Edge.LEFT))
+						&& ((row == 0) || hasCellBar(row, column, Edge.TOP))
+						&& ((row == numRows - 1) || hasCellBar(row + 1, column, Edge.TOP)))
 					isolatedCells.add(new IndexPair(row, column));
 			}
 		}
@@ -479,17 +594,17 @@ class BarGrid
 	{
 		List<String> strs = new ArrayList<>();
 		int[] dimensions = symmetry.getPrincipalDimensions(numColumns, numRows);
-		StringBuilder buffer = new StringBuilder(dimensions[0]);
+		char[] buffer = new char[dimensions[0]];
 		for (int row = 0; row < dimensions[1]; row++)
 		{
-			buffer.setLength(0);
+			int index = row * numColumns;
 			for (int column = 0; column < dimensions[0]; column++)
 			{
-				EnumSet<Edge> bars = cells[row][column].bars.clone();
-				bars.retainAll(SECONDARY_BARS);
-				buffer.append(GRID_DEF_CHARS.charAt(SECONDARY_BAR_SETS.indexOf(bars)));
+				// Map the secondary bars (BOTTOM = 0b0100, RIGHT = 0b0010) to an index of the definition characters
+				int mask = bars[index++];
+				buffer[column] = GRID_DEF_CHARS.charAt(((mask >>> 2) & 1) | (mask & 2));
 			}
-			strs.add(buffer.toString());
+			strs.add(new String(buffer));
 		}
 		return strs;
 	}
@@ -575,95 +690,131 @@ class BarGrid
 		{
 			// Save old state
 			Symmetry oldSymmetry = this.symmetry;
-			Cell[][] oldCells = copyCells(cells);
+			byte[] oldBars = bars.clone();
 
 			// Set instance variable
 			this.symmetry = symmetry;
 
-			// Make list of secondary bars of cells of specified region
+			// Clear bars of all cells
+			Arrays.fill(bars, (byte)0);
+
+			// Initialise bars from secondary bars of cells of principal region
 			int[] dimensions = symmetry.getPrincipalDimensions(numColumns, numRows);
-			List<EnumSet<Edge>> barSets = new ArrayList<>();
 			for (int row = 0; row < dimensions[1]; row++)
 			{
 				for (int column = 0; column < dimensions[0]; column++)
-				{
-					EnumSet<Edge> bars = cells[row][column].bars.clone();
-					bars.retainAll(SECONDARY_BARS);
-					barSets.add(bars);
-				}
-			}
-
-			// Clear bars of all cells
-			for (int row = 0; row < numRows; row++)
-			{
-				for (int column = 0; column < numColumns; column++)
-					cells[row][column].bars.clear();
+					setCellBars(row, column, SECONDARY_BARS, oldBars[row * numColumns + column] & SECONDARY_BARS,
+								false);
 			}
-
-			// Initialise bars
-			for (int i = 0; i < barSets.size(); i++)
-				setCellBars(i / dimensions[0], i % dimensions[0], SECONDARY_BARS, barSets.get(i));
+			initAsymmetricCellCounts();
 
 			// Initialise fields
 			initFields();
 
 			// Add edit to list
-			editList.add(new Edit(oldSymmetry, oldCells, symmetry, copyCells(cells)));
+			addEdit(oldSymmetry, symmetry, oldBars);
 		}
 	}
 
 	//------------------------------------------------------------------
 
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * Except for a quarter-turn rotation, which maps rows to columns, the masks of a row are compared with the masks
+	 * of its image eight at a time: the masks of a word are transformed together, and the masks of the corresponding
+	 * cells of the image row are read as a word whose bytes are reversed if the symmetry reverses the columns.
+	 * </p>
+	 */
+
 	@Override
-	protected boolean isSymmetry(
+	protected int countAsymmetricCells(
 		Symmetry	symmetry)
 	{
-		int[] dimensions = symmetry.getPrincipalDimensions(numColumns, numRows);
-		for (int r1 = 0; r1 < dimensions[1]; r1++)
+		int count = 0;
+		for (int r1 = 0; r1 < numRows; r1++)
 		{
-			for (int c1 = 0; c1 < dimensions[0]; c1++)
+			// Get the row of the image and whether the symmetry reverses the columns
+			boolean reverse = false;
+			int r2 = r1;
+			switch (symmetry)
 			{
-				EnumSet<Edge> bars = cells[r1][c1].bars;
-				int c2 = numColumns - 1 - c1;
-				int r2 = numRows - 1 - r1;
-				switch (symmetry)
-				{
-					case NONE:
-						// do nothing
-						break;
-
-					case ROTATION_HALF:
-						if (!cells[r2][c2].bars.equals(Edge.rotateQuarter(bars, 2)))
-							return false;
-						break;
-
-					case ROTATION_QUARTER:
-						if (!cells[c1][r2].bars.equals(Edge.rotateQuarter(bars, 1))
-								|| !cells[r2][c2].bars.equals(Edge.rotateQuarter(bars, 2))
-								|| !cells[c2][r1].bars.equals(Edge.rotateQuarter(bars, 3)))
-							return false;
-						break;
-
-					case REFLECTION_VERTICAL_AXIS:
-						if (!cells[r1][c2].bars.equals(Edge.reflectVAxis(bars)))
-							return false;
-						break;
-
-					case REFLECTION_HORIZONTAL_AXIS:
-						if (!cells[r2][c1].bars.equals(Edge.reflectHAxis(bars)))
-							return false;
-						break;
-
-					case REFLECTION_VERTICAL_HORIZONTAL_AXES:
-						if (!cells[r1][c2].bars.equals(Edge.reflectVAxis(bars))
-								|| !cells[r2][c1].bars.equals(Edge.reflectHAxis(bars))
-								|| !cells[r2][c2].bars.equals(Edge.rotateQuarter(bars, 2)))
-							return false;
-						break;
-				}
+				case ROTATION_HALF:
+					reverse = true;
+					r2 = numRows - 1 - r1;
+					break;
+
+				case ROTATION_QUARTER:
+					// A quarter-turn rotation maps rows to columns, so the cells are compared individually
+					for (int c1 = 0; c1 < numColumns; c1++)
+					{
+						int index = r1 * numColumns + c1;
+						if (isAsymmetricCell(index, getImageIndex(r1, c1, symmetry), symmetry))
+							++count;
+					}
+					continue;
+
+				case REFLECTION_VERTICAL_AXIS:
+					reverse = true;
+					break;
+
+				case REFLECTION_HORIZONTAL_AXIS:
+					r2 = numRows - 1 - r1;
+					break;
+
+				default:
+					continue;
+			}
+
+			// Compare the masks of the row with the masks of its image a word at a time
+			int offset1 = r1 * numColumns;
+			int offset2 = r2 * numColumns;
+			int c1 = 0;
+			for ( ; c1 <= numColumns - MASKS_PER_WORD; c1 += MASKS_PER_WORD)
+			{
+				long masks = transformMasks((long)LONG_VIEW.get(bars, offset1 + c1), symmetry);
+				long imageMasks = reverse
+						? Long.reverseBytes((long)LONG_VIEW.get(bars, offset2 + numColumns - MASKS_PER_WORD - c1))
+						: (long)LONG_VIEW.get(bars, offset2 + c1);
+				long diff = masks ^ imageMasks;
+				count += Long.bitCount((diff | (diff >>> 1) | (diff >>> 2) | (diff >>> 3)) & LOW_BITS);
+			}
+
+			// Compare the remaining masks of the row individually
+			for ( ; c1 < numColumns; c1++)
+			{
+				if (isAsymmetricCell(offset1 + c1, getImageIndex(r1, c1, symmetry), symmetry))
+					++count;
 			}
 		}
-		return true;
+		return count;
+	}
+
+	//------------------------------------------------------------------
+
+	@Override
+	protected boolean isAsymmetricCell(
+		int			index,
+		int			imageIndex,
+		Symmetry	symmetry)
+	{
+		return (bars[imageIndex] != IMAGE_MASKS[symmetry.ordinal()][bars[index]]);
+	}
+
+	//------------------------------------------------------------------
+
+	@Override
+	protected boolean isSeparatedFromPreceding(
+		int			row,
+		int			column,
+		Direction	direction)
+	{
+		return switch (direction)
+		{
+			case NONE   -> true;
+			case ACROSS -> (column == 0) || hasCellBar(row, column, Edge.LEFT);
+			case DOWN   -> (row == 0) || hasCellBar(row, column, Edge.TOP);
+		};
 	}
 
 	//------------------------------------------------------------------
@@ -672,17 +823,89 @@ class BarGrid
 //  Instance methods
 ////////////////////////////////////////////////////////////////////////
 
-	public void setCellBars(
+	/**
+	 * Toggles the bar on the specified edge of the specified cell, and sets the bars of the corresponding edges of the
+	 * other regions of the symmetry of this grid to the same state.  Only the bars of the affected cells and their
+	 * adjacent cells are saved for the edit, so the grid is neither copied nor compared with its previous state.
+	 */
+
+	public void toggleBar(
 		int				row,
 		int				column,
-		EnumSet<Edge>	removeBars,
-		EnumSet<Edge>	addBars)
+		BarGrid.Edge	edge)
+	{
+		// Save the bars of the cells that may change
+		int[] cellIndices = getAdjacentCellIndices(getSymmetricCellIndices(row, column));
+		byte[] oldMasks = new byte[cellIndices.length];
+		for (int i = 0; i < cellIndices.length; i++)
+			oldMasks[i] = bars[cellIndices[i]];
+
+		// Toggle bar
+		int mask = edge.getMask();
+		setCellBars(row, column, mask, hasCellBar(row, column, edge) ? 0 : mask, true);
+
+		// Add edit to list and update fields
+		updateFields(addEdit(null, null, cellIndices, oldMasks));
+	}
+
+	//------------------------------------------------------------------
+
+	private boolean hasCellBar(
+		int		row,
+		int		column,
+		Edge	edge)
+	{
+		return ((bars[row * numColumns + column] & edge.getMask()) != 0);
+	}
+
+	//------------------------------------------------------------------
+
+	private int getBars(
+		int	row,
+		int	column)
+	{
+		return bars[row * numColumns + column];
+	}
+
+	//------------------------------------------------------------------
+
+	private void addBar(
+		int		row,
+		int		column,
+		Edge	edge)
+	{
+		bars[row * numColumns + column] |= edge.getMask();
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Removes bars from and adds bars to the specified cell and the corresponding cells of the other regions of the
+	 * symmetry of this grid.
+	 *
+	 * @param row
+	 *          the row of the cell.
+	 * @param column
+	 *          the column of the cell.
+	 * @param removeBars
+	 *          the mask of the edges of the bars that will be removed.
+	 * @param addBars
+	 *          the mask of the edges of the bars that will be added.
+	 * @param updateCounts
+	 *          if {@code true}, the numbers of asymmetric cells of this grid will be updated as the bars are set.
+	 */
+
+	private void setCellBars(
+		int		row,
+		int		column,
+		int		removeBars,
+		int		addBars,
+		boolean	updateCounts)
 	{
 		// Set specified cell
-		Edge.Sets barSets = new Edge.Sets(removeBars, addBars);
 		int r1 = row;
 		int c1 = column;
-		setBars(r1, c1, barSets);
+		setBars(r1, c1, removeBars, addBars, updateCounts);
 
 		// Set corresponding cells in other regions
 		int c2 = numColumns - 1 - c1;
@@ -694,168 +917,201 @@ class BarGrid
 				break;
 
 			case ROTATION_HALF:
-				setBars(r2, c2, Edge.rotateQuarter(barSets, 2));
+				setBars(r2, c2, Edge.rotateQuarter(removeBars, 2), Edge.rotateQuarter(addBars, 2), updateCounts);
 				break;
 
 			case ROTATION_QUARTER:
-				setBars(c1, r2, Edge.rotateQuarter(barSets, 1));
-				setBars(r2, c2, Edge.rotateQuarter(barSets, 2));
-				setBars(c2, r1, Edge.rotateQuarter(barSets, 3));
+				setBars(c1, r2, Edge.rotateQuarter(removeBars, 1), Edge.rotateQuarter(addBars, 1), updateCounts);
+				setBars(r2, c2, Edge.rotateQuarter(removeBars, 2), Edge.rotateQuarter(addBars, 2), updateCounts);
+				setBars(c2, r1, Edge.rotateQuarter(removeBars, 3), Edge.rotateQuarter(addBars, 3), updateCounts);
 				break;
 
 			case REFLECTION_VERTICAL_AXIS:
-				setBars(r1, c2, Edge.reflectVAxis(barSets));
+				setBars(r1, c2, Edge.reflectVAxis(removeBars), Edge.reflectVAxis(addBars), updateCounts);
 				break;
 
 			case REFLECTION_HORIZONTAL_AXIS:
-				setBars(r2, c1, Edge.reflectHAxis(barSets));
+				setBars(r2, c1, Edge.reflectHAxis(removeBars), Edge.reflectHAxis(addBars), updateCounts);
 				break;
 
 			case REFLECTION_VERTICAL_HORIZONTAL_AXES:
-				setBars(r1, c2, Edge.reflectVAxis(barSets));
-				setBars(r2, c1, Edge.reflectHAxis(barSets));
-				setBars(r2, c2, Edge.rotateQuarter(barSets, 2));
+				setBars(r1, c2, Edge.reflectVAxis(removeBars), Edge.reflectVAxis(addBars), updateCounts);
+				setBars(r2, c1, Edge.reflectHAxis(removeBars), Edge.reflectHAxis(addBars), updateCounts);
+				setBars(r2, c2, Edge.rotateQuarter(removeBars, 2), Edge.rotateQuarter(addBars, 2), updateCounts);
 				break;
 		}
 	}
 
 	//------------------------------------------------------------------
 
-	public void toggleBar(
-		int				row,
-		int				column,
-		BarGrid.Edge	edge)
+	/**
+	 * Returns the row-major indices of the specified cells and of the cells that are adjacent to them.  Each cell is
+	 * included once.
+	 */
+
+	private int[] getAdjacentCellIndices(
+		int[]	cellIndices)
 	{
-		Cell[][] oldCells = copyCells(cells);
-		EnumSet<BarGrid.Edge> bars = EnumSet.noneOf(BarGrid.Edge.class);
-		if (!getCell(row, column).hasBar(edge))
-			bars.add(edge);
-		setCellBars(row, column, EnumSet.of(edge), bars);
-		initFields();
-		editList.add(new Edit(null, oldCells, null, copyCells(cells)));
+		int[] indices = new int[cellIndices.length * (Edge.values().length + 1)];
+		int numIndices = 0;
+		for (int index : cellIndices)
+		{
+			int row = index / numColumns;
+			int column = index % numColumns;
+			indices[numIndices++] = index;
+			if (row > 0)
+				indices[numIndices++] = index - numColumns;
+			if (column < numColumns - 1)
+				indices[numIndices++] = index + 1;
+			if (row < numRows - 1)
+				indices[numIndices++] = index + numColumns;
+			if (column > 0)
+				indices[numIndices++] = index - 1;
+		}
+		return Arrays.stream(indices, 0, numIndices).distinct().toArray();
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Adds to the edit list an edit of the cells whose bars differ from the specified bars.
+	 *
+	 * @return the row-major indices of the cells whose bars were changed by the edit.
+	 */
+
+	private int[] addEdit(
+		Symmetry	oldSymmetry,
+		Symmetry	newSymmetry,
+		byte[]		oldMasks)
+	{
+		int[] cellIndices = new int[oldMasks.length];
+		for (int i = 0; i < cellIndices.length; i++)
+			cellIndices[i] = i;
+		return addEdit(oldSymmetry, newSymmetry, cellIndices, oldMasks);
 	}
 
 	//------------------------------------------------------------------
 
-	private void initFields()
+	/**
+	 * Adds to the edit list an edit of those of the specified cells whose bars differ from the specified bars.
+	 *
+	 * @param  oldSymmetry
+	 *           the symmetry of this grid before the edit, or {@code null} if the edit did not change the symmetry.
+	 * @param  newSymmetry
+	 *           the symmetry of this grid after the edit, or {@code null} if the edit did not change the symmetry.
+	 * @param  cellIndices
+	 *           the row-major indices of the cells that may have been changed by the edit.
+	 * @param  oldMasks
+	 *           the bars of the cells of {@code cellIndices} before the edit.
+	 * @return the row-major indices of the cells whose bars were changed by the edit.
+	 */
+
+	private int[] addEdit(
+		Symmetry	oldSymmetry,
+		Symmetry	newSymmetry,
+		int[]		cellIndices,
+		byte[]		oldMasks)
 	{
-		fieldLists.clear();
-		entries.init();
-		int fieldNumber = 1;
-		for (int row = 0; row < numRows; row++)
+		// Find the cells whose bars have changed
+		int[] changedIndices = new int[cellIndices.length];
+		byte[] oldBars = new byte[cellIndices.length];
+		byte[] newBars = new byte[cellIndices.length];
+		int numChangedCells = 0;
+		for (int i = 0; i < cellIndices.length; i++)
 		{
-			for (int column = 0; column < numColumns; column++)
+			int index = cellIndices[i];
+			if (bars[index] != oldMasks[i])
 			{
-				Cell cell = cells[row][column];
-				cell.resetFields();
-				Field field = null;
-				if ((column == 0) || cells[row][column].hasBar(Edge.LEFT))
-				{
-					int c = column + 1;
-					while ((c < numColumns) && !cells[row][c].hasBar(Edge.LEFT))
-						++c;
-					int length = c - column;
-					if (length > 1)
-					{
-						field = addField(row, column, Direction.ACROSS, length, fieldNumber);
-						cell.setFieldOrigin(Direction.ACROSS, field);
-						for (int i = 0; i < length; i++)
-							entries.initValue(row, column + i);
-					}
-				}
-				if ((row == 0) || cells[row][column].hasBar(Edge.TOP))
-				{
-					int r = row + 1;
-					while ((r < numRows) && !cells[r][column].hasBar(Edge.TOP))
-						++r;
-					int length = r - row;
-					if (length > 1)
-					{
-						field = addField(row, column, Direction.DOWN, length, fieldNumber);
-						cell.setFieldOrigin(Direction.DOWN, field);
-						for (int i = 0; i < length; i++)
-							entries.initValue(row + i, column);
-					}
-				}
-				if (field != null)
-					++fieldNumber;
-				for (Direction direction : Direction.DEFINED_DIRECTIONS)
-				{
-					if (cell.getField(direction) == null)
-					{
-						List<Field> fields = findFields(row, column, direction);
-						if (!fields.isEmpty())
-							cell.setField(direction, fields.get(0));
-					}
-				}
+				changedIndices[numChangedCells] = index;
+				oldBars[numChangedCells] = oldMasks[i];
+				newBars[numChangedCells] = bars[index];
+				++numChangedCells;
 			}
 		}
+		changedIndices = Arrays.copyOf(changedIndices, numChangedCells);
+
+		// Add edit to list
+		editList.add(new Edit(oldSymmetry, newSymmetry, changedIndices, Arrays.copyOf(oldBars, numChangedCells),
+							  Arrays.copyOf(newBars, numChangedCells)));
+
+		return changedIndices;
 	}
 
 	//------------------------------------------------------------------
 
+	/**
+	 * Sets the bars of the specified cells from the specified bit masks and updates the fields of this grid
+	 * accordingly.
+	 */
+
 	private void setBars(
-		int			row,
-		int			column,
-		Edge.Sets	edgeSets)
+		int[]	cellIndices,
+		byte[]	masks)
+	{
+		for (int i = 0; i < cellIndices.length; i++)
+			setMask(cellIndices[i], masks[i], true);
+		updateFields(cellIndices);
+	}
+
+	//------------------------------------------------------------------
+
+	private void setBars(
+		int		row,
+		int		column,
+		int		removeBars,
+		int		addBars,
+		boolean	updateCounts)
 	{
 		// Remove bars from and add bars to cell
-		Cell cell = cells[row][column];
-		cell.bars.removeAll(edgeSets.remove);
-		cell.bars.addAll(edgeSets.add);
+		int index = row * numColumns + column;
+		setMask(index, (bars[index] & ~removeBars) | addBars, updateCounts);
 
-		// Remove bars from surrounding cells
-		for (Edge edge : edgeSets.remove)
+		// Remove bars from and add bars to the opposite edges of adjacent cells
+		for (Edge edge : Edge.values())
 		{
-			switch (edge)
+			int mask = edge.getMask();
+			if (((removeBars | addBars) & mask) != 0)
 			{
-				case TOP:
-					if (row > 0)
-						cells[row - 1][column].bars.remove(Edge.BOTTOM);
-					break;
-
-				case RIGHT:
-					if (column < numColumns - 1)
-						cells[row][column + 1].bars.remove(Edge.LEFT);
-					break;
-
-				case BOTTOM:
-					if (row < numRows - 1)
-						cells[row + 1][column].bars.remove(Edge.TOP);
-					break;
-
-				case LEFT:
-					if (column > 0)
-						cells[row][column - 1].bars.remove(Edge.RIGHT);
-					break;
+				int adjacentIndex = switch (edge)
+				{
+					case TOP    -> (row > 0) ? index - numColumns : -1;
+					case RIGHT  -> (column < numColumns - 1) ? index + 1 : -1;
+					case BOTTOM -> (row < numRows - 1) ? index + numColumns : -1;
+					case LEFT   -> (column > 0) ? index - 1 : -1;
+				};
+				if (adjacentIndex >= 0)
+				{
+					int oppositeMask = edge.rotateQuarter(2).getMask();
+					int adjacentMask = bars[adjacentIndex];
+					if ((removeBars & mask) != 0)
+						adjacentMask &= ~oppositeMask;
+					if ((addBars & mask) != 0)
+						adjacentMask |= oppositeMask;
+					setMask(adjacentIndex, adjacentMask, updateCounts);
+				}
 			}
 		}
+	}
 
-		// Add bars to surrounding cells
-		for (Edge edge : edgeSets.add)
-		{
-			switch (edge)
-			{
-				case TOP:
-					if (row > 0)
-						cells[row - 1][column].bars.add(Edge.BOTTOM);
-					break;
-
-				case RIGHT:
-					if (column < numColumns - 1)
-						cells[row][column + 1].bars.add(Edge.LEFT);
-					break;
+	//------------------------------------------------------------------
 
-				case BOTTOM:
-					if (row < numRows - 1)
-						cells[row + 1][column].bars.add(Edge.TOP);
-					break;
+	/**
+	 * Sets the bars of the specified cell from the specified bit mask and, optionally, updates the numbers of
+	 * asymmetric cells of this grid accordingly.
+	 */
 
-				case LEFT:
-					if (column > 0)
-						cells[row][column - 1].bars.add(Edge.RIGHT);
-					break;
-			}
+	private void setMask(
+		int		index,
+		int		mask,
+		boolean	updateCounts)
+	{
+		if (bars[index] != mask)
+		{
+			if (updateCounts)
+				updateAsymmetricCellCounts(index, -1);
+			bars[index] = (byte)mask;
+			if (updateCounts)
+				updateAsymmetricCellCounts(index, 1);
 		}
 	}
 
@@ -925,61 +1181,57 @@ class BarGrid
 	//  Class methods
 	////////////////////////////////////////////////////////////////////
 
-		private static EnumSet<Edge> reflectVAxis(
-			Set<Edge>	edges)
-		{
-			EnumSet<Edge> outEdges = EnumSet.noneOf(Edge.class);
-			for (Edge edge : edges)
-				outEdges.add(edge.reflectVAxis());
-			return outEdges;
-		}
+		/**
+		 * Returns the mask of the edges that are the reflections in the vertical axis of the edges of the specified
+		 * mask.  The reflection swaps the right and left edges (0b0010 and 0b1000).
+		 */
 
-		//--------------------------------------------------------------
-
-		private static Sets reflectVAxis(
-			Sets	edgeSets)
+		private static int reflectVAxis(
+			int	mask)
 		{
-			return new Sets(reflectVAxis(edgeSets.remove), reflectVAxis(edgeSets.add));
+			return (mask & 0b0101) | ((mask & 0b0010) << 2) | ((mask & 0b1000) >>> 2);
 		}
 
 		//--------------------------------------------------------------
 
-		private static EnumSet<Edge> reflectHAxis(
-			Set<Edge>	edges)
-		{
-			EnumSet<Edge> outEdges = EnumSet.noneOf(Edge.class);
-			for (Edge edge : edges)
-				outEdges.add(edge.reflectHAxis());
-			return outEdges;
-		}
-
-		//--------------------------------------------------------------
+		/**
+		 * Returns the mask of the edges that are the reflections in the horizontal axis of the edges of the specified
+		 * mask.  The reflection swaps the top and bottom edges (0b0001 and 0b0100).
+		 */
 
-		private static Sets reflectHAxis(
-			Sets	edgeSets)
+		private static int reflectHAxis(
+			int	mask)
 		{
-			return new Sets(reflectHAxis(edgeSets.remove), reflectHAxis(edgeSets.add));
+			return (mask & 0b1010) | ((mask & 0b0001) << 2) | ((mask & 0b0100) >>> 2);
 		}
 
 		//--------------------------------------------------------------
 
-		private static EnumSet<Edge> rotateQuarter(
-			Set<Edge>	edges,
-			int			numQuarters)
+		/**
+		 * Returns the mask of the edges that are the rotations of the edges of the specified mask by the specified
+		 * number of quarter-turns clockwise.  Because the edges are in clockwise order, the rotation is a rotation of
+		 * the bits of the mask.
+		 */
+
+		private static int rotateQuarter(
+			int	mask,
+			int	numQuarters)
 		{
-			EnumSet<Edge> outEdges = EnumSet.noneOf(Edge.class);
-			for (Edge edge : edges)
-				outEdges.add(edge.rotateQuarter(numQuarters));
-			return outEdges;
+			return ((mask << numQuarters) | (mask >>> (4 - numQuarters))) & 0b1111;
 		}
 
 		//--------------------------------------------------------------
 
-		private static Sets rotateQuarter(
-			Sets	edgeSets,
-			int		numQuarters)
+		private static void setFromMask(
+			Set<Edge>	edges,
+			int			mask)
 		{
-			return new Sets(rotateQuarter(edgeSets.remove, numQuarters), rotateQuarter(edgeSets.add, numQuarters));
+			edges.clear();
+			for (Edge edge : values())
+			{
+				if ((mask & 1 << edge.ordinal()) != 0)
+					edges.add(edge);
+			}
 		}
 
 		//--------------------------------------------------------------
@@ -1009,20 +1261,6 @@ class BarGrid
 
 		//--------------------------------------------------------------
 
-		private Edge reflectVAxis()
-		{
-			return isVertical() ? values()[(ordinal() + 2) % values().length] : this;
-		}
-
-		//--------------------------------------------------------------
-
-		private Edge reflectHAxis()
-		{
-			return isHorizontal() ? values()[(ordinal() + 2) % values().length] : this;
-		}
-
-		//--------------------------------------------------------------
-
 		private Edge rotateQuarter(
 			int	numQuarters)
 		{
@@ -1031,42 +1269,6 @@ class BarGrid
 
 		//--------------------------------------------------------------
 
-	////////////////////////////////////////////////////////////////////
-	//  Member classes : non-inner classes
-	////////////////////////////////////////////////////////////////////
-
-
-		// CLASS: EDGE SETS
-
-
-		private static class Sets
-		{
-
-		////////////////////////////////////////////////////////////////
-		//  Instance variables
-		////////////////////////////////////////////////////////////////
-
-			private	Set<Edge>	remove;
-			private	Set<Edge>	add;
-
-		////////////////////////////////////////////////////////////////
-		//  Constructors
-		////////////////////////////////////////////////////////////////
-
-			private Sets(
-				Set<Edge>	remove,
-				Set<Edge>	add)
-			{
-				this.remove = remove;
-				this.add = add;
-			}
-
-			//----------------------------------------------------------
-
-		}
-
-		//==============================================================
-
 	}
 
 	//==================================================================
@@ -1084,7 +1286,7 @@ class BarGrid
 	////////////////////////////////////////////////////////////////////
 
 		MALFORMED_GRID_IMAGE
-		("The grid image is malformed."),
+		("The grid image is malformed.\nNumber of malformed boundaries between cells: %1%2"),
 
 		ILLEGAL_CHARACTER_IN_GRID_DEFINITION
 		("The grid definition contains an illegal character, \"%1\"."),
@@ -1127,14 +1329,14 @@ class BarGrid
 	//==================================================================
 
 ////////////////////////////////////////////////////////////////////////
-//  Member classes : non-inner classes
+//  Member classes : inner classes
 ////////////////////////////////////////////////////////////////////////
 
 
 	// CLASS: CELL
 
 
-	public static class Cell
+	public class Cell
 		extends Grid.Cell
 	{
 
@@ -1158,19 +1360,15 @@ class BarGrid
 			StrKVPair.of(CssProperty.BORDER,   "0 solid %s")
 		);
 
-	////////////////////////////////////////////////////////////////////
-	//  Instance variables
-	////////////////////////////////////////////////////////////////////
-
-		private	EnumSet<Edge>	bars;
-
 	////////////////////////////////////////////////////////////////////
 	//  Constructors
 	////////////////////////////////////////////////////////////////////
 
-		private Cell()
+		private Cell(
+			int	row,
+			int	column)
 		{
-			bars = EnumSet.noneOf(Edge.class);
+			super(row, column);
 		}
 
 		//--------------------------------------------------------------
@@ -1198,16 +1396,6 @@ class BarGrid
 	//  Instance methods : overriding methods
 	////////////////////////////////////////////////////////////////////
 
-		@Override
-		public Cell clone()
-		{
-			Cell copy = (Cell)super.clone();
-			copy.bars = bars.clone();
-			return copy;
-		}
-
-		//--------------------------------------------------------------
-
 		@Override
 		protected void write(
 			XmlWriter	writer,
@@ -1218,6 +1406,8 @@ class BarGrid
 			throws IOException
 		{
 			writer.writeElementStart(HtmlConstants.ElementName.DIV, indent, false);
+			EnumSet<Edge> bars = EnumSet.noneOf(Edge.class);
+			Edge.setFromMask(bars, getBars(row, column));
 			if (!bars.isEmpty())
 			{
 				AttributeList attributes = new AttributeList();
@@ -1238,15 +1428,7 @@ class BarGrid
 		public boolean hasBar(
 			Edge	edge)
 		{
-			return bars.contains(edge);
-		}
-
-		//--------------------------------------------------------------
-
-		private void addBar(
-			Edge	edge)
-		{
-			bars.add(edge);
+			return hasCellBar(row, column, edge);
 		}
 
 		//--------------------------------------------------------------
@@ -1255,14 +1437,14 @@ class BarGrid
 
 	//==================================================================
 
-////////////////////////////////////////////////////////////////////////
-//  Member classes : inner classes
-////////////////////////////////////////////////////////////////////////
-
-
 	// CLASS: EDIT
 
 
+	/**
+	 * This class implements an edit of the cells of a bar grid.  The edit is recorded as the indices of the cells
+	 * whose bars were changed by it, and the bars of those cells before and after the edit as bit masks.
+	 */
+
 	private class Edit
 		implements EditList.IEdit
 	{
@@ -1272,9 +1454,10 @@ class BarGrid
 	////////////////////////////////////////////////////////////////////
 
 		private	Symmetry	oldSymmetry;
-		private	Cell[][]	oldCells;
 		private	Symmetry	newSymmetry;
-		private	Cell[][]	newCells;
+		private	int[]		cellIndices;
+		private	byte[]		oldBars;
+		private	byte[]		newBars;
 
 	////////////////////////////////////////////////////////////////////
 	//  Constructors
@@ -1282,14 +1465,16 @@ class BarGrid
 
 		private Edit(
 			Symmetry	oldSymmetry,
-			Cell[][]	oldCells,
 			Symmetry	newSymmetry,
-			Cell[][]	newCells)
+			int[]		cellIndices,
+			byte[]		oldBars,
+			byte[]		newBars)
 		{
 			this.oldSymmetry = oldSymmetry;
-			this.oldCells = oldCells;
 			this.newSymmetry = newSymmetry;
-			this.newCells = newCells;
+			this.cellIndices = cellIndices;
+			this.oldBars = oldBars;
+			this.newBars = newBars;
 		}
 
 		//--------------------------------------------------------------
@@ -1303,8 +1488,7 @@ class BarGrid
 		{
 			if (oldSymmetry != null)
 				symmetry = oldSymmetry;
-			cells = oldCells;
-			initFields();
+			setBars(cellIndices, oldBars);
 		}
 
 		//--------------------------------------------------------------
@@ -1314,8 +1498,16 @@ class BarGrid
 		{
 			if (newSymmetry != null)
 				symmetry = newSymmetry;
-			cells = newCells;
-			initFields();
+			setBars(cellIndices, newBars);
+		}
+
+		//--------------------------------------------------------------
+
+		@Override
+		public long retainedSize()
+		{
+			// Object, and three array headers with four bytes per cell index and two bytes of bars per cell
+			return 64 + 6L * cellIndices.length;
 		}
 
 		//--------------------------------------------------------------
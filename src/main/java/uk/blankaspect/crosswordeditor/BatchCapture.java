@@ -0,0 +1,926 @@
+/*====================================================================*\
+
+BatchCapture.java
+
+Class: batch capture.
+
+\*====================================================================*/
+
+
+// PACKAGE
+
+
+package uk.blankaspect.crosswordeditor;
+
+//----------------------------------------------------------------------
+
+
+// IMPORTS
+
+
+import java.awt.image.BufferedImage;
+
+import java.io.File;
+import java.io.IOException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import javax.imageio.ImageIO;
+
+import uk.blankaspect.common.exception.AppException;
+import uk.blankaspect.common.exception.FileException;
+
+import uk.blankaspect.common.filesystem.PathnameUtils;
+
+import uk.blankaspect.common.regex.RegexUtils;
+
+import uk.blankaspect.common.string.StringUtils;
+
+import uk.blankaspect.common.thread.DaemonFactory;
+
+//----------------------------------------------------------------------
+
+
+// CLASS: BATCH CAPTURE
+
+
+/**
+ * This class implements the capture of crosswords from files without user interaction.  It is the counterpart of
+ * {@link CaptureDialog} for a directory of puzzles: each image file in the input directory is the grid image of a
+ * puzzle, and the clues of the puzzle are read from text files whose names are formed from the name of the image file
+ * and the key of a direction (for example, <i>puzzle-across.txt</i> and <i>puzzle-down.txt</i> for the image file
+ * <i>puzzle.png</i>).  The parameters of capture are taken from a named {@linkplain CaptureParameterSetList parameter
+ * set}.
+ * <p>
+ * The puzzles are captured concurrently on a thread pool of bounded size.  A crossword document is written for each
+ * puzzle that is captured successfully, and a report of the outcome and timing of each puzzle and a summary are written
+ * to the standard output.  A puzzle whose capture fails, even with an unexpected exception, is reported as a failure
+ * without affecting the other puzzles.  Puzzles whose documents would be written to the same file are detected before
+ * capture starts and are reported as failures rather than captured.  The exit status is 0 if every puzzle was
+ * captured, 1 if any puzzle failed and 2 if the batch could not be started.
+ * </p>
+ * <p>
+ * Usage: <code>BatchCapture [--threads=<i>n</i>] [--parameter-set-file=<i>file</i>] <i>parameter-set-name</i>
+ * <i>input-directory</i> [<i>output-directory</i>]</code>
+ * </p>
+ */
+
+public class BatchCapture
+{
+
+////////////////////////////////////////////////////////////////////////
+//  Constants
+////////////////////////////////////////////////////////////////////////
+
+	/** The maximum number of threads on which puzzles are captured. */
+	private static final	int		MAX_NUM_THREADS	= 16;
+
+	private static final	double	BRIGHTNESS_THRESHOLD_FACTOR	= 0.01;
+
+	private static final	String	THREAD_NAME	= "batchCapture";
+
+	private static final	String	THREADS_OPTION				= "--threads=";
+	private static final	String	PARAMETER_SET_FILE_OPTION	= "--parameter-set-file=";
+
+	private static final	String	CLUE_FILENAME_SEPARATOR	= "-";
+	private static final	String	NUMBER_PLACEHOLDER		= "%n";
+
+	/** The proportion of fields above which conflicting field numbers cause a capture to fail. */
+	private static final	double	MAX_FIELD_NUMBER_CONFLICT_FRACTION	= 0.25;
+
+	private static final	int		EXIT_STATUS_SUCCESS	= 0;
+	private static final	int		EXIT_STATUS_FAILURE	= 1;
+	private static final	int		EXIT_STATUS_ERROR	= 2;
+
+	private static final	String	USAGE_STR			=
+			"Usage: BatchCapture [" + THREADS_OPTION + "<n>] [" + PARAMETER_SET_FILE_OPTION + "<file>] "
+				+ "<parameter-set-name> <input-directory> [<output-directory>]";
+	private static final	String	CONFIG_ERROR_STR	= "Configuration error: ";
+	private static final	String	OK_STR				= "OK";
+	private static final	String	FAILED_STR			= "FAILED";
+	private static final	String	SUMMARY_STR			= "Summary";
+	private static final	String	FAILURES_STR		= "Failures";
+	private static final	String	PUZZLES_STR			= "Puzzles: %d, captured: %d, failed: %d, with warnings: %d";
+	private static final	String	ELAPSED_TIME_STR	= "Elapsed time: %.2f s on %d threads";
+	private static final	String	STAGE_TIME_STR		= "%-16s total %9.1f ms, mean %8.1f ms";
+	private static final	String	PUZZLE_OK_STR		=
+			"%s: " + OK_STR + ", %d x %d %s grid, %d clues, %d entry values, %.1f ms -> %s";
+	private static final	String	PUZZLE_FAILED_STR	= "%s: " + FAILED_STR + ", %s";
+	private static final	String	WARNING_STR			= "; warning: ";
+	private static final	String	WARNINGS_STR		= "Warnings";
+	private static final	String	MISMATCHED_FIELDS_STR	= "field numbers don't match for %s";
+	private static final	String	SPURIOUS_FIELD_NUMS_STR	= "%d numbers in cells that don't start a field";
+	private static final	String	MISSING_FIELD_NUMS_STR	= "no number for %d of %d fields";
+
+////////////////////////////////////////////////////////////////////////
+//  Instance variables
+////////////////////////////////////////////////////////////////////////
+
+	private	int				numThreads;
+	private	File			parameterSetFile;
+	private	String			parameterSetName;
+	private	File			inputDirectory;
+	private	File			outputDirectory;
+	private	CaptureParams	params;
+
+////////////////////////////////////////////////////////////////////////
+//  Constructors
+////////////////////////////////////////////////////////////////////////
+
+	private BatchCapture()
+	{
+		// Initialise instance variables
+		numThreads = Math.min(Runtime.getRuntime().availableProcessors(), MAX_NUM_THREADS);
+	}
+
+	//------------------------------------------------------------------
+
+////////////////////////////////////////////////////////////////////////
+//  Class methods
+////////////////////////////////////////////////////////////////////////
+
+	public static void main(
+		String[]	args)
+	{
+		int exitStatus = EXIT_STATUS_ERROR;
+		try
+		{
+			BatchCapture batchCapture = new BatchCapture();
+			batchCapture.parseArguments(args);
+			exitStatus = batchCapture.run();
+		}
+		catch (AppException e)
+		{
+			System.err.println(e);
+		}
+		System.exit(exitStatus);
+	}
+
+	//------------------------------------------------------------------
+
+	private static String replaceNumber(
+		String	str,
+		String	number)
+	{
+		return StringUtils.isNullOrEmpty(str) ? null : str.replace(NUMBER_PLACEHOLDER, number);
+	}
+
+	//------------------------------------------------------------------
+
+	private static String toSingleLine(
+		AppException	exception)
+	{
+		return exception.toString().replace('\n', ' ');
+	}
+
+	//------------------------------------------------------------------
+
+////////////////////////////////////////////////////////////////////////
+//  Instance methods
+////////////////////////////////////////////////////////////////////////
+
+	private void parseArguments(
+		String[]	args)
+		throws AppException
+	{
+		List<String> operands = new ArrayList<>();
+		for (String arg : args)
+		{
+			if (arg.startsWith(THREADS_OPTION))
+			{
+				String value = arg.substring(THREADS_OPTION.length());
+				try
+				{
+					numThreads = Integer.parseInt(value);
+					if ((numThreads < 1) || (numThreads > MAX_NUM_THREADS))
+					{
+						throw new AppException(ErrorId.NUMBER_OF_THREADS_OUT_OF_BOUNDS,
+											   Integer.toString(MAX_NUM_THREADS));
+					}
+				}
+				catch (NumberFormatException e)
+				{
+					throw new AppException(ErrorId.INVALID_NUMBER_OF_THREADS, value);
+				}
+			}
+			else if (arg.startsWith(PARAMETER_SET_FILE_OPTION))
+			{
+				String pathname = arg.substring(PARAMETER_SET_FILE_OPTION.length());
+				parameterSetFile = new File(PathnameUtils.parsePathname(pathname));
+			}
+			else
+				operands.add(arg);
+		}
+		if ((operands.size() < 2) || (operands.size() > 3))
+			throw new AppException(ErrorId.INVALID_ARGUMENTS, USAGE_STR);
+
+		parameterSetName = operands.get(0);
+		inputDirectory = new File(PathnameUtils.parsePathname(operands.get(1)));
+		if (operands.size() > 2)
+			outputDirectory = new File(PathnameUtils.parsePathname(operands.get(2)));
+	}
+
+	//------------------------------------------------------------------
+
+	private int run()
+		throws AppException
+	{
+		// Read configuration
+		AppConfig config = AppConfig.INSTANCE;
+		config.read(exception -> System.err.println(CONFIG_ERROR_STR + toSingleLine(exception)));
+
+		// Get parameters
+		params = readParams(config);
+
+		// Find puzzles
+		if (!inputDirectory.isDirectory())
+			throw new FileException(ErrorId.NOT_A_DIRECTORY, inputDirectory);
+		List<File> imageFiles = findImageFiles();
+		if (imageFiles.isEmpty())
+			throw new FileException(ErrorId.NO_IMAGE_FILES, inputDirectory);
+
+		// Find the puzzles whose documents would be written to the same file
+		Map<File, List<String>> namesByOutputFile = new HashMap<>();
+		for (File imageFile : imageFiles)
+		{
+			String name = getPuzzleName(imageFile);
+			namesByOutputFile.computeIfAbsent(getOutputFile(name), key -> new ArrayList<>()).add(name);
+		}
+
+		// Capture puzzles on thread pool, reporting the outcome of each puzzle in order.  A puzzle whose output file is
+		// shared with another puzzle is not captured.
+		long startTime = System.nanoTime();
+		List<Outcome> outcomes = new ArrayList<>();
+		ExecutorService executor =
+				Executors.newFixedThreadPool(numThreads, runnable -> DaemonFactory.create(THREAD_NAME, runnable));
+		try
+		{
+			List<Future<Outcome>> futures = new ArrayList<>();
+			for (File imageFile : imageFiles)
+			{
+				String name = getPuzzleName(imageFile);
+				File outputFile = getOutputFile(name);
+				List<String> names = namesByOutputFile.get(outputFile);
+				if (names.size() > 1)
+				{
+					Outcome outcome = new Outcome(name);
+					outcome.exception = new FileException(ErrorId.DUPLICATE_OUTPUT_FILE, outputFile,
+														  StringUtils.join(", ", names));
+					futures.add(CompletableFuture.completedFuture(outcome));
+				}
+				else
+					futures.add(executor.submit(() -> capture(imageFile)));
+			}
+			for (int i = 0; i < futures.size(); i++)
+			{
+				Outcome outcome = null;
+				try
+				{
+					outcome = futures.get(i).get();
+				}
+				catch (ExecutionException e)
+				{
+					outcome = new Outcome(getPuzzleName(imageFiles.get(i)));
+					outcome.exception = new AppException(ErrorId.UNEXPECTED_ERROR, e.getCause(),
+														 e.getCause().toString());
+				}
+				System.out.println(outcome);
+				outcomes.add(outcome);
+			}
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+		}
+		finally
+		{
+			executor.shutdownNow();
+		}
+		long elapsedTime = System.nanoTime() - startTime;
+
+		// Write summary
+		writeSummary(outcomes, elapsedTime);
+
+		// Write grid-detection cache
+		try
+		{
+			GridDetectionCache.INSTANCE.write();
+		}
+		catch (AppException e)
+		{
+			System.err.println(toSingleLine(e));
+		}
+
+		return outcomes.stream().allMatch(outcome -> outcome.exception == null) ? EXIT_STATUS_SUCCESS
+																				 : EXIT_STATUS_FAILURE;
+	}
+
+	//------------------------------------------------------------------
+
+	private CaptureParams readParams(
+		AppConfig	config)
+		throws AppException
+	{
+		// Get parameter-set file
+		File file = (parameterSetFile == null) ? config.getParameterSetFile() : parameterSetFile;
+		if (file == null)
+			throw new AppException(ErrorId.NO_PARAMETER_SET_FILE);
+
+		// Read parameter sets and find named set
+		CaptureParameterSetList paramSetList = new CaptureParameterSetList();
+		paramSetList.read(file, null);
+		int index = paramSetList.find(parameterSetName);
+		if (index < 0)
+			throw new FileException(ErrorId.NO_PARAMETER_SET, file, parameterSetName);
+		CaptureParams params = paramSetList.getElement(index);
+
+		// Validate answer-length pattern
+		String pattern = params.getAnswerLengthPattern();
+		if (!StringUtils.isNullOrEmpty(pattern))
+		{
+			try
+			{
+				Pattern.compile(pattern);
+			}
+			catch (PatternSyntaxException e)
+			{
+				throw new AppException(ErrorId.MALFORMED_PATTERN, RegexUtils.getExceptionMessage(e));
+			}
+		}
+
+		return params;
+	}
+
+	//------------------------------------------------------------------
+
+	private List<File> findImageFiles()
+	{
+		// Get the filename extensions of the image formats that can be read
+		Set<String> extensions = new TreeSet<>();
+		for (String suffix : ImageIO.getReaderFileSuffixes())
+			extensions.add(suffix.toLowerCase(Locale.ROOT));
+
+		// Get the image files of the input directory, sorted by name
+		File[] files = inputDirectory.listFiles(file ->
+		{
+			String name = file.getName();
+			int index = name.lastIndexOf('.');
+			return file.isFile() && (index > 0)
+					&& extensions.contains(name.substring(index + 1).toLowerCase(Locale.ROOT));
+		});
+		if (files == null)
+			return List.of();
+		Arrays.sort(files);
+		return List.of(files);
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Returns the name of the puzzle of the specified image file, which is the name of the file without its extension.
+	 */
+
+	private String getPuzzleName(
+		File	imageFile)
+	{
+		String imageFilename = imageFile.getName();
+		return imageFilename.substring(0, imageFilename.lastIndexOf('.'));
+	}
+
+	//------------------------------------------------------------------
+
+	private String getFilenameStem(
+		String	name)
+	{
+		String filenameStem = replaceNumber(params.getFilename(), name);
+		return (filenameStem == null) ? name : filenameStem;
+	}
+
+	//------------------------------------------------------------------
+
+	private File getDocumentDirectory(
+		String	name)
+	{
+		File directory = outputDirectory;
+		if (directory == null)
+		{
+			String pathname = replaceNumber(params.getDocumentDirectory(), name);
+			directory = (pathname == null) ? inputDirectory : new File(PathnameUtils.parsePathname(pathname));
+		}
+		return directory;
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Returns the normalised absolute location of the file to which the document of the named puzzle will be written.
+	 */
+
+	private File getOutputFile(
+		String	name)
+	{
+		String filename = getFilenameStem(name) + AppConfig.INSTANCE.getFilenameSuffix();
+		return new File(getDocumentDirectory(name), filename).getAbsoluteFile().toPath().normalize().toFile();
+	}
+
+	//------------------------------------------------------------------
+
+	private Outcome capture(
+		File	imageFile)
+	{
+		// Get the name of the puzzle from the name of the image file
+		String name = getPuzzleName(imageFile);
+
+		// Capture the puzzle, timing each stage
+		Outcome outcome = new Outcome(name);
+		try
+		{
+			// Read image
+			long time = System.nanoTime();
+			BufferedImage image = null;
+			try
+			{
+				image = ImageIO.read(imageFile);
+			}
+			catch (IOException e)
+			{
+				throw new FileException(ErrorId.FAILED_TO_READ_IMAGE, imageFile, e);
+			}
+			if (image == null)
+				throw new FileException(ErrorId.FAILED_TO_READ_IMAGE, imageFile);
+			time = outcome.addTime(Stage.READ_IMAGE, time);
+
+			// Find grid in image
+			PixelRaster raster = null;
+			int numColumns = params.getNumColumns();
+			int numRows = params.getNumRows();
+			if (params.isAutomaticGridDetection())
+			{
+				Grid.DetectionSession session = new Grid.DetectionSession(image);
+				double brightnessThreshold = params.isAutomaticBrightnessThreshold()
+						? session.getRaster().getOtsuThreshold()
+						: (double)params.getGridLineBrightnessThreshold() * BRIGHTNESS_THRESHOLD_FACTOR;
+				Grid.Info gridInfo = session.findGrid(params.getGridDetectionMethod(), brightnessThreshold,
+													  params.getGridLineMinLength(), params.getGridLineMinSeparation(),
+													  params.getGridLineEndpointTolerance());
+				raster = session.getGridRaster(gridInfo.skewAngle(), gridInfo.getBounds());
+				numColumns = gridInfo.numColumns();
+				numRows = gridInfo.numRows();
+			}
+			else
+				raster = new PixelRaster(image);
+			image = null;
+			time = outcome.addTime(Stage.DETECT_GRID, time);
+
+			// Extract grid from raster
+			Grid.Separator separator = params.getGridSeparator();
+			double brightnessThreshold = switch (separator)
+			{
+				case BLOCK -> params.isAutomaticBrightnessThreshold()
+									? raster.getOtsuThreshold()
+									: (double)params.getBlockBrightnessThreshold() * BRIGHTNESS_THRESHOLD_FACTOR;
+				case BAR   -> (double)params.getBarBrightnessThreshold() * BRIGHTNESS_THRESHOLD_FACTOR;
+			};
+			Grid grid = Grid.extractGrid(raster, separator, numColumns, numRows, params.getXOffset(),
+										 params.getYOffset(), params.getSampleSize(), brightnessThreshold,
+										 params.getBarWidthThreshold());
+			outcome.grid = grid;
+			time = outcome.addTime(Stage.EXTRACT_GRID, time);
+
+			// Capture field numbers and entries from raster
+			if (AppConfig.INSTANCE.isCaptureGridText())
+			{
+				Grid.TextCapture textCapture = grid.captureText(raster);
+				outcome.numEntryValues = textCapture.numEntryValues();
+				checkFieldNumbers(textCapture, outcome);
+				time = outcome.addTime(Stage.CAPTURE_TEXT, time);
+			}
+
+			// Create document and set grid and clue-processor variables in it
+			CrosswordDocument document = new CrosswordDocument();
+			document.setGrid(grid);
+			String referenceKeyword = params.getClueReferenceKeyword();
+			if (StringUtils.isNullOrEmpty(referenceKeyword))
+				referenceKeyword = null;
+			else
+				document.setClueReferenceKeyword(referenceKeyword);
+			String pattern = params.getAnswerLengthPattern();
+			Clue.AnswerLengthParser answerLengthParser = null;
+			if (!StringUtils.isNullOrEmpty(pattern))
+			{
+				document.setAnswerLengthPattern(pattern);
+				document.setAnswerLengthSubstitutions(params.getAnswerLengthSubstitutions());
+				answerLengthParser = new Clue.AnswerLengthParser(pattern, params.getAnswerLengthSubstitutions());
+			}
+			document.setClueSubstitutions(params.getClueSubstitutions());
+
+			// Read clues
+			for (Direction direction : Direction.DEFINED_DIRECTIONS)
+			{
+				String clueFilename = name + CLUE_FILENAME_SEPARATOR + direction.getKey()
+										+ AppConstants.TXT_FILENAME_EXTENSION;
+				File clueFile = new File(imageFile.getParentFile(), clueFilename);
+				if (clueFile.isFile())
+				{
+					List<Clue> clues = Clue.getCluesFromFile(clueFile, params.getMultipleFieldClueIdSeparator(),
+															 referenceKeyword, answerLengthParser,
+															 params.getClueSubstitutions());
+					if (!clues.isEmpty())
+					{
+						document.setClues(direction, clues);
+						outcome.numClues += clues.size();
+					}
+				}
+			}
+			document.updateClueDirections();
+
+			// Validate clues
+			List<ErrorListDialog.IdList> clueErrors = document.getClueErrors();
+			if (!clueErrors.isEmpty())
+			{
+				StringBuilder buffer = new StringBuilder(256);
+				for (ErrorListDialog.IdList idList : clueErrors)
+				{
+					if (!buffer.isEmpty())
+						buffer.append("; ");
+					buffer.append(idList.getText());
+					buffer.append(": ");
+					buffer.append(StringUtils.join(", ", idList.getIds().stream().map(Object::toString).toList()));
+				}
+				throw new AppException(ErrorId.CLUE_ERRORS, buffer);
+			}
+			time = outcome.addTime(Stage.PARSE_CLUES, time);
+
+			// Set title, filename stem and directories in document
+			String title = replaceNumber(params.getTitle(), name);
+			if (title != null)
+				document.setTitle(title);
+			document.setFilenameStem(getFilenameStem(name));
+			document.setDocumentDirectory(getDocumentDirectory(name));
+			String htmlPathname = replaceNumber(params.getHtmlDirectory(), name);
+			if (htmlPathname != null)
+				document.setHtmlDirectory(new File(PathnameUtils.parsePathname(htmlPathname)));
+
+			// Write document
+			outcome.file = document.getOutputFile();
+			document.write(outcome.file);
+			outcome.addTime(Stage.WRITE_DOCUMENT, time);
+		}
+		catch (AppException e)
+		{
+			outcome.exception = e;
+		}
+		return outcome;
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Checks the field numbers that were recognised in the grid image of a puzzle against the numbering of the grid.
+	 * Conflicting numbers are reported as a warning of the specified outcome unless they exceed a proportion of the
+	 * fields of the grid, which suggests that the grid was not extracted correctly.
+	 */
+
+	private void checkFieldNumbers(
+		Grid.TextCapture	textCapture,
+		Outcome				outcome)
+		throws AppException
+	{
+		List<Grid.Field> mismatchedFields = textCapture.mismatchedFields();
+		int numFields = textCapture.numFieldNumbers() + textCapture.numMissingFieldNumbers() + mismatchedFields.size();
+		int numConflicts = mismatchedFields.size() + textCapture.numSpuriousFieldNumbers();
+		if (numConflicts > (int)(MAX_FIELD_NUMBER_CONFLICT_FRACTION * (double)numFields))
+		{
+			throw new AppException(ErrorId.FIELD_NUMBERS_MISMATCH, Integer.toString(numConflicts),
+								   Integer.toString(numFields));
+		}
+
+		List<String> warnings = new ArrayList<>();
+		if (!mismatchedFields.isEmpty())
+		{
+			warnings.add(String.format(MISMATCHED_FIELDS_STR,
+									   StringUtils.join(", ", mismatchedFields.stream()
+																	.map(field -> field.getId().toString())
+																	.toList())));
+		}
+		if (textCapture.numSpuriousFieldNumbers() > 0)
+			warnings.add(String.format(SPURIOUS_FIELD_NUMS_STR, textCapture.numSpuriousFieldNumbers()));
+		if (textCapture.numMissingFieldNumbers() > 0)
+			warnings.add(String.format(MISSING_FIELD_NUMS_STR, textCapture.numMissingFieldNumbers(), numFields));
+		if (!warnings.isEmpty())
+			outcome.warning = StringUtils.join(", ", warnings);
+	}
+
+	//------------------------------------------------------------------
+
+	private void writeSummary(
+		List<Outcome>	outcomes,
+		long			elapsedTime)
+	{
+		// Write counts and elapsed time
+		int numFailed = (int)outcomes.stream().filter(outcome -> outcome.exception != null).count();
+		int numWarned = (int)outcomes.stream()
+									.filter(outcome -> (outcome.exception == null) && (outcome.warning != null))
+									.count();
+		System.out.println();
+		System.out.println(SUMMARY_STR);
+		System.out.println(String.format(PUZZLES_STR, outcomes.size(), outcomes.size() - numFailed, numFailed,
+										 numWarned));
+		System.out.println(String.format(ELAPSED_TIME_STR, (double)elapsedTime * 1.0e-9, numThreads));
+
+		// Write total and mean time of each stage over the puzzles that reached it
+		for (Stage stage : Stage.values())
+		{
+			long totalTime = 0;
+			int count = 0;
+			for (Outcome outcome : outcomes)
+			{
+				if (outcome.times[stage.ordinal()] > 0)
+				{
+					totalTime += outcome.times[stage.ordinal()];
+					++count;
+				}
+			}
+			if (count > 0)
+			{
+				System.out.println(String.format(STAGE_TIME_STR, stage.text, (double)totalTime * 1.0e-6,
+												 (double)totalTime * 1.0e-6 / (double)count));
+			}
+		}
+
+		// Write warnings
+		if (numWarned > 0)
+		{
+			System.out.println();
+			System.out.println(WARNINGS_STR);
+			for (Outcome outcome : outcomes)
+			{
+				if ((outcome.exception == null) && (outcome.warning != null))
+					System.out.println(outcome.name + ": " + outcome.warning);
+			}
+		}
+
+		// Write failures
+		if (numFailed > 0)
+		{
+			System.out.println();
+			System.out.println(FAILURES_STR);
+			for (Outcome outcome : outcomes)
+			{
+				if (outcome.exception != null)
+					System.out.println(outcome.name + ": " + toSingleLine(outcome.exception));
+			}
+		}
+	}
+
+	//------------------------------------------------------------------
+
+////////////////////////////////////////////////////////////////////////
+//  Enumerated types
+////////////////////////////////////////////////////////////////////////
+
+
+	// ENUMERATION: STAGES OF CAPTURE
+
+
+	private enum Stage
+	{
+
+	////////////////////////////////////////////////////////////////////
+	//  Constants
+	////////////////////////////////////////////////////////////////////
+
+		READ_IMAGE
+		(
+			"Read image"
+		),
+
+		DETECT_GRID
+		(
+			"Detect grid"
+		),
+
+		EXTRACT_GRID
+		(
+			"Extract grid"
+		),
+
+		CAPTURE_TEXT
+		(
+			"Capture text"
+		),
+
+		PARSE_CLUES
+		(
+			"Parse clues"
+		),
+
+		WRITE_DOCUMENT
+		(
+			"Write document"
+		);
+
+	////////////////////////////////////////////////////////////////////
+	//  Instance variables
+	////////////////////////////////////////////////////////////////////
+
+		private	String	text;
+
+	////////////////////////////////////////////////////////////////////
+	//  Constructors
+	////////////////////////////////////////////////////////////////////
+
+		private Stage(
+			String	text)
+		{
+			this.text = text;
+		}
+
+		//--------------------------------------------------------------
+
+	}
+
+	//==================================================================
+
+
+	// ERROR IDENTIFIERS
+
+
+	private enum ErrorId
+		implements AppException.IId
+	{
+
+	////////////////////////////////////////////////////////////////////
+	//  Constants
+	////////////////////////////////////////////////////////////////////
+
+		INVALID_ARGUMENTS
+		("The command-line arguments are invalid.\n%1"),
+
+		INVALID_NUMBER_OF_THREADS
+		("The number of threads '%1' is invalid."),
+
+		NUMBER_OF_THREADS_OUT_OF_BOUNDS
+		("The number of threads must be between 1 and %1."),
+
+		NO_PARAMETER_SET_FILE
+		("No parameter-set file was specified, and there is none in the configuration."),
+
+		NO_PARAMETER_SET
+		("The file does not contain a parameter set named '%1'."),
+
+		MALFORMED_PATTERN
+		("The answer-length pattern of the parameter set is not a well-formed regular expression.\n(%1)"),
+
+		NOT_A_DIRECTORY
+		("The location does not denote a directory."),
+
+		NO_IMAGE_FILES
+		("The directory does not contain any image files."),
+
+		FAILED_TO_READ_IMAGE
+		("Failed to read an image from the file."),
+
+		FIELD_NUMBERS_MISMATCH
+		("%1 of the numbers in the grid image conflict with the numbering of the %2 fields of the grid."),
+
+		CLUE_ERRORS
+		("The clues do not match the grid: %1"),
+
+		DUPLICATE_OUTPUT_FILE
+		("The documents of these puzzles would be written to the same file: %1"),
+
+		UNEXPECTED_ERROR
+		("An unexpected error occurred.\n%1");
+
+	////////////////////////////////////////////////////////////////////
+	//  Constructors
+	////////////////////////////////////////////////////////////////////
+
+		private ErrorId(String message)
+		{
+			this.message = message;
+		}
+
+		//--------------------------------------------------------------
+
+	////////////////////////////////////////////////////////////////////
+	//  Instance methods : AppException.IId interface
+	////////////////////////////////////////////////////////////////////
+
+		public String getMessage()
+		{
+			return message;
+		}
+
+		//--------------------------------------------------------------
+
+	////////////////////////////////////////////////////////////////////
+	//  Instance variables
+	////////////////////////////////////////////////////////////////////
+
+		private	String	message;
+
+	}
+
+	//==================================================================
+
+////////////////////////////////////////////////////////////////////////
+//  Member classes : non-inner classes
+////////////////////////////////////////////////////////////////////////
+
+
+	// CLASS: OUTCOME OF CAPTURE OF A PUZZLE
+
+
+	private static class Outcome
+	{
+
+	////////////////////////////////////////////////////////////////////
+	//  Instance variables
+	////////////////////////////////////////////////////////////////////
+
+		private	String			name;
+		private	long[]			times;
+		private	Grid			grid;
+		private	int				numClues;
+		private	int				numEntryValues;
+		private	String			warning;
+		private	File			file;
+		private	AppException	exception;
+
+	////////////////////////////////////////////////////////////////////
+	//  Constructors
+	////////////////////////////////////////////////////////////////////
+
+		private Outcome(
+			String	name)
+		{
+			this.name = name;
+			times = new long[Stage.values().length];
+		}
+
+		//--------------------------------------------------------------
+
+	////////////////////////////////////////////////////////////////////
+	//  Instance methods : overriding methods
+	////////////////////////////////////////////////////////////////////
+
+		@Override
+		public String toString()
+		{
+			if (exception != null)
+				return String.format(PUZZLE_FAILED_STR, name, toSingleLine(exception));
+
+			long totalTime = Arrays.stream(times).sum();
+			String str = String.format(PUZZLE_OK_STR, name, grid.getNumColumns(), grid.getNumRows(),
+									   grid.getSeparator().getKey(), numClues, numEntryValues,
+									   (double)totalTime * 1.0e-6, file);
+			return (warning == null) ? str : str + WARNING_STR + warning;
+		}
+
+		//--------------------------------------------------------------
+
+	////////////////////////////////////////////////////////////////////
+	//  Instance methods
+	////////////////////////////////////////////////////////////////////
+
+		/**
+		 * Adds the time from the specified start time to the present to the specified stage, and returns the present
+		 * time.
+		 */
+
+		private long addTime(
+			Stage	stage,
+			long	startTime)
+		{
+			long time = System.nanoTime();
+			times[stage.ordinal()] += time - startTime;
+			return time;
+		}
+
+		//--------------------------------------------------------------
+
+	}
+
+	//==================================================================
+
+}
+
+//----------------------------------------------------------------------
@@ -30,6 +30,7 @@ import java.awt.image.BufferedImage;
 import java.io.IOException;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import uk.blankaspect.common.css.CssMediaRule;
@@ -106,7 +107,12 @@ class BlockGrid
 //  Instance variables
 ////////////////////////////////////////////////////////////////////////
 
-	private	Cell[][]	cells;
+	/**
+	 * The blocked state of the cells of this grid as a bit set for each row: bit <i>c</i> of the set of a row is set
+	 * if the cell in column <i>c</i> of the row is blocked.
+	 */
+	private	long[][]	blocks;
+
 	private	EditList	editList;
 
 ////////////////////////////////////////////////////////////////////////
@@ -169,7 +175,7 @@ class BlockGrid
 	public BlockGrid(
 		int				numColumns,
 		int				numRows,
-		BufferedImage	image,
+		PixelRaster		raster,
 		int				xOffset,
 		int				yOffset,
 		int				sampleSize,
@@ -179,8 +185,8 @@ class BlockGrid
 		this(numColumns, numRows);
 
 		// Extract grid from image
-		int imageWidth = image.getWidth();
-		int imageHeight = image.getHeight();
+		int imageWidth = raster.getWidth();
+		int imageHeight = raster.getHeight();
 		double cellWidth = (double)imageWidth / (double)numColumns;
 		double cellHeight = (double)imageHeight / (double)numRows;
 		double dx = (double)xOffset * OFFSET_FACTOR * cellWidth;
@@ -196,23 +202,22 @@ class BlockGrid
 			{
 				int imageX = (int)Math.round(x + dx);
 
-				double brightnessSum = 0.0;
+				// Get the sum of the brightness levels of the samples that lie within the image
+				int startX = Math.max(0, imageX - (sampleSize - 1));
+				int endX = Math.min(imageWidth, imageX + sampleSize);
+				int startY = Math.max(0, imageY - (sampleSize - 1));
+				int endY = Math.min(imageHeight, imageY + sampleSize);
 				int numSamples = 0;
-				int endY = imageY + sampleSize;
-				for (int iy = imageY - (sampleSize - 1); iy < endY; iy++)
+				int levelSum = 0;
+				if ((startX < endX) && (startY < endY))
 				{
-					int endX = imageX + sampleSize;
-					for (int ix = imageX - (sampleSize - 1); ix < endX; ix++)
-					{
-						if ((ix >= 0) && (ix < imageWidth) && (iy >= 0) && (iy < imageHeight))
-						{
-							brightnessSum += ColourUtils.getBrightness(image.getRGB(ix, iy));
-							++numSamples;
-						}
-					}
+					numSamples = (endX - startX) * (endY - startY);
+					levelSum = raster.getLevelSum(startX, startY, endX, endY);
 				}
-				if ((numSamples == 0) || (brightnessSum / (double)numSamples < brightnessThreshold))
-					cells[row][column].blocked = true;
+				if ((numSamples == 0)
+						|| ((double)levelSum / ((double)numSamples * (double)PixelRaster.MAX_LEVEL)
+								< brightnessThreshold))
+					blocks[row][column >>> 6] |= 1L << column;
 				x += cellWidth;
 			}
 			y += cellHeight;
@@ -222,6 +227,7 @@ class BlockGrid
 		initFields();
 
 		// Update symmetry
+		initAsymmetricCellCounts();
 		updateSymmetry();
 	}
 
@@ -233,17 +239,18 @@ class BlockGrid
 		// Initialise instance variables
 		this(grid.numColumns, grid.numRows);
 		symmetry = grid.symmetry;
-		editList = new EditList(AppConfig.INSTANCE.getMaxEditListLength());
+		AppConfig config = AppConfig.INSTANCE;
+		editList = new EditList(config.getMaxEditListLength(), (long)config.getMaxEditListSize() << 20);
 
 		// Initialise cells
 		for (int row = 0; row < numRows; row++)
-		{
-			for (int column = 0; column < numColumns; column++)
-				cells[row][column].blocked = grid.cells[row][column].blocked;
-		}
+			System.arraycopy(grid.blocks[row], 0, blocks[row], 0, blocks[row].length);
 
 		// Initialise fields
-		initFields();
+		copyFields(grid);
+
+		// Initialise symmetry state
+		copyAsymmetricCellCounts(grid);
 	}
 
 	//------------------------------------------------------------------
@@ -256,12 +263,7 @@ class BlockGrid
 		super(numColumns, numRows);
 
 		// Initialise instance variables
-		cells = new Cell[numRows][numColumns];
-		for (int row = 0; row < numRows; row++)
-		{
-			for (int column = 0; column < numColumns; column++)
-				cells[row][column] = new Cell();
-		}
+		blocks = new long[numRows][(numColumns + 63) >>> 6];
 	}
 
 	//------------------------------------------------------------------
@@ -314,18 +316,32 @@ class BlockGrid
 
 	//------------------------------------------------------------------
 
-	private static Cell[][] copyCells(
-		Cell[][]	cells)
+	private static void or(
+		long[]	bits1,
+		long[]	bits2)
+	{
+		for (int i = 0; i < bits1.length; i++)
+			bits1[i] |= bits2[i];
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Clears the bits of the specified row bit set for the columns at and after the specified column.
+	 */
+
+	private static void clearColumns(
+		long[]	rowBlocks,
+		int		column)
 	{
-		Cell[][] outCells = new Cell[cells.length][];
-		for (int i = 0; i < cells.length; i++)
+		for (int i = 0; i < rowBlocks.length; i++)
 		{
-			int length = cells[i].length;
-			outCells[i] = new Cell[length];
-			for (int j = 0; j < length; j++)
-				outCells[i][j] = cells[i][j].clone();
+			int start = i << 6;
+			if (column <= start)
+				rowBlocks[i] = 0;
+			else if (column - start < 64)
+				rowBlocks[i] &= (1L << (column - start)) - 1;
 		}
-		return outCells;
 	}
 
 	//------------------------------------------------------------------
@@ -347,7 +363,7 @@ class BlockGrid
 		int	row,
 		int	column)
 	{
-		return cells[row][column];
+		return new Cell(row, column);
 	}
 
 	//------------------------------------------------------------------
@@ -360,11 +376,11 @@ class BlockGrid
 		{
 			for (int column = 0; column < numColumns; column++)
 			{
-				if (!cells[row][column].blocked
-						&& ((column == 0) || cells[row][column - 1].blocked)
-						&& ((column == numColumns - 1) || cells[row][column + 1].blocked)
-						&& ((row == 0) || cells[row - 1][column].blocked)
-						&& ((row == numRows - 1) || cells[row + 1][column].blocked))
+				if (!isCellBlocked(row, column)
+						&& ((column == 0) || isCellBlocked(row, column - 1))
+						&& ((column == numColumns - 1) || isCellBlocked(row, column + 1))
+						&& ((row == 0) || isCellBlocked(row - 1, column))
+						&& ((row == numRows - 1) || isCellBlocked(row + 1, column)))
 					isolatedCells.add(new IndexPair(row, column));
 			}
 		}
@@ -378,13 +394,13 @@ class BlockGrid
 	{
 		List<String> strs = new ArrayList<>();
 		int[] dimensions = symmetry.getPrincipalDimensions(numColumns, numRows);
-		StringBuilder buffer = new StringBuilder(dimensions[0]);
+		char[] buffer = new char[dimensions[0]];
 		for (int row = 0; row < dimensions[1]; row++)
 		{
-			buffer.setLength(0);
+			long[] rowBlocks = blocks[row];
 			for (int column = 0; column < dimensions[0]; column++)
-				buffer.append(GRID_DEF_CHARS.charAt(cells[row][column].blocked ? 1 : 0));
-			strs.add(buffer.toString());
+				buffer[column] = GRID_DEF_CHARS.charAt((int)(rowBlocks[column >>> 6] >>> column) & 1);
+			strs.add(new String(buffer));
 		}
 		return strs;
 	}
@@ -484,92 +500,109 @@ class BlockGrid
 		{
 			// Save old state
 			Symmetry oldSymmetry = this.symmetry;
-			Cell[][] oldCells = copyCells(cells);
+			long[][] oldBlocks = copyBlocks();
 
 			// Set instance variable
 			this.symmetry = symmetry;
 
-			// Make list of blocked state of cells of specified region
-			int[] dimensions = symmetry.getPrincipalDimensions(numColumns, numRows);
-			List<Boolean> blocked = new ArrayList<>();
-			for (int row = 0; row < dimensions[1]; row++)
-			{
-				for (int column = 0; column < dimensions[0]; column++)
-					blocked.add(cells[row][column].blocked);
-			}
-
 			// Clear blocked state of all cells
-			for (int row = 0; row < numRows; row++)
-			{
-				for (int column = 0; column < numColumns; column++)
-					cells[row][column].blocked = false;
-			}
+			for (long[] rowBlocks : blocks)
+				Arrays.fill(rowBlocks, 0);
 
-			// Initialise blocked state
-			for (int i = 0; i < blocked.size(); i++)
+			// Initialise blocked state from cells of principal region
+			int[] dimensions = symmetry.getPrincipalDimensions(numColumns, numRows);
+			for (int row = 0; row < dimensions[1]; row++)
 			{
-				if (blocked.get(i))
-					setCellBlocked(i / dimensions[0], i % dimensions[0], true);
+				long[] rowBlocks = oldBlocks[row].clone();
+				clearColumns(rowBlocks, dimensions[0]);
+				setRowBlocked(row, rowBlocks);
 			}
+			initAsymmetricCellCounts();
 
 			// Initialise fields
 			initFields();
 
 			// Add edit to list
-			editList.add(new Edit(oldSymmetry, oldCells, symmetry, copyCells(cells)));
+			addEdit(oldSymmetry, symmetry, oldBlocks);
 		}
 	}
 
 	//------------------------------------------------------------------
 
 	@Override
-	protected boolean isSymmetry(
+	protected int countAsymmetricCells(
 		Symmetry	symmetry)
 	{
-		int[] dimensions = symmetry.getPrincipalDimensions(numColumns, numRows);
-		for (int r1 = 0; r1 < dimensions[1]; r1++)
+		int count = 0;
+		long[] reversed = new long[blocks[0].length];
+		for (int r1 = 0; r1 < numRows; r1++)
 		{
-			for (int c1 = 0; c1 < dimensions[0]; c1++)
+			long[] rowBlocks = blocks[r1];
+			long[] blocks2 = blocks[numRows - 1 - r1];
+			switch (symmetry)
 			{
-				boolean blocked = cells[r1][c1].blocked;
-				int c2 = numColumns - 1 - c1;
-				int r2 = numRows - 1 - r1;
-				switch (symmetry)
-				{
-					case NONE:
-						// do nothing
-						break;
-
-					case ROTATION_HALF:
-						if (cells[r2][c2].blocked != blocked)
-							return false;
-						break;
-
-					case ROTATION_QUARTER:
-						if ((cells[c1][r2].blocked != blocked) || (cells[r2][c2].blocked != blocked)
-								|| (cells[c2][r1].blocked != blocked))
-							return false;
-						break;
-
-					case REFLECTION_VERTICAL_AXIS:
-						if (cells[r1][c2].blocked != blocked)
-							return false;
-						break;
-
-					case REFLECTION_HORIZONTAL_AXIS:
-						if (cells[r2][c1].blocked != blocked)
-							return false;
-						break;
-
-					case REFLECTION_VERTICAL_HORIZONTAL_AXES:
-						if ((cells[r1][c2].blocked != blocked) || (cells[r2][c1].blocked != blocked)
-								|| (cells[r2][c2].blocked != blocked))
-							return false;
-						break;
-				}
+				case ROTATION_HALF:
+					reverseColumns(blocks2, reversed);
+					for (int i = 0; i < rowBlocks.length; i++)
+						count += Long.bitCount(rowBlocks[i] ^ reversed[i]);
+					break;
+
+				case ROTATION_QUARTER:
+					// A quarter-turn rotation maps rows to columns, so the cells are compared individually
+					for (int c1 = 0; c1 < numColumns; c1++)
+					{
+						if (isCellBlocked(c1, numRows - 1 - r1) != isCellBlocked(r1, c1))
+							++count;
+					}
+					break;
+
+				case REFLECTION_VERTICAL_AXIS:
+					reverseColumns(rowBlocks, reversed);
+					for (int i = 0; i < rowBlocks.length; i++)
+						count += Long.bitCount(rowBlocks[i] ^ reversed[i]);
+					break;
+
+				case REFLECTION_HORIZONTAL_AXIS:
+					for (int i = 0; i < rowBlocks.length; i++)
+						count += Long.bitCount(rowBlocks[i] ^ blocks2[i]);
+					break;
+
+				default:
+					// do nothing
+					break;
 			}
 		}
-		return true;
+		return count;
+	}
+
+	//------------------------------------------------------------------
+
+	@Override
+	protected boolean isAsymmetricCell(
+		int			index,
+		int			imageIndex,
+		Symmetry	symmetry)
+	{
+		return (isCellBlocked(index / numColumns, index % numColumns)
+					!= isCellBlocked(imageIndex / numColumns, imageIndex % numColumns));
+	}
+
+	//------------------------------------------------------------------
+
+	@Override
+	protected boolean isSeparatedFromPreceding(
+		int			row,
+		int			column,
+		Direction	direction)
+	{
+		if (isCellBlocked(row, column))
+			return true;
+		return switch (direction)
+		{
+			case NONE   -> true;
+			case ACROSS -> (column == 0) || isCellBlocked(row, column - 1);
+			case DOWN   -> (row == 0) || isCellBlocked(row - 1, column);
+		};
 	}
 
 	//------------------------------------------------------------------
@@ -583,116 +616,237 @@ class BlockGrid
 		int		column,
 		boolean	blocked)
 	{
-		// Set specified cell
-		int r1 = row;
-		int c1 = column;
-		cells[r1][c1].blocked = blocked;
+		for (int index : getSymmetricCellIndices(row, column))
+			setBlocked(index / numColumns, index % numColumns, blocked);
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Inverts the blocked state of the specified cell, and sets the corresponding cells of the other regions of the
+	 * symmetry of this grid to the same state.  The cells whose state changes are recorded in the edit directly, so
+	 * the grid is neither copied nor compared with its previous state.
+	 */
+
+	public void toggleBlock(
+		int	row,
+		int	column)
+	{
+		boolean blocked = !isCellBlocked(row, column);
+		int[] cellIndices = Arrays.stream(getSymmetricCellIndices(row, column))
+									.filter(index -> isCellBlocked(index / numColumns, index % numColumns) != blocked)
+									.toArray();
+		for (int index : cellIndices)
+			toggleBlocked(index);
+		editList.add(new Edit(null, null, cellIndices));
+		updateFields(cellIndices);
+	}
+
+	//------------------------------------------------------------------
+
+	private boolean isCellBlocked(
+		int	row,
+		int	column)
+	{
+		return (((blocks[row][column >>> 6] >>> column) & 1) != 0);
+	}
+
+	//------------------------------------------------------------------
+
+	private void setBlocked(
+		int		row,
+		int		column,
+		boolean	blocked)
+	{
+		if (isCellBlocked(row, column) != blocked)
+			toggleBlocked(row * numColumns + column);
+	}
 
-		// Set corresponding cells in other regions
-		int c2 = numColumns - 1 - c1;
-		int r2 = numRows - 1 - r1;
+	//------------------------------------------------------------------
+
+	/**
+	 * Inverts the blocked state of the specified cell and updates the numbers of asymmetric cells of this grid
+	 * accordingly.
+	 */
+
+	private void toggleBlocked(
+		int	index)
+	{
+		int column = index % numColumns;
+		updateAsymmetricCellCounts(index, -1);
+		blocks[index / numColumns][column >>> 6] ^= 1L << column;
+		updateAsymmetricCellCounts(index, 1);
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Blocks the cells of the specified row that are set in the specified bit set, and the corresponding cells of the
+	 * other regions of the symmetry of this grid.  The cells of whole rows are blocked with word operations, except for
+	 * a quarter-turn rotation, which maps rows to columns.
+	 */
+
+	private void setRowBlocked(
+		int		row,
+		long[]	rowBlocks)
+	{
+		int row2 = numRows - 1 - row;
 		switch (symmetry)
 		{
 			case NONE:
-				// do nothing
+				or(blocks[row], rowBlocks);
 				break;
 
 			case ROTATION_HALF:
-				cells[r2][c2].blocked = blocked;
+			{
+				or(blocks[row], rowBlocks);
+				long[] reversed = new long[rowBlocks.length];
+				reverseColumns(rowBlocks, reversed);
+				or(blocks[row2], reversed);
 				break;
+			}
 
 			case ROTATION_QUARTER:
-				cells[c1][r2].blocked = blocked;
-				cells[r2][c2].blocked = blocked;
-				cells[c2][r1].blocked = blocked;
+				for (int i = 0; i < rowBlocks.length; i++)
+				{
+					long word = rowBlocks[i];
+					while (word != 0)
+					{
+						setCellBlocked(row, (i << 6) + Long.numberOfTrailingZeros(word), true);
+						word &= word - 1;
+					}
+				}
 				break;
 
 			case REFLECTION_VERTICAL_AXIS:
-				cells[r1][c2].blocked = blocked;
+			{
+				long[] reversed = new long[rowBlocks.length];
+				reverseColumns(rowBlocks, reversed);
+				or(blocks[row], rowBlocks);
+				or(blocks[row], reversed);
 				break;
+			}
 
 			case REFLECTION_HORIZONTAL_AXIS:
-				cells[r2][c1].blocked = blocked;
+				or(blocks[row], rowBlocks);
+				or(blocks[row2], rowBlocks);
 				break;
 
 			case REFLECTION_VERTICAL_HORIZONTAL_AXES:
-				cells[r1][c2].blocked = blocked;
-				cells[r2][c1].blocked = blocked;
-				cells[r2][c2].blocked = blocked;
+			{
+				long[] reversed = new long[rowBlocks.length];
+				reverseColumns(rowBlocks, reversed);
+				or(reversed, rowBlocks);
+				or(blocks[row], reversed);
+				or(blocks[row2], reversed);
 				break;
+			}
 		}
 	}
 
 	//------------------------------------------------------------------
 
-	public void toggleBlock(
-		int	row,
-		int	column)
+	/**
+	 * Reverses the order of the columns of the specified row bit set, so that bit <i>c</i> of the output is bit
+	 * <i>numColumns</i>&nbsp;&minus;&nbsp;1&nbsp;&minus;&nbsp;<i>c</i> of the input.
+	 *
+	 * @param rowBlocks
+	 *          the bit set that will be reversed.
+	 * @param outBlocks
+	 *          the array in which the reversed bit set will be stored; it must be a different array from {@code
+	 *          rowBlocks}.
+	 */
+
+	private void reverseColumns(
+		long[]	rowBlocks,
+		long[]	outBlocks)
 	{
-		Cell[][] oldCells = copyCells(cells);
-		setCellBlocked(row, column, !getCell(row, column).isBlocked());
-		initFields();
-		editList.add(new Edit(null, oldCells, null, copyCells(cells)));
+		// Reverse the bits of the whole words
+		int numWords = rowBlocks.length;
+		for (int i = 0; i < numWords; i++)
+			outBlocks[numWords - 1 - i] = Long.reverse(rowBlocks[i]);
+
+		// Shift the reversed bits down to the first column
+		int shift = (numWords << 6) - numColumns;
+		if (shift > 0)
+		{
+			for (int i = 0; i < numWords; i++)
+			{
+				long high = (i < numWords - 1) ? outBlocks[i + 1] << (64 - shift) : 0;
+				outBlocks[i] = (outBlocks[i] >>> shift) | high;
+			}
+		}
 	}
 
 	//------------------------------------------------------------------
 
-	private void initFields()
+	/**
+	 * Returns a copy of the blocked state of the cells of this grid.
+	 */
+
+	private long[][] copyBlocks()
 	{
-		fieldLists.clear();
-		entries.init();
-		int fieldNumber = 1;
+		long[][] copy = new long[numRows][];
+		for (int row = 0; row < numRows; row++)
+			copy[row] = blocks[row].clone();
+		return copy;
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Adds to the edit list an edit of the cells whose blocked state differs from the specified state.
+	 *
+	 * @return the row-major indices of the cells whose blocked state was changed by the edit.
+	 */
+
+	private int[] addEdit(
+		Symmetry	oldSymmetry,
+		Symmetry	newSymmetry,
+		long[][]	oldBlocks)
+	{
+		// Count the cells whose blocked state has changed
+		int numChangedCells = 0;
 		for (int row = 0; row < numRows; row++)
 		{
-			for (int column = 0; column < numColumns; column++)
+			for (int i = 0; i < blocks[row].length; i++)
+				numChangedCells += Long.bitCount(blocks[row][i] ^ oldBlocks[row][i]);
+		}
+
+		// Find the cells whose blocked state has changed
+		int[] cellIndices = new int[numChangedCells];
+		int index = 0;
+		for (int row = 0; row < numRows; row++)
+		{
+			for (int i = 0; i < blocks[row].length; i++)
 			{
-				Cell cell = cells[row][column];
-				cell.resetFields();
-				if (!cell.blocked)
+				long changed = blocks[row][i] ^ oldBlocks[row][i];
+				while (changed != 0)
 				{
-					Field field = null;
-					if ((column == 0) || cells[row][column - 1].blocked)
-					{
-						int c = column + 1;
-						while ((c < numColumns) && !cells[row][c].blocked)
-							++c;
-						int length = c - column;
-						if (length > 1)
-						{
-							field = addField(row, column, Direction.ACROSS, length, fieldNumber);
-							cell.setFieldOrigin(Direction.ACROSS, field);
-							for (int i = 0; i < length; i++)
-								entries.initValue(row, column + i);
-						}
-					}
-					if ((row == 0) || cells[row - 1][column].blocked)
-					{
-						int r = row + 1;
-						while ((r < numRows) && !cells[r][column].blocked)
-							++r;
-						int length = r - row;
-						if (length > 1)
-						{
-							field = addField(row, column, Direction.DOWN, length, fieldNumber);
-							cell.setFieldOrigin(Direction.DOWN, field);
-							for (int i = 0; i < length; i++)
-								entries.initValue(row + i, column);
-						}
-					}
-					if (field != null)
-						++fieldNumber;
-					for (Direction direction : Direction.DEFINED_DIRECTIONS)
-					{
-						if (cell.getField(direction) == null)
-						{
-							List<Field> fields = findFields(row, column, direction);
-							if (!fields.isEmpty())
-								cell.setField(direction, fields.get(0));
-						}
-					}
+					cellIndices[index++] = row * numColumns + (i << 6) + Long.numberOfTrailingZeros(changed);
+					changed &= changed - 1;
 				}
 			}
 		}
+
+		// Add edit to list
+		editList.add(new Edit(oldSymmetry, newSymmetry, cellIndices));
+
+		return cellIndices;
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Inverts the blocked state of the specified cells and updates the fields of this grid accordingly.
+	 */
+
+	private void toggleBlocks(
+		int[]	cellIndices)
+	{
+		for (int index : cellIndices)
+			toggleBlocked(index);
+		updateFields(cellIndices);
 	}
 
 	//------------------------------------------------------------------
@@ -754,29 +908,26 @@ class BlockGrid
 	//==================================================================
 
 ////////////////////////////////////////////////////////////////////////
-//  Member classes : non-inner classes
+//  Member classes : inner classes
 ////////////////////////////////////////////////////////////////////////
 
 
 	// CLASS: CELL
 
 
-	public static class Cell
+	public class Cell
 		extends Grid.Cell
 	{
 
-	////////////////////////////////////////////////////////////////////
-	//  Instance variables
-	////////////////////////////////////////////////////////////////////
-
-		private	boolean	blocked;
-
 	////////////////////////////////////////////////////////////////////
 	//  Constructors
 	////////////////////////////////////////////////////////////////////
 
-		private Cell()
+		private Cell(
+			int	row,
+			int	column)
 		{
+			super(row, column);
 		}
 
 		//--------------------------------------------------------------
@@ -785,14 +936,6 @@ class BlockGrid
 	//  Instance methods : overriding methods
 	////////////////////////////////////////////////////////////////////
 
-		@Override
-		public Cell clone()
-		{
-			return (Cell)super.clone();
-		}
-
-		//--------------------------------------------------------------
-
 		@Override
 		protected void write(
 			XmlWriter	writer,
@@ -802,7 +945,7 @@ class BlockGrid
 			char		entry)
 			throws IOException
 		{
-			if (blocked)
+			if (isBlocked())
 			{
 				AttributeList attributes = new AttributeList();
 				attributes.add(HtmlConstants.AttrName.CLASS, HtmlConstants.Class.BLOCK);
@@ -831,7 +974,7 @@ class BlockGrid
 
 		public boolean isBlocked()
 		{
-			return blocked;
+			return isCellBlocked(row, column);
 		}
 
 		//--------------------------------------------------------------
@@ -840,14 +983,16 @@ class BlockGrid
 
 	//==================================================================
 
-////////////////////////////////////////////////////////////////////////
-//  Member classes : inner classes
-////////////////////////////////////////////////////////////////////////
-
 
 	// CLASS: EDIT
 
 
+	/**
+	 * This class implements an edit of the cells of a block grid.  The edit is recorded as the indices of the cells
+	 * whose blocked state was changed by it; because a cell is either blocked or not, both undoing and redoing the
+	 * edit invert the blocked state of those cells.
+	 */
+
 	private class Edit
 		implements EditList.IEdit
 	{
@@ -857,9 +1002,8 @@ class BlockGrid
 	////////////////////////////////////////////////////////////////////
 
 		private	Symmetry	oldSymmetry;
-		private	Cell[][]	oldCells;
 		private	Symmetry	newSymmetry;
-		private	Cell[][]	newCells;
+		private	int[]		cellIndices;
 
 	////////////////////////////////////////////////////////////////////
 	//  Constructors
@@ -867,14 +1011,12 @@ class BlockGrid
 
 		private Edit(
 			Symmetry	oldSymmetry,
-			Cell[][]	oldCells,
 			Symmetry	newSymmetry,
-			Cell[][]	newCells)
+			int[]		cellIndices)
 		{
 			this.oldSymmetry = oldSymmetry;
-			this.oldCells = oldCells;
 			this.newSymmetry = newSymmetry;
-			this.newCells = newCells;
+			this.cellIndices = cellIndices;
 		}
 
 		//--------------------------------------------------------------
@@ -888,8 +1030,7 @@ class BlockGrid
 		{
 			if (oldSymmetry != null)
 				symmetry = oldSymmetry;
-			cells = oldCells;
-			initFields();
+			toggleBlocks(cellIndices);
 		}
 
 		//--------------------------------------------------------------
@@ -899,8 +1040,16 @@ class BlockGrid
 		{
 			if (newSymmetry != null)
 				symmetry = newSymmetry;
-			cells = newCells;
-			initFields();
+			toggleBlocks(cellIndices);
+		}
+
+		//--------------------------------------------------------------
+
+		@Override
+		public long retainedSize()
+		{
+			// Object, and array header and four bytes per cell index
+			return 32 + 4L * cellIndices.length;
 		}
 
 		//--------------------------------------------------------------
@@ -25,6 +25,7 @@ import java.awt.GridBagLayout;
 import java.awt.GridLayout;
 import java.awt.Insets;
 import java.awt.Point;
+import java.awt.Rectangle;
 import java.awt.Window;
 
 import java.awt.event.ActionEvent;
@@ -63,6 +64,7 @@ import javax.swing.event.DocumentListener;
 
 import uk.blankaspect.common.exception.AppException;
 import uk.blankaspect.common.exception.FileException;
+import uk.blankaspect.common.exception.TaskCancelledException;
 
 import uk.blankaspect.common.filesystem.PathnameUtils;
 
@@ -96,7 +98,7 @@ import uk.blankaspect.ui.swing.filechooser.FileChooserUtils;
 import uk.blankaspect.ui.swing.font.FontUtils;
 
 import uk.blankaspect.ui.swing.image.ClipboardImage;
-import uk.blankaspect.ui.swing.image.ImageUtils;
+import uk.blankaspect.ui.swing.image.ImageScaler;
 
 import uk.blankaspect.ui.swing.label.FixedWidthLabel;
 import uk.blankaspect.ui.swing.label.FLabel;
@@ -138,15 +140,16 @@ class CaptureDialog
 	public static final		int		MAX_GRID_IMAGE_VIEWPORT_HEIGHT		= 1200;
 	public static final		int		DEFAULT_GRID_IMAGE_VIEWPORT_HEIGHT	= 600;
 
-	// Automatic grid-detection panel
+	// Automatic grid-detection panel; the strings are also used by GridDetectionDialog
 	private static final	int		MIN_LINE_LENGTH_FIELD_LENGTH				= 3;
 	private static final	int		MIN_LINE_SEPARATION_FIELD_LENGTH			= 2;
 	private static final	int		MIN_LINE_ENDPOINT_TOLERANCE_FIELD_LENGTH	= 1;
 
-	private static final	String	GRID_LINE_STR			= "Grid line";
-	private static final	String	MIN_LENGTH_STR			= "Minimum length";
-	private static final	String	MIN_SEPARATION_STR		= "Minimum separation";
-	private static final	String	ENDPOINT_TOLERANCE_STR	= "Endpoint tolerance";
+	static final			String	DETECTION_METHOD_STR	= "Detection method";
+	static final			String	GRID_LINE_STR			= "Grid line";
+	static final			String	MIN_LENGTH_STR			= "Minimum length";
+	static final			String	MIN_SEPARATION_STR		= "Minimum separation";
+	static final			String	ENDPOINT_TOLERANCE_STR	= "Endpoint tolerance";
 
 	// Grid panel
 	private static final	int		GRID_SIZE_FIELD_LENGTH				= 2;
@@ -156,18 +159,29 @@ class CaptureDialog
 	private static final	int		BAR_WIDTH_THRESHOLD_FIELD_LENGTH	= 1;
 	private static final	int		BRIGHTNESS_THRESHOLD_FIELD_LENGTH	= 2;
 
-	private static final	double	BRIGHTNESS_THRESHOLD_FACTOR	= 0.01;
+	static final			double	BRIGHTNESS_THRESHOLD_FACTOR	= 0.01;
+
+	private static final	int		MAX_PREVIEW_IMAGE_SIZE	= 2048;
+
+	/** The maximum number of pixels of an image file whose whole raster is read for grid detection. */
+	private static final	long	MAX_DETECTION_RASTER_SIZE	= 1L << 26;
+
+	private static final	String	GRID_EXTRACTION_THREAD_NAME		= "gridExtraction";
+	private static final	String	GRID_IMAGE_FILE_THREAD_NAME		= "gridImageFile";
+	private static final	String	GRID_IMAGE_CLIPBOARD_THREAD_NAME	= "gridImageClipboard";
+	private static final	String	GRID_IMAGE_REGION_THREAD_NAME	= "gridImageRegion";
 
 	private static final	String	GRID_SEPARATOR_STR			= "Grid separator";
 	private static final	String	GRID_SIZE_STR				= "Grid size";
 	private static final	String	COLUMNS_STR					= "columns";
 	private static final	String	ROWS_STR					= "rows";
 	private static final	String	AUTOMATIC_DETECTION_STR		= "Automatic grid detection";
+	private static final	String	AUTOMATIC_THRESHOLD_STR		= "Automatic brightness threshold";
 	private static final	String	X_OFFSET_STR				= "X offset";
 	private static final	String	Y_OFFSET_STR				= "Y offset";
 	private static final	String	PERCENT_STR					= "%";
 	private static final	String	SAMPLE_SIZE_STR				= "Sample size";
-	private static final	String	BRIGHTNESS_THRESHOLD_STR	= "Brightness threshold";
+	static final			String	BRIGHTNESS_THRESHOLD_STR	= "Brightness threshold";
 	private static final	String	BAR_WIDTH_THRESHOLD_STR		= "Bar-width threshold";
 
 	// Clue indications panel
@@ -206,6 +220,7 @@ class CaptureDialog
 
 	private static final	String	MANAGE_PARAMETER_SET_STR	= "Manage parameter set";
 	private static final	String	GET_GRID_IMAGE_STR			= "Get grid image";
+	private static final	String	GRID_IMAGE_FROM_FILE_STR	= "Grid image from file";
 	private static final	String	GET_CLUES_STR				= "Get clues";
 
 	// General
@@ -217,10 +232,18 @@ class CaptureDialog
 	private static final	String	SELECT_DIRECTORY_STR	= "Select directory";
 	private static final	String	PARAMETER_SET_STR		= "Parameter set";
 	private static final	String	PARAMETER_SET_FILE_STR	= "Parameter-set file";
+	private static final	String	GRID_IMAGE_FILE_STR		= "Grid-image file";
 	private static final	String	CONFIRM_CLEAR_STR		=
 			"Do you want to clear the crossword number, prologue, epilogue,\ngrid image and lists of clues?";
 	private static final	String	GRID_FOUND_STR			=
 			"A grid of %d columns by %d rows was found.\nDo you want to set the grid size to these values?";
+	private static final	String	FIELD_NUM_MISMATCH_STR	=
+			"The numbers in the grid image don't match the numbering of the grid for these fields:\n%s\n";
+	private static final	String	SPURIOUS_FIELD_NUMS_STR	=
+			"Numbers were found in %d cells of the grid image that don't start a field.\n";
+	private static final	String	MISSING_FIELD_NUMS_STR	=
+			"No number was found in the grid image for %d of the %d fields.\n";
+	private static final	String	CONTINUE_CAPTURE_STR	= "Do you want to continue?";
 	private static final	String	NO_PARAM_SET_FILE_STR	=
 			"No parameter-set file has been specified in the user preferences.\nDo you want to choose a file?";
 
@@ -233,6 +256,7 @@ class CaptureDialog
 		String	MANAGE_PARAMETER_SET		= "manageParameterSet";
 		String	CLEAR						= "clear";
 		String	GET_GRID_IMAGE				= "getGridImage";
+		String	GET_GRID_IMAGE_FROM_FILE	= "getGridImageFromFile";
 		String	GET_CLUES					= "getClues.";
 		String	ACCEPT						= "accept";
 		String	CLOSE						= "close";
@@ -253,9 +277,15 @@ class CaptureDialog
 	private	boolean						accepted;
 	private	int							documentIndex;
 	private	CrosswordDocument			document;
-	private	BufferedImage				gridImage;
+	private	Grid.DetectionSession	detectionSession;
+	private	PixelRaster					gridRaster;
+	private	BackgroundWorker<Grid>		gridExtractionWorker;
+	private	BackgroundWorker<GridImageFile>	gridImageFileWorker;
+	private	BackgroundWorker<ClipboardGridImage>	gridImageClipboardWorker;
+	private	BackgroundWorker<PixelRaster>	gridImageRegionWorker;
 	private	Map<Direction, List<Clue>>	clueLists;
 	private	JTabbedPane					tabbedPanel;
+	private	FComboBox<Grid.DetectionMethod>	gridDetectionMethodComboBox;
 	private	FIntegerSpinner				gridLineBrightnessThresholdSpinner;
 	private	FIntegerSpinner				gridLineMinLengthSpinner;
 	private	FIntegerSpinner				gridLineMinSeparationSpinner;
@@ -263,6 +293,7 @@ class CaptureDialog
 	private	FComboBox<Grid.Separator>	gridSeparatorComboBox;
 	private	DimensionsSpinnerPanel		gridSizePanel;
 	private	JCheckBox					autoGridDetectionCheckBox;
+	private	JCheckBox					autoBrightnessThresholdCheckBox;
 	private	FIntegerSpinner				xOffsetSpinner;
 	private	FIntegerSpinner				yOffsetSpinner;
 	private	JPanel						gridSeparatorParamPanel;
@@ -283,12 +314,14 @@ class CaptureDialog
 	private	FPathnameField				htmlDirectoryField;
 	private	JButton						clearButton;
 	private	JButton						getGridImageButton;
+	private	JButton						getGridImageFromFileButton;
 	private	MenuButton					getCluesButton;
 	private	JButton						okButton;
 	private	StatusPanel					statusPanel;
 	private	JFileChooser				documentDirectoryChooser;
 	private	JFileChooser				htmlDirectoryChooser;
 	private	JFileChooser				parameterSetFileChooser;
+	private	JFileChooser				gridImageFileChooser;
 
 ////////////////////////////////////////////////////////////////////////
 //  Constructors
@@ -307,6 +340,11 @@ class CaptureDialog
 		// Initialise instance variables
 		this.documentIndex = documentIndex;
 		clueLists = new EnumMap<>(Direction.class);
+		gridExtractionWorker = new BackgroundWorker<>(GRID_EXTRACTION_THREAD_NAME, 0, this::onGridExtracted);
+		gridImageFileWorker = new BackgroundWorker<>(GRID_IMAGE_FILE_THREAD_NAME, 0, this::onGridImageFileRead);
+		gridImageClipboardWorker =
+				new BackgroundWorker<>(GRID_IMAGE_CLIPBOARD_THREAD_NAME, 0, this::onClipboardGridImageRead);
+		gridImageRegionWorker = new BackgroundWorker<>(GRID_IMAGE_REGION_THREAD_NAME, 0, this::onGridImageRegionRead);
 
 		documentDirectoryChooser = new JFileChooser();
 		documentDirectoryChooser.setDialogTitle(DOCUMENT_DIR_TITLE_STR);
@@ -327,6 +365,13 @@ class CaptureDialog
 		parameterSetFileChooser.setApproveButtonToolTipText(SELECT_FILE_STR);
 		FileChooserUtils.setFilter(parameterSetFileChooser, AppConstants.XML_FILE_FILTER);
 
+		gridImageFileChooser = new JFileChooser();
+		gridImageFileChooser.setDialogTitle(GRID_IMAGE_FILE_STR);
+		gridImageFileChooser.setFileSelectionMode(JFileChooser.FILES_ONLY);
+		gridImageFileChooser.setApproveButtonMnemonic(KeyEvent.VK_S);
+		gridImageFileChooser.setApproveButtonToolTipText(SELECT_FILE_STR);
+		FileChooserUtils.setFilter(gridImageFileChooser, AppConstants.IMAGE_FILE_FILTER);
+
 
 		//----  Tabbed panel
 
@@ -354,6 +399,11 @@ class CaptureDialog
 				new Button(GET_GRID_IMAGE_STR + AppConstants.ELLIPSIS_STR, Command.GET_GRID_IMAGE, KeyEvent.VK_G);
 		captureButtonPanel.add(getGridImageButton);
 
+		// Button: get grid image from file
+		getGridImageFromFileButton = new Button(GRID_IMAGE_FROM_FILE_STR + AppConstants.ELLIPSIS_STR,
+												Command.GET_GRID_IMAGE_FROM_FILE, KeyEvent.VK_F);
+		captureButtonPanel.add(getGridImageFromFileButton);
+
 		// Button: get clues
 		getCluesButton = new MenuButton(GET_CLUES_STR);
 		getCluesButton.setMargin(BUTTON_MARGINS);
@@ -535,6 +585,57 @@ class CaptureDialog
 
 	//------------------------------------------------------------------
 
+	/**
+	 * Returns a spinner for the brightness threshold of grid lines, as a percentage.  The spinners of the parameters
+	 * of grid detection are also used by {@link GridDetectionDialog}.
+	 */
+
+	static FIntegerSpinner createGridLineBrightnessThresholdSpinner(
+		int	value)
+	{
+		return new FIntegerSpinner(value, CaptureParams.MIN_BRIGHTNESS_THRESHOLD,
+								   CaptureParams.MAX_BRIGHTNESS_THRESHOLD, BRIGHTNESS_THRESHOLD_FIELD_LENGTH);
+	}
+
+	//------------------------------------------------------------------
+
+	static FIntegerSpinner createGridLineMinLengthSpinner(
+		int	value)
+	{
+		return new FIntegerSpinner(value, CaptureParams.MIN_GRID_LINE_MIN_LENGTH,
+								   CaptureParams.MAX_GRID_LINE_MIN_LENGTH, MIN_LINE_LENGTH_FIELD_LENGTH);
+	}
+
+	//------------------------------------------------------------------
+
+	static FIntegerSpinner createGridLineMinSeparationSpinner(
+		int	value)
+	{
+		return new FIntegerSpinner(value, CaptureParams.MIN_GRID_LINE_MIN_SEPARATION,
+								   CaptureParams.MAX_GRID_LINE_MIN_SEPARATION, MIN_LINE_SEPARATION_FIELD_LENGTH);
+	}
+
+	//------------------------------------------------------------------
+
+	static FIntegerSpinner createGridLineEndpointToleranceSpinner(
+		int	value)
+	{
+		return new FIntegerSpinner(value, CaptureParams.MIN_GRID_LINE_ENDPOINT_TOLERANCE,
+								   CaptureParams.MAX_GRID_LINE_ENDPOINT_TOLERANCE,
+								   MIN_LINE_ENDPOINT_TOLERANCE_FIELD_LENGTH);
+	}
+
+	//------------------------------------------------------------------
+
+	private static int toBrightnessThresholdValue(
+		double	brightnessThreshold)
+	{
+		int value = (int)Math.round(brightnessThreshold / BRIGHTNESS_THRESHOLD_FACTOR);
+		return Math.min(Math.max(CaptureParams.MIN_BRIGHTNESS_THRESHOLD, value), CaptureParams.MAX_BRIGHTNESS_THRESHOLD);
+	}
+
+	//------------------------------------------------------------------
+
 ////////////////////////////////////////////////////////////////////////
 //  Instance methods : ActionListener interface
 ////////////////////////////////////////////////////////////////////////
@@ -559,6 +660,7 @@ class CaptureDialog
 					case Command.MANAGE_PARAMETER_SET      -> onManageParameterSet();
 					case Command.CLEAR                     -> onClear();
 					case Command.GET_GRID_IMAGE            -> onGetGridImage();
+					case Command.GET_GRID_IMAGE_FROM_FILE  -> onGetGridImageFromFile();
 					case Command.ACCEPT                    -> onAccept();
 					case Command.CLOSE                     -> onClose();
 				}
@@ -653,6 +755,7 @@ class CaptureDialog
 				.show(gridSeparatorParamPanel, getGridSeparator().getKey());
 		updateClearButton();
 		updateClipboardButtons();
+		updateGridImageFileButton();
 		updateAcceptButton();
 	}
 
@@ -661,22 +764,30 @@ class CaptureDialog
 	private void updateClearButton()
 	{
 		clearButton.setEnabled(!numberField.isEmpty() || !prologuePanel.isEmpty() ||
-								!epiloguePanel.isEmpty() || (gridImage != null) || !clueLists.isEmpty());
+								!epiloguePanel.isEmpty() || (gridRaster != null) || !clueLists.isEmpty());
 	}
 
 	//------------------------------------------------------------------
 
 	private void updateClipboardButtons()
 	{
-		getGridImageButton.setEnabled(ClipboardImage.clipboardHasImage());
+		getGridImageButton.setEnabled(ClipboardImage.clipboardHasImage() && !gridImageClipboardWorker.isBusy()
+										&& !gridImageRegionWorker.isBusy());
 		getCluesButton.setEnabled(Utils.clipboardHasText());
 	}
 
 	//------------------------------------------------------------------
 
+	private void updateGridImageFileButton()
+	{
+		getGridImageFromFileButton.setEnabled(!gridImageFileWorker.isBusy() && !gridImageRegionWorker.isBusy());
+	}
+
+	//------------------------------------------------------------------
+
 	private void updateAcceptButton()
 	{
-		okButton.setEnabled(gridImage != null);
+		okButton.setEnabled(gridRaster != null);
 	}
 
 	//------------------------------------------------------------------
@@ -689,6 +800,7 @@ class CaptureDialog
 			gridSizePanel.getValue1(),
 			gridSizePanel.getValue2(),
 			autoGridDetectionCheckBox.isSelected(),
+			autoBrightnessThresholdCheckBox.isSelected(),
 			xOffsetSpinner.getIntValue(),
 			yOffsetSpinner.getIntValue(),
 			(gridSeparator == Grid.Separator.BLOCK) ? sampleSizeSpinner.getIntValue()
@@ -703,6 +815,7 @@ class CaptureDialog
 			gridLineMinLengthSpinner.getIntValue(),
 			gridLineMinSeparationSpinner.getIntValue(),
 			gridLineEndpointToleranceSpinner.getIntValue(),
+			gridDetectionMethodComboBox.getSelectedValue(),
 			multipleFieldClueIdSeparatorField.getText(),
 			clueReferenceKeywordField.getText(),
 			answerLengthPanel.getPattern(),
@@ -723,6 +836,7 @@ class CaptureDialog
 		gridSeparatorComboBox.setSelectedValue(params.getGridSeparator());
 		gridSizePanel.setValues(params.getNumColumns(), params.getNumRows());
 		autoGridDetectionCheckBox.setSelected(params.isAutomaticGridDetection());
+		autoBrightnessThresholdCheckBox.setSelected(params.isAutomaticBrightnessThreshold());
 		xOffsetSpinner.setIntValue(params.getXOffset());
 		yOffsetSpinner.setIntValue(params.getYOffset());
 		sampleSizeSpinner.setIntValue(params.getSampleSize());
@@ -733,6 +847,7 @@ class CaptureDialog
 		gridLineMinLengthSpinner.setIntValue(params.getGridLineMinLength());
 		gridLineMinSeparationSpinner.setIntValue(params.getGridLineMinSeparation());
 		gridLineEndpointToleranceSpinner.setIntValue(params.getGridLineEndpointTolerance());
+		gridDetectionMethodComboBox.setSelectedValue(params.getGridDetectionMethod());
 		multipleFieldClueIdSeparatorField.setText(params.getMultipleFieldClueIdSeparator());
 		clueReferenceKeywordField.setText(params.getClueReferenceKeyword());
 		answerLengthPanel.setPattern(params.getAnswerLengthPattern());
@@ -772,33 +887,135 @@ class CaptureDialog
 	private Grid gridFromImage()
 		throws AppException
 	{
+		return createGridExtractionJob().run();
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Returns a job that creates a grid from the current grid raster with the current parameters.  The parameters are
+	 * read from the components of this dialog when this method is called, so the job may be run on a background
+	 * thread.
+	 */
+
+	private BackgroundWorker.IJob<Grid> createGridExtractionJob()
+	{
+		PixelRaster raster = gridRaster;
+		Grid.Separator separator = getGridSeparator();
 		int numColumns = gridSizePanel.getValue1();
 		int numRows = gridSizePanel.getValue2();
 		int xOffset = xOffsetSpinner.getIntValue();
 		int yOffset = yOffsetSpinner.getIntValue();
 		int sampleSize = sampleSizeSpinner.getIntValue();
 		int barWidthThreshold = barWidthThresholdSpinner.getIntValue();
-		Grid grid = null;
-		switch (getGridSeparator())
-		{
-			case BLOCK:
-			{
-				double brightnessThreshold =
-						(double)blockBrightnessThresholdSpinner.getIntValue() * BRIGHTNESS_THRESHOLD_FACTOR;
-				grid = new BlockGrid(numColumns, numRows, gridImage, xOffset, yOffset, sampleSize, brightnessThreshold);
-				break;
-			}
+		FIntegerSpinner brightnessThresholdSpinner = (separator == Grid.Separator.BLOCK)
+															? blockBrightnessThresholdSpinner
+															: barBrightnessThresholdSpinner;
+		double brightnessThreshold =
+				(double)brightnessThresholdSpinner.getIntValue() * BRIGHTNESS_THRESHOLD_FACTOR;
+		return () -> Grid.extractGrid(raster, separator, numColumns, numRows, xOffset, yOffset, sampleSize,
+									  brightnessThreshold, barWidthThreshold);
+	}
 
-			case BAR:
-			{
-				double brightnessThreshold =
-						(double)barBrightnessThresholdSpinner.getIntValue() * BRIGHTNESS_THRESHOLD_FACTOR;
-				grid = new BarGrid(numColumns, numRows, gridImage, xOffset, yOffset, brightnessThreshold,
-								   barWidthThreshold);
-				break;
-			}
+	//------------------------------------------------------------------
+
+	private GridDetectionDialog.Params getGridDetectionParams()
+	{
+		return new GridDetectionDialog.Params(gridDetectionMethodComboBox.getSelectedValue(),
+											  gridLineBrightnessThresholdSpinner.getIntValue(),
+											  gridLineMinLengthSpinner.getIntValue(),
+											  gridLineMinSeparationSpinner.getIntValue(),
+											  gridLineEndpointToleranceSpinner.getIntValue());
+	}
+
+	//------------------------------------------------------------------
+
+	private void setGridDetectionParams(
+		GridDetectionDialog.Params	params)
+	{
+		gridDetectionMethodComboBox.setSelectedValue(params.method());
+		gridLineBrightnessThresholdSpinner.setIntValue(params.brightnessThreshold());
+		gridLineMinLengthSpinner.setIntValue(params.minLineLength());
+		gridLineMinSeparationSpinner.setIntValue(params.minLineSeparation());
+		gridLineEndpointToleranceSpinner.setIntValue(params.endpointTolerance());
+	}
+
+	//------------------------------------------------------------------
+
+	private boolean confirmTextCapture(
+		Grid.TextCapture	textCapture)
+	{
+		if (!textCapture.hasNumberingConflicts())
+			return true;
+
+		StringBuilder buffer = new StringBuilder();
+		if (!textCapture.mismatchedFields().isEmpty())
+		{
+			String fieldIdsStr = StringUtils.join(", ", textCapture.mismatchedFields().stream()
+																		.map(field -> field.getId().toString())
+																		.toList());
+			buffer.append(String.format(FIELD_NUM_MISMATCH_STR, fieldIdsStr));
+		}
+		if (textCapture.numSpuriousFieldNumbers() > 0)
+			buffer.append(String.format(SPURIOUS_FIELD_NUMS_STR, textCapture.numSpuriousFieldNumbers()));
+		if (textCapture.numMissingFieldNumbers() > 0)
+		{
+			int numFields = textCapture.numFieldNumbers() + textCapture.numMissingFieldNumbers()
+								+ textCapture.mismatchedFields().size();
+			buffer.append(String.format(MISSING_FIELD_NUMS_STR, textCapture.numMissingFieldNumbers(), numFields));
 		}
-		return grid;
+		buffer.append(CONTINUE_CAPTURE_STR);
+		String messageStr = buffer.toString();
+		String[] optionStrs = Utils.getOptionStrings(AppConstants.CONTINUE_STR);
+		return (JOptionPane.showOptionDialog(this, messageStr, CAPTURE_STR, JOptionPane.OK_CANCEL_OPTION,
+											 JOptionPane.WARNING_MESSAGE, null, optionStrs, optionStrs[1])
+																							== JOptionPane.OK_OPTION);
+	}
+
+	//------------------------------------------------------------------
+
+	private double getGridLineBrightnessThreshold()
+	{
+		return (double)gridLineBrightnessThresholdSpinner.getIntValue() * BRIGHTNESS_THRESHOLD_FACTOR;
+	}
+
+	//------------------------------------------------------------------
+
+	private boolean confirmGridSize(
+		Grid.Info	gridInfo)
+	{
+		String messageStr = String.format(GRID_FOUND_STR, gridInfo.numColumns(), gridInfo.numRows());
+		int result = JOptionPane.showConfirmDialog(this, messageStr, GET_GRID_IMAGE_STR,
+												   JOptionPane.YES_NO_CANCEL_OPTION);
+		if (result == JOptionPane.YES_OPTION)
+			gridSizePanel.setValues(gridInfo.numColumns(), gridInfo.numRows());
+		return (result == JOptionPane.YES_OPTION) || (result == JOptionPane.NO_OPTION);
+	}
+
+	//------------------------------------------------------------------
+
+	private void setGridRaster(
+		PixelRaster	raster)
+	{
+		gridRaster = raster;
+		if (autoBrightnessThresholdCheckBox.isSelected())
+			blockBrightnessThresholdSpinner.setIntValue(toBrightnessThresholdValue(gridRaster.getOtsuThreshold()));
+		statusPanel.setGrid(true);
+		updateComponents();
+
+		// Create the grid for the preview on a background thread
+		gridExtractionWorker.submitNow(createGridExtractionJob());
+	}
+
+	//------------------------------------------------------------------
+
+	private void onGridExtracted(
+		BackgroundWorker.Result<Grid>	result)
+	{
+		if (result.exception() == null)
+			GridPreviewDialog.showDialog(this, result.value());
+		else
+			JOptionPane.showMessageDialog(this, result.exception(), CAPTURE_STR, JOptionPane.ERROR_MESSAGE);
 	}
 
 	//------------------------------------------------------------------
@@ -843,11 +1060,46 @@ class CaptureDialog
 
 	private JPanel createPanelAutoGridDetection()
 	{
-		//----  Control panel
+		//----  Method panel
 
 		GridBagLayout gridBag = new GridBagLayout();
 		GridBagConstraints gbc = new GridBagConstraints();
 
+		JPanel methodPanel = new JPanel(gridBag);
+
+		// Label: detection method
+		JLabel detectionMethodLabel = new FLabel(DETECTION_METHOD_STR);
+
+		gbc.gridx = 0;
+		gbc.gridy = 0;
+		gbc.gridwidth = 1;
+		gbc.gridheight = 1;
+		gbc.weightx = 0.0;
+		gbc.weighty = 0.0;
+		gbc.anchor = GridBagConstraints.LINE_END;
+		gbc.fill = GridBagConstraints.NONE;
+		gbc.insets = AppConstants.COMPONENT_INSETS;
+		gridBag.setConstraints(detectionMethodLabel, gbc);
+		methodPanel.add(detectionMethodLabel);
+
+		// Combo box: detection method
+		gridDetectionMethodComboBox = new FComboBox<>(Grid.DetectionMethod.values());
+
+		gbc.gridx = 1;
+		gbc.gridy = 0;
+		gbc.gridwidth = 1;
+		gbc.gridheight = 1;
+		gbc.weightx = 0.0;
+		gbc.weighty = 0.0;
+		gbc.anchor = GridBagConstraints.LINE_START;
+		gbc.fill = GridBagConstraints.NONE;
+		gbc.insets = AppConstants.COMPONENT_INSETS;
+		gridBag.setConstraints(gridDetectionMethodComboBox, gbc);
+		methodPanel.add(gridDetectionMethodComboBox);
+
+
+		//----  Control panel
+
 		JPanel controlPanel = new JPanel(gridBag);
 		TitledBorder.setPaddedBorder(controlPanel, GRID_LINE_STR);
 
@@ -869,10 +1121,8 @@ class CaptureDialog
 		controlPanel.add(lineBrightnessThresholdLabel);
 
 		// Spinner: line brightness threshold
-		gridLineBrightnessThresholdSpinner = new FIntegerSpinner(CaptureParams.MIN_BRIGHTNESS_THRESHOLD,
-																 CaptureParams.MIN_BRIGHTNESS_THRESHOLD,
-																 CaptureParams.MAX_BRIGHTNESS_THRESHOLD,
-																 BRIGHTNESS_THRESHOLD_FIELD_LENGTH);
+		gridLineBrightnessThresholdSpinner =
+				createGridLineBrightnessThresholdSpinner(CaptureParams.MIN_BRIGHTNESS_THRESHOLD);
 
 		gbc.gridx = 1;
 		gbc.gridy = gridY++;
@@ -902,9 +1152,7 @@ class CaptureDialog
 		controlPanel.add(minLineLengthLabel);
 
 		// Spinner: minimum line length
-		gridLineMinLengthSpinner =
-				new FIntegerSpinner(CaptureParams.MIN_GRID_LINE_MIN_LENGTH, CaptureParams.MIN_GRID_LINE_MIN_LENGTH,
-									CaptureParams.MAX_GRID_LINE_MIN_LENGTH, MIN_LINE_LENGTH_FIELD_LENGTH);
+		gridLineMinLengthSpinner = createGridLineMinLengthSpinner(CaptureParams.MIN_GRID_LINE_MIN_LENGTH);
 
 		gbc.gridx = 1;
 		gbc.gridy = gridY++;
@@ -934,10 +1182,7 @@ class CaptureDialog
 		controlPanel.add(minLineSeparationLabel);
 
 		// Spinner: minimum line separation
-		gridLineMinSeparationSpinner =
-				new FIntegerSpinner(CaptureParams.MIN_GRID_LINE_MIN_SEPARATION,
-									CaptureParams.MIN_GRID_LINE_MIN_SEPARATION,
-									CaptureParams.MAX_GRID_LINE_MIN_SEPARATION, MIN_LINE_SEPARATION_FIELD_LENGTH);
+		gridLineMinSeparationSpinner = createGridLineMinSeparationSpinner(CaptureParams.MIN_GRID_LINE_MIN_SEPARATION);
 
 		gbc.gridx = 1;
 		gbc.gridy = gridY++;
@@ -967,10 +1212,8 @@ class CaptureDialog
 		controlPanel.add(lineEndpointToleranceLabel);
 
 		// Spinner: line endpoint tolerance
-		gridLineEndpointToleranceSpinner = new FIntegerSpinner(CaptureParams.MIN_GRID_LINE_ENDPOINT_TOLERANCE,
-															   CaptureParams.MIN_GRID_LINE_ENDPOINT_TOLERANCE,
-															   CaptureParams.MAX_GRID_LINE_ENDPOINT_TOLERANCE,
-															   MIN_LINE_ENDPOINT_TOLERANCE_FIELD_LENGTH);
+		gridLineEndpointToleranceSpinner =
+				createGridLineEndpointToleranceSpinner(CaptureParams.MIN_GRID_LINE_ENDPOINT_TOLERANCE);
 
 		gbc.gridx = 1;
 		gbc.gridy = gridY++;
@@ -991,7 +1234,7 @@ class CaptureDialog
 		panel.setBorder(BorderFactory.createEmptyBorder(2, 2, 2, 2));
 
 		// Set preferred focus owner
-		panel.putClientProperty(PropertyKeys.PREFERRED_FOCUS_OWNER, gridLineBrightnessThresholdSpinner);
+		panel.putClientProperty(PropertyKeys.PREFERRED_FOCUS_OWNER, gridDetectionMethodComboBox);
 
 		gbc.gridx = 0;
 		gbc.gridy = 0;
@@ -1002,6 +1245,18 @@ class CaptureDialog
 		gbc.anchor = GridBagConstraints.NORTH;
 		gbc.fill = GridBagConstraints.NONE;
 		gbc.insets = new Insets(0, 0, 0, 0);
+		gridBag.setConstraints(methodPanel, gbc);
+		panel.add(methodPanel);
+
+		gbc.gridx = 0;
+		gbc.gridy = 1;
+		gbc.gridwidth = 1;
+		gbc.gridheight = 1;
+		gbc.weightx = 0.0;
+		gbc.weighty = 0.0;
+		gbc.anchor = GridBagConstraints.NORTH;
+		gbc.fill = GridBagConstraints.NONE;
+		gbc.insets = new Insets(2, 0, 0, 0);
 		gridBag.setConstraints(controlPanel, gbc);
 		panel.add(controlPanel);
 
@@ -1108,6 +1363,21 @@ class CaptureDialog
 		gridBag.setConstraints(autoGridDetectionCheckBox, gbc);
 		controlPanel.add(autoGridDetectionCheckBox);
 
+		// Check box: automatic brightness threshold
+		autoBrightnessThresholdCheckBox = new FCheckBox(AUTOMATIC_THRESHOLD_STR);
+
+		gbc.gridx = 1;
+		gbc.gridy = gridY++;
+		gbc.gridwidth = 1;
+		gbc.gridheight = 1;
+		gbc.weightx = 0.0;
+		gbc.weighty = 0.0;
+		gbc.anchor = GridBagConstraints.LINE_START;
+		gbc.fill = GridBagConstraints.NONE;
+		gbc.insets = AppConstants.COMPONENT_INSETS;
+		gridBag.setConstraints(autoBrightnessThresholdCheckBox, gbc);
+		controlPanel.add(autoBrightnessThresholdCheckBox);
+
 		// Label: x offset
 		JLabel xOffsetLabel = new GridLabel(X_OFFSET_STR);
 
@@ -1912,45 +2182,261 @@ class CaptureDialog
 		// Get image from clipboard
 		BufferedImage image = Utils.getClipboardImage();
 
-		// Find grid in image
+		// Start a new detection session if the image has changed, and get the brightness threshold of grid lines from
+		// the histogram of the image, on a background thread
+		Grid.DetectionSession session = detectionSession;
+		boolean autoThreshold = autoBrightnessThresholdCheckBox.isSelected();
+		gridImageClipboardWorker.submitNow(() ->
+		{
+			Grid.DetectionSession newSession = ((session == null) || !session.hasImage(image))
+														? new Grid.DetectionSession(image)
+														: session;
+			int thresholdValue = autoThreshold
+									? toBrightnessThresholdValue(newSession.getRaster().getOtsuThreshold())
+									: -1;
+			return new ClipboardGridImage(newSession, thresholdValue);
+		});
+		updateComponents();
+	}
+
+	//------------------------------------------------------------------
+
+	private void onClipboardGridImageRead(
+		BackgroundWorker.Result<ClipboardGridImage>	result)
+	{
+		// Update button
+		updateComponents();
+
+		// Report error
+		if (result.exception() != null)
+		{
+			JOptionPane.showMessageDialog(this, result.exception(), GET_GRID_IMAGE_STR, JOptionPane.ERROR_MESSAGE);
+			return;
+		}
+
+		// Set the detection session and the brightness threshold of grid lines
+		ClipboardGridImage clipboardGridImage = result.value();
+		detectionSession = clipboardGridImage.session();
+		if (clipboardGridImage.brightnessThresholdValue() >= 0)
+			gridLineBrightnessThresholdSpinner.setIntValue(clipboardGridImage.brightnessThresholdValue());
+
+		// Find grid in image on a background thread while the parameters of detection are adjusted in a dialog
 		Grid.Info gridInfo = null;
 		if (autoGridDetectionCheckBox.isSelected())
 		{
-			try
-			{
-				double brightnessThreshold =
-						(double)gridLineBrightnessThresholdSpinner.getIntValue() * BRIGHTNESS_THRESHOLD_FACTOR;
-				int minLineLength = gridLineMinLengthSpinner.getIntValue();
-				int minLineSeparation = gridLineMinSeparationSpinner.getIntValue();
-				int endpointTolerance = gridLineEndpointToleranceSpinner.getIntValue();
-				gridInfo = Grid.findGrid(image, brightnessThreshold, minLineLength, minLineSeparation,
-										 endpointTolerance);
-				String messageStr = String.format(GRID_FOUND_STR, gridInfo.numColumns(), gridInfo.numRows());
-				int result = JOptionPane.showConfirmDialog(this, messageStr, GET_GRID_IMAGE_STR,
-														   JOptionPane.YES_NO_CANCEL_OPTION);
-				if (result == JOptionPane.YES_OPTION)
-					gridSizePanel.setValues(gridInfo.numColumns(), gridInfo.numRows());
-				else if (result != JOptionPane.NO_OPTION)
-					return;
-			}
-			catch (AppException e)
+			GridDetectionDialog.Result detectionResult = GridDetectionDialog.show(this, detectionSession,
+																				  getGridDetectionParams());
+			if (detectionResult == null)
+				return;
+			setGridDetectionParams(detectionResult.params());
+			gridInfo = detectionResult.gridInfo();
+			if (gridInfo != null)
+				gridSizePanel.setValues(gridInfo.numColumns(), gridInfo.numRows());
+		}
+
+		// Display dialog for selecting grid in image, which is deskewed if the grid was found at an angle
+		double skewAngle = (gridInfo == null) ? 0.0 : gridInfo.skewAngle();
+		ImageRegionSelectionDialog.Selection selectionResult =
+				ImageRegionSelectionDialog.show(this, getGridImageButton, detectionSession.getImage(skewAngle),
+												(gridInfo == null) ? null : gridInfo.getBounds());
+		if (selectionResult == null)
+			return;
+
+		// Get the raster of the selected region on a background thread
+		Grid.DetectionSession session = detectionSession;
+		Rectangle region = selectionResult.allSelected() ? null : selectionResult.region();
+		gridImageRegionWorker.submitNow(() -> session.getGridRaster(skewAngle, region));
+		updateComponents();
+	}
+
+	//------------------------------------------------------------------
+
+	private void onGetGridImageFromFile()
+	{
+		// Select image file
+		gridImageFileChooser.setSelectedFile(new File(""));
+		gridImageFileChooser.rescanCurrentDirectory();
+		if (gridImageFileChooser.showDialog(this, SELECT_STR) != JFileChooser.APPROVE_OPTION)
+			return;
+
+		// Read the image and find the grid in it on a background thread
+		gridImageFileWorker.submitNow(createGridImageFileJob(gridImageFileChooser.getSelectedFile()));
+		updateComponents();
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Returns a job that reads a subsampled preview of the specified image file and, if automatic grid detection is
+	 * selected, finds a grid in the image.  The parameters are read from the components of this dialog when this
+	 * method is called, so the job may be run on a background thread.
+	 * <p>
+	 * The image is read a strip at a time.  The {@linkplain Grid.DetectionMethod#PROJECTION projection} method finds
+	 * the grid from the strips, so that the whole image is never held in memory; the other methods need the raster of
+	 * the whole image, which is kept in the result of the job so that the grid can be extracted from it.  Those methods
+	 * are not applied to an image that has more than {@link #MAX_DETECTION_RASTER_SIZE} pixels.
+	 * </p>
+	 */
+
+	private BackgroundWorker.IJob<GridImageFile> createGridImageFileJob(
+		File	file)
+	{
+		boolean autoThreshold = autoBrightnessThresholdCheckBox.isSelected();
+		boolean autoDetection = autoGridDetectionCheckBox.isSelected();
+		Grid.DetectionMethod method = gridDetectionMethodComboBox.getSelectedValue();
+		int brightnessThresholdValue = gridLineBrightnessThresholdSpinner.getIntValue();
+		int minLineLength = gridLineMinLengthSpinner.getIntValue();
+		int minLineSeparation = gridLineMinSeparationSpinner.getIntValue();
+		int endpointTolerance = gridLineEndpointToleranceSpinner.getIntValue();
+		return () ->
+		{
+			// Open the image, which is read a strip at a time
+			try (StripImageReader reader = new StripImageReader(file))
 			{
-				JOptionPane.showMessageDialog(this, e, GET_GRID_IMAGE_STR, JOptionPane.WARNING_MESSAGE);
+				// Read a subsampled preview of the image, together with the histogram of the image if it is needed
+				// for the brightness threshold
+				StripImageReader.Preview preview = reader.readPreview(MAX_PREVIEW_IMAGE_SIZE, autoThreshold);
+
+				// Get the brightness threshold of grid lines from the histogram of the image
+				int thresholdValue = autoThreshold
+										? toBrightnessThresholdValue(PixelRaster.getOtsuThreshold(preview.histogram()))
+										: brightnessThresholdValue;
+
+				// Find grid in image
+				Grid.Info gridInfo = null;
+				AppException detectionException = null;
+				PixelRaster raster = null;
+				if (autoDetection)
+				{
+					double brightnessThreshold = (double)thresholdValue * BRIGHTNESS_THRESHOLD_FACTOR;
+					try
+					{
+						if (method == Grid.DetectionMethod.PROJECTION)
+						{
+							// Find the grid from the strips, so that the whole image is never held in memory
+							gridInfo = Grid.findGrid(reader, brightnessThreshold, minLineLength, minLineSeparation,
+													 endpointTolerance);
+						}
+						else
+						{
+							// Read the whole image if it is not too large
+							if ((long)reader.getWidth() * (long)reader.getHeight() > MAX_DETECTION_RASTER_SIZE)
+							{
+								throw new AppException(ErrorId.IMAGE_TOO_LARGE_FOR_DETECTION_METHOD, method.toString(),
+													   Grid.DetectionMethod.PROJECTION.toString());
+							}
+							raster = reader.readRegion(new Rectangle(0, 0, reader.getWidth(), reader.getHeight()));
+							gridInfo = Grid.findGrid(raster, method, brightnessThreshold, minLineLength,
+													 minLineSeparation, endpointTolerance);
+						}
+					}
+					catch (TaskCancelledException e)
+					{
+						throw e;
+					}
+					catch (AppException e)
+					{
+						detectionException = e;
+					}
+				}
+				return new GridImageFile(file, reader.getWidth(), reader.getHeight(), preview, thresholdValue,
+										 gridInfo, detectionException, raster);
 			}
+		};
+	}
+
+	//------------------------------------------------------------------
+
+	private void onGridImageFileRead(
+		BackgroundWorker.Result<GridImageFile>	result)
+	{
+		// Update button
+		updateComponents();
+
+		// Report error
+		if (result.exception() != null)
+		{
+			JOptionPane.showMessageDialog(this, result.exception(), GET_GRID_IMAGE_STR, JOptionPane.ERROR_MESSAGE);
+			return;
 		}
 
-		// Display dialog for selecting grid in image
-		ImageRegionSelectionDialog.Selection result =
-				ImageRegionSelectionDialog.show(this, getGridImageButton, image,
-												(gridInfo == null) ? null : gridInfo.getBounds());
-		if (result != null)
+		// Set the brightness threshold of grid lines
+		GridImageFile gridImageFile = result.value();
+		if (autoBrightnessThresholdCheckBox.isSelected())
+			gridLineBrightnessThresholdSpinner.setIntValue(gridImageFile.brightnessThresholdValue());
+
+		// Report the grid that was found
+		Grid.Info gridInfo = gridImageFile.gridInfo();
+		if (gridImageFile.detectionException() != null)
 		{
-			gridImage = result.allSelected() ? image : ImageUtils.getSubimage(image, result.region());
-			statusPanel.setGrid(true);
-			updateComponents();
+			JOptionPane.showMessageDialog(this, gridImageFile.detectionException(), GET_GRID_IMAGE_STR,
+										  JOptionPane.WARNING_MESSAGE);
+		}
+		else if ((gridInfo != null) && !confirmGridSize(gridInfo))
+			return;
+
+		// Display dialog for selecting grid in the preview of the image, which is deskewed if the grid was found at an
+		// angle.  The preview is rotated about its own centre, which corresponds to the centre of the image to within
+		// the subsampling period.
+		StripImageReader.Preview preview = gridImageFile.preview();
+		int period = preview.period();
+		double skewAngle = (gridInfo == null) ? 0.0 : gridInfo.skewAngle();
+		Rectangle selection = null;
+		if (gridInfo != null)
+		{
+			int x1 = gridInfo.x() / period;
+			int y1 = gridInfo.y() / period;
+			int x2 = (gridInfo.x() + gridInfo.width() + period - 1) / period;
+			int y2 = (gridInfo.y() + gridInfo.height() + period - 1) / period;
+			selection = new Rectangle(x1, y1, x2 - x1, y2 - y1);
+		}
+		ImageRegionSelectionDialog.Selection selectionResult =
+				ImageRegionSelectionDialog.show(this, getGridImageFromFileButton,
+												Grid.createDeskewedImage(preview.image(), skewAngle), selection);
+		if (selectionResult == null)
+			return;
+
+		// Get the selected region of the image at full resolution
+		Rectangle imageBounds = new Rectangle(0, 0, gridImageFile.width(), gridImageFile.height());
+		Rectangle region = imageBounds;
+		if (!selectionResult.allSelected())
+		{
+			Rectangle rect = selectionResult.region();
+			region = new Rectangle(rect.x * period, rect.y * period, rect.width * period, rect.height * period)
+																						.intersection(imageBounds);
+		}
 
-			GridPreviewDialog.showDialog(this, gridFromImage());
+		// Read the region on a background thread, from the raster of the whole image if it was read for detection
+		Rectangle gridRegion = region;
+		PixelRaster raster = gridImageFile.raster();
+		if (raster == null)
+		{
+			gridImageRegionWorker.submitNow(() ->
+			{
+				try (StripImageReader reader = new StripImageReader(gridImageFile.file()))
+				{
+					return reader.readRegion(gridRegion);
+				}
+			});
+		}
+		else
+		{
+			gridImageRegionWorker.submitNow(() ->
+					((skewAngle == 0.0) ? raster : raster.createDeskewedRaster(skewAngle)).getSubraster(gridRegion));
 		}
+		updateComponents();
+	}
+
+	//------------------------------------------------------------------
+
+	private void onGridImageRegionRead(
+		BackgroundWorker.Result<PixelRaster>	result)
+	{
+		updateComponents();
+		if (result.exception() == null)
+			setGridRaster(result.value());
+		else
+			JOptionPane.showMessageDialog(this, result.exception(), GET_GRID_IMAGE_STR, JOptionPane.ERROR_MESSAGE);
 	}
 
 	//------------------------------------------------------------------
@@ -1993,7 +2479,11 @@ class CaptureDialog
 			epiloguePanel.clear();
 
 			// Clear grid image
-			gridImage = null;
+			gridExtractionWorker.cancel();
+			gridImageFileWorker.cancel();
+			gridImageClipboardWorker.cancel();
+			gridImageRegionWorker.cancel();
+			gridRaster = null;
 			statusPanel.setGrid(false);
 
 			// Clear clue lists
@@ -2078,6 +2568,10 @@ class CaptureDialog
 		// Create grid from image
 		Grid grid = gridFromImage();
 
+		// Capture field numbers and entries from image
+		if (AppConfig.INSTANCE.isCaptureGridText() && !confirmTextCapture(grid.captureText(gridRaster)))
+			return;
+
 		// Create document
 		document = new CrosswordDocument(documentIndex);
 
@@ -2126,6 +2620,11 @@ class CaptureDialog
 
 	private void onClose()
 	{
+		gridExtractionWorker.cancel();
+		gridImageFileWorker.cancel();
+		gridImageClipboardWorker.cancel();
+		gridImageRegionWorker.cancel();
+		ImageScaler.clearCache();
 		location = getLocation();
 		tabIndex = tabbedPanel.getSelectedIndex();
 		setVisible(false);
@@ -2277,7 +2776,11 @@ class CaptureDialog
 		("The pathname does not denote a directory."),
 
 		MALFORMED_PATTERN
-		("The pattern is not a well-formed regular expression.\n(%1)");
+		("The pattern is not a well-formed regular expression.\n(%1)"),
+
+		IMAGE_TOO_LARGE_FOR_DETECTION_METHOD
+		("The image is too large for the '%1' method of grid detection.\n" +
+			"The '%2' method can be used for large images.");
 
 	////////////////////////////////////////////////////////////////////
 	//  Instance variables
@@ -2313,6 +2816,69 @@ class CaptureDialog
 
 	//==================================================================
 
+////////////////////////////////////////////////////////////////////////
+//  Member records
+////////////////////////////////////////////////////////////////////////
+
+
+	// RECORD: GRID IMAGE FROM CLIPBOARD
+
+
+	/**
+	 * This record encapsulates the result of preparing an image from the clipboard for grid detection.
+	 *
+	 * @param session
+	 *          the detection session of the image.
+	 * @param brightnessThresholdValue
+	 *          the value of the brightness threshold of grid lines that was found from the histogram of the image, or
+	 *          -1 if automatic brightness threshold was not selected.
+	 */
+
+	private record ClipboardGridImage(
+		Grid.DetectionSession	session,
+		int						brightnessThresholdValue)
+	{ }
+
+	//==================================================================
+
+
+	// RECORD: GRID-IMAGE FILE
+
+
+	/**
+	 * This record encapsulates the result of reading a grid-image file and finding a grid in it.
+	 *
+	 * @param file
+	 *          the image file.
+	 * @param width
+	 *          the width of the image.
+	 * @param height
+	 *          the height of the image.
+	 * @param preview
+	 *          a subsampled preview of the image.
+	 * @param brightnessThresholdValue
+	 *          the value of the brightness threshold of grid lines with which the grid was found.
+	 * @param gridInfo
+	 *          the grid that was found, or {@code null} if detection was not selected or failed.
+	 * @param detectionException
+	 *          the exception that was thrown by detection, or {@code null} if none was thrown.
+	 * @param raster
+	 *          the raster of the whole image if it was read for detection, or {@code null} otherwise.
+	 */
+
+	private record GridImageFile(
+		File						file,
+		int							width,
+		int							height,
+		StripImageReader.Preview	preview,
+		int							brightnessThresholdValue,
+		Grid.Info					gridInfo,
+		AppException				detectionException,
+		PixelRaster					raster)
+	{ }
+
+	//==================================================================
+
 ////////////////////////////////////////////////////////////////////////
 //  Member classes : non-inner classes
 ////////////////////////////////////////////////////////////////////////
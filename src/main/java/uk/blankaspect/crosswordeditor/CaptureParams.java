@@ -94,6 +94,7 @@ class CaptureParams
 	{
 		String	ANSWER_LENGTH_PATTERN				= "answerLengthPattern";
 		String	ANSWER_LENGTH_SUBSTITUTION			= "answerLengthSubstitution";
+		String	AUTOMATIC_BRIGHTNESS_THRESHOLD		= "automaticBrightnessThreshold";
 		String	AUTOMATIC_GRID_DETECTION			= "automaticGridDetection";
 		String	BAR_BRIGHTNESS_THRESHOLD			= "barBrightnessThreshold";
 		String	BAR_WIDTH_THRESHOLD					= "barWidthThreshold";
@@ -104,6 +105,7 @@ class CaptureParams
 		String	DOCUMENT_DIRECTORY					= "documentDirectory";
 		String	ENDPOINT_TOLERANCE					= "endpointTolerance";
 		String	FILENAME							= "filename";
+		String	GRID_DETECTION_METHOD				= "gridDetectionMethod";
 		String	GRID_LINE							= "gridLine";
 		String	GRID_SEPARATOR						= "gridSeparator";
 		String	HTML_DIRECTORY						= "htmlDirectory";
@@ -135,34 +137,37 @@ class CaptureParams
 	//------------------------------------------------------------------
 
 	public CaptureParams(
-		Grid.Separator		gridSeparator,
-		int					numColumns,
-		int					numRows,
-		boolean				autoGridDetection,
-		int					xOffset,
-		int					yOffset,
-		int					sampleSize,
-		int					blockBrightnessThreshold,
-		int					barWidthThreshold,
-		int					barBrightnessThreshold,
-		int					gridLineBrightnessThreshold,
-		int					gridLineMinLength,
-		int					gridLineMinSeparation,
-		int					gridLineEndpointTolerance,
-		String				multipleFieldClueIdSeparator,
-		String				clueReferenceKeyword,
-		String				answerLengthPattern,
-		List<Substitution>	answerLengthSubstitutions,
-		List<Substitution>	clueSubstitutions,
-		String				title,
-		String				filename,
-		String				documentDirectory,
-		String				htmlDirectory)
+		Grid.Separator			gridSeparator,
+		int						numColumns,
+		int						numRows,
+		boolean					autoGridDetection,
+		boolean					autoBrightnessThreshold,
+		int						xOffset,
+		int						yOffset,
+		int						sampleSize,
+		int						blockBrightnessThreshold,
+		int						barWidthThreshold,
+		int						barBrightnessThreshold,
+		int						gridLineBrightnessThreshold,
+		int						gridLineMinLength,
+		int						gridLineMinSeparation,
+		int						gridLineEndpointTolerance,
+		Grid.DetectionMethod	gridDetectionMethod,
+		String					multipleFieldClueIdSeparator,
+		String					clueReferenceKeyword,
+		String					answerLengthPattern,
+		List<Substitution>		answerLengthSubstitutions,
+		List<Substitution>		clueSubstitutions,
+		String					title,
+		String					filename,
+		String					documentDirectory,
+		String					htmlDirectory)
 	{
 		setGridSeparator(gridSeparator);
 		setNumColumns(numColumns);
 		setNumRows(numRows);
 		setAutomaticGridDetection(autoGridDetection);
+		setAutomaticBrightnessThreshold(autoBrightnessThreshold);
 		setXOffset(xOffset);
 		setYOffset(yOffset);
 		setSampleSize(sampleSize);
@@ -173,6 +178,7 @@ class CaptureParams
 		setGridLineMinLength(gridLineMinLength);
 		setGridLineMinSeparation(gridLineMinSeparation);
 		setGridLineEndpointTolerance(gridLineEndpointTolerance);
+		setGridDetectionMethod(gridDetectionMethod);
 		setMultipleFieldClueIdSeparator(multipleFieldClueIdSeparator);
 		setClueReferenceKeyword(clueReferenceKeyword);
 		setAnswerLengthPattern(answerLengthPattern);
@@ -529,6 +535,56 @@ class CaptureParams
 	//==================================================================
 
 
+	// PROPERTY CLASS: AUTOMATIC BRIGHTNESS THRESHOLD
+
+
+	private class CPAutomaticBrightnessThreshold
+		extends Property.BooleanProperty
+	{
+
+	////////////////////////////////////////////////////////////////////
+	//  Constructors
+	////////////////////////////////////////////////////////////////////
+
+		private CPAutomaticBrightnessThreshold()
+		{
+			super(Key.AUTOMATIC_BRIGHTNESS_THRESHOLD);
+			value = Boolean.FALSE;
+		}
+
+		//--------------------------------------------------------------
+
+	}
+
+	//------------------------------------------------------------------
+
+//::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::
+//  Instance methods : associated methods in enclosing class
+//::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::
+
+	public boolean isAutomaticBrightnessThreshold()
+	{
+		return cpAutomaticBrightnessThreshold.getValue();
+	}
+
+	//------------------------------------------------------------------
+
+	public void setAutomaticBrightnessThreshold(boolean value)
+	{
+		cpAutomaticBrightnessThreshold.setValue(value);
+	}
+
+	//------------------------------------------------------------------
+
+//::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::
+//  Instance variables : associated variables in enclosing class
+//::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::
+
+	private	CPAutomaticBrightnessThreshold	cpAutomaticBrightnessThreshold	= new CPAutomaticBrightnessThreshold();
+
+	//==================================================================
+
+
 	// PROPERTY CLASS: X OFFSET
 
 
@@ -1034,6 +1090,56 @@ class CaptureParams
 	//==================================================================
 
 
+	// PROPERTY CLASS: GRID-DETECTION METHOD
+
+
+	private class CPGridDetectionMethod
+		extends Property.EnumProperty<Grid.DetectionMethod>
+	{
+
+	////////////////////////////////////////////////////////////////////
+	//  Constructors
+	////////////////////////////////////////////////////////////////////
+
+		private CPGridDetectionMethod()
+		{
+			super(Key.GRID_DETECTION_METHOD, Grid.DetectionMethod.class);
+			value = Grid.DEFAULT_DETECTION_METHOD;
+		}
+
+		//--------------------------------------------------------------
+
+	}
+
+	//------------------------------------------------------------------
+
+//::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::
+//  Instance methods : associated methods in enclosing class
+//::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::
+
+	public Grid.DetectionMethod getGridDetectionMethod()
+	{
+		return cpGridDetectionMethod.getValue();
+	}
+
+	//------------------------------------------------------------------
+
+	public void setGridDetectionMethod(Grid.DetectionMethod value)
+	{
+		cpGridDetectionMethod.setValue(value);
+	}
+
+	//------------------------------------------------------------------
+
+//::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::
+//  Instance variables : associated variables in enclosing class
+//::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::
+
+	private	CPGridDetectionMethod	cpGridDetectionMethod	= new CPGridDetectionMethod();
+
+	//==================================================================
+
+
 	// PROPERTY CLASS: MULTIPLE-FIELD CLUE ID SEPARATOR
 
 
@@ -18,6 +18,10 @@ package uk.blankaspect.crosswordeditor;
 // IMPORTS
 
 
+import java.io.File;
+
+import java.nio.charset.StandardCharsets;
+
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Comparator;
@@ -28,9 +32,12 @@ import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import uk.blankaspect.common.exception.AppException;
+import uk.blankaspect.common.exception.FileException;
 
 import uk.blankaspect.common.exception2.UnexpectedRuntimeException;
 
+import uk.blankaspect.common.misc.TextFile;
+
 import uk.blankaspect.common.regex.RegexUtils;
 import uk.blankaspect.common.regex.Substitution;
 
@@ -247,6 +254,28 @@ class Clue
 
 	//------------------------------------------------------------------
 
+	public static List<Clue> getCluesFromFile(
+		File				file,
+		String				multipleFieldClueIdSeparator,
+		String				referenceKeyword,
+		AnswerLengthParser	answerLengthParser,
+		List<Substitution>	substitutions)
+		throws AppException
+	{
+		String text = TextFile.read(file, StandardCharsets.UTF_8).toString();
+		try
+		{
+			return parseClues(text, multipleFieldClueIdSeparator, referenceKeyword, answerLengthParser,
+							  substitutions);
+		}
+		catch (AppException e)
+		{
+			throw new FileException(e, file);
+		}
+	}
+
+	//------------------------------------------------------------------
+
 	private static int getAnswerLength(
 		Matcher				matcher,
 		AnswerLengthParser	lengthParser)
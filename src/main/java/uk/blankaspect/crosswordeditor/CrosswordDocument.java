@@ -112,6 +112,10 @@ class CrosswordDocument
 	public static final		int		MAX_MAX_EDIT_LIST_LENGTH		= 9999;
 	public static final		int		DEFAULT_MAX_EDIT_LIST_LENGTH	= 200;
 
+	public static final		int		MIN_MAX_EDIT_LIST_SIZE		= 1;
+	public static final		int		MAX_MAX_EDIT_LIST_SIZE		= 4096;
+	public static final		int		DEFAULT_MAX_EDIT_LIST_SIZE	= 256;
+
 	public static final		String	LINE_BREAK_REGEX	= "(?<%s%s)\\n";
 
 	public static final		String	DEFAULT_FILENAME_SUFFIX	= ".xword";
@@ -391,7 +395,7 @@ class CrosswordDocument
 		showClues = true;
 		clueLists = new EnumMap<>(Direction.class);
 		solutionProperties = new SolutionProperties();
-		editList = new EditList(config.getMaxEditListLength());
+		editList = new EditList(config.getMaxEditListLength(), (long)config.getMaxEditListSize() << 20);
 	}
 
 	//------------------------------------------------------------------
@@ -992,6 +996,74 @@ class CrosswordDocument
 
 	public boolean validateClues(
 		String	closeStr)
+	{
+		// Find errors in clue IDs and reference IDs
+		List<ErrorListDialog.IdList> idLists = getClueErrors();
+
+		// If there are errors, display them in a dialog
+		if (idLists.isEmpty())
+			return true;
+		boolean proceed =
+				ErrorListDialog.showDialog(CrosswordEditorApp.INSTANCE.getMainWindow(), CLUE_LIST_ERRORS_STR, closeStr,
+										   idLists);
+		if (proceed)
+		{
+			// Remove clues that do not have a corresponding field or clues that refer to a non-existent
+			// field
+			for (Direction direction : clueLists.keySet())
+			{
+				List<Clue> clues = clueLists.get(direction);
+				for (int i = 0; i < clues.size(); i++)
+				{
+					Clue clue = clues.get(i);
+					if (clue.isReference() && (grid.getField(clue.getReferentId().fieldId) == null))
+						clues.remove(i--);
+					else
+					{
+						for (int j = 0; j < clue.getNumFields(); j++)
+						{
+							if (grid.getField(clue.getFieldId(j)) == null)
+							{
+								clues.remove(i--);
+								break;
+							}
+						}
+					}
+				}
+				if (clues.isEmpty())
+					clueLists.remove(direction);
+			}
+
+			// Add missing references
+			List<Clue> references = new ArrayList<>();
+			for (Direction direction : clueLists.keySet())
+			{
+				for (Clue clue : clueLists.get(direction))
+				{
+					for (int i = 1; i < clue.getNumFields(); i++)
+					{
+						Grid.Field.Id fieldId = clue.getFieldId(i);
+						if (findClues(fieldId).isEmpty())
+							references.add(new Clue(fieldId, clue.getId()));
+					}
+				}
+			}
+			for (Clue clue : references)
+				setClue(clue);
+		}
+		return proceed;
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Validates the clue IDs and reference IDs of this document against the fields of the grid and against each other,
+	 * and returns the erroneous IDs as a list of lists, each of which corresponds to a kind of error.
+	 *
+	 * @return a list of the lists of erroneous clue IDs and reference IDs; the list is empty if there are no errors.
+	 */
+
+	public List<ErrorListDialog.IdList> getClueErrors()
 	{
 		// Initialise lists of clue IDs and reference IDs
 		List<Grid.Field.Id> clueIds = new ArraySet<>();
@@ -1143,58 +1215,7 @@ class CrosswordDocument
 		if (!refNotIdOfRefTargetIds.isEmpty())
 			idLists.add(new ErrorListDialog.IdList(REF_NOT_TARGET_ID_STR, refNotIdOfRefTargetIds));
 
-		// If there are errors, display them in a dialog
-		if (idLists.isEmpty())
-			return true;
-		boolean proceed =
-				ErrorListDialog.showDialog(CrosswordEditorApp.INSTANCE.getMainWindow(), CLUE_LIST_ERRORS_STR, closeStr,
-										   idLists);
-		if (proceed)
-		{
-			// Remove clues that do not have a corresponding field or clues that refer to a non-existent
-			// field
-			for (Direction direction : clueLists.keySet())
-			{
-				List<Clue> clues = clueLists.get(direction);
-				for (int i = 0; i < clues.size(); i++)
-				{
-					Clue clue = clues.get(i);
-					if (clue.isReference() && (grid.getField(clue.getReferentId().fieldId) == null))
-						clues.remove(i--);
-					else
-					{
-						for (int j = 0; j < clue.getNumFields(); j++)
-						{
-							if (grid.getField(clue.getFieldId(j)) == null)
-							{
-								clues.remove(i--);
-								break;
-							}
-						}
-					}
-				}
-				if (clues.isEmpty())
-					clueLists.remove(direction);
-			}
-
-			// Add missing references
-			List<Clue> references = new ArrayList<>();
-			for (Direction direction : clueLists.keySet())
-			{
-				for (Clue clue : clueLists.get(direction))
-				{
-					for (int i = 1; i < clue.getNumFields(); i++)
-					{
-						Grid.Field.Id fieldId = clue.getFieldId(i);
-						if (findClues(fieldId).isEmpty())
-							references.add(new Clue(fieldId, clue.getId()));
-					}
-				}
-			}
-			for (Clue clue : references)
-				setClue(clue);
-		}
-		return proceed;
+		return idLists;
 	}
 
 	//------------------------------------------------------------------
@@ -1254,10 +1275,13 @@ class CrosswordDocument
 		File	file)
 		throws AppException
 	{
-		// Initialise progress view
+		// Initialise progress view, if there is one
 		TaskProgressDialog progressView = (TaskProgressDialog)Task.getProgressView();
-		progressView.setInfo(WRITING_STR, file);
-		progressView.setProgress(0, -1.0);
+		if (progressView != null)
+		{
+			progressView.setInfo(WRITING_STR, file);
+			progressView.setProgress(0, -1.0);
+		}
 
 		// Update instance variables
 		this.file = file;
@@ -3924,6 +3948,15 @@ class CrosswordDocument
 
 		//--------------------------------------------------------------
 
+		@Override
+		public long retainedSize()
+		{
+			// Object and two definition strings, each with a byte array of one byte per character
+			return 32 + 2 * 40 + oldDefinition.length() + newDefinition.length();
+		}
+
+		//--------------------------------------------------------------
+
 	////////////////////////////////////////////////////////////////////
 	//  Instance methods
 	////////////////////////////////////////////////////////////////////
@@ -4092,6 +4125,14 @@ class CrosswordDocument
 
 		//--------------------------------------------------------------
 
+		@Override
+		public long retainedSize()
+		{
+			return 24 + oldEntries.retainedSize() + newEntries.retainedSize();
+		}
+
+		//--------------------------------------------------------------
+
 	}
 
 	//==================================================================
@@ -4161,6 +4202,19 @@ class CrosswordDocument
 
 		//--------------------------------------------------------------
 
+		@Override
+		public long retainedSize()
+		{
+			long size = 24;
+			if (oldSolution != null)
+				size += oldSolution.retainedSize();
+			if (newSolution != null)
+				size += newSolution.retainedSize();
+			return size;
+		}
+
+		//--------------------------------------------------------------
+
 	}
 
 	//==================================================================
@@ -4639,6 +4693,17 @@ class CrosswordDocument
 
 		//--------------------------------------------------------------
 
+		@Override
+		public long retainedSize()
+		{
+			long size = 32 + 4L * edits.size();
+			for (EditList.IEdit edit : edits)
+				size += edit.retainedSize();
+			return size;
+		}
+
+		//--------------------------------------------------------------
+
 	////////////////////////////////////////////////////////////////////
 	//  Instance methods
 	////////////////////////////////////////////////////////////////////
@@ -1144,6 +1144,16 @@ public class CrosswordEditorApp
 				// Update configuration
 				updateConfiguration();
 
+				// Write grid-detection cache
+				try
+				{
+					GridDetectionCache.INSTANCE.write();
+				}
+				catch (AppException e)
+				{
+					showErrorMessage(SHORT_NAME, e);
+				}
+
 				// Destroy main window
 				mainWindow.setVisible(false);
 				mainWindow.dispose();
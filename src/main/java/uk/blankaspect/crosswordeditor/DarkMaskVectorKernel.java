@@ -0,0 +1,147 @@
+/*====================================================================*\
+
+DarkMaskVectorKernel.java
+
+Dark-mask vector kernel class.
+
+\*====================================================================*/
+
+
+// PACKAGE
+
+
+package uk.blankaspect.crosswordeditor;
+
+//----------------------------------------------------------------------
+
+
+// IMPORTS
+
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+//----------------------------------------------------------------------
+
+
+// DARK-MASK VECTOR KERNEL CLASS
+
+
+/**
+ * This class implements the packing of the dark pixels of a contiguous span of brightness levels into the words of a
+ * mask with the vector API of the incubator module {@code jdk.incubator.vector}.  The levels are unsigned bytes, and
+ * the vector API of Java 17 compares only signed values, so the sign bit of each level of a vector is flipped before
+ * the vector is compared with the dark limit offset by 128; the resulting vector mask is converted to the bits of the
+ * mask word.
+ * <p>
+ * The class must be loaded only if the incubator module is present in the boot layer; {@link PixelRaster} uses the
+ * kernel for the masks of rows if it is, and its scalar kernel otherwise.
+ * </p>
+ */
+
+class DarkMaskVectorKernel
+{
+
+////////////////////////////////////////////////////////////////////////
+//  Constants
+////////////////////////////////////////////////////////////////////////
+
+	/** The species of the byte vectors, whose number of lanes is a power of two that is at most 64. */
+	private static final	VectorSpecies<Byte>	SPECIES	= ByteVector.SPECIES_PREFERRED.length() > Long.SIZE
+																? ByteVector.SPECIES_512
+																: ByteVector.SPECIES_PREFERRED;
+
+	/** The sign bit of a byte. */
+	private static final	byte	SIGN_BIT	= (byte)0x80;
+
+	/** The number of vectors of levels in a word of a mask. */
+	private static final	int	NUM_VECTORS_PER_WORD	= Long.SIZE / SPECIES.length();
+
+////////////////////////////////////////////////////////////////////////
+//  Constructors
+////////////////////////////////////////////////////////////////////////
+
+	private DarkMaskVectorKernel()
+	{
+	}
+
+	//------------------------------------------------------------------
+
+////////////////////////////////////////////////////////////////////////
+//  Class methods
+////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Sets the words of the specified mask to the dark pixels of the specified contiguous span of levels.  Bit
+	 * <i>i</i> of the mask is set if the unsigned value of {@code levels[index + i]} is less than the dark limit; the
+	 * unused bits of the last word are cleared.
+	 *
+	 * @param levels
+	 *          the brightness levels.
+	 * @param darkLimit
+	 *          the number of brightness levels that are considered dark.
+	 * @param index
+	 *          the index of the first level of the span.
+	 * @param length
+	 *          the number of levels in the span.
+	 * @param mask
+	 *          the mask, which must have at least {@link PixelRaster#getNumMaskWords(int)
+	 *          getNumMaskWords(length)} words.
+	 */
+
+	public static void getDarkMask(
+		byte[]	levels,
+		int		darkLimit,
+		int		index,
+		int		length,
+		long[]	mask)
+	{
+		int numWords = PixelRaster.getNumMaskWords(length);
+
+		// Case: no level or every level is dark
+		if ((darkLimit <= 0) || (darkLimit > PixelRaster.MAX_LEVEL))
+		{
+			long word = (darkLimit <= 0) ? 0 : -1L;
+			for (int i = 0; i < numWords; i++)
+				mask[i] = word;
+			if ((darkLimit > 0) && ((length & 63) != 0))
+				mask[numWords - 1] = -1L >>> -length;
+			return;
+		}
+
+		// Pack the whole words of the span a vector of levels at a time
+		byte limit = (byte)(darkLimit - 128);
+		int vectorLength = SPECIES.length();
+		int numWholeWords = length >>> 6;
+		for (int i = 0; i < numWholeWords; i++)
+		{
+			long word = 0;
+			for (int j = 0; j < NUM_VECTORS_PER_WORD; j++)
+			{
+				long bits = ByteVector.fromArray(SPECIES, levels, index)
+										.lanewise(VectorOperators.XOR, SIGN_BIT)
+										.compare(VectorOperators.LT, limit)
+										.toLong();
+				word |= bits << (j * vectorLength);
+				index += vectorLength;
+			}
+			mask[i] = word;
+		}
+
+		// Pack the remaining levels
+		int numBits = length & 63;
+		if (numBits > 0)
+		{
+			long word = 0;
+			for (int j = 0; j < numBits; j++)
+				word |= (long)(((levels[index++] & 0xFF) - darkLimit) >>> 31) << j;
+			mask[numWholeWords] = word;
+		}
+	}
+
+	//------------------------------------------------------------------
+
+}
+
+//----------------------------------------------------------------------
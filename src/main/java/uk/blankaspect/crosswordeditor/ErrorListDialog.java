@@ -520,6 +520,24 @@ class ErrorListDialog
 
 		//--------------------------------------------------------------
 
+	////////////////////////////////////////////////////////////////////
+	//  Instance methods
+	////////////////////////////////////////////////////////////////////
+
+		public String getText()
+		{
+			return text;
+		}
+
+		//--------------------------------------------------------------
+
+		public List<Grid.Field.Id> getIds()
+		{
+			return ids;
+		}
+
+		//--------------------------------------------------------------
+
 	}
 
 	//==================================================================
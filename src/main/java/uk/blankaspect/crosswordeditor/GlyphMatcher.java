@@ -0,0 +1,912 @@
+/*====================================================================*\
+
+GlyphMatcher.java
+
+Class: glyph matcher.
+
+\*====================================================================*/
+
+
+// PACKAGE
+
+
+package uk.blankaspect.crosswordeditor;
+
+//----------------------------------------------------------------------
+
+
+// IMPORTS
+
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+//----------------------------------------------------------------------
+
+
+// CLASS: GLYPH MATCHER
+
+
+/**
+ * This class implements the recognition of the text in the cells of a grid image by template matching.  A cell may
+ * contain a field number in its top left corner and an entry value below or beside it.  The glyphs of a cell are
+ * isolated by the projections of its dark pixels, and the box that bounds each glyph is resampled to a small square
+ * <i>patch</i> whose aspect ratio is that of the glyph.  A patch is compared with the patches of glyph templates by
+ * normalised cross-correlation, and the character of the template with the highest correlation is chosen if the
+ * correlation is high enough.
+ * <p>
+ * The templates are rendered with the fonts of the JDK at sizes that are derived from the size of a cell of the grid,
+ * and the matchers for the most recently used cell sizes and entry characters are cached, so that grids of different
+ * sizes that are captured concurrently don't displace each other's matcher.  The rows of a grid are matched in
+ * parallel; the buffers of the cells are allocated once for each thread and reused for every cell that the thread
+ * matches.
+ * </p>
+ */
+
+class GlyphMatcher
+{
+
+////////////////////////////////////////////////////////////////////////
+//  Constants
+////////////////////////////////////////////////////////////////////////
+
+	/** The width and height of a patch. */
+	private static final	int		PATCH_SIZE	= 16;
+
+	/** The number of elements of a patch. */
+	private static final	int		PATCH_AREA	= PATCH_SIZE * PATCH_SIZE;
+
+	/** The minimum correlation between a patch and a template for the character of the template to be chosen. */
+	private static final	double	MIN_CORRELATION	= 0.6;
+
+	/** The minimum amount by which the correlation of the chosen character must exceed that of any other character. */
+	private static final	double	MIN_CORRELATION_MARGIN	= 0.05;
+
+	/** The minimum height of a glyph, in pixels. */
+	private static final	int		MIN_GLYPH_HEIGHT	= 3;
+
+	/** The maximum number of digits of a field number. */
+	private static final	int		MAX_NUM_DIGITS	= 3;
+
+	/** The fraction of a row or column of a cell above which the dark pixels are taken to be part of a line. */
+	private static final	double	LINE_FACTOR	= 0.5;
+
+	/** The height of the font of entry values, as a fraction of the height of a cell. */
+	private static final	double	ENTRY_FONT_SIZE_FACTOR	= 0.6;
+
+	/** The height of the font of field numbers, as a fraction of the height of a cell. */
+	private static final	double	NUMBER_FONT_SIZE_FACTOR	= 0.3;
+
+	/** The maximum extent of the field number of a cell, as fractions of the width and height of the cell. */
+	private static final	double	NUMBER_MAX_WIDTH_FACTOR		= 0.6;
+	private static final	double	NUMBER_MAX_HEIGHT_FACTOR	= 0.45;
+
+	/** The level below which a pixel of a rendered template is dark. */
+	private static final	int		TEMPLATE_DARK_LIMIT	= PixelRaster.MAX_LEVEL / 2 + 1;
+
+	/** The maximum number of matchers that are cached. */
+	private static final	int		MAX_NUM_CACHED_MATCHERS	= 16;
+
+	private static final	String	DIGITS	= "0123456789";
+
+	private static final	String[]	FONT_NAMES	= { Font.SANS_SERIF, Font.SERIF, Font.MONOSPACED };
+	private static final	int[]		FONT_STYLES	= { Font.PLAIN, Font.BOLD };
+
+////////////////////////////////////////////////////////////////////////
+//  Class variables
+////////////////////////////////////////////////////////////////////////
+
+	/** The most recently used matchers, keyed by cell size and entry characters. */
+	private static	Map<Key, GlyphMatcher>	cachedMatchers	=
+			new LinkedHashMap<>(16, 0.75f, true)
+			{
+				@Override
+				protected boolean removeEldestEntry(
+					Map.Entry<Key, GlyphMatcher>	eldest)
+				{
+					return (size() > MAX_NUM_CACHED_MATCHERS);
+				}
+			};
+
+	/** The buffers of the cells that are matched on each thread. */
+	private static	ThreadLocal<CellBuffers>	cellBuffers	= ThreadLocal.withInitial(CellBuffers::new);
+
+////////////////////////////////////////////////////////////////////////
+//  Instance variables
+////////////////////////////////////////////////////////////////////////
+
+	private	int			cellWidth;
+	private	int			cellHeight;
+	private	String		entryChars;
+	private	Template[]	entryTemplates;
+	private	Template[]	digitTemplates;
+
+////////////////////////////////////////////////////////////////////////
+//  Constructors
+////////////////////////////////////////////////////////////////////////
+
+	private GlyphMatcher(
+		int		cellWidth,
+		int		cellHeight,
+		String	entryChars)
+	{
+		// Initialise instance variables
+		this.cellWidth = cellWidth;
+		this.cellHeight = cellHeight;
+		this.entryChars = entryChars;
+
+		// Create templates
+		entryTemplates = createTemplates(entryChars, cellWidth, cellHeight, ENTRY_FONT_SIZE_FACTOR);
+		digitTemplates = createTemplates(DIGITS, cellWidth, cellHeight, NUMBER_FONT_SIZE_FACTOR);
+	}
+
+	//------------------------------------------------------------------
+
+////////////////////////////////////////////////////////////////////////
+//  Class methods
+////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Returns a matcher for cells of the specified size whose entry values are the specified characters.  The
+	 * templates of a matcher that is not cached are created outside the lock of the cache, so that threads that need
+	 * matchers for different cell sizes don't wait for each other.
+	 *
+	 * @param  cellWidth
+	 *           the width of a cell, in pixels.
+	 * @param  cellHeight
+	 *           the height of a cell, in pixels.
+	 * @param  entryChars
+	 *           the characters that may be entry values.
+	 * @return a matcher for cells of size {@code cellWidth} &times; {@code cellHeight}.
+	 */
+
+	public static GlyphMatcher getInstance(
+		int		cellWidth,
+		int		cellHeight,
+		String	entryChars)
+	{
+		// Look for matcher in cache
+		Key key = new Key(cellWidth, cellHeight, entryChars);
+		synchronized (cachedMatchers)
+		{
+			GlyphMatcher matcher = cachedMatchers.get(key);
+			if (matcher != null)
+				return matcher;
+		}
+
+		// Create matcher and add it to cache unless another thread has added one in the meantime
+		GlyphMatcher matcher = new GlyphMatcher(cellWidth, cellHeight, entryChars);
+		synchronized (cachedMatchers)
+		{
+			GlyphMatcher cachedMatcher = cachedMatchers.putIfAbsent(key, matcher);
+			return (cachedMatcher == null) ? matcher : cachedMatcher;
+		}
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Creates and returns the templates of the specified characters in each of the template fonts.  The font size is
+	 * the specified fraction of the cell height.  Characters that a font cannot display are ignored.
+	 */
+
+	private static Template[] createTemplates(
+		String	chars,
+		int		cellWidth,
+		int		cellHeight,
+		double	fontSizeFactor)
+	{
+		// Create image on which glyphs are rendered; it is large enough for a glyph that overhangs the cell
+		int width = 2 * cellWidth;
+		int height = 2 * cellHeight;
+		BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_GRAY);
+		byte[] levels = ((DataBufferByte)image.getRaster().getDataBuffer()).getData();
+		Graphics2D gr = image.createGraphics();
+		gr.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+		gr.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+
+		// Render each character in each font and create a template from the bounds of its dark pixels
+		int fontSize = Math.max(1, (int)Math.round(fontSizeFactor * (double)cellHeight));
+		Bounds bounds = new Bounds();
+		float[] buffer = new float[PATCH_AREA];
+		List<Template> templates = new ArrayList<>();
+		for (String fontName : FONT_NAMES)
+		{
+			for (int fontStyle : FONT_STYLES)
+			{
+				Font font = new Font(fontName, fontStyle, fontSize);
+				gr.setFont(font);
+				FontMetrics fontMetrics = gr.getFontMetrics();
+				for (int i = 0; i < chars.length(); i++)
+				{
+					char ch = chars.charAt(i);
+					if (Character.isWhitespace(ch) || !font.canDisplay(ch))
+						continue;
+
+					gr.setColor(Color.WHITE);
+					gr.fillRect(0, 0, width, height);
+					gr.setColor(Color.BLACK);
+					gr.drawString(Character.toString(ch), cellWidth / 2, cellHeight / 2 + fontMetrics.getAscent());
+
+					if (bounds.set(levels, width, TEMPLATE_DARK_LIMIT, 0, 0, width, height))
+					{
+						float[] patch = new float[PATCH_AREA];
+						if (loadPatch(levels, width, bounds, patch, buffer))
+							templates.add(new Template(ch, patch));
+					}
+				}
+			}
+		}
+		gr.dispose();
+		return templates.toArray(new Template[0]);
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Resamples the pixels of the specified bounds to the specified patch, smooths the patch, and normalises it so
+	 * that the mean of its elements is zero and the sum of their squares is one.  The elements of the patch are
+	 * darknesses, so that the background of a glyph is zero before normalisation.  The smoothing reduces the effect on
+	 * the correlation of a difference of one element in the position of a glyph within a patch, which may arise from
+	 * rounding when glyphs of different sizes are resampled.
+	 *
+	 * @return {@code true} if the patch was loaded; {@code false} if the pixels of the bounds are uniform.
+	 */
+
+	private static boolean loadPatch(
+		byte[]	levels,
+		int		stride,
+		Bounds	bounds,
+		float[]	patch,
+		float[]	buffer)
+	{
+		// Get the scaled size of the glyph and its offset within the patch
+		int glyphWidth = bounds.x2 - bounds.x1;
+		int glyphHeight = bounds.y2 - bounds.y1;
+		double scale = Math.min((double)PATCH_SIZE / (double)glyphWidth, (double)PATCH_SIZE / (double)glyphHeight);
+		int width = Math.max(1, Math.min(PATCH_SIZE, (int)Math.round((double)glyphWidth * scale)));
+		int height = Math.max(1, Math.min(PATCH_SIZE, (int)Math.round((double)glyphHeight * scale)));
+		int xOffset = (PATCH_SIZE - width) / 2;
+		int yOffset = (PATCH_SIZE - height) / 2;
+
+		// Set each element of the scaled glyph to the mean darkness of the pixels that map to it
+		Arrays.fill(patch, 0.0f);
+		for (int y = 0; y < height; y++)
+		{
+			int y1 = bounds.y1 + y * glyphHeight / height;
+			int y2 = Math.max(y1 + 1, bounds.y1 + (y + 1) * glyphHeight / height);
+			for (int x = 0; x < width; x++)
+			{
+				int x1 = bounds.x1 + x * glyphWidth / width;
+				int x2 = Math.max(x1 + 1, bounds.x1 + (x + 1) * glyphWidth / width);
+				int darknessSum = 0;
+				for (int sy = y1; sy < y2; sy++)
+				{
+					int offset = sy * stride;
+					for (int sx = x1; sx < x2; sx++)
+						darknessSum += PixelRaster.MAX_LEVEL - (levels[offset + sx] & 0xFF);
+				}
+				patch[(yOffset + y) * PATCH_SIZE + xOffset + x] = (float)darknessSum / (float)((x2 - x1) * (y2 - y1));
+			}
+		}
+
+		// Smooth patch horizontally into buffer, then vertically back into patch, with a kernel of (1, 2, 1)
+		for (int y = 0; y < PATCH_SIZE; y++)
+		{
+			int offset = y * PATCH_SIZE;
+			for (int x = 0; x < PATCH_SIZE; x++)
+			{
+				int i = offset + x;
+				float value = 2.0f * patch[i];
+				if (x > 0)
+					value += patch[i - 1];
+				if (x < PATCH_SIZE - 1)
+					value += patch[i + 1];
+				buffer[i] = value;
+			}
+		}
+		double sum = 0.0;
+		for (int y = 0; y < PATCH_SIZE; y++)
+		{
+			int offset = y * PATCH_SIZE;
+			for (int x = 0; x < PATCH_SIZE; x++)
+			{
+				int i = offset + x;
+				float value = 2.0f * buffer[i];
+				if (y > 0)
+					value += buffer[i - PATCH_SIZE];
+				if (y < PATCH_SIZE - 1)
+					value += buffer[i + PATCH_SIZE];
+				patch[i] = value;
+				sum += value;
+			}
+		}
+
+		// Normalise patch
+		float mean = (float)(sum / (double)PATCH_AREA);
+		double sumOfSquares = 0.0;
+		for (int i = 0; i < PATCH_AREA; i++)
+		{
+			float value = patch[i] - mean;
+			patch[i] = value;
+			sumOfSquares += value * value;
+		}
+		if (sumOfSquares == 0.0)
+			return false;
+		float factor = (float)(1.0 / Math.sqrt(sumOfSquares));
+		for (int i = 0; i < PATCH_AREA; i++)
+			patch[i] *= factor;
+		return true;
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Returns the character of the template that has the highest correlation with the specified normalised patch, or
+	 * zero if no template has a high enough correlation or if the template of another character has a correlation
+	 * that is almost as high.
+	 */
+
+	private static char match(
+		float[]		patch,
+		Template[]	templates)
+	{
+		char ch = 0;
+		double maxCorrelation = 0.0;
+		double maxOtherCorrelation = 0.0;
+		for (Template template : templates)
+		{
+			float[] values = template.patch;
+			double correlation = 0.0;
+			for (int i = 0; i < PATCH_AREA; i++)
+				correlation += patch[i] * values[i];
+			if (correlation > maxCorrelation)
+			{
+				if (template.ch != ch)
+				{
+					maxOtherCorrelation = maxCorrelation;
+					ch = template.ch;
+				}
+				maxCorrelation = correlation;
+			}
+			else if ((template.ch != ch) && (correlation > maxOtherCorrelation))
+				maxOtherCorrelation = correlation;
+		}
+		return ((maxCorrelation < MIN_CORRELATION) || (maxCorrelation - maxOtherCorrelation < MIN_CORRELATION_MARGIN))
+					? 0
+					: ch;
+	}
+
+	//------------------------------------------------------------------
+
+////////////////////////////////////////////////////////////////////////
+//  Instance methods
+////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Recognises the field numbers and entry values in the cells of the specified raster of a grid image.  The raster
+	 * is divided into cells of equal size.
+	 *
+	 * @param  raster
+	 *           the raster of the grid image.
+	 * @param  numColumns
+	 *           the number of columns of the grid.
+	 * @param  numRows
+	 *           the number of rows of the grid.
+	 * @param  lightCells
+	 *           flags that indicate the cells that may contain text; other cells are ignored.
+	 * @return the field numbers and entry values that were recognised.
+	 */
+
+	public Result match(
+		PixelRaster	raster,
+		int			numColumns,
+		int			numRows,
+		boolean[][]	lightCells)
+	{
+		Result result = new Result(new char[numRows][numColumns], new int[numRows][numColumns]);
+		int darkLimit = PixelRaster.getDarkLimit(raster.getOtsuThreshold());
+		ForkJoinPool.commonPool().invoke(new MatchingTask(raster, numColumns, numRows, darkLimit, lightCells, result,
+														  0, numRows));
+		return result;
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Recognises the field numbers and entry values in the cells of the specified rows of a raster.
+	 */
+
+	private void matchRows(
+		PixelRaster	raster,
+		int			numColumns,
+		int			numRows,
+		int			darkLimit,
+		boolean[][]	lightCells,
+		Result		result,
+		int			startRow,
+		int			endRow)
+	{
+		// Get the buffers of the cells of this thread
+		byte[] levels = raster.getLevels();
+		int stride = raster.getWidth();
+		double rasterCellWidth = (double)raster.getWidth() / (double)numColumns;
+		double rasterCellHeight = (double)raster.getHeight() / (double)numRows;
+		CellBuffers buffers = cellBuffers.get();
+		int[] counts = buffers.getCounts((int)Math.ceil(Math.max(rasterCellWidth, rasterCellHeight)) + 1);
+		Bounds bounds = buffers.bounds;
+		Bounds digitBounds = buffers.digitBounds;
+		float[] patch = buffers.patch;
+		float[] buffer = buffers.buffer;
+
+		// Recognise the text of each cell
+		for (int row = startRow; row < endRow; row++)
+		{
+			for (int column = 0; column < numColumns; column++)
+			{
+				if (!lightCells[row][column])
+					continue;
+
+				// Remove the separators of the grid from the edges of the cell, and a further pixel to allow for the
+				// antialiasing of the separators
+				int x1 = (int)Math.round((double)column * rasterCellWidth);
+				int y1 = (int)Math.round((double)row * rasterCellHeight);
+				int x2 = (int)Math.round((double)(column + 1) * rasterCellWidth);
+				int y2 = (int)Math.round((double)(row + 1) * rasterCellHeight);
+				while ((y1 < y2) && isLine(countDark(levels, stride, darkLimit, x1, y1, x2, y1 + 1), x2 - x1))
+					++y1;
+				while ((y1 < y2) && isLine(countDark(levels, stride, darkLimit, x1, y2 - 1, x2, y2), x2 - x1))
+					--y2;
+				while ((x1 < x2) && isLine(countDark(levels, stride, darkLimit, x1, y1, x1 + 1, y2), y2 - y1))
+					++x1;
+				while ((x1 < x2) && isLine(countDark(levels, stride, darkLimit, x2 - 1, y1, x2, y2), y2 - y1))
+					--x2;
+				++x1;
+				++y1;
+				--x2;
+				--y2;
+				if ((x2 - x1 < MIN_GLYPH_HEIGHT) || (y2 - y1 < MIN_GLYPH_HEIGHT))
+					continue;
+
+				// Get the number of dark pixels in each row of the cell, ignoring lines that cross the cell
+				int height = y2 - y1;
+				int firstRow = -1;
+				int lastRow = -1;
+				for (int y = 0; y < height; y++)
+				{
+					int count = countDark(levels, stride, darkLimit, x1, y1 + y, x2, y1 + y + 1);
+					counts[y] = isLine(count, x2 - x1) ? 0 : count;
+					if (counts[y] > 0)
+					{
+						if (firstRow < 0)
+							firstRow = y;
+						lastRow = y;
+					}
+				}
+				if (firstRow < 0)
+					continue;
+
+				// Find the end of the first band of rows that contain dark pixels
+				int bandEnd = firstRow;
+				while ((bandEnd <= lastRow) && (counts[bandEnd] > 0))
+					++bandEnd;
+
+				// If the first band lies in the top left corner of the cell, it contains the field number
+				int entryStart = firstRow;
+				if ((double)bandEnd <= NUMBER_MAX_HEIGHT_FACTOR * (double)height)
+				{
+					bounds.set(levels, stride, darkLimit, x1, y1 + firstRow, x2, y1 + bandEnd);
+					if ((double)(bounds.x2 - x1) <= NUMBER_MAX_WIDTH_FACTOR * (double)(x2 - x1))
+					{
+						result.fieldNumbers[row][column] =
+								matchNumber(levels, stride, darkLimit, bounds, digitBounds, patch, buffer);
+						entryStart = bandEnd;
+						while ((entryStart <= lastRow) && (counts[entryStart] == 0))
+							++entryStart;
+					}
+				}
+
+				// Recognise entry value from the remaining rows
+				if ((lastRow + 1 - entryStart >= MIN_GLYPH_HEIGHT)
+						&& bounds.set(levels, stride, darkLimit, x1, y1 + entryStart, x2, y1 + lastRow + 1)
+						&& loadPatch(levels, stride, bounds, patch, buffer))
+					result.entryValues[row][column] = match(patch, entryTemplates);
+			}
+		}
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Recognises the field number whose glyphs lie within the specified bounds.  The glyphs are separated by columns
+	 * that contain no dark pixels.  The bounds and patch of each digit are set in the specified buffers.
+	 *
+	 * @return the field number, or 0 if it was not recognised.
+	 */
+
+	private int matchNumber(
+		byte[]	levels,
+		int		stride,
+		int		darkLimit,
+		Bounds	numberBounds,
+		Bounds	digitBounds,
+		float[]	patch,
+		float[]	buffer)
+	{
+		int x1 = numberBounds.x1;
+		int x2 = numberBounds.x2;
+		int y1 = numberBounds.y1;
+		int y2 = numberBounds.y2;
+		if (y2 - y1 < MIN_GLYPH_HEIGHT)
+			return 0;
+
+		int number = 0;
+		int numDigits = 0;
+		int x = x1;
+		while (x < x2)
+		{
+			// Find the columns of the next digit
+			while ((x < x2) && (countDark(levels, stride, darkLimit, x, y1, x + 1, y2) == 0))
+				++x;
+			int digitStart = x;
+			while ((x < x2) && (countDark(levels, stride, darkLimit, x, y1, x + 1, y2) > 0))
+				++x;
+			if (digitStart == x)
+				break;
+			if (++numDigits > MAX_NUM_DIGITS)
+				return 0;
+
+			// Recognise digit
+			if (!digitBounds.set(levels, stride, darkLimit, digitStart, y1, x, y2)
+					|| !loadPatch(levels, stride, digitBounds, patch, buffer))
+				return 0;
+			char ch = match(patch, digitTemplates);
+			if (ch == 0)
+				return 0;
+			number = 10 * number + (ch - '0');
+		}
+		return number;
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Returns {@code true} if the specified number of dark pixels in a row or column of the specified length is taken
+	 * to be part of a line.
+	 */
+
+	private static boolean isLine(
+		int	numDarkPixels,
+		int	length)
+	{
+		return ((double)numDarkPixels > LINE_FACTOR * (double)length);
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Returns the number of dark pixels in the specified rectangle of a raster.
+	 */
+
+	private static int countDark(
+		byte[]	levels,
+		int		stride,
+		int		darkLimit,
+		int		x1,
+		int		y1,
+		int		x2,
+		int		y2)
+	{
+		int count = 0;
+		for (int y = y1; y < y2; y++)
+		{
+			int offset = y * stride;
+			for (int x = x1; x < x2; x++)
+			{
+				if ((levels[offset + x] & 0xFF) < darkLimit)
+					++count;
+			}
+		}
+		return count;
+	}
+
+	//------------------------------------------------------------------
+
+////////////////////////////////////////////////////////////////////////
+//  Member records
+////////////////////////////////////////////////////////////////////////
+
+
+	// RECORD: RESULT
+
+
+	/**
+	 * This record encapsulates the text that was recognised in the cells of a grid image.  An element of an array is
+	 * zero if no text was recognised in the corresponding cell.
+	 *
+	 * @param entryValues
+	 *          the entry values of the cells, indexed by row and column.
+	 * @param fieldNumbers
+	 *          the field numbers of the cells, indexed by row and column.
+	 */
+
+	public record Result(
+		char[][]	entryValues,
+		int[][]		fieldNumbers)
+	{ }
+
+	//==================================================================
+
+
+	// RECORD: KEY OF CACHED MATCHER
+
+
+	private record Key(
+		int		cellWidth,
+		int		cellHeight,
+		String	entryChars)
+	{ }
+
+	//==================================================================
+
+
+	// RECORD: TEMPLATE
+
+
+	private record Template(
+		char	ch,
+		float[]	patch)
+	{ }
+
+	//==================================================================
+
+////////////////////////////////////////////////////////////////////////
+//  Member classes : non-inner classes
+////////////////////////////////////////////////////////////////////////
+
+
+	// CLASS: BOUNDS
+
+
+	/**
+	 * This class implements the bounds of the dark pixels in a rectangle of a raster.  The lower bounds are inclusive
+	 * and the upper bounds are exclusive.  An instance is reused for many rectangles.
+	 */
+
+	private static class Bounds
+	{
+
+	////////////////////////////////////////////////////////////////////
+	//  Instance variables
+	////////////////////////////////////////////////////////////////////
+
+		private	int	x1;
+		private	int	y1;
+		private	int	x2;
+		private	int	y2;
+
+	////////////////////////////////////////////////////////////////////
+	//  Constructors
+	////////////////////////////////////////////////////////////////////
+
+		private Bounds()
+		{
+		}
+
+		//--------------------------------------------------------------
+
+	////////////////////////////////////////////////////////////////////
+	//  Instance methods
+	////////////////////////////////////////////////////////////////////
+
+		/**
+		 * Sets these bounds to those of the dark pixels in the specified rectangle of a raster.
+		 *
+		 * @return {@code true} if the rectangle contains a dark pixel.
+		 */
+
+		private boolean set(
+			byte[]	levels,
+			int		stride,
+			int		darkLimit,
+			int		rectX1,
+			int		rectY1,
+			int		rectX2,
+			int		rectY2)
+		{
+			x1 = rectX2;
+			y1 = rectY2;
+			x2 = rectX1;
+			y2 = rectY1;
+			for (int y = rectY1; y < rectY2; y++)
+			{
+				int offset = y * stride;
+				for (int x = rectX1; x < rectX2; x++)
+				{
+					if ((levels[offset + x] & 0xFF) < darkLimit)
+					{
+						x1 = Math.min(x1, x);
+						x2 = Math.max(x2, x + 1);
+						y1 = Math.min(y1, y);
+						y2 = y + 1;
+					}
+				}
+			}
+			return (x1 < x2);
+		}
+
+		//--------------------------------------------------------------
+
+	}
+
+	//==================================================================
+
+
+	// CLASS: BUFFERS OF CELLS
+
+
+	/**
+	 * This class implements the buffers that are used to recognise the text of a cell.  An instance is owned by a
+	 * single thread and reused for every cell that the thread matches; the array of counts grows to accommodate the
+	 * largest cell.
+	 */
+
+	private static class CellBuffers
+	{
+
+	////////////////////////////////////////////////////////////////////
+	//  Instance variables
+	////////////////////////////////////////////////////////////////////
+
+		private	int[]	counts;
+		private	Bounds	bounds;
+		private	Bounds	digitBounds;
+		private	float[]	patch;
+		private	float[]	buffer;
+
+	////////////////////////////////////////////////////////////////////
+	//  Constructors
+	////////////////////////////////////////////////////////////////////
+
+		private CellBuffers()
+		{
+			counts = new int[0];
+			bounds = new Bounds();
+			digitBounds = new Bounds();
+			patch = new float[PATCH_AREA];
+			buffer = new float[PATCH_AREA];
+		}
+
+		//--------------------------------------------------------------
+
+	////////////////////////////////////////////////////////////////////
+	//  Instance methods
+	////////////////////////////////////////////////////////////////////
+
+		/**
+		 * Returns an array of counts that has at least the specified length.
+		 */
+
+		private int[] getCounts(
+			int	length)
+		{
+			if (counts.length < length)
+				counts = new int[length];
+			return counts;
+		}
+
+		//--------------------------------------------------------------
+
+	}
+
+	//==================================================================
+
+////////////////////////////////////////////////////////////////////////
+//  Member classes : inner classes
+////////////////////////////////////////////////////////////////////////
+
+
+	// CLASS: MATCHING TASK
+
+
+	/**
+	 * This class implements a fork-join task that recognises the text in the cells of a band of rows of a grid image.
+	 * The band is split in half recursively until it consists of a single row.
+	 */
+
+	private class MatchingTask
+		extends RecursiveAction
+	{
+
+	////////////////////////////////////////////////////////////////////
+	//  Instance variables
+	////////////////////////////////////////////////////////////////////
+
+		private	PixelRaster	raster;
+		private	int			numColumns;
+		private	int			numRows;
+		private	int			darkLimit;
+		private	boolean[][]	lightCells;
+		private	Result		result;
+		private	int			startRow;
+		private	int			endRow;
+
+	////////////////////////////////////////////////////////////////////
+	//  Constructors
+	////////////////////////////////////////////////////////////////////
+
+		private MatchingTask(
+			PixelRaster	raster,
+			int			numColumns,
+			int			numRows,
+			int			darkLimit,
+			boolean[][]	lightCells,
+			Result		result,
+			int			startRow,
+			int			endRow)
+		{
+			this.raster = raster;
+			this.numColumns = numColumns;
+			this.numRows = numRows;
+			this.darkLimit = darkLimit;
+			this.lightCells = lightCells;
+			this.result = result;
+			this.startRow = startRow;
+			this.endRow = endRow;
+		}
+
+		//--------------------------------------------------------------
+
+	////////////////////////////////////////////////////////////////////
+	//  Instance methods : overriding methods
+	////////////////////////////////////////////////////////////////////
+
+		@Override
+		protected void compute()
+		{
+			if (endRow - startRow > 1)
+			{
+				int midRow = (startRow + endRow) >>> 1;
+				invokeAll(createSubtask(startRow, midRow), createSubtask(midRow, endRow));
+			}
+			else
+				matchRows(raster, numColumns, numRows, darkLimit, lightCells, result, startRow, endRow);
+		}
+
+		//--------------------------------------------------------------
+
+	////////////////////////////////////////////////////////////////////
+	//  Instance methods
+	////////////////////////////////////////////////////////////////////
+
+		private MatchingTask createSubtask(
+			int	startRow,
+			int	endRow)
+		{
+			return new MatchingTask(raster, numColumns, numRows, darkLimit, lightCells, result, startRow, endRow);
+		}
+
+		//--------------------------------------------------------------
+
+	}
+
+	//==================================================================
+
+}
+
+//----------------------------------------------------------------------
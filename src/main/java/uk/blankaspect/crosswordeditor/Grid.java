@@ -19,7 +19,9 @@ package uk.blankaspect.crosswordeditor;
 
 
 import java.awt.Color;
+import java.awt.Graphics2D;
 import java.awt.Rectangle;
+import java.awt.RenderingHints;
 
 import java.awt.image.BufferedImage;
 
@@ -35,12 +37,19 @@ import java.nio.charset.StandardCharsets;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
 
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -132,6 +141,8 @@ abstract class Grid
 
 	public static final		Symmetry	DEFAULT_SYMMETRY	= Symmetry.ROTATION_HALF;
 
+	public static final		DetectionMethod	DEFAULT_DETECTION_METHOD	= DetectionMethod.PROJECTION;
+
 	public static final		Color	DEFAULT_HTML_GRID_COLOUR	= new Color(160, 160, 160);
 	public static final		Color	DEFAULT_HTML_ENTRY_COLOUR	= new Color(96, 96, 96);
 
@@ -157,6 +168,14 @@ abstract class Grid
 
 	private static final	int		MIN_NUM_LINES_PER_DIMENSION	= 4;
 
+	private static final	int		MIN_PYRAMID_RASTER_SIZE	= 512;
+
+	/** The resolution, in radians, to which skew angles are rounded. */
+	private static final	double	SKEW_ANGLE_RESOLUTION	= Math.toRadians(0.01);
+
+	/** The maximum number of deskewed child sessions that a detection session keeps. */
+	private static final	int		MAX_NUM_DESKEWED_SESSIONS	= 2;
+
 	private static final	int		SOLUTION_LINE_LENGTH	= 72;
 
 	private static final	Charset	SOLUTION_ENCODING	= StandardCharsets.UTF_8;
@@ -173,6 +192,14 @@ abstract class Grid
 		Symmetry.REFLECTION_HORIZONTAL_AXIS
 	};
 
+	private final static	Symmetry[]	TRACKED_SYMMETRIES	=
+	{
+		Symmetry.ROTATION_HALF,
+		Symmetry.ROTATION_QUARTER,
+		Symmetry.REFLECTION_VERTICAL_AXIS,
+		Symmetry.REFLECTION_HORIZONTAL_AXIS
+	};
+
 	private interface ElementName
 	{
 		String	ENTRIES		= AppConstants.NS_PREFIX + "entries";
@@ -205,7 +232,33 @@ abstract class Grid
 	protected	Map<Direction, List<Field>>	fieldLists;
 	protected	Entries						entries;
 	protected	Entries						solution;
-	protected	boolean[][]					incorrectEntries;
+	protected	boolean						incorrectEntriesChecked;
+
+	/**
+	 * The cells (in row-major order) whose entry values differ from the values of the solution.  The set is
+	 * maintained as the entries and the solution change, and it is empty if this grid has no solution.
+	 */
+	private		BitSet						incorrectEntries;
+
+	/**
+	 * For each defined direction, the field of that direction that contains each cell (in row-major order), or
+	 * {@code null} if the cell is not in a field of that direction.
+	 */
+	private		Map<Direction, Field[]>		cellFields;
+
+	/**
+	 * For each defined direction, the fields of that direction indexed by their numbers.  Because the fields of a
+	 * grid are numbered consecutively from 1 and each field starts in a different cell, no field number exceeds the
+	 * number of cells.
+	 */
+	private		Map<Direction, Field[]>		numberedFields;
+
+	/**
+	 * For each symmetry of {@link #TRACKED_SYMMETRIES}, indexed by its ordinal, the number of cells whose separators
+	 * do not match those of their image under the symmetry.  The grid has the symmetry if the number is zero.  The
+	 * number is not maintained for a symmetry that does not support the dimensions of the grid.
+	 */
+	private		int[]						asymmetricCellCounts;
 
 ////////////////////////////////////////////////////////////////////////
 //  Constructors
@@ -219,7 +272,15 @@ abstract class Grid
 		this.numRows = numRows;
 		symmetry = Symmetry.NONE;
 		fieldLists = new EnumMap<>(Direction.class);
+		cellFields = new EnumMap<>(Direction.class);
+		for (Direction direction : Direction.DEFINED_DIRECTIONS)
+			cellFields.put(direction, new Field[numRows * numColumns]);
+		numberedFields = new EnumMap<>(Direction.class);
+		for (Direction direction : Direction.DEFINED_DIRECTIONS)
+			numberedFields.put(direction, new Field[numRows * numColumns + 1]);
+		asymmetricCellCounts = new int[Symmetry.values().length];
 		entries = new Entries(numColumns, numRows);
+		incorrectEntries = new BitSet(numRows * numColumns);
 	}
 
 	//------------------------------------------------------------------
@@ -354,221 +415,1056 @@ abstract class Grid
 	//------------------------------------------------------------------
 
 	public static Info findGrid(
-		BufferedImage	image,
+		PixelRaster		raster,
+		DetectionMethod	method,
 		double			brightnessThreshold,
 		int				minLineLength,
 		int				minLineSeparation,
 		int				endpointTolerance)
 		throws AppException
 	{
-		// Find the set of horizontal lines that satisfy the brightness and length constraints
-		List<Line> linesH = new ArrayList<>();
-		for (int y = 0; y < image.getHeight(); y++)
+		return switch (method)
 		{
-			Line line = null;
-			for (int x = 0; x < image.getWidth(); x++)
+			case PROJECTION  -> findGridProjection(raster, brightnessThreshold, minLineLength, minLineSeparation,
+												   endpointTolerance);
+			case PYRAMID     -> findGridPyramid(raster, brightnessThreshold, minLineLength, minLineSeparation,
+												endpointTolerance);
+			case LINE_SUBSET -> findGridLineSubset(raster, brightnessThreshold, minLineLength, minLineSeparation,
+												   endpointTolerance);
+			case DESKEWED_PROJECTION -> findGridDeskewed(raster, brightnessThreshold, minLineLength,
+														 minLineSeparation, endpointTolerance);
+		};
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Creates a grid of the specified kind of separator from the specified raster of a grid image.  The grid is taken
+	 * from the {@link GridDetectionCache} if the raster has been processed before with the same parameters; otherwise,
+	 * it is extracted from the raster and added to the cache.
+	 *
+	 * @param  raster
+	 *           the raster of the grid image.
+	 * @param  separator
+	 *           the kind of separator of the grid.
+	 * @param  numColumns
+	 *           the number of columns of the grid.
+	 * @param  numRows
+	 *           the number of rows of the grid.
+	 * @param  xOffset
+	 *           the horizontal offset of the sample points of a block grid.
+	 * @param  yOffset
+	 *           the vertical offset of the sample points of a block grid.
+	 * @param  sampleSize
+	 *           the size of the sample of a block grid; ignored for a bar grid.
+	 * @param  brightnessThreshold
+	 *           the brightness threshold of blocks or bars.
+	 * @param  barWidthThreshold
+	 *           the width threshold of the bars of a bar grid; ignored for a block grid.
+	 * @return the grid that was extracted from {@code raster}.
+	 * @throws AppException
+	 *           if the grid image is malformed.
+	 */
+
+	public static Grid extractGrid(
+		PixelRaster	raster,
+		Separator	separator,
+		int			numColumns,
+		int			numRows,
+		int			xOffset,
+		int			yOffset,
+		int			sampleSize,
+		double		brightnessThreshold,
+		int			barWidthThreshold)
+		throws AppException
+	{
+		// Parameters that don't apply to the kind of separator are excluded from the key
+		if (separator != Separator.BLOCK)
+			sampleSize = 0;
+		if (separator != Separator.BAR)
+			barWidthThreshold = 0;
+
+		// Look for grid in cache
+		GridDetectionCache.GridKey key = new GridDetectionCache.GridKey(raster, separator, numColumns, numRows,
+																		xOffset, yOffset, sampleSize,
+																		brightnessThreshold, barWidthThreshold);
+		Grid grid = GridDetectionCache.INSTANCE.getGrid(key);
+
+		// If grid is not in cache, extract it from raster and add it to cache
+		if (grid == null)
+		{
+			grid = switch (separator)
 			{
-				if (ColourUtils.getBrightness(image.getRGB(x, y)) < brightnessThreshold)
-				{
-					if (line == null)
-						line = new Line(Line.Orientation.HORIZONTAL, x, y);
-					line.x2 = x;
-				}
-				else if (line != null)
-				{
-					if (line.getLength() >= minLineLength)
-						linesH.add(line);
-					line = null;
-				}
-			}
-			if ((line != null) && (line.getLength() >= minLineLength))
-				linesH.add(line);
+				case BLOCK -> new BlockGrid(numColumns, numRows, raster, xOffset, yOffset, sampleSize,
+											brightnessThreshold);
+				case BAR   -> new BarGrid(numColumns, numRows, raster, xOffset, yOffset, brightnessThreshold,
+										  barWidthThreshold);
+			};
+			GridDetectionCache.INSTANCE.putGrid(key, grid);
 		}
-		if (linesH.size() < MIN_NUM_LINES_PER_DIMENSION)
-			throw new AppException(ErrorId.TOO_FEW_LINES, Line.Orientation.HORIZONTAL.toString());
+		return grid;
+	}
 
-		// Find the set of vertical lines that satisfy the brightness and length constraints
-		List<Line> linesV = new ArrayList<>();
-		for (int x = 0; x < image.getWidth(); x++)
+	//------------------------------------------------------------------
+
+	/**
+	 * Returns the specified image rotated about its centre by the negation of the specified skew angle.  Areas of the
+	 * rotated image that lie outside the specified image are white.
+	 *
+	 * @param  image
+	 *           the image.
+	 * @param  skewAngle
+	 *           the skew angle, in radians.
+	 * @return {@code image} rotated by {@code -skewAngle}, or {@code image} itself if {@code skewAngle} is zero.
+	 */
+
+	public static BufferedImage createDeskewedImage(
+		BufferedImage	image,
+		double			skewAngle)
+	{
+		if (skewAngle == 0.0)
+			return image;
+
+		int width = image.getWidth();
+		int height = image.getHeight();
+		BufferedImage deskewedImage = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+		Graphics2D gr = deskewedImage.createGraphics();
+		gr.setColor(Color.WHITE);
+		gr.fillRect(0, 0, width, height);
+		gr.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+		gr.rotate(-skewAngle, 0.5 * (double)(width - 1), 0.5 * (double)(height - 1));
+		gr.drawImage(image, 0, 0, null);
+		gr.dispose();
+		return deskewedImage;
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Finds a grid in the image of the specified reader by the {@linkplain DetectionMethod#PROJECTION projection}
+	 * method without holding the whole image in memory.  The image is read a strip at a time; the longest dark run of
+	 * each row of a strip and the runs of the columns that continue from the previous strip are accumulated, so only
+	 * one strip and the run profiles are held in memory.
+	 */
+
+	public static Info findGrid(
+		StripImageReader	reader,
+		double				brightnessThreshold,
+		int					minLineLength,
+		int					minLineSeparation,
+		int					endpointTolerance)
+		throws AppException
+	{
+		// Initialise the run profiles and the start of the current run of each column
+		int width = reader.getWidth();
+		int height = reader.getHeight();
+		RunProfiles runProfiles = new RunProfiles(new int[height], new int[height], new int[width], new int[width]);
+		Arrays.fill(runProfiles.rowRunEnds, -1);
+		Arrays.fill(runProfiles.columnRunEnds, -1);
+		long[] mask = new long[PixelRaster.getNumMaskWords(width)];
+		long[] columnRunMask = new long[mask.length];
+		int[] currentColumnRunStarts = new int[width];
+
+		// Accumulate the runs of each strip
+		int darkLimit = PixelRaster.getDarkLimit(brightnessThreshold);
+		for (int y0 = 0; y0 < height; y0 += reader.getStripHeight())
 		{
-			Line line = null;
-			for (int y = 0; y < image.getHeight(); y++)
+			throwIfInterrupted();
+			PixelRaster strip = reader.readStrip(y0);
+			for (int y = 0; y < strip.getHeight(); y++)
 			{
-				if (ColourUtils.getBrightness(image.getRGB(x, y)) < brightnessThreshold)
-				{
-					if (line == null)
-						line = new Line(Line.Orientation.VERTICAL, x, y);
-					line.y2 = y;
-				}
-				else if (line != null)
-				{
-					if (line.getLength() >= minLineLength)
-						linesV.add(line);
-					line = null;
-				}
+				strip.getRowDarkMask(darkLimit, y, 0, width, mask);
+				updateRowRunProfile(mask, width, 0, y0 + y, runProfiles.rowRunStarts, runProfiles.rowRunEnds);
+				updateColumnRunProfiles(mask, columnRunMask, currentColumnRunStarts, 0, y0 + y,
+										runProfiles.columnRunStarts, runProfiles.columnRunEnds);
 			}
-			if ((line != null) && (line.getLength() >= minLineLength))
-				linesV.add(line);
 		}
-		if (linesV.size() < MIN_NUM_LINES_PER_DIMENSION)
-			throw new AppException(ErrorId.TOO_FEW_LINES, Line.Orientation.VERTICAL.toString());
+		endColumnRuns(columnRunMask, currentColumnRunStarts, 0, height, runProfiles.columnRunStarts,
+					  runProfiles.columnRunEnds);
 
-		// Find the largest subset of horizontal and vertical lines within coincident bounding rectangles
-		List<Line> maxCombinedLinesH = new ArrayList<>();
-		List<Line> maxCombinedLinesV = new ArrayList<>();
-		long maxArea = 0;
-		for (int ih = 0; ih < linesH.size(); ih++)
-		{
-			// Get the datum horizontal line
-			Line line = linesH.get(ih);
+		// Find the grid in the runs
+		return findGrid(findCandidateLines(runProfiles, minLineLength, endpointTolerance), minLineSeparation,
+						endpointTolerance);
+	}
 
-			// Get the bounds of the x coordinates of the horizontal lines of this subset
-			int minX1 = line.x1 - endpointTolerance;
-			int maxX1 = line.x1 + endpointTolerance;
-			int minX2 = line.x2 - endpointTolerance;
-			int maxX2 = line.x2 + endpointTolerance;
+	//------------------------------------------------------------------
 
-			// Get the subset of horizontal lines whose x coordinates are within bounds and are sufficiently separated
-			// from their nearest neighbour.  Sequences of adjacent lines are combined into a single line.
-			List<Line> combinedLinesH = new ArrayList<>();
-			Line combinedLine = null;
-			for (int i = 0; i < linesH.size(); i++)
-			{
-				line = linesH.get(i);
-				if ((line.x1 >= minX1) && (line.x1 <= maxX1) && (line.x2 >= minX2) && (line.x2 <= maxX2))
-				{
-					if ((combinedLine == null) || (line.y1 > combinedLine.y2 + 1))
-					{
-						if ((combinedLine != null) && (line.y1 <= combinedLine.y2 + minLineSeparation))
-							break;
-						combinedLine = line.clone();
-						combinedLinesH.add(combinedLine);
-					}
-					else
-						++combinedLine.y2;
-				}
-			}
+	/**
+	 * Finds a grid in the specified image from the longest dark run in each row and each column of the image.  The
+	 * runs of the two orientations are extracted in parallel by fork-join tasks.  Runs in adjacent rows (or columns)
+	 * whose endpoints coincide within the endpoint tolerance are clustered into a single candidate line, and the
+	 * candidate lines are then grouped by their endpoints.  The grid is the pair of coincident horizontal and vertical
+	 * groups that has the largest bounding rectangle.  Because the number of groups is small, the cost is dominated
+	 * by the extraction of the runs.
+	 * <p>
+	 * Each stage of the method is available separately so that a {@link DetectionSession} can cache its results.
+	 * </p>
+	 */
+
+	private static Info findGridProjection(
+		PixelRaster		raster,
+		double			brightnessThreshold,
+		int				minLineLength,
+		int				minLineSeparation,
+		int				endpointTolerance)
+		throws AppException
+	{
+		RunProfiles runProfiles = extractRunProfiles(raster, PixelRaster.getDarkLimit(brightnessThreshold));
+		return findGrid(findCandidateLines(runProfiles, minLineLength, endpointTolerance), minLineSeparation,
+						endpointTolerance);
+	}
 
-			// If there are too few combined horizontal lines, try the next subset
-			if (combinedLinesH.size() < MIN_NUM_LINES_PER_DIMENSION)
-				continue;
+	//------------------------------------------------------------------
 
-			// Get the coordinates of the bounding rectangle of the combined horizontal lines
-			Bounds hBounds = getBoundsH(combinedLinesH);
+	/**
+	 * Finds a grid in the specified image by the {@linkplain DetectionMethod#PROJECTION projection} method after
+	 * correcting the skew of the image.  The skew angle is estimated by {@link PixelRaster#getSkewAngle(int)}; if it
+	 * is large enough to displace the lines of the image by a pixel or more, the raster is deskewed by {@link
+	 * PixelRaster#createDeskewedRaster(double)} before the grid is found in it.  The bounds of the grid that is
+	 * returned are those in the deskewed raster, and the skew angle is returned with them.
+	 */
 
-			// Get the coordinates of the relaxed bounding rectangle of the combined horizontal lines
+	private static Info findGridDeskewed(
+		PixelRaster		raster,
+		double			brightnessThreshold,
+		int				minLineLength,
+		int				minLineSeparation,
+		int				endpointTolerance)
+		throws AppException
+	{
+		double skewAngle = getSkewAngle(raster, PixelRaster.getDarkLimit(brightnessThreshold));
+		if (skewAngle == 0.0)
+			return findGridProjection(raster, brightnessThreshold, minLineLength, minLineSeparation,
+									  endpointTolerance);
+		Info info = findGridProjection(raster.createDeskewedRaster(skewAngle), brightnessThreshold, minLineLength,
+									   minLineSeparation, endpointTolerance);
+		return (info == null) ? null : info.withSkewAngle(skewAngle);
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Returns the skew angle of the lines of the specified raster rounded to {@link #SKEW_ANGLE_RESOLUTION}, or zero if
+	 * the angle is too small to displace the lines by a pixel across the raster.  The rounding lets the estimates for
+	 * different dark limits, which differ by far less than their accuracy, share a deskewed raster.
+	 */
+
+	private static double getSkewAngle(
+		PixelRaster	raster,
+		int			darkLimit)
+	{
+		double angle = (double)Math.round(raster.getSkewAngle(darkLimit) / SKEW_ANGLE_RESOLUTION)
+																							* SKEW_ANGLE_RESOLUTION;
+		double maxOffset = Math.abs(Math.sin(angle)) * (double)Math.max(raster.getWidth(), raster.getHeight());
+		return (maxOffset < 1.0) ? 0.0 : angle;
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Returns the start and end of the longest dark run in each row and each column of the specified raster.
+	 */
+
+	private static RunProfiles extractRunProfiles(
+		PixelRaster	raster,
+		int			darkLimit)
+		throws TaskCancelledException
+	{
+		// Initialise the run profiles
+		int width = raster.getWidth();
+		int height = raster.getHeight();
+		RunProfiles runProfiles = new RunProfiles(new int[height], new int[height], new int[width], new int[width]);
+		Arrays.fill(runProfiles.rowRunEnds, -1);
+		Arrays.fill(runProfiles.columnRunEnds, -1);
+
+		// Extract the runs of both orientations in parallel.  Each task splits its region of the raster into tiles
+		// along the longer of its dimensions; the runs of tiles that lie across the rows or columns are merged.
+		Thread requester = Thread.currentThread();
+		RunExtractionTask rowTask = new RunExtractionTask(requester, Line.Orientation.HORIZONTAL, raster, darkLimit,
+														  runProfiles.rowRunStarts, runProfiles.rowRunEnds, 0, 0,
+														  height, 0, width);
+		RunExtractionTask columnTask = new RunExtractionTask(requester, Line.Orientation.VERTICAL, raster, darkLimit,
+															 runProfiles.columnRunStarts, runProfiles.columnRunEnds, 0,
+															 0, width, 0, height);
+		ForkJoinPool pool = ForkJoinPool.commonPool();
+		pool.execute(columnTask);
+		pool.invoke(rowTask);
+		columnTask.join();
+
+		// The tasks skip their remaining bands if the requesting thread is interrupted, so the profiles may be
+		// incomplete
+		throwIfInterrupted();
+
+		// Return run profiles
+		return runProfiles;
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Clusters the runs of the specified profiles whose length is not less than the minimum line length into
+	 * candidate lines.
+	 */
+
+	private static CandidateLines findCandidateLines(
+		RunProfiles	runProfiles,
+		int			minLineLength,
+		int			endpointTolerance)
+	{
+		return new CandidateLines(clusterRuns(Line.Orientation.HORIZONTAL, runProfiles.rowRunStarts,
+											  runProfiles.rowRunEnds, minLineLength, endpointTolerance),
+								  clusterRuns(Line.Orientation.VERTICAL, runProfiles.columnRunStarts,
+											  runProfiles.columnRunEnds, minLineLength, endpointTolerance));
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Finds a grid in the specified candidate lines.
+	 */
+
+	private static Info findGrid(
+		CandidateLines	candidateLines,
+		int				minLineSeparation,
+		int				endpointTolerance)
+		throws AppException
+	{
+		return createInfo(selectGridLines(candidateLines, minLineSeparation, endpointTolerance));
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Returns the horizontal and vertical lines of the grid that is formed by the specified candidate lines.
+	 */
+
+	private static CandidateLines selectGridLines(
+		CandidateLines	candidateLines,
+		int				minLineSeparation,
+		int				endpointTolerance)
+		throws AppException
+	{
+		// Test for sufficient candidate lines
+		List<Line> linesH = candidateLines.horizontal;
+		if (linesH.size() < MIN_NUM_LINES_PER_DIMENSION)
+			throw new AppException(ErrorId.TOO_FEW_LINES, Line.Orientation.HORIZONTAL.toString());
+		List<Line> linesV = candidateLines.vertical;
+		if (linesV.size() < MIN_NUM_LINES_PER_DIMENSION)
+			throw new AppException(ErrorId.TOO_FEW_LINES, Line.Orientation.VERTICAL.toString());
+
+		// Group the candidate lines by their endpoints
+		List<List<Line>> groupsH = groupLines(linesH, minLineSeparation, endpointTolerance);
+		List<List<Line>> groupsV = groupLines(linesV, minLineSeparation, endpointTolerance);
+
+		// Find the pair of coincident horizontal and vertical groups with the largest bounding rectangle
+		List<Line> maxLinesH = new ArrayList<>();
+		List<Line> maxLinesV = new ArrayList<>();
+		long maxArea = 0;
+		for (List<Line> groupH : groupsH)
+		{
+			// Get the coordinates of the relaxed bounding rectangle of the horizontal lines
+			Bounds hBounds = getBoundsH(groupH);
 			int hx1 = hBounds.x1 - endpointTolerance;
 			int hy1 = hBounds.y1 - endpointTolerance;
 			int hx2 = hBounds.x2 + endpointTolerance;
 			int hy2 = hBounds.y2 + endpointTolerance;
 
-			// Get the largest subset of vertical lines that lie within the relaxed bounding rectangle of the subset of
-			// horizontal lines and satisfy separation and endpoint tolerance
-			for (int iv = 0; iv < linesV.size(); iv++)
+			for (List<Line> groupV : groupsV)
 			{
-				// Get the datum vertical line
-				line = linesV.get(iv);
-
-				// Test whether the datum lies within the relaxed bounding rectangle of the horizontal lines
-				if ((line.x1 < hx1) || (line.y1 < hy1) || (line.x2 > hx2) || (line.y2 > hy2))
-					continue;
-
-				// Get the bounds of the y coordinates of the vertical lines of this subset
-				int minY1 = line.y1 - endpointTolerance;
-				int maxY1 = line.y1 + endpointTolerance;
-				int minY2 = line.y2 - endpointTolerance;
-				int maxY2 = line.y2 + endpointTolerance;
-
-				// Get the subset of vertical lines whose y coordinates are within bounds and are sufficiently separated
-				// from their nearest neighbour.  Sequences of adjacent lines are combined into a single line.
-				List<Line> combinedLinesV = new ArrayList<>();
-				combinedLine = null;
-				for (int i = 0; i < linesV.size(); i++)
-				{
-					line = linesV.get(i);
-					if ((line.y1 >= minY1) && (line.y1 <= maxY1) && (line.y2 >= minY2) && (line.y2 <= maxY2))
-					{
-						if ((combinedLine == null) || (line.x1 > combinedLine.x2 + 1))
-						{
-							if ((combinedLine != null) && (line.x1 <= combinedLine.x2 + minLineSeparation))
-								break;
-							combinedLine = line.clone();
-							combinedLinesV.add(combinedLine);
-						}
-						else
-							++combinedLine.x2;
-					}
-				}
-
-				// If there are too few combined vertical lines, try the next subset
-				if (combinedLinesV.size() < MIN_NUM_LINES_PER_DIMENSION)
+				// Test whether the vertical lines lie within the relaxed bounding rectangle of the horizontal lines
+				Bounds vBounds = getBoundsV(groupV);
+				if ((vBounds.x1 < hx1) || (vBounds.y1 < hy1) || (vBounds.x2 > hx2) || (vBounds.y2 > hy2))
 					continue;
 
-				// Get the coordinates of the bounding rectangle of the combined vertical lines
-				Bounds vBounds = getBoundsV(combinedLinesV);
-
-				// Get the relaxed y coordinates of the combined vertical lines
+				// Discard horizontal lines that lie outside the relaxed y coordinates of the vertical lines
 				int vy1 = vBounds.y1 - endpointTolerance;
 				int vy2 = vBounds.y2 + endpointTolerance;
-
-				// Remove horizontal lines that lie outside the relaxed y coordinates of the combined vertical lines
-				for (int i = 0; i < combinedLinesH.size(); i++)
+				List<Line> linesInBoundsH = new ArrayList<>();
+				for (Line line : groupH)
 				{
-					combinedLine = combinedLinesH.get(i);
-					if ((combinedLine.y1 < vy1) || (combinedLine.y2 > vy2))
-						combinedLinesH.remove(i--);
+					if ((line.y1 >= vy1) && (line.y2 <= vy2))
+						linesInBoundsH.add(line);
 				}
-
-				// If there are now too few combined horizontal lines, try the next subset
-				if (combinedLinesH.size() < MIN_NUM_LINES_PER_DIMENSION)
+				if (linesInBoundsH.size() < MIN_NUM_LINES_PER_DIMENSION)
 					continue;
 
-				// Calculate the area of the combined bounding rectangle
-				Rectangle rect = getCombinedBounds(getBoundsH(combinedLinesH), vBounds);
-				long area = rect.width * rect.height;
-
-				// If the area is greater than the current maximum, update the current largest subsets of horizontal and
-				// vertical lines
+				// Update the largest pair of groups
+				Rectangle rect = getCombinedBounds(getBoundsH(linesInBoundsH), vBounds);
+				long area = (long)rect.width * (long)rect.height;
 				if (maxArea < area)
 				{
 					maxArea = area;
-					maxCombinedLinesH = combinedLinesH;
-					maxCombinedLinesV = combinedLinesV;
+					maxLinesH = linesInBoundsH;
+					maxLinesV = groupV;
 				}
 			}
 		}
 
 		// Test for sufficient horizontal and vertical lines
-		if ((maxCombinedLinesH.size() < MIN_NUM_LINES_PER_DIMENSION)
-				|| (maxCombinedLinesV.size() < MIN_NUM_LINES_PER_DIMENSION))
+		if ((maxLinesH.size() < MIN_NUM_LINES_PER_DIMENSION) || (maxLinesV.size() < MIN_NUM_LINES_PER_DIMENSION))
 			throw new AppException(ErrorId.TOO_FEW_COINCIDENT_HORIZONTAL_AND_VERTICAL_LINES);
 
-		// Get the combined bounding rectangle
-		Rectangle rect = getCombinedBounds(getBoundsH(maxCombinedLinesH), getBoundsV(maxCombinedLinesV));
+		// Return lines of grid
+		return new CandidateLines(maxLinesH, maxLinesV);
+	}
 
-		// Return grid information
-		return new Info(rect.x, rect.y, rect.width, rect.height, maxCombinedLinesV.size() - 1,
-						maxCombinedLinesH.size() - 1);
+	//------------------------------------------------------------------
+
+	private static Info createInfo(
+		CandidateLines	gridLines)
+	{
+		List<Line> linesH = gridLines.horizontal;
+		List<Line> linesV = gridLines.vertical;
+		Rectangle rect = getCombinedBounds(getBoundsH(linesH), getBoundsV(linesV));
+		return new Info(rect.x, rect.y, rect.width, rect.height, linesV.size() - 1, linesH.size() - 1,
+						getLinePositions(linesV), getLinePositions(linesH));
 	}
 
 	//------------------------------------------------------------------
 
-	private static Bounds getBoundsH(
+	/**
+	 * Returns the positions of the specified lines: the x coordinate of the centre of each vertical line or the y
+	 * coordinate of the centre of each horizontal line.
+	 */
+
+	private static int[] getLinePositions(
 		List<Line>	lines)
 	{
-		// Get x coordinates
-		int x1 = Integer.MAX_VALUE;
-		int x2 = Integer.MIN_VALUE;
-		for (Line line : lines)
+		int[] positions = new int[lines.size()];
+		for (int i = 0; i < positions.length; i++)
 		{
-			if (x1 > line.x1)
-				x1 = line.x1;
-			if (x2 < line.x2)
-				x2 = line.x2;
+			Line line = lines.get(i);
+			positions[i] = (line.orientation == Line.Orientation.HORIZONTAL) ? (line.y1 + line.y2) / 2
+																			 : (line.x1 + line.x2) / 2;
 		}
+		return positions;
+	}
 
-		// Get y coordinates
-		int y1 = 0;
+	//------------------------------------------------------------------
+
+	/**
+	 * Finds a grid in the specified image by searching a pyramid of reduced images from coarse to fine.  The raster is
+	 * halved in size until its smaller dimension is less than twice {@link #MIN_PYRAMID_RASTER_SIZE}; each pixel of a
+	 * reduced raster is the darkest of the corresponding 2&times;2 block of pixels, so that thin lines survive the
+	 * reduction.  The grid lines are located in the coarsest raster with scaled parameters, and the runs of the full
+	 * raster are then extracted only within narrow bands around those lines and within the bounds of the grid.  The
+	 * grid is found in the refined runs with the unscaled parameters.  If the grid cannot be found at either stage,
+	 * the full raster is searched by {@link #findGridProjection(PixelRaster, double, int, int, int)}.
+	 */
+
+	private static Info findGridPyramid(
+		PixelRaster		raster,
+		double			brightnessThreshold,
+		int				minLineLength,
+		int				minLineSeparation,
+		int				endpointTolerance)
+		throws AppException
+	{
+		// Create the coarsest level of the pyramid
+		PixelRaster coarseRaster = raster;
+		int scale = 1;
+		while (Math.min(coarseRaster.getWidth(), coarseRaster.getHeight()) >= 2 * MIN_PYRAMID_RASTER_SIZE)
+		{
+			throwIfInterrupted();
+			coarseRaster = coarseRaster.createReducedRaster();
+			scale *= 2;
+		}
+
+		// If the raster is too small to be reduced, search it directly
+		if (scale == 1)
+			return findGridProjection(raster, brightnessThreshold, minLineLength, minLineSeparation,
+									  endpointTolerance);
+
+		// Find the grid lines in the coarsest level of the pyramid
+		int darkLimit = PixelRaster.getDarkLimit(brightnessThreshold);
+		int coarseEndpointTolerance = endpointTolerance / scale + 1;
+		CandidateLines coarseLines = null;
+		try
+		{
+			RunProfiles runProfiles = extractRunProfiles(coarseRaster, darkLimit);
+			coarseLines = selectGridLines(findCandidateLines(runProfiles, Math.max(1, minLineLength / scale),
+															 coarseEndpointTolerance),
+										  Math.max(1, minLineSeparation / scale), coarseEndpointTolerance);
+		}
+		catch (TaskCancelledException e)
+		{
+			throw e;
+		}
+		catch (AppException e)
+		{
+			return findGridProjection(raster, brightnessThreshold, minLineLength, minLineSeparation,
+									  endpointTolerance);
+		}
+
+		// Get the bounds of the grid in the full raster, allowing a margin of one coarse pixel
+		int width = raster.getWidth();
+		int height = raster.getHeight();
+		Rectangle coarseRect = getCombinedBounds(getBoundsH(coarseLines.horizontal),
+												 getBoundsV(coarseLines.vertical));
+		int x1 = Math.max(0, (coarseRect.x - 1) * scale);
+		int y1 = Math.max(0, (coarseRect.y - 1) * scale);
+		int x2 = Math.min(width, (coarseRect.x + coarseRect.width + 1) * scale);
+		int y2 = Math.min(height, (coarseRect.y + coarseRect.height + 1) * scale);
+
+		// Extract the runs of the full raster within a band around each line of the coarse grid
+		RunProfiles runProfiles = new RunProfiles(new int[height], new int[height], new int[width], new int[width]);
+		Arrays.fill(runProfiles.rowRunEnds, -1);
+		Arrays.fill(runProfiles.columnRunEnds, -1);
+		for (Line line : coarseLines.horizontal)
+		{
+			extractRowRuns(raster, darkLimit, runProfiles.rowRunStarts, runProfiles.rowRunEnds, 0,
+						   Math.max(y1, (line.y1 - 1) * scale), Math.min(y2, (line.y2 + 2) * scale), x1, x2);
+		}
+		for (Line line : coarseLines.vertical)
+		{
+			extractColumnRuns(raster, darkLimit, runProfiles.columnRunStarts, runProfiles.columnRunEnds, 0,
+							  Math.max(x1, (line.x1 - 1) * scale), Math.min(x2, (line.x2 + 2) * scale), y1, y2);
+		}
+		throwIfInterrupted();
+
+		// Find the grid in the refined runs
+		try
+		{
+			return findGrid(findCandidateLines(runProfiles, minLineLength, endpointTolerance), minLineSeparation,
+							endpointTolerance);
+		}
+		catch (AppException e)
+		{
+			return findGridProjection(raster, brightnessThreshold, minLineLength, minLineSeparation,
+									  endpointTolerance);
+		}
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Throws a {@link TaskCancelledException} if the current thread has been interrupted.  Detection that runs on a
+	 * background thread is cancelled by interrupting the thread; the interrupted status is tested between the stages
+	 * of detection.
+	 */
+
+	private static void throwIfInterrupted()
+		throws TaskCancelledException
+	{
+		if (Thread.currentThread().isInterrupted())
+			throw new TaskCancelledException();
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Extracts the longest dark run of each row of the specified region of a raster.  The run of row <i>y</i> is
+	 * stored at index <i>y</i>&nbsp;&minus;&nbsp;{@code indexOffset} of the run profile.
+	 */
+
+	private static void extractRowRuns(
+		PixelRaster	raster,
+		int			darkLimit,
+		int[]		runStarts,
+		int[]		runEnds,
+		int			indexOffset,
+		int			startRow,
+		int			endRow,
+		int			startColumn,
+		int			endColumn)
+	{
+		int length = endColumn - startColumn;
+		long[] mask = new long[PixelRaster.getNumMaskWords(length)];
+		for (int y = startRow; y < endRow; y++)
+		{
+			raster.getRowDarkMask(darkLimit, y, startColumn, endColumn, mask);
+			updateRowRunProfile(mask, length, startColumn, y - indexOffset, runStarts, runEnds);
+		}
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Extracts the longest dark run of each column of the specified region of a raster.  The run of column <i>x</i>
+	 * is stored at index <i>x</i>&nbsp;&minus;&nbsp;{@code indexOffset} of the run profile.
+	 */
+
+	private static void extractColumnRuns(
+		PixelRaster	raster,
+		int			darkLimit,
+		int[]		runStarts,
+		int[]		runEnds,
+		int			indexOffset,
+		int			startColumn,
+		int			endColumn,
+		int			startRow,
+		int			endRow)
+	{
+		// Scan the band of columns in row-major order, keeping the start of the current run of each column
+		int length = endColumn - startColumn;
+		int numWords = PixelRaster.getNumMaskWords(length);
+		long[] mask = new long[numWords];
+		long[] runMask = new long[numWords];
+		int[] currentRunStarts = new int[length];
+		for (int y = startRow; y < endRow; y++)
+		{
+			raster.getRowDarkMask(darkLimit, y, startColumn, endColumn, mask);
+			updateColumnRunProfiles(mask, runMask, currentRunStarts, startColumn - indexOffset, y, runStarts, runEnds);
+		}
+		endColumnRuns(runMask, currentRunStarts, startColumn - indexOffset, endRow, runStarts, runEnds);
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Updates the run profile of the specified row with the dark runs of the specified mask of the row.  The runs are
+	 * found a word at a time from the trailing zeros of the mask and its complement.
+	 */
+
+	private static void updateRowRunProfile(
+		long[]	mask,
+		int		length,
+		int		offset,
+		int		y,
+		int[]	runStarts,
+		int[]	runEnds)
+	{
+		int start = PixelRaster.nextSetBit(mask, 0, length);
+		while (start < length)
+		{
+			int end = PixelRaster.nextClearBit(mask, start, length);
+			updateRunProfile(runStarts, runEnds, y, offset + start, offset + end - 1);
+			start = PixelRaster.nextSetBit(mask, end, length);
+		}
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Updates the run profiles of a span of columns with the specified mask of the dark pixels of a row of the span.
+	 * The run mask has a bit set for each column of the span that is in a dark run at the previous row; only the bits
+	 * that differ between the two masks, where a run starts or ends, are visited.
+	 */
+
+	private static void updateColumnRunProfiles(
+		long[]	mask,
+		long[]	runMask,
+		int[]	currentRunStarts,
+		int		offset,
+		int		y,
+		int[]	runStarts,
+		int[]	runEnds)
+	{
+		for (int i = 0; i < runMask.length; i++)
+		{
+			long dark = mask[i];
+			long inRun = runMask[i];
+			if (dark != inRun)
+			{
+				// End runs of columns whose pixel is light
+				long bits = inRun & ~dark;
+				while (bits != 0)
+				{
+					int j = (i << 6) + Long.numberOfTrailingZeros(bits);
+					updateRunProfile(runStarts, runEnds, offset + j, currentRunStarts[j], y - 1);
+					bits &= bits - 1;
+				}
+
+				// Start runs of columns whose pixel is dark
+				bits = dark & ~inRun;
+				while (bits != 0)
+				{
+					currentRunStarts[(i << 6) + Long.numberOfTrailingZeros(bits)] = y;
+					bits &= bits - 1;
+				}
+				runMask[i] = dark;
+			}
+		}
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Ends the runs of a span of columns that are in a dark run at the last row of the span.
+	 */
+
+	private static void endColumnRuns(
+		long[]	runMask,
+		int[]	currentRunStarts,
+		int		offset,
+		int		endRow,
+		int[]	runStarts,
+		int[]	runEnds)
+	{
+		for (int i = 0; i < runMask.length; i++)
+		{
+			long bits = runMask[i];
+			while (bits != 0)
+			{
+				int j = (i << 6) + Long.numberOfTrailingZeros(bits);
+				updateRunProfile(runStarts, runEnds, offset + j, currentRunStarts[j], endRow - 1);
+				bits &= bits - 1;
+			}
+		}
+	}
+
+	//------------------------------------------------------------------
+
+	private static void updateRunProfile(
+		int[]	runStarts,
+		int[]	runEnds,
+		int		index,
+		int		start,
+		int		end)
+	{
+		if ((runEnds[index] < 0) || (end - start > runEnds[index] - runStarts[index]))
+		{
+			runStarts[index] = start;
+			runEnds[index] = end;
+		}
+	}
+
+	//------------------------------------------------------------------
+
+	private static List<Line> clusterRuns(
+		Line.Orientation	orientation,
+		int[]				runStarts,
+		int[]				runEnds,
+		int					minLineLength,
+		int					endpointTolerance)
+	{
+		boolean horizontal = (orientation == Line.Orientation.HORIZONTAL);
+		List<Line> lines = new ArrayList<>();
+		Line line = null;
+		for (int i = 0; i < runEnds.length; i++)
+		{
+			int start = runStarts[i];
+			int end = runEnds[i];
+			if ((end < 0) || (end - start + 1 < minLineLength))
+				line = null;
+			else
+			{
+				// Extend the current line if the run is adjacent to it and its endpoints coincide with those of the
+				// line; otherwise, start a new line
+				if ((line != null)
+						&& (Math.abs(start - (horizontal ? line.x1 : line.y1)) <= endpointTolerance)
+						&& (Math.abs(end - (horizontal ? line.x2 : line.y2)) <= endpointTolerance))
+				{
+					if (horizontal)
+						line.y2 = i;
+					else
+						line.x2 = i;
+				}
+				else
+				{
+					line = horizontal ? new Line(orientation, start, i) : new Line(orientation, i, start);
+					if (horizontal)
+						line.x2 = end;
+					else
+						line.y2 = end;
+					lines.add(line);
+				}
+			}
+		}
+		return lines;
+	}
+
+	//------------------------------------------------------------------
+
+	private static List<List<Line>> groupLines(
+		List<Line>	lines,
+		int			minLineSeparation,
+		int			endpointTolerance)
+	{
+		List<List<Line>> groups = new ArrayList<>();
+		for (Line datum : lines)
+		{
+			// Get the bounds of the endpoints of the lines of this group
+			boolean horizontal = (datum.orientation == Line.Orientation.HORIZONTAL);
+			int datumStart = horizontal ? datum.x1 : datum.y1;
+			int datumEnd = horizontal ? datum.x2 : datum.y2;
+
+			// Get the lines whose endpoints are within bounds and are sufficiently separated from their nearest
+			// neighbour.  Adjacent lines are combined into a single line.
+			List<Line> group = new ArrayList<>();
+			Line combinedLine = null;
+			for (Line line : lines)
+			{
+				int start = horizontal ? line.x1 : line.y1;
+				int end = horizontal ? line.x2 : line.y2;
+				if ((Math.abs(start - datumStart) <= endpointTolerance) && (Math.abs(end - datumEnd) <= endpointTolerance))
+				{
+					int lineLow = horizontal ? line.y1 : line.x1;
+					int combinedHigh = (combinedLine == null) ? 0 : horizontal ? combinedLine.y2 : combinedLine.x2;
+					if ((combinedLine == null) || (lineLow > combinedHigh + 1))
+					{
+						if ((combinedLine != null) && (lineLow <= combinedHigh + minLineSeparation))
+							break;
+						combinedLine = line.clone();
+						group.add(combinedLine);
+					}
+					else if (horizontal)
+						combinedLine.y2 = line.y2;
+					else
+						combinedLine.x2 = line.x2;
+				}
+			}
+
+			// Add the group if it has enough lines and is not a duplicate of an earlier group
+			if ((group.size() >= MIN_NUM_LINES_PER_DIMENSION) && !containsGroup(groups, group))
+				groups.add(group);
+		}
+		return groups;
+	}
+
+	//------------------------------------------------------------------
+
+	private static boolean containsGroup(
+		List<List<Line>>	groups,
+		List<Line>			group)
+	{
+		for (List<Line> g : groups)
+		{
+			if (g.size() == group.size())
+			{
+				boolean equal = true;
+				for (int i = 0; i < g.size(); i++)
+				{
+					Line line1 = g.get(i);
+					Line line2 = group.get(i);
+					if ((line1.x1 != line2.x1) || (line1.y1 != line2.y1) || (line1.x2 != line2.x2)
+							|| (line1.y2 != line2.y2))
+					{
+						equal = false;
+						break;
+					}
+				}
+				if (equal)
+					return true;
+			}
+		}
+		return false;
+	}
+
+	//------------------------------------------------------------------
+
+	private static Info findGridLineSubset(
+		PixelRaster		raster,
+		double			brightnessThreshold,
+		int				minLineLength,
+		int				minLineSeparation,
+		int				endpointTolerance)
+		throws AppException
+	{
+		// Find the set of horizontal lines that satisfy the brightness and length constraints
+		int darkLimit = PixelRaster.getDarkLimit(brightnessThreshold);
+		List<Line> linesH = new ArrayList<>();
+		for (int y = 0; y < raster.getHeight(); y++)
+		{
+			Line line = null;
+			for (int x = 0; x < raster.getWidth(); x++)
+			{
+				if (raster.getLevel(x, y) < darkLimit)
+				{
+					if (line == null)
+						line = new Line(Line.Orientation.HORIZONTAL, x, y);
+					line.x2 = x;
+				}
+				else if (line != null)
+				{
+					if (line.getLength() >= minLineLength)
+						linesH.add(line);
+					line = null;
+				}
+			}
+			if ((line != null) && (line.getLength() >= minLineLength))
+				linesH.add(line);
+		}
+		if (linesH.size() < MIN_NUM_LINES_PER_DIMENSION)
+			throw new AppException(ErrorId.TOO_FEW_LINES, Line.Orientation.HORIZONTAL.toString());
+
+		// Find the set of vertical lines that satisfy the brightness and length constraints
+		throwIfInterrupted();
+		List<Line> linesV = new ArrayList<>();
+		for (int x = 0; x < raster.getWidth(); x++)
+		{
+			Line line = null;
+			for (int y = 0; y < raster.getHeight(); y++)
+			{
+				if (raster.getLevel(x, y) < darkLimit)
+				{
+					if (line == null)
+						line = new Line(Line.Orientation.VERTICAL, x, y);
+					line.y2 = y;
+				}
+				else if (line != null)
+				{
+					if (line.getLength() >= minLineLength)
+						linesV.add(line);
+					line = null;
+				}
+			}
+			if ((line != null) && (line.getLength() >= minLineLength))
+				linesV.add(line);
+		}
+		if (linesV.size() < MIN_NUM_LINES_PER_DIMENSION)
+			throw new AppException(ErrorId.TOO_FEW_LINES, Line.Orientation.VERTICAL.toString());
+
+		// Find the largest subset of horizontal and vertical lines within coincident bounding rectangles
+		List<Line> maxCombinedLinesH = new ArrayList<>();
+		List<Line> maxCombinedLinesV = new ArrayList<>();
+		long maxArea = 0;
+		for (int ih = 0; ih < linesH.size(); ih++)
+		{
+			// Test for cancellation
+			throwIfInterrupted();
+
+			// Get the datum horizontal line
+			Line line = linesH.get(ih);
+
+			// Get the bounds of the x coordinates of the horizontal lines of this subset
+			int minX1 = line.x1 - endpointTolerance;
+			int maxX1 = line.x1 + endpointTolerance;
+			int minX2 = line.x2 - endpointTolerance;
+			int maxX2 = line.x2 + endpointTolerance;
+
+			// Get the subset of horizontal lines whose x coordinates are within bounds and are sufficiently separated
+			// from their nearest neighbour.  Sequences of adjacent lines are combined into a single line.
+			List<Line> combinedLinesH = new ArrayList<>();
+			Line combinedLine = null;
+			for (int i = 0; i < linesH.size(); i++)
+			{
+				line = linesH.get(i);
+				if ((line.x1 >= minX1) && (line.x1 <= maxX1) && (line.x2 >= minX2) && (line.x2 <= maxX2))
+				{
+					if ((combinedLine == null) || (line.y1 > combinedLine.y2 + 1))
+					{
+						if ((combinedLine != null) && (line.y1 <= combinedLine.y2 + minLineSeparation))
+							break;
+						combinedLine = line.clone();
+						combinedLinesH.add(combinedLine);
+					}
+					else
+						++combinedLine.y2;
+				}
+			}
+
+			// If there are too few combined horizontal lines, try the next subset
+			if (combinedLinesH.size() < MIN_NUM_LINES_PER_DIMENSION)
+				continue;
+
+			// Get the coordinates of the bounding rectangle of the combined horizontal lines
+			Bounds hBounds = getBoundsH(combinedLinesH);
+
+			// Get the coordinates of the relaxed bounding rectangle of the combined horizontal lines
+			int hx1 = hBounds.x1 - endpointTolerance;
+			int hy1 = hBounds.y1 - endpointTolerance;
+			int hx2 = hBounds.x2 + endpointTolerance;
+			int hy2 = hBounds.y2 + endpointTolerance;
+
+			// Get the largest subset of vertical lines that lie within the relaxed bounding rectangle of the subset of
+			// horizontal lines and satisfy separation and endpoint tolerance
+			for (int iv = 0; iv < linesV.size(); iv++)
+			{
+				// Get the datum vertical line
+				line = linesV.get(iv);
+
+				// Test whether the datum lies within the relaxed bounding rectangle of the horizontal lines
+				if ((line.x1 < hx1) || (line.y1 < hy1) || (line.x2 > hx2) || (line.y2 > hy2))
+					continue;
+
+				// Get the bounds of the y coordinates of the vertical lines of this subset
+				int minY1 = line.y1 - endpointTolerance;
+				int maxY1 = line.y1 + endpointTolerance;
+				int minY2 = line.y2 - endpointTolerance;
+				int maxY2 = line.y2 + endpointTolerance;
+
+				// Get the subset of vertical lines whose y coordinates are within bounds and are sufficiently separated
+				// from their nearest neighbour.  Sequences of adjacent lines are combined into a single line.
+				List<Line> combinedLinesV = new ArrayList<>();
+				combinedLine = null;
+				for (int i = 0; i < linesV.size(); i++)
+				{
+					line = linesV.get(i);
+					if ((line.y1 >= minY1) && (line.y1 <= maxY1) && (line.y2 >= minY2) && (line.y2 <= maxY2))
+					{
+						if ((combinedLine == null) || (line.x1 > combinedLine.x2 + 1))
+						{
+							if ((combinedLine != null) && (line.x1 <= combinedLine.x2 + minLineSeparation))
+								break;
+							combinedLine = line.clone();
+							combinedLinesV.add(combinedLine);
+						}
+						else
+							++combinedLine.x2;
+					}
+				}
+
+				// If there are too few combined vertical lines, try the next subset
+				if (combinedLinesV.size() < MIN_NUM_LINES_PER_DIMENSION)
+					continue;
+
+				// Get the coordinates of the bounding rectangle of the combined vertical lines
+				Bounds vBounds = getBoundsV(combinedLinesV);
+
+				// Get the relaxed y coordinates of the combined vertical lines
+				int vy1 = vBounds.y1 - endpointTolerance;
+				int vy2 = vBounds.y2 + endpointTolerance;
+
+				// Remove horizontal lines that lie outside the relaxed y coordinates of the combined vertical lines
+				for (int i = 0; i < combinedLinesH.size(); i++)
+				{
+					combinedLine = combinedLinesH.get(i);
+					if ((combinedLine.y1 < vy1) || (combinedLine.y2 > vy2))
+						combinedLinesH.remove(i--);
+				}
+
+				// If there are now too few combined horizontal lines, try the next subset
+				if (combinedLinesH.size() < MIN_NUM_LINES_PER_DIMENSION)
+					continue;
+
+				// Calculate the area of the combined bounding rectangle
+				Rectangle rect = getCombinedBounds(getBoundsH(combinedLinesH), vBounds);
+				long area = rect.width * rect.height;
+
+				// If the area is greater than the current maximum, update the current largest subsets of horizontal and
+				// vertical lines
+				if (maxArea < area)
+				{
+					maxArea = area;
+					maxCombinedLinesH = combinedLinesH;
+					maxCombinedLinesV = combinedLinesV;
+				}
+			}
+		}
+
+		// Test for sufficient horizontal and vertical lines
+		if ((maxCombinedLinesH.size() < MIN_NUM_LINES_PER_DIMENSION)
+				|| (maxCombinedLinesV.size() < MIN_NUM_LINES_PER_DIMENSION))
+			throw new AppException(ErrorId.TOO_FEW_COINCIDENT_HORIZONTAL_AND_VERTICAL_LINES);
+
+		// Get the combined bounding rectangle
+		Rectangle rect = getCombinedBounds(getBoundsH(maxCombinedLinesH), getBoundsV(maxCombinedLinesV));
+
+		// Return grid information
+		return new Info(rect.x, rect.y, rect.width, rect.height, maxCombinedLinesV.size() - 1,
+						maxCombinedLinesH.size() - 1, getLinePositions(maxCombinedLinesV),
+						getLinePositions(maxCombinedLinesH));
+	}
+
+	//------------------------------------------------------------------
+
+	private static Bounds getBoundsH(
+		List<Line>	lines)
+	{
+		// Get x coordinates
+		int x1 = Integer.MAX_VALUE;
+		int x2 = Integer.MIN_VALUE;
+		for (Line line : lines)
+		{
+			if (x1 > line.x1)
+				x1 = line.x1;
+			if (x2 < line.x2)
+				x2 = line.x2;
+		}
+
+		// Get y coordinates
+		int y1 = 0;
 		int y2 = 0;
 		if (!lines.isEmpty())
 		{
@@ -683,11 +1579,48 @@ abstract class Grid
 
 	//------------------------------------------------------------------
 
-	protected abstract boolean isSymmetry(
+	/**
+	 * Returns the number of cells of this grid whose separators do not match those of their image under the specified
+	 * symmetry, which is one of {@link #TRACKED_SYMMETRIES}.  The cells are counted by scanning the whole grid.
+	 */
+
+	protected abstract int countAsymmetricCells(
 		Symmetry	symmetry);
 
 	//------------------------------------------------------------------
 
+	/**
+	 * Returns {@code true} if the separators of the specified cell do not match those of the specified cell that is
+	 * its image under the specified symmetry, which is one of {@link #TRACKED_SYMMETRIES}.
+	 *
+	 * @param index
+	 *          the row-major index of the cell.
+	 * @param imageIndex
+	 *          the row-major index of the image of the cell under {@code symmetry}.
+	 * @param symmetry
+	 *          the symmetry.
+	 */
+
+	protected abstract boolean isAsymmetricCell(
+		int			index,
+		int			imageIndex,
+		Symmetry	symmetry);
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Returns {@code true} if a field of the specified direction cannot extend from the preceding cell (the cell to
+	 * the left for {@link Direction#ACROSS ACROSS}, the cell above for {@link Direction#DOWN DOWN}) into the specified
+	 * cell.  The first cell of a row or column is always separated from its (nonexistent) preceding cell.
+	 */
+
+	protected abstract boolean isSeparatedFromPreceding(
+		int			row,
+		int			column,
+		Direction	direction);
+
+	//------------------------------------------------------------------
+
 ////////////////////////////////////////////////////////////////////////
 //  Instance methods
 ////////////////////////////////////////////////////////////////////////
@@ -724,15 +1657,52 @@ abstract class Grid
 	public Field getField(
 		Field.Id	fieldId)
 	{
-		if (fieldLists.containsKey(fieldId.direction))
-		{
-			for (Field field : fieldLists.get(fieldId.direction))
-			{
-				if (field.getId().equals(fieldId))
-					return field;
-			}
-		}
-		return null;
+		return getField(fieldId.number, fieldId.direction);
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Returns the field that has the specified number and direction.
+	 *
+	 * @param  number
+	 *           the number of the field.
+	 * @param  direction
+	 *           the direction of the field.
+	 * @return the field that has {@code number} and {@code direction}, or {@code null} if there is no such field or
+	 *         {@code direction} is {@link Direction#NONE NONE}.
+	 */
+
+	public Field getField(
+		int			number,
+		Direction	direction)
+	{
+		Field[] fields = numberedFields.get(direction);
+		return ((fields == null) || (number < 0) || (number >= fields.length)) ? null : fields[number];
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Returns the field of the specified direction that contains the specified cell.
+	 *
+	 * @param  row
+	 *           the row index of the cell.
+	 * @param  column
+	 *           the column index of the cell.
+	 * @param  direction
+	 *           the direction of the field, which must be {@link Direction#ACROSS ACROSS} or {@link Direction#DOWN
+	 *           DOWN}.
+	 * @return the field of {@code direction} that contains the cell at ({@code row}, {@code column}), or {@code null}
+	 *         if there is no such field.
+	 */
+
+	public Field getField(
+		int			row,
+		int			column,
+		Direction	direction)
+	{
+		return cellFields.get(direction)[row * numColumns + column];
 	}
 
 	//------------------------------------------------------------------
@@ -774,7 +1744,7 @@ abstract class Grid
 		int	row,
 		int	column)
 	{
-		char ch = entries.values[row][column];
+		char ch = entries.getValue(row, column);
 		return (ch != Entries.NO_VALUE) && (ch != Entries.UNDEFINED_VALUE);
 	}
 
@@ -784,14 +1754,21 @@ abstract class Grid
 		int	row,
 		int	column)
 	{
-		return entries.values[row][column];
+		return entries.getValue(row, column);
 	}
 
 	//------------------------------------------------------------------
 
+	/**
+	 * Returns a snapshot of the entries of this grid, which shares their values until either of them is modified.
+	 *
+	 * @return a snapshot of the entries of this grid.
+	 * @see    Entries#createSnapshot()
+	 */
+
 	public Entries getEntries()
 	{
-		return entries.clone();
+		return entries.createSnapshot();
 	}
 
 	//------------------------------------------------------------------
@@ -802,7 +1779,8 @@ abstract class Grid
 		char	value)
 	{
 		entries.setValue(row, column, value);
-		incorrectEntries = null;
+		updateIncorrectEntry(row, column);
+		incorrectEntriesChecked = false;
 	}
 
 	//------------------------------------------------------------------
@@ -811,7 +1789,8 @@ abstract class Grid
 		Entries	entries)
 	{
 		this.entries = entries.clone();
-		incorrectEntries = null;
+		initIncorrectEntries();
+		incorrectEntriesChecked = false;
 	}
 
 	//------------------------------------------------------------------
@@ -831,9 +1810,10 @@ abstract class Grid
 		this.entries.clear();
 		for (int i = 0; i < fields.size(); i++)
 			setEntry(fields.get(i), entries.get(i), true);
+		initIncorrectEntries();
 
 		// Invalidate "incorrect entry" flags
-		incorrectEntries = null;
+		incorrectEntriesChecked = false;
 	}
 
 	//------------------------------------------------------------------
@@ -854,7 +1834,7 @@ abstract class Grid
 
 	public boolean isIncorrectEntries()
 	{
-		return (incorrectEntries != null);
+		return incorrectEntriesChecked;
 	}
 
 	//------------------------------------------------------------------
@@ -863,7 +1843,20 @@ abstract class Grid
 		int	row,
 		int	column)
 	{
-		return incorrectEntries[row][column];
+		return incorrectEntries.get(row * numColumns + column);
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Returns the row-major index of the first cell at or after the specified index whose entry value differs from
+	 * the value of the solution, or -1 if there is no such cell.
+	 */
+
+	public int getNextIncorrectEntryIndex(
+		int	index)
+	{
+		return incorrectEntries.nextSetBit(index);
 	}
 
 	//------------------------------------------------------------------
@@ -875,9 +1868,16 @@ abstract class Grid
 
 	//------------------------------------------------------------------
 
+	/**
+	 * Returns a snapshot of the solution of this grid, which shares its values until either of them is modified.
+	 *
+	 * @return a snapshot of the solution of this grid, or {@code null} if the grid has no solution.
+	 * @see    Entries#createSnapshot()
+	 */
+
 	public Entries getSolution()
 	{
-		return (solution == null) ? null : solution.clone();
+		return (solution == null) ? null : solution.createSnapshot();
 	}
 
 	//------------------------------------------------------------------
@@ -903,12 +1903,12 @@ abstract class Grid
 
 						case ACROSS:
 							for (int i = 0; i < field.length; i++)
-								buffer.append(solution.values[field.row][field.column + i]);
+								buffer.append(solution.getValue(field.row, field.column + i));
 							break;
 
 						case DOWN:
 							for (int i = 0; i < field.length; i++)
-								buffer.append(solution.values[field.row + i][field.column]);
+								buffer.append(solution.getValue(field.row + i, field.column));
 							break;
 					}
 				}
@@ -922,6 +1922,7 @@ abstract class Grid
 	public void setSolution()
 	{
 		solution = entries.clone();
+		initIncorrectEntries();
 	}
 
 	//------------------------------------------------------------------
@@ -930,6 +1931,7 @@ abstract class Grid
 		Entries	solution)
 	{
 		this.solution = (solution == null) ? null : solution.clone();
+		initIncorrectEntries();
 	}
 
 	//------------------------------------------------------------------
@@ -946,7 +1948,7 @@ abstract class Grid
 			throw new AppException(ErrorId.INCORRECT_NUMBER_OF_ANSWERS);
 
 		// Set solution
-		solution = new Entries(numColumns, numRows);
+		Entries solution = new Entries(numColumns, numRows);
 		for (int i = 0; i < fields.size(); i++)
 		{
 			// Compare length of answer with length of field
@@ -971,7 +1973,7 @@ abstract class Grid
 
 					case ACROSS:
 					{
-						char ch1 = solution.values[field.row][field.column + j];
+						char ch1 = solution.getValue(field.row, field.column + j);
 						if ((ch1 != Entries.NO_VALUE) && (ch1 != ch0))
 							throw new AppException(ErrorId.CONFLICTING_ANSWER, idStr, Integer.toString(j));
 						solution.setValue(field.row, field.column + j, ch0);
@@ -980,7 +1982,7 @@ abstract class Grid
 
 					case DOWN:
 					{
-						char ch1 = solution.values[field.row + j][field.column];
+						char ch1 = solution.getValue(field.row + j, field.column);
 						if ((ch1 != Entries.NO_VALUE) && (ch1 != ch0))
 							throw new AppException(ErrorId.CONFLICTING_ANSWER, idStr, Integer.toString(j));
 						solution.setValue(field.row + j, field.column, ch0);
@@ -989,6 +1991,8 @@ abstract class Grid
 				}
 			}
 		}
+		this.solution = solution;
+		initIncorrectEntries();
 	}
 
 	//------------------------------------------------------------------
@@ -996,6 +2000,7 @@ abstract class Grid
 	public void clearSolution()
 	{
 		solution = null;
+		incorrectEntries.clear();
 	}
 
 	//------------------------------------------------------------------
@@ -1022,8 +2027,17 @@ abstract class Grid
 		int			column,
 		Direction	direction)
 	{
-		return findFields(field ->
-				((direction == Direction.NONE) || (direction == field.direction)) && field.containsCell(row, column));
+		List<Field> fields = new ArrayList<>();
+		for (Direction fieldDirection : Direction.DEFINED_DIRECTIONS)
+		{
+			if ((direction == Direction.NONE) || (direction == fieldDirection))
+			{
+				Field field = getField(row, column, fieldDirection);
+				if (field != null)
+					fields.add(field);
+			}
+		}
+		return fields;
 	}
 
 	//------------------------------------------------------------------
@@ -1031,8 +2045,17 @@ abstract class Grid
 	public List<Field> findFields(
 		Field.Id	id)
 	{
-		return findFields(field ->
-				((id.direction == Direction.NONE) || (id.direction == field.direction)) && (id.number == field.number));
+		List<Field> fields = new ArrayList<>();
+		for (Direction direction : Direction.DEFINED_DIRECTIONS)
+		{
+			if ((id.direction == Direction.NONE) || (id.direction == direction))
+			{
+				Field field = getField(id.number, direction);
+				if (field != null)
+					fields.add(field);
+			}
+		}
+		return fields;
 	}
 
 	//------------------------------------------------------------------
@@ -1045,24 +2068,14 @@ abstract class Grid
 			Direction crossDirection = (direction == Direction.ACROSS) ? Direction.DOWN : Direction.ACROSS;
 			if (fieldLists.containsKey(direction) && fieldLists.containsKey(crossDirection))
 			{
-				List<Field> fields = fieldLists.get(direction);
-				List<Field> crossFields = fieldLists.get(crossDirection);
-				for (Field field : fields)
+				for (Field field : fieldLists.get(direction))
 				{
 					boolean intersects = false;
 					int row = field.row;
 					int column = field.column;
 					for (int i = 0; i < field.length; i++)
 					{
-						intersects = false;
-						for (Field crossField : crossFields)
-						{
-							if (crossField.containsCell(row, column))
-							{
-								intersects = true;
-								break;
-							}
-						}
+						intersects = (getField(row, column, crossDirection) != null);
 						if (!intersects)
 							break;
 						switch (direction)
@@ -1090,10 +2103,95 @@ abstract class Grid
 
 	//------------------------------------------------------------------
 
+	/**
+	 * Marks the cells whose entry values differ from the values of the solution as incorrect until the entries are
+	 * next changed.  The incorrect cells are maintained as the entries change, so they are not found again.
+	 */
+
 	public void checkEntries()
 	{
 		if (solution != null)
-			incorrectEntries = solution.compare(entries);
+			incorrectEntriesChecked = true;
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Recognises the text in the cells of the specified raster of the image of this grid with a {@link GlyphMatcher}.
+	 * The recognised entry values are set in the entries of this grid, and the recognised field numbers are compared
+	 * with the numbers of the fields of this grid.
+	 *
+	 * @param  raster
+	 *           the raster of the image of this grid.
+	 * @return the result of the recognition.
+	 */
+
+	public TextCapture captureText(
+		PixelRaster	raster)
+	{
+		// Get the cells that may contain text
+		boolean[][] lightCells = new boolean[numRows][numColumns];
+		for (int row = 0; row < numRows; row++)
+		{
+			for (int column = 0; column < numColumns; column++)
+				lightCells[row][column] = (entries.getValue(row, column) != Entries.NO_VALUE);
+		}
+
+		// Recognise text
+		int cellWidth = (int)Math.round((double)raster.getWidth() / (double)numColumns);
+		int cellHeight = (int)Math.round((double)raster.getHeight() / (double)numRows);
+		GlyphMatcher.Result result =
+				GlyphMatcher.getInstance(cellWidth, cellHeight, AppConfig.INSTANCE.getGridEntryCharacters())
+						.match(raster, numColumns, numRows, lightCells);
+
+		// Set entry values
+		int numEntryValues = 0;
+		for (int row = 0; row < numRows; row++)
+		{
+			for (int column = 0; column < numColumns; column++)
+			{
+				char value = result.entryValues()[row][column];
+				if ((value != 0) && lightCells[row][column])
+				{
+					entries.setValue(row, column, value);
+					updateIncorrectEntry(row, column);
+					++numEntryValues;
+				}
+			}
+		}
+		incorrectEntriesChecked = false;
+
+		// Compare the field numbers of the origins of fields
+		int numFieldNumbers = 0;
+		int numMissingFieldNumbers = 0;
+		List<Field> mismatchedFields = new ArrayList<>();
+		boolean[][] originCells = new boolean[numRows][numColumns];
+		for (Field field : getFields())
+		{
+			originCells[field.row][field.column] = true;
+			int number = result.fieldNumbers()[field.row][field.column];
+			if (number == field.number)
+				++numFieldNumbers;
+			else if (number == 0)
+				++numMissingFieldNumbers;
+			else
+				mismatchedFields.add(field);
+		}
+		Collections.sort(mismatchedFields);
+
+		// Find the cells that are not the origins of fields but in which a field number was recognised
+		int numSpuriousFieldNumbers = 0;
+		for (int row = 0; row < numRows; row++)
+		{
+			for (int column = 0; column < numColumns; column++)
+			{
+				if (!originCells[row][column] && (result.fieldNumbers()[row][column] != 0))
+					++numSpuriousFieldNumbers;
+			}
+		}
+
+		return new TextCapture(numEntryValues, numFieldNumbers, numMissingFieldNumbers, mismatchedFields,
+							   numSpuriousFieldNumbers);
 	}
 
 	//------------------------------------------------------------------
@@ -1140,6 +2238,7 @@ abstract class Grid
 				throw new XmlParseException(e.getId(), elementPath, e.getReplacements());
 			}
 		}
+		initIncorrectEntries();
 	}
 
 	//------------------------------------------------------------------
@@ -1379,122 +2478,640 @@ abstract class Grid
 
 	//------------------------------------------------------------------
 
-	public void writeSolution(
-		XmlWriter	writer,
-		int			indent,
-		String		passphrase)
-		throws IOException
+	public void writeSolution(
+		XmlWriter	writer,
+		int			indent,
+		String		passphrase)
+		throws IOException
+	{
+		// Encode and encrypt solution
+		EncodedSolution encodedSolution = getEncodedSolution(passphrase);
+
+		// Write start tag, solution
+		AttributeList attributes = new AttributeList();
+		EncryptionKind encryptionKind = passphrase.isEmpty() ? EncryptionKind.NONE : EncryptionKind.SALSA20;
+		attributes.add(AttrName.ENCRYPTION, encryptionKind.key);
+		attributes.add(AttrName.NONCE,      NumberUtils.bytesToHexString(encodedSolution.nonce));
+		attributes.add(AttrName.HASH,       NumberUtils.bytesToHexString(encodedSolution.hashValue));
+		writer.writeElementStart(ElementName.SOLUTION, attributes, indent, true, true);
+
+		// Write solution, encoded as Base64
+		indent += INDENT_INCREMENT;
+		for (String line : new Base64Encoder(SOLUTION_LINE_LENGTH).encodeLines(encodedSolution.data))
+		{
+			writer.writeSpaces(indent);
+			writer.write(line);
+			writer.writeEol();
+		}
+		indent -= INDENT_INCREMENT;
+
+		// Write end tag, solution
+		writer.writeElementEnd(ElementName.SOLUTION, indent);
+	}
+
+	//------------------------------------------------------------------
+
+	public void writeSolution(
+		XmlWriter	writer,
+		int			indent,
+		URL			location,
+		byte[]		hashValue)
+		throws IOException
+	{
+		AttributeList attributes = new AttributeList();
+		attributes.add(AttrName.LOCATION, location, true);
+		attributes.add(AttrName.HASH,     NumberUtils.bytesToHexString(hashValue));
+		writer.writeEmptyElement(ElementName.SOLUTION, attributes, indent, true);
+	}
+
+	//------------------------------------------------------------------
+
+	public void writeHtml(
+		XmlWriter	writer,
+		int			indent,
+		int			cellSize,
+		boolean		writeFieldNumbers,
+		boolean		writeEntries)
+		throws IOException
+	{
+		// Write start tag, table division
+		AttributeList attributes = new AttributeList();
+		attributes.add(HtmlConstants.AttrName.ID, HtmlConstants.Id.GRID);
+		writer.writeElementStart(HtmlConstants.ElementName.DIV, attributes, indent, true, false);
+
+		// Write grid
+		indent += INDENT_INCREMENT;
+		for (int row = 0; row < numRows; row++)
+		{
+			writer.writeElementStart(HtmlConstants.ElementName.DIV, indent, true);
+
+			indent += INDENT_INCREMENT;
+			for (int column = 0; column < numColumns; column++)
+			{
+				Cell cell = getCell(row, column);
+				cell.write(writer, indent, cellSize, writeFieldNumbers ? cell.getFieldNumber() : 0,
+						   writeEntries ? getEntryValue(row, column) : Entries.UNDEFINED_VALUE);
+			}
+			indent -= INDENT_INCREMENT;
+
+			writer.writeElementEnd(HtmlConstants.ElementName.DIV, indent);
+		}
+
+		// Write end tag, table division
+		indent -= INDENT_INCREMENT;
+		writer.writeElementEnd(HtmlConstants.ElementName.DIV, indent);
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Returns the symmetry that the separators of this grid currently have, which may differ from the {@linkplain
+	 * #getSymmetry() symmetry} that is enforced when the separators are edited.  If the separators have more than one
+	 * symmetry, the one with the fewest principal cells is returned.  The separators are not scanned: the symmetry is
+	 * found from the numbers of asymmetric cells, which are maintained as the cells of the grid change.
+	 *
+	 * @return the symmetry that the separators of this grid currently have, or {@link Symmetry#NONE} if they have no
+	 *         symmetry.
+	 */
+
+	public Symmetry getSeparatorSymmetry()
+	{
+		for (Symmetry symmetry : TEST_SYMMETRIES)
+		{
+			if (isSymmetry(symmetry))
+				return symmetry;
+		}
+		return Symmetry.NONE;
+	}
+
+	//------------------------------------------------------------------
+
+	protected void updateSymmetry()
+	{
+		Symmetry symmetry = getSeparatorSymmetry();
+		if (symmetry != Symmetry.NONE)
+			this.symmetry = symmetry;
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Returns {@code true} if the separators of this grid have the specified symmetry.  The test does not scan the
+	 * grid: it uses the numbers of asymmetric cells, which are maintained as the cells of the grid change.
+	 */
+
+	protected boolean isSymmetry(
+		Symmetry	symmetry)
+	{
+		if (!symmetry.supportsDimensions(numColumns, numRows))
+			return false;
+
+		return switch (symmetry)
+		{
+			case NONE -> true;
+			case REFLECTION_VERTICAL_HORIZONTAL_AXES ->
+					(asymmetricCellCounts[Symmetry.REFLECTION_VERTICAL_AXIS.ordinal()] == 0)
+						&& (asymmetricCellCounts[Symmetry.REFLECTION_HORIZONTAL_AXIS.ordinal()] == 0);
+			default -> (asymmetricCellCounts[symmetry.ordinal()] == 0);
+		};
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Returns the number of cells of this grid whose separators differ from those of their images under the specified
+	 * symmetry, which is one of {@link #TRACKED_SYMMETRIES}.  The number is maintained as the cells of the grid
+	 * change; it is zero if the dimensions of the grid do not support the symmetry.
+	 */
+
+	int getNumAsymmetricCells(
+		Symmetry	symmetry)
+	{
+		return asymmetricCellCounts[symmetry.ordinal()];
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Counts the asymmetric cells of this grid for each of {@link #TRACKED_SYMMETRIES} by scanning the whole grid.
+	 * This method should be called after the separators of the grid have been set without updating the counts.
+	 */
+
+	protected void initAsymmetricCellCounts()
+	{
+		Arrays.fill(asymmetricCellCounts, 0);
+		for (Symmetry symmetry : TRACKED_SYMMETRIES)
+		{
+			if (symmetry.supportsDimensions(numColumns, numRows))
+				asymmetricCellCounts[symmetry.ordinal()] = countAsymmetricCells(symmetry);
+		}
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Sets the numbers of asymmetric cells of this grid to those of the specified grid, whose cells must have the same
+	 * separators as the cells of this grid.
+	 */
+
+	protected void copyAsymmetricCellCounts(
+		Grid	grid)
+	{
+		System.arraycopy(grid.asymmetricCellCounts, 0, asymmetricCellCounts, 0, asymmetricCellCounts.length);
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Adds the specified increment to the numbers of asymmetric cells of this grid for each asymmetric cell whose
+	 * symmetry depends on the specified cell.  For each symmetry, those cells are the specified cell and its preimage
+	 * under the symmetry, so the update takes constant time.
+	 * <p>
+	 * To change the separators of a cell, this method should be called with an increment of &minus;1 before the
+	 * change and with an increment of +1 after it.
+	 * </p>
+	 *
+	 * @param index
+	 *          the row-major index of the cell.
+	 * @param increment
+	 *          the increment that will be added to the number for each asymmetric cell.
+	 */
+
+	protected void updateAsymmetricCellCounts(
+		int	index,
+		int	increment)
+	{
+		int row = index / numColumns;
+		int column = index % numColumns;
+		for (Symmetry symmetry : TRACKED_SYMMETRIES)
+		{
+			if (symmetry.supportsDimensions(numColumns, numRows))
+			{
+				// Cell
+				int count = 0;
+				if (isAsymmetricCell(index, getImageIndex(row, column, symmetry), symmetry))
+					++count;
+
+				// Preimage of cell, if it is a different cell
+				int preimageIndex = (symmetry == Symmetry.ROTATION_QUARTER)
+											? (numRows - 1 - column) * numColumns + row
+											: getImageIndex(row, column, symmetry);
+				if ((preimageIndex != index) && isAsymmetricCell(preimageIndex, index, symmetry))
+					++count;
+
+				asymmetricCellCounts[symmetry.ordinal()] += increment * count;
+			}
+		}
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Returns the row-major index of the image of the specified cell under the specified symmetry, which is one of
+	 * {@link #TRACKED_SYMMETRIES}.  A quarter-turn rotation maps the cell at (<i>r</i>, <i>c</i>) to the cell at
+	 * (<i>c</i>, <i>n</i>&nbsp;&minus;&nbsp;1&nbsp;&minus;&nbsp;<i>r</i>); the other symmetries are their own
+	 * inverses.
+	 */
+
+	protected int getImageIndex(
+		int			row,
+		int			column,
+		Symmetry	symmetry)
+	{
+		return switch (symmetry)
+		{
+			case ROTATION_HALF              -> (numRows - 1 - row) * numColumns + numColumns - 1 - column;
+			case ROTATION_QUARTER           -> column * numColumns + numRows - 1 - row;
+			case REFLECTION_VERTICAL_AXIS   -> row * numColumns + numColumns - 1 - column;
+			case REFLECTION_HORIZONTAL_AXIS -> (numRows - 1 - row) * numColumns + column;
+			default                         -> row * numColumns + column;
+		};
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Returns the row-major indices of the specified cell and of the corresponding cells of the other regions of the
+	 * symmetry of this grid.  Each cell is included once, even if it corresponds to itself.
+	 *
+	 * @param  row
+	 *           the row of the cell.
+	 * @param  column
+	 *           the column of the cell.
+	 * @return the row-major indices of the cell and the corresponding cells, starting with the cell itself.
+	 */
+
+	protected int[] getSymmetricCellIndices(
+		int	row,
+		int	column)
+	{
+		int r1 = row;
+		int c1 = column;
+		int r2 = numRows - 1 - r1;
+		int c2 = numColumns - 1 - c1;
+		int[] indices = switch (symmetry)
+		{
+			case NONE                                -> new int[] { r1 * numColumns + c1 };
+			case ROTATION_HALF                       -> new int[] { r1 * numColumns + c1, r2 * numColumns + c2 };
+			case ROTATION_QUARTER                    -> new int[] { r1 * numColumns + c1, c1 * numColumns + r2,
+																	r2 * numColumns + c2, c2 * numColumns + r1 };
+			case REFLECTION_VERTICAL_AXIS            -> new int[] { r1 * numColumns + c1, r1 * numColumns + c2 };
+			case REFLECTION_HORIZONTAL_AXIS          -> new int[] { r1 * numColumns + c1, r2 * numColumns + c1 };
+			case REFLECTION_VERTICAL_HORIZONTAL_AXES -> new int[] { r1 * numColumns + c1, r1 * numColumns + c2,
+																	r2 * numColumns + c1, r2 * numColumns + c2 };
+		};
+		return Arrays.stream(indices).distinct().toArray();
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Finds the fields of this grid and numbers them.  Each field is a run of two or more cells of a row or column
+	 * that are not {@linkplain #isSeparatedFromPreceding(int, int, Direction) separated} from each other.  All the
+	 * entries of this grid are undefined afterwards.
+	 */
+
+	protected void initFields()
+	{
+		// Clear fields and entries
+		fieldLists.clear();
+		for (Field[] fields : cellFields.values())
+			Arrays.fill(fields, null);
+		for (Field[] fields : numberedFields.values())
+			Arrays.fill(fields, null);
+		entries.init();
+
+		// Add fields in row-major order of their origins
+		for (Direction direction : Direction.DEFINED_DIRECTIONS)
+			fieldLists.put(direction, new ArrayList<>());
+		int fieldNumber = 1;
+		for (int row = 0; row < numRows; row++)
+		{
+			for (int column = 0; column < numColumns; column++)
+			{
+				boolean origin = false;
+				for (Direction direction : Direction.DEFINED_DIRECTIONS)
+				{
+					int length = getFieldLength(row, column, direction);
+					if (length > 1)
+					{
+						Field field = new Field(row, column, direction, length, fieldNumber);
+						fieldLists.get(direction).add(field);
+						numberedFields.get(direction)[fieldNumber] = field;
+						attachField(field);
+						origin = true;
+					}
+				}
+				if (origin)
+					++fieldNumber;
+			}
+		}
+		initIncorrectEntries();
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Updates the fields of this grid after the separators of the specified cells have changed.
+	 * <p>
+	 * Only the fields of the rows and columns of those cells are found again, and only the fields whose extents have
+	 * changed are replaced.  The fields whose origins precede the first replaced field keep their numbers; the
+	 * remaining fields are renumbered.  The fields and their numbers are the same as those that are found by {@link
+	 * #initFields()}, but the entries are not all made undefined: the entries of cells that are no longer in a field
+	 * are removed, the entries of cells that are newly in a field are undefined, and the entries of the other cells
+	 * are kept.
+	 * </p>
+	 *
+	 * @param cellIndices
+	 *          the row-major indices of the cells whose separators have changed.
+	 */
+
+	protected void updateFields(
+		int[]	cellIndices)
+	{
+		// Mark the rows and columns of the cells
+		boolean[] rows = new boolean[numRows];
+		boolean[] columns = new boolean[numColumns];
+		for (int index : cellIndices)
+		{
+			rows[index / numColumns] = true;
+			columns[index % numColumns] = true;
+		}
+
+		// Find the fields of the marked rows and columns that have changed
+		int numCells = numRows * numColumns;
+		List<Field> removedFields = new ArrayList<>();
+		List<Field> addedFields = new ArrayList<>();
+		for (Direction direction : Direction.DEFINED_DIRECTIONS)
+		{
+			boolean across = (direction == Direction.ACROSS);
+			boolean[] lines = across ? rows : columns;
+			int lineLength = across ? numColumns : numRows;
+			for (int line = 0; line < lines.length; line++)
+			{
+				if (lines[line])
+				{
+					for (int i = 0; i < lineLength; i++)
+					{
+						int r = across ? line : i;
+						int c = across ? i : line;
+						Field oldField = getField(r, c, direction);
+						if ((oldField != null) && ((oldField.row != r) || (oldField.column != c)))
+							oldField = null;
+						int length = getFieldLength(r, c, direction);
+						if ((oldField == null) ? (length > 1) : (oldField.length != length))
+						{
+							if (oldField != null)
+								removedFields.add(oldField);
+							if (length > 1)
+								addedFields.add(new Field(r, c, direction, length, 0));
+						}
+					}
+				}
+			}
+		}
+		if (removedFields.isEmpty() && addedFields.isEmpty())
+			return;
+
+		// Get the index of the first cell whose fields have changed, and the highest field number
+		int firstIndex = numCells;
+		for (Field field : removedFields)
+			firstIndex = Math.min(firstIndex, field.row * numColumns + field.column);
+		for (Field field : addedFields)
+			firstIndex = Math.min(firstIndex, field.row * numColumns + field.column);
+		int maxFieldNumber = 0;
+		for (List<Field> fields : fieldLists.values())
+		{
+			if (!fields.isEmpty())
+				maxFieldNumber = Math.max(maxFieldNumber, fields.get(fields.size() - 1).number);
+		}
+
+		// Replace the fields that have changed, and remove the entries of cells that are no longer in a field
+		for (Field field : removedFields)
+			detachField(field);
+		for (Field field : addedFields)
+			attachField(field);
+		for (Field field : removedFields)
+		{
+			int r = field.row;
+			int c = field.column;
+			for (int i = 0; i < field.length; i++)
+			{
+				if (!getCell(r, c).isInField())
+					entries.resetValue(r, c);
+				updateIncorrectEntry(r, c);
+				if (field.direction == Direction.ACROSS)
+					++c;
+				else
+					++r;
+			}
+		}
+		for (Field field : addedFields)
+		{
+			int r = field.row;
+			int c = field.column;
+			for (int i = 0; i < field.length; i++)
+			{
+				updateIncorrectEntry(r, c);
+				if (field.direction == Direction.ACROSS)
+					++c;
+				else
+					++r;
+			}
+		}
+
+		// Splice the fields that have changed into the lists of fields, which are sorted by origin
+		Comparator<Field> originComparator = Comparator.comparingInt(field -> field.row * numColumns + field.column);
+		for (Field field : removedFields)
+		{
+			List<Field> fields = fieldLists.get(field.direction);
+			fields.remove(Collections.binarySearch(fields, field, originComparator));
+		}
+		for (Field field : addedFields)
+		{
+			List<Field> fields = fieldLists.get(field.direction);
+			fields.add(-Collections.binarySearch(fields, field, originComparator) - 1, field);
+		}
+
+		// Renumber the fields from the first cell whose fields have changed
+		List<Field> acrossFields = fieldLists.get(Direction.ACROSS);
+		List<Field> downFields = fieldLists.get(Direction.DOWN);
+		int acrossIndex = getFirstFieldIndex(acrossFields, firstIndex);
+		int downIndex = getFirstFieldIndex(downFields, firstIndex);
+		int fieldNumber = 0;
+		if (acrossIndex > 0)
+			fieldNumber = acrossFields.get(acrossIndex - 1).number;
+		if (downIndex > 0)
+			fieldNumber = Math.max(fieldNumber, downFields.get(downIndex - 1).number);
+		for (Field[] fields : numberedFields.values())
+			Arrays.fill(fields, fieldNumber + 1, maxFieldNumber + 1, null);
+		while ((acrossIndex < acrossFields.size()) || (downIndex < downFields.size()))
+		{
+			Field acrossField = (acrossIndex < acrossFields.size()) ? acrossFields.get(acrossIndex) : null;
+			Field downField = (downIndex < downFields.size()) ? downFields.get(downIndex) : null;
+			int acrossOrigin = (acrossField == null) ? numCells : acrossField.row * numColumns + acrossField.column;
+			int downOrigin = (downField == null) ? numCells : downField.row * numColumns + downField.column;
+			++fieldNumber;
+			if (acrossOrigin <= downOrigin)
+			{
+				acrossField.number = fieldNumber;
+				numberedFields.get(Direction.ACROSS)[fieldNumber] = acrossField;
+				++acrossIndex;
+			}
+			if (downOrigin <= acrossOrigin)
+			{
+				downField.number = fieldNumber;
+				numberedFields.get(Direction.DOWN)[fieldNumber] = downField;
+				++downIndex;
+			}
+		}
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Sets the fields of this grid to copies of the fields of the specified grid, whose cells must have the same
+	 * separators as the cells of this grid.  The result is the same as that of {@link #initFields()}, but the fields
+	 * are not found again.
+	 *
+	 * @param grid
+	 *          the grid whose fields will be copied.
+	 */
+
+	protected void copyFields(
+		Grid	grid)
 	{
-		// Encode and encrypt solution
-		EncodedSolution encodedSolution = getEncodedSolution(passphrase);
-
-		// Write start tag, solution
-		AttributeList attributes = new AttributeList();
-		EncryptionKind encryptionKind = passphrase.isEmpty() ? EncryptionKind.NONE : EncryptionKind.SALSA20;
-		attributes.add(AttrName.ENCRYPTION, encryptionKind.key);
-		attributes.add(AttrName.NONCE,      NumberUtils.bytesToHexString(encodedSolution.nonce));
-		attributes.add(AttrName.HASH,       NumberUtils.bytesToHexString(encodedSolution.hashValue));
-		writer.writeElementStart(ElementName.SOLUTION, attributes, indent, true, true);
-
-		// Write solution, encoded as Base64
-		indent += INDENT_INCREMENT;
-		for (String line : new Base64Encoder(SOLUTION_LINE_LENGTH).encodeLines(encodedSolution.data))
+		// Copy fields
+		fieldLists.clear();
+		for (Direction direction : Direction.DEFINED_DIRECTIONS)
 		{
-			writer.writeSpaces(indent);
-			writer.write(line);
-			writer.writeEol();
+			List<Field> sourceFields = grid.fieldLists.get(direction);
+			List<Field> fields = new ArrayList<>(sourceFields.size());
+			Field[] numbered = numberedFields.get(direction);
+			Arrays.fill(numbered, null);
+			for (Field field : sourceFields)
+			{
+				Field copy = field.clone();
+				fields.add(copy);
+				numbered[copy.number] = copy;
+			}
+			fieldLists.put(direction, fields);
+
+			// Map the fields of the cells to their copies by number
+			Field[] sourceCellFields = grid.cellFields.get(direction);
+			Field[] cellFields = this.cellFields.get(direction);
+			for (int i = 0; i < cellFields.length; i++)
+			{
+				Field field = sourceCellFields[i];
+				cellFields[i] = (field == null) ? null : numbered[field.number];
+			}
 		}
-		indent -= INDENT_INCREMENT;
 
-		// Write end tag, solution
-		writer.writeElementEnd(ElementName.SOLUTION, indent);
+		// Copy the cells of the entries, whose values are undefined
+		entries = grid.entries.clone();
+		entries.clear();
+		initIncorrectEntries();
 	}
 
 	//------------------------------------------------------------------
 
-	public void writeSolution(
-		XmlWriter	writer,
-		int			indent,
-		URL			location,
-		byte[]		hashValue)
-		throws IOException
+	/**
+	 * Returns the length of the field of the specified direction whose origin is the specified cell, or zero if the
+	 * cell is not the origin of a run of cells that are not separated from each other.  A run of one cell is not a
+	 * field.
+	 */
+
+	private int getFieldLength(
+		int			row,
+		int			column,
+		Direction	direction)
 	{
-		AttributeList attributes = new AttributeList();
-		attributes.add(AttrName.LOCATION, location, true);
-		attributes.add(AttrName.HASH,     NumberUtils.bytesToHexString(hashValue));
-		writer.writeEmptyElement(ElementName.SOLUTION, attributes, indent, true);
+		if (!isSeparatedFromPreceding(row, column, direction))
+			return 0;
+
+		int length = 1;
+		if (direction == Direction.ACROSS)
+		{
+			while ((column + length < numColumns) && !isSeparatedFromPreceding(row, column + length, direction))
+				++length;
+		}
+		else
+		{
+			while ((row + length < numRows) && !isSeparatedFromPreceding(row + length, column, direction))
+				++length;
+		}
+		return length;
 	}
 
 	//------------------------------------------------------------------
 
-	public void writeHtml(
-		XmlWriter	writer,
-		int			indent,
-		int			cellSize,
-		boolean		writeFieldNumbers,
-		boolean		writeEntries)
-		throws IOException
-	{
-		// Write start tag, table division
-		AttributeList attributes = new AttributeList();
-		attributes.add(HtmlConstants.AttrName.ID, HtmlConstants.Id.GRID);
-		writer.writeElementStart(HtmlConstants.ElementName.DIV, attributes, indent, true, false);
+	/**
+	 * Returns the index of the first field in the specified list, which is in row-major order of the origins of the
+	 * fields, whose origin does not precede the specified cell.
+	 */
 
-		// Write grid
-		indent += INDENT_INCREMENT;
-		for (int row = 0; row < numRows; row++)
+	private int getFirstFieldIndex(
+		List<Field>	fields,
+		int			cellIndex)
+	{
+		int low = 0;
+		int high = fields.size();
+		while (low < high)
 		{
-			writer.writeElementStart(HtmlConstants.ElementName.DIV, indent, true);
-
-			indent += INDENT_INCREMENT;
-			for (int column = 0; column < numColumns; column++)
-			{
-				Cell cell = getCell(row, column);
-				cell.write(writer, indent, cellSize, writeFieldNumbers ? cell.getFieldNumber() : 0,
-						   writeEntries ? getEntryValue(row, column) : Entries.UNDEFINED_VALUE);
-			}
-			indent -= INDENT_INCREMENT;
-
-			writer.writeElementEnd(HtmlConstants.ElementName.DIV, indent);
+			int mid = (low + high) >>> 1;
+			Field field = fields.get(mid);
+			if (field.row * numColumns + field.column < cellIndex)
+				low = mid + 1;
+			else
+				high = mid;
 		}
-
-		// Write end tag, table division
-		indent -= INDENT_INCREMENT;
-		writer.writeElementEnd(HtmlConstants.ElementName.DIV, indent);
+		return low;
 	}
 
 	//------------------------------------------------------------------
 
-	protected void updateSymmetry()
+	/**
+	 * Records the specified field as the field of its direction that contains each of its cells, and makes the
+	 * entries of its cells undefined.
+	 */
+
+	private void attachField(
+		Field	field)
 	{
-		for (Symmetry symmetry : TEST_SYMMETRIES)
+		Field[] fields = cellFields.get(field.direction);
+		int row = field.row;
+		int column = field.column;
+		for (int i = 0; i < field.length; i++)
 		{
-			if (symmetry.supportsDimensions(numColumns, numRows) && isSymmetry(symmetry))
-			{
-				this.symmetry = symmetry;
-				break;
-			}
+			fields[row * numColumns + column] = field;
+			entries.initValue(row, column);
+			if (field.direction == Direction.ACROSS)
+				++column;
+			else
+				++row;
 		}
 	}
 
 	//------------------------------------------------------------------
 
-	protected Field addField(
-		int			row,
-		int			column,
-		Direction	direction,
-		int			length,
-		int			fieldNumber)
+	/**
+	 * Removes the specified field from the cells that it contains.
+	 */
+
+	private void detachField(
+		Field	field)
 	{
-		Field field = new Field(row, column, direction, length, fieldNumber);
-		List<Field> fields = fieldLists.get(direction);
-		if (fields == null)
+		Field[] fields = cellFields.get(field.direction);
+		int row = field.row;
+		int column = field.column;
+		for (int i = 0; i < field.length; i++)
 		{
-			fields = new ArrayList<>();
-			fieldLists.put(direction, fields);
+			fields[row * numColumns + column] = null;
+			if (field.direction == Direction.ACROSS)
+				++column;
+			else
+				++row;
 		}
-		fields.add(field);
-		return field;
 	}
 
 	//------------------------------------------------------------------
@@ -1517,7 +3134,7 @@ abstract class Grid
 					chars = new char[field.length];
 					for (int i = 0; i < chars.length; i++)
 					{
-						char ch = entries.values[field.row][field.column + i];
+						char ch = entries.getValue(field.row, field.column + i);
 						if (ch == Entries.UNDEFINED_VALUE)
 							++numUndefined;
 						chars[i] = ch;
@@ -1528,7 +3145,7 @@ abstract class Grid
 					chars = new char[field.length];
 					for (int i = 0; i < chars.length; i++)
 					{
-						char ch = entries.values[field.row + i][field.column];
+						char ch = entries.getValue(field.row + i, field.column);
 						if (ch == Entries.UNDEFINED_VALUE)
 							++numUndefined;
 						chars[i] = ch;
@@ -1571,7 +3188,7 @@ abstract class Grid
 
 					case ACROSS:
 					{
-						char ch1 = entries.values[field.row][field.column + i];
+						char ch1 = entries.getValue(field.row, field.column + i);
 						if ((ch1 != Entries.UNDEFINED_VALUE) && (ch1 != ch0))
 							throw new AppException(ErrorId.CONFLICTING_ENTRY, idStr, Integer.toString(i));
 						entries.setValue(field.row, field.column + i, ch0);
@@ -1580,7 +3197,7 @@ abstract class Grid
 
 					case DOWN:
 					{
-						char ch1 = entries.values[field.row + i][field.column];
+						char ch1 = entries.getValue(field.row + i, field.column);
 						if ((ch1 != Entries.UNDEFINED_VALUE) && (ch1 != ch0))
 							throw new AppException(ErrorId.CONFLICTING_ENTRY, idStr, Integer.toString(i));
 						entries.setValue(field.row + i, field.column, ch0);
@@ -1593,6 +3210,43 @@ abstract class Grid
 
 	//------------------------------------------------------------------
 
+	/**
+	 * Finds the cells whose entry values differ from the values of the solution by comparing all the cells of this
+	 * grid.  This method should be called after the entries or the solution have been replaced.
+	 */
+
+	private void initIncorrectEntries()
+	{
+		incorrectEntries.clear();
+		if (solution != null)
+		{
+			for (int row = 0; row < numRows; row++)
+			{
+				for (int column = 0; column < numColumns; column++)
+				{
+					if (solution.differs(row, column, entries))
+						incorrectEntries.set(row * numColumns + column);
+				}
+			}
+		}
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Updates the set of incorrect entries of this grid after the entry value of the specified cell has changed.
+	 */
+
+	private void updateIncorrectEntry(
+		int	row,
+		int	column)
+	{
+		if (solution != null)
+			incorrectEntries.set(row * numColumns + column, solution.differs(row, column, entries));
+	}
+
+	//------------------------------------------------------------------
+
 ////////////////////////////////////////////////////////////////////////
 //  Enumerated types
 ////////////////////////////////////////////////////////////////////////
@@ -1885,35 +3539,160 @@ abstract class Grid
 			}
 		},
 
-		REFLECTION_HORIZONTAL_AXIS
+		REFLECTION_HORIZONTAL_AXIS
+		(
+			"reflectHAxis",
+			"Reflection in horizontal axis"
+		)
+		{
+			@Override
+			public int[] getPrincipalDimensions(
+				int	numColumns,
+				int	numRows)
+			{
+				return new int[] { numColumns, (numRows + 1) / 2 };
+			}
+		},
+
+		REFLECTION_VERTICAL_HORIZONTAL_AXES
+		(
+			"reflectVHAxes",
+			"Reflection in V and H axes"
+		)
+		{
+			@Override
+			public int[] getPrincipalDimensions(
+				int	numColumns,
+				int	numRows)
+			{
+				return new int[] { (numColumns + 1) / 2, (numRows + 1) / 2 };
+			}
+		};
+
+	////////////////////////////////////////////////////////////////////
+	//  Instance variables
+	////////////////////////////////////////////////////////////////////
+
+		private	String	key;
+		private	String	text;
+
+	////////////////////////////////////////////////////////////////////
+	//  Constructors
+	////////////////////////////////////////////////////////////////////
+
+		private Symmetry(
+			String	key,
+			String	text)
+		{
+			this.key = key;
+			this.text = text;
+		}
+
+		//--------------------------------------------------------------
+
+	////////////////////////////////////////////////////////////////////
+	//  Class methods
+	////////////////////////////////////////////////////////////////////
+
+		public static Symmetry forKey(
+			String	key)
+		{
+			for (Symmetry value : values())
+			{
+				if (value.key.equals(key))
+					return value;
+			}
+			return null;
+		}
+
+		//--------------------------------------------------------------
+
+	////////////////////////////////////////////////////////////////////
+	//  Abstract methods
+	////////////////////////////////////////////////////////////////////
+
+		public abstract int[] getPrincipalDimensions(
+			int	numColumns,
+			int	numRows);
+
+		//--------------------------------------------------------------
+
+	////////////////////////////////////////////////////////////////////
+	//  Instance methods : IStringKeyed interface
+	////////////////////////////////////////////////////////////////////
+
+		@Override
+		public String getKey()
+		{
+			return key;
+		}
+
+		//--------------------------------------------------------------
+
+	////////////////////////////////////////////////////////////////////
+	//  Instance methods : overriding methods
+	////////////////////////////////////////////////////////////////////
+
+		@Override
+		public String toString()
+		{
+			return text;
+		}
+
+		//--------------------------------------------------------------
+
+	////////////////////////////////////////////////////////////////////
+	//  Instance methods
+	////////////////////////////////////////////////////////////////////
+
+		public boolean supportsDimensions(
+			int	numColumns,
+			int	numRows)
+		{
+			return true;
+		}
+
+		//--------------------------------------------------------------
+
+	}
+
+	//==================================================================
+
+
+	// ENUMERATION: GRID-DETECTION METHOD
+
+
+	enum DetectionMethod
+		implements IStringKeyed
+	{
+
+	////////////////////////////////////////////////////////////////////
+	//  Constants
+	////////////////////////////////////////////////////////////////////
+
+		PROJECTION
+		(
+			"projection",
+			"Run projection"
+		),
+
+		PYRAMID
+		(
+			"pyramid",
+			"Coarse-to-fine run projection"
+		),
+
+		LINE_SUBSET
 		(
-			"reflectHAxis",
-			"Reflection in horizontal axis"
-		)
-		{
-			@Override
-			public int[] getPrincipalDimensions(
-				int	numColumns,
-				int	numRows)
-			{
-				return new int[] { numColumns, (numRows + 1) / 2 };
-			}
-		},
+			"lineSubset",
+			"Line subset"
+		),
 
-		REFLECTION_VERTICAL_HORIZONTAL_AXES
+		DESKEWED_PROJECTION
 		(
-			"reflectVHAxes",
-			"Reflection in V and H axes"
-		)
-		{
-			@Override
-			public int[] getPrincipalDimensions(
-				int	numColumns,
-				int	numRows)
-			{
-				return new int[] { (numColumns + 1) / 2, (numRows + 1) / 2 };
-			}
-		};
+			"deskewedProjection",
+			"Run projection after skew correction"
+		);
 
 	////////////////////////////////////////////////////////////////////
 	//  Instance variables
@@ -1926,7 +3705,7 @@ abstract class Grid
 	//  Constructors
 	////////////////////////////////////////////////////////////////////
 
-		private Symmetry(
+		private DetectionMethod(
 			String	key,
 			String	text)
 		{
@@ -1940,10 +3719,10 @@ abstract class Grid
 	//  Class methods
 	////////////////////////////////////////////////////////////////////
 
-		public static Symmetry forKey(
+		public static DetectionMethod forKey(
 			String	key)
 		{
-			for (Symmetry value : values())
+			for (DetectionMethod value : values())
 			{
 				if (value.key.equals(key))
 					return value;
@@ -1953,16 +3732,6 @@ abstract class Grid
 
 		//--------------------------------------------------------------
 
-	////////////////////////////////////////////////////////////////////
-	//  Abstract methods
-	////////////////////////////////////////////////////////////////////
-
-		public abstract int[] getPrincipalDimensions(
-			int	numColumns,
-			int	numRows);
-
-		//--------------------------------------------------------------
-
 	////////////////////////////////////////////////////////////////////
 	//  Instance methods : IStringKeyed interface
 	////////////////////////////////////////////////////////////////////
@@ -1987,19 +3756,6 @@ abstract class Grid
 
 		//--------------------------------------------------------------
 
-	////////////////////////////////////////////////////////////////////
-	//  Instance methods
-	////////////////////////////////////////////////////////////////////
-
-		public boolean supportsDimensions(
-			int	numColumns,
-			int	numRows)
-		{
-			return true;
-		}
-
-		//--------------------------------------------------------------
-
 	}
 
 	//==================================================================
@@ -2206,18 +3962,114 @@ abstract class Grid
 ////////////////////////////////////////////////////////////////////////
 
 
+	// RECORD: TEXT CAPTURE
+
+
+	/**
+	 * This record encapsulates the result of recognising the text in the cells of a grid image.
+	 *
+	 * @param numEntryValues
+	 *          the number of entry values that were recognised.
+	 * @param numFieldNumbers
+	 *          the number of fields whose numbers were recognised and match the numbering of the grid.
+	 * @param numMissingFieldNumbers
+	 *          the number of fields in whose origin cells no number was recognised.
+	 * @param mismatchedFields
+	 *          the fields whose numbers were recognised and don't match the numbering of the grid.
+	 * @param numSpuriousFieldNumbers
+	 *          the number of cells that are not the origins of fields but in which a field number was recognised.
+	 */
+
+	public record TextCapture(
+		int			numEntryValues,
+		int			numFieldNumbers,
+		int			numMissingFieldNumbers,
+		List<Field>	mismatchedFields,
+		int			numSpuriousFieldNumbers)
+	{
+
+	////////////////////////////////////////////////////////////////////
+	//  Instance methods
+	////////////////////////////////////////////////////////////////////
+
+		/**
+		 * Returns {@code true} if a recognised field number contradicts the numbering of the grid, either because it
+		 * differs from the number of the field at its cell or because its cell is not the origin of a field.
+		 *
+		 * @return {@code true} if a recognised field number contradicts the numbering of the grid.
+		 */
+
+		public boolean hasNumberingConflicts()
+		{
+			return !mismatchedFields.isEmpty() || (numSpuriousFieldNumbers > 0);
+		}
+
+		//--------------------------------------------------------------
+
+	}
+
+	//==================================================================
+
+
 	// RECORD: GRID INFORMATION
 
 
+	/**
+	 * This record encapsulates the location and dimensions of a grid that was found in an image.
+	 *
+	 * @param x
+	 *          the x coordinate of the grid.
+	 * @param y
+	 *          the y coordinate of the grid.
+	 * @param width
+	 *          the width of the grid.
+	 * @param height
+	 *          the height of the grid.
+	 * @param numColumns
+	 *          the number of columns of the grid.
+	 * @param numRows
+	 *          the number of rows of the grid.
+	 * @param columnLines
+	 *          the x coordinates of the vertical lines of the grid that were detected, which may be fewer than {@code
+	 *          numColumns + 1} if lines were combined.
+	 * @param rowLines
+	 *          the y coordinates of the horizontal lines of the grid that were detected.
+	 * @param skewAngle
+	 *          the angle, in radians, by which the image was skewed.  If it is nonzero, the bounds and lines of the
+	 *          grid are those in the image after it has been rotated about its centre by {@code -skewAngle}.
+	 */
+
 	public record Info(
-		int	x,
-		int	y,
-		int	width,
-		int	height,
-		int	numColumns,
-		int	numRows)
+		int		x,
+		int		y,
+		int		width,
+		int		height,
+		int		numColumns,
+		int		numRows,
+		int[]	columnLines,
+		int[]	rowLines,
+		double	skewAngle)
 	{
 
+	////////////////////////////////////////////////////////////////////
+	//  Constructors
+	////////////////////////////////////////////////////////////////////
+
+		public Info(
+			int		x,
+			int		y,
+			int		width,
+			int		height,
+			int		numColumns,
+			int		numRows,
+			int[]	columnLines,
+			int[]	rowLines)
+		{
+			this(x, y, width, height, numColumns, numRows, columnLines, rowLines, 0.0);
+		}
+
+		//--------------------------------------------------------------
+
 	////////////////////////////////////////////////////////////////////
 	//  Instance methods
 	////////////////////////////////////////////////////////////////////
@@ -2229,6 +4081,14 @@ abstract class Grid
 
 		//--------------------------------------------------------------
 
+		public Info withSkewAngle(
+			double	skewAngle)
+		{
+			return new Info(x, y, width, height, numColumns, numRows, columnLines, rowLines, skewAngle);
+		}
+
+		//--------------------------------------------------------------
+
 	}
 
 	//==================================================================
@@ -2246,6 +4106,30 @@ abstract class Grid
 
 	//==================================================================
 
+
+	// RECORD: RUN PROFILES
+
+
+	private record RunProfiles(
+		int[]	rowRunStarts,
+		int[]	rowRunEnds,
+		int[]	columnRunStarts,
+		int[]	columnRunEnds)
+	{ }
+
+	//==================================================================
+
+
+	// RECORD: CANDIDATE LINES
+
+
+	private record CandidateLines(
+		List<Line>	horizontal,
+		List<Line>	vertical)
+	{ }
+
+	//==================================================================
+
 ////////////////////////////////////////////////////////////////////////
 //  Member classes : non-inner classes
 ////////////////////////////////////////////////////////////////////////
@@ -2886,9 +4770,26 @@ abstract class Grid
 	//  Instance variables
 	////////////////////////////////////////////////////////////////////
 
-		private	int			numCells;
-		private	int			numValues;
-		private	char[][]	values;
+		private	int		numColumns;
+		private	int		numCells;
+		private	int		numValues;
+
+		/**
+		 * The values of the cells in row-major order.
+		 */
+		private	char[]	values;
+
+		/**
+		 * Flag: if {@code true}, {@link #values} may be shared with a clone of these entries, so it must be copied
+		 * before it is modified.
+		 */
+		private	boolean	shared;
+
+		/**
+		 * Flag: if {@code true}, {@link #values} is charged to these entries in their {@linkplain #retainedSize()
+		 * retained size}.  An array of values is charged to only one of the entries that share it.
+		 */
+		private	boolean	ownsValues;
 
 	////////////////////////////////////////////////////////////////////
 	//  Constructors
@@ -2898,9 +4799,9 @@ abstract class Grid
 			int	numColumns,
 			int	numRows)
 		{
-			values = new char[numRows][];
-			for (int i = 0; i < values.length; i++)
-				values[i] = new char[numColumns];
+			this.numColumns = numColumns;
+			values = new char[numRows * numColumns];
+			ownsValues = true;
 		}
 
 		//--------------------------------------------------------------
@@ -2909,15 +4810,22 @@ abstract class Grid
 	//  Instance methods : overriding methods
 	////////////////////////////////////////////////////////////////////
 
+		/**
+		 * {@inheritDoc}
+		 * <p>
+		 * The copy shares its values with these entries until either of them is modified.  The shared values are
+		 * not charged to the copy.
+		 * </p>
+		 */
+
 		@Override
 		public Entries clone()
 		{
 			try
 			{
+				shared = true;
 				Entries copy = (Entries)super.clone();
-				copy.values = values.clone();
-				for (int i = 0; i < values.length; i++)
-					copy.values[i] = values[i].clone();
+				copy.ownsValues = false;
 				return copy;
 			}
 			catch (CloneNotSupportedException e)
@@ -2934,305 +4842,302 @@ abstract class Grid
 
 		public void clear()
 		{
-			for (int row = 0; row < values.length; row++)
+			if (numValues > 0)
 			{
-				for (int column = 0; column < values[row].length; column++)
+				unshare();
+				for (int i = 0; i < values.length; i++)
 				{
-					if (values[row][column] != NO_VALUE)
-						values[row][column] = UNDEFINED_VALUE;
+					if (values[i] != NO_VALUE)
+						values[i] = UNDEFINED_VALUE;
 				}
+				numValues = 0;
 			}
-			numValues = 0;
-		}
-
-		//--------------------------------------------------------------
-
-		protected void init()
-		{
-			for (int i = 0; i < values.length; i++)
-				Arrays.fill(values[i], NO_VALUE);
-			numCells = 0;
-			numValues = 0;
 		}
 
 		//--------------------------------------------------------------
 
-		protected void initValue(
-			int	row,
-			int	column)
+		/**
+		 * Returns a copy of these entries that shares their values until either of them is modified, and to which
+		 * the values are charged instead of to these entries if they were charged to these entries.  When a
+		 * snapshot is taken of each state of the entries of a grid, each array of values is therefore charged to
+		 * the first snapshot of the state that it holds, and the snapshots of an unchanged state are not charged
+		 * for it again.
+		 *
+		 * @return a snapshot of these entries.
+		 */
+
+		public Entries createSnapshot()
 		{
-			if (values[row][column] == NO_VALUE)
-				++numCells;
-			values[row][column] = UNDEFINED_VALUE;
+			Entries snapshot = clone();
+			snapshot.ownsValues = ownsValues;
+			ownsValues = false;
+			return snapshot;
 		}
 
 		//--------------------------------------------------------------
 
-		private void setValue(
-			int		row,
-			int		column,
-			char	value)
+		public long retainedSize()
 		{
-			if (values[row][column] != UNDEFINED_VALUE)
-				--numValues;
-			values[row][column] = value;
-			if (value != UNDEFINED_VALUE)
-				++numValues;
+			// Object, and array header and two bytes per value if the values are charged to these entries
+			return ownsValues ? 32 + 16 + 2L * values.length : 32;
 		}
 
 		//--------------------------------------------------------------
 
-		private boolean[][] compare(
-			Entries	other)
+		protected void init()
 		{
-			boolean[][] differences = new boolean[values.length][];
-			for (int row = 0; row < values.length; row++)
+			if (shared)
 			{
-				differences[row] = new boolean[values[row].length];
-				for (int column = 0; column < values[row].length; column++)
-				{
-					if (values[row][column] != NO_VALUE)
-						differences[row][column] = (values[row][column] != other.values[row][column]);
-				}
+				values = new char[values.length];
+				shared = false;
+				ownsValues = true;
 			}
-			return differences;
+			else
+				Arrays.fill(values, NO_VALUE);
+			numCells = 0;
+			numValues = 0;
 		}
 
 		//--------------------------------------------------------------
 
-	}
-
-	//==================================================================
-
-
-	// CLASS: ENCODED SOLUTION
-
-
-	public static class EncodedSolution
-	{
-
-	////////////////////////////////////////////////////////////////////
-	//  Instance variables
-	////////////////////////////////////////////////////////////////////
-
-		private	byte[]	nonce;
-		private	byte[]	hashValue;
-		private	byte[]	data;
-
-	////////////////////////////////////////////////////////////////////
-	//  Constructors
-	////////////////////////////////////////////////////////////////////
+		/**
+		 * Makes the value of the specified cell undefined if the cell has no value.  The value of a cell that is
+		 * already in a field is kept.
+		 */
 
-		private EncodedSolution(
-			byte[]	nonce,
-			byte[]	hashValue,
-			byte[]	data)
+		protected void initValue(
+			int	row,
+			int	column)
 		{
-			this.nonce = nonce;
-			this.hashValue = hashValue;
-			this.data = data;
+			int index = row * numColumns + column;
+			if (values[index] == NO_VALUE)
+			{
+				unshare();
+				++numCells;
+				values[index] = UNDEFINED_VALUE;
+			}
 		}
 
 		//--------------------------------------------------------------
 
-	////////////////////////////////////////////////////////////////////
-	//  Instance methods
-	////////////////////////////////////////////////////////////////////
-
-		public byte[] getNonce()
+		protected void resetValue(
+			int	row,
+			int	column)
 		{
-			return nonce;
+			int index = row * numColumns + column;
+			char value = values[index];
+			if (value != NO_VALUE)
+			{
+				unshare();
+				if (value != UNDEFINED_VALUE)
+					--numValues;
+				--numCells;
+				values[index] = NO_VALUE;
+			}
 		}
 
 		//--------------------------------------------------------------
 
-		public byte[] getHashValue()
+		private char getValue(
+			int	row,
+			int	column)
 		{
-			return hashValue;
+			return values[row * numColumns + column];
 		}
 
 		//--------------------------------------------------------------
 
-		public byte[] getData()
+		private void setValue(
+			int		row,
+			int		column,
+			char	value)
 		{
-			return data;
+			int index = row * numColumns + column;
+			if (values[index] != value)
+			{
+				unshare();
+				if (values[index] != UNDEFINED_VALUE)
+					--numValues;
+				values[index] = value;
+				if (value != UNDEFINED_VALUE)
+					++numValues;
+			}
 		}
 
 		//--------------------------------------------------------------
 
-	}
-
-	//==================================================================
-
-
-	// CLASS: CELL BASE
-
-
-	protected static abstract class Cell
-		implements Cloneable
-	{
-
-	////////////////////////////////////////////////////////////////////
-	//  Constants
-	////////////////////////////////////////////////////////////////////
-
-		private static final	double	ENTRY_TOP_OFFSET_FRACTION	= 0.1;
-		private static final	int		ENTRY_LEFT_OFFSET			= 1;
-
-		private static final	String	STYLE_SELECTOR1	= HtmlConstants.ElementName.DIV + CssSelector.ID
-															+ HtmlConstants.Id.GRID + CssSelector.CHILD
-															+ HtmlConstants.ElementName.DIV
-															+ CssSelector.CHILD
-															+ HtmlConstants.ElementName.DIV;
-		private static final	String	STYLE_SELECTOR2	= HtmlConstants.ElementName.DIV + CssSelector.CLASS
-															+ HtmlConstants.Class.FIELD_NUMBER;
-		private static final	String	STYLE_SELECTOR3	= HtmlConstants.ElementName.DIV + CssSelector.CLASS
-															+ HtmlConstants.Class.ENTRY;
-
-		private static final	CssRuleSet	CONTAINER_RULE_SET	= CssRuleSet.of
-		(
-			STYLE_SELECTOR1,
-			StrKVPair.of(CssProperty.DISPLAY,        "table-cell"),
-			StrKVPair.of(CssProperty.POSITION,       "relative"),
-			StrKVPair.of(CssProperty.VERTICAL_ALIGN, "top"),
-			StrKVPair.of(CssProperty.WIDTH,          "%dpx"),
-			StrKVPair.of(CssProperty.HEIGHT,         "%dpx"),
-			StrKVPair.of(CssProperty.BORDER,         "1px solid %s")
-		);
-		private static final	CssRuleSet	FIELD_NUMBER_RULE_SET	= CssRuleSet.of
-		(
-			STYLE_SELECTOR2,
-			StrKVPair.of(CssProperty.POSITION,    "absolute"),
-			StrKVPair.of(CssProperty.Z_INDEX,     "2"),
-			StrKVPair.of(CssProperty.WIDTH,       "100%"),
-			StrKVPair.of(CssProperty.HEIGHT,      "100%"),
-			StrKVPair.of(CssProperty.TOP,         "%dpx"),
-			StrKVPair.of(CssProperty.LEFT,        "%dpx"),
-			StrKVPair.of(CssProperty.TEXT_ALIGN,  "left"),
-			StrKVPair.of(CssProperty.LINE_HEIGHT, "100%"),
-			StrKVPair.of(CssProperty.FONT_SIZE,   "%s%%")
-		);
-		private static final	CssRuleSet	ENTRY_RULE_SET	= CssRuleSet.of
-		(
-			STYLE_SELECTOR3,
-			StrKVPair.of(CssProperty.POSITION,    "absolute"),
-			StrKVPair.of(CssProperty.Z_INDEX,     "3"),
-			StrKVPair.of(CssProperty.WIDTH,       "100%"),
-			StrKVPair.of(CssProperty.HEIGHT,      "100%"),
-			StrKVPair.of(CssProperty.TOP,         "%s%%"),
-			StrKVPair.of(CssProperty.LEFT,        "%dpx"),
-			StrKVPair.of(CssProperty.TEXT_ALIGN,  "center"),
-			StrKVPair.of(CssProperty.LINE_HEIGHT, "125%"),
-			StrKVPair.of(CssProperty.FONT_SIZE,   "125%"),
-			StrKVPair.of(CssProperty.COLOUR,      "%s")
-		);
+		private boolean differs(
+			int		row,
+			int		column,
+			Entries	other)
+		{
+			char value = getValue(row, column);
+			return (value != NO_VALUE) && (value != other.getValue(row, column));
+		}
+
+		//--------------------------------------------------------------
+
+		/**
+		 * Copies the values of these entries if they may be shared with a clone, so that they can be modified.
+		 */
+
+		private void unshare()
+		{
+			if (shared)
+			{
+				values = values.clone();
+				shared = false;
+				ownsValues = true;
+			}
+		}
+
+		//--------------------------------------------------------------
+
+	}
+
+	//==================================================================
+
+
+	// CLASS: ENCODED SOLUTION
+
+
+	public static class EncodedSolution
+	{
 
 	////////////////////////////////////////////////////////////////////
 	//  Instance variables
 	////////////////////////////////////////////////////////////////////
 
-		private	Map<Direction, Field>	fields;
-		private	Map<Direction, Boolean>	fieldOrigins;
+		private	byte[]	nonce;
+		private	byte[]	hashValue;
+		private	byte[]	data;
 
 	////////////////////////////////////////////////////////////////////
 	//  Constructors
 	////////////////////////////////////////////////////////////////////
 
-		protected Cell()
+		private EncodedSolution(
+			byte[]	nonce,
+			byte[]	hashValue,
+			byte[]	data)
 		{
-			fields = new EnumMap<>(Direction.class);
-			fieldOrigins = new EnumMap<>(Direction.class);
-			for (Direction direction : Direction.DEFINED_DIRECTIONS)
-				fieldOrigins.put(direction, Boolean.FALSE);
+			this.nonce = nonce;
+			this.hashValue = hashValue;
+			this.data = data;
 		}
 
 		//--------------------------------------------------------------
 
 	////////////////////////////////////////////////////////////////////
-	//  Class methods
+	//  Instance methods
 	////////////////////////////////////////////////////////////////////
 
-		public static List<CssRuleSet> getStyleRuleSets(
-			int		cellSize,
-			int		cellOffsetTop,
-			int		cellOffsetLeft,
-			Color	gridColour,
-			Color	entryColour,
-			int		fieldNumOffsetTop,
-			int		fieldNumOffsetLeft,
-			double	fieldNumFontSizeFactor)
+		public byte[] getNonce()
 		{
-			// Initialise list of rule sets
-			List<CssRuleSet> ruleSets = new ArrayList<>();
+			return nonce;
+		}
 
-			// Add rule set: cell container
-			CssRuleSet ruleSet = CONTAINER_RULE_SET.clone();
-			ruleSet.replacePropertyValue(CssProperty.WIDTH, cellSize);
-			ruleSet.replacePropertyValue(CssProperty.HEIGHT, cellSize);
-			ruleSet.replacePropertyValue(CssProperty.BORDER, ColourUtils.colourToHexString(gridColour));
-			ruleSets.add(ruleSet);
+		//--------------------------------------------------------------
 
-			// Add rule set: field number
-			ruleSet = FIELD_NUMBER_RULE_SET.clone();
-			ruleSet.replacePropertyValue(CssProperty.TOP, cellOffsetTop + fieldNumOffsetTop);
-			ruleSet.replacePropertyValue(CssProperty.LEFT, cellOffsetLeft + fieldNumOffsetLeft);
-			ruleSet.replacePropertyValue(CssProperty.FONT_SIZE,
-										 AppConstants.FORMAT_1_1.format(fieldNumFontSizeFactor * 100.0));
-			ruleSets.add(ruleSet);
+		public byte[] getHashValue()
+		{
+			return hashValue;
+		}
 
-			// Add rule set: entry
-			ruleSet = ENTRY_RULE_SET.clone();
-			double offset = (double)cellOffsetTop / (double)cellSize + ENTRY_TOP_OFFSET_FRACTION;
-			ruleSet.replacePropertyValue(CssProperty.TOP, AppConstants.FORMAT_1_3.format(offset * 100.0));
-			ruleSet.replacePropertyValue(CssProperty.LEFT, cellOffsetLeft + ENTRY_LEFT_OFFSET);
-			ruleSet.replacePropertyValue(CssProperty.COLOUR, ColourUtils.colourToHexString(entryColour));
-			ruleSets.add(ruleSet);
+		//--------------------------------------------------------------
 
-			// Return list of rule sets
-			return ruleSets;
+		public byte[] getData()
+		{
+			return data;
 		}
 
 		//--------------------------------------------------------------
 
+	}
+
+	//==================================================================
+
+
+	// CLASS: GRID-DETECTION SESSION
+
+
+	/**
+	 * This class implements a session of grid detection on a single image.  The image is converted to a {@link
+	 * PixelRaster} once, and the intermediate results of the {@linkplain DetectionMethod#PROJECTION projection}
+	 * method are cached, so that detection can be repeated with different parameters without repeating the stages
+	 * that do not depend on the parameters that have changed:
+	 * <ul>
+	 *   <li>the run profiles depend only on the brightness threshold,</li>
+	 *   <li>the candidate lines depend also on the minimum line length and the endpoint tolerance, and</li>
+	 *   <li>the grid depends also on the minimum line separation.</li>
+	 * </ul>
+	 * The session also keeps the raster of the region of the image that was most recently selected as the grid, so
+	 * that the summed-area table of the region is reused when a grid is extracted from it more than once.
+	 * <p>
+	 * For the {@linkplain DetectionMethod#DESKEWED_PROJECTION deskewed projection} method, the skew angle of the image
+	 * is cached for each dark limit, and the deskewed image is processed by a child session for each angle, so that
+	 * its intermediate results are also cached.  Each child session holds a copy of the raster, so only the {@link
+	 * #MAX_NUM_DESKEWED_SESSIONS} most recently used child sessions are kept.
+	 * </p>
+	 * <p>
+	 * The grids that are found are also added to the {@link GridDetectionCache}, which outlives the session, so that
+	 * detection is skipped altogether when an image is processed again with the same parameters.
+	 * </p>
+	 */
+
+	public static class DetectionSession
+	{
+
 	////////////////////////////////////////////////////////////////////
-	//  Abstract methods
+	//  Instance variables
 	////////////////////////////////////////////////////////////////////
 
-		protected abstract void write(
-			XmlWriter	writer,
-			int			indent,
-			int			cellSize,
-			int			fieldNumber,
-			char		entry)
-			throws IOException;
-
-		//--------------------------------------------------------------
+		private	BufferedImage						image;
+		private	PixelRaster							raster;
+		private	Map<Integer, RunProfiles>			runProfiles;
+		private	Map<CandidateLinesKey, CandidateLines>	candidateLines;
+		private	Map<GridKey, Info>					grids;
+		private	Rectangle							gridRegion;
+		private	PixelRaster							gridRaster;
+		private	Map<Integer, Double>				skewAngles;
+		private	Map<Double, DetectionSession>		deskewedSessions;
 
 	////////////////////////////////////////////////////////////////////
-	//  Instance methods : overriding methods
+	//  Constructors
 	////////////////////////////////////////////////////////////////////
 
-		@Override
-		public Cell clone()
+		public DetectionSession(
+			BufferedImage	image)
 		{
-			try
-			{
-				Cell copy = (Cell)super.clone();
+			this(image, new PixelRaster(image));
+		}
 
-				copy.fields = new EnumMap<>(Direction.class);
-				for (Direction direction : fields.keySet())
-					copy.fields.put(direction, fields.get(direction).clone());
+		//--------------------------------------------------------------
 
-				copy.fieldOrigins = new EnumMap<>(Direction.class);
-				for (Direction direction : fieldOrigins.keySet())
-					copy.fieldOrigins.put(direction, fieldOrigins.get(direction).booleanValue());
+		/**
+		 * Creates a session for the specified raster.  The image may be {@code null}, in which case it is created
+		 * from the parent session when it is first requested.
+		 */
 
-				return copy;
-			}
-			catch (CloneNotSupportedException e)
+		private DetectionSession(
+			BufferedImage	image,
+			PixelRaster		raster)
+		{
+			this.image = image;
+			this.raster = raster;
+			runProfiles = new HashMap<>();
+			candidateLines = new HashMap<>();
+			grids = new HashMap<>();
+			skewAngles = new HashMap<>();
+			deskewedSessions = new LinkedHashMap<>(16, 0.75f, true)
 			{
-				throw new UnexpectedRuntimeException(e);
-			}
+				@Override
+				protected boolean removeEldestEntry(
+					Map.Entry<Double, DetectionSession>	eldest)
+				{
+					return (size() > MAX_NUM_DESKEWED_SESSIONS);
+				}
+			};
 		}
 
 		//--------------------------------------------------------------
@@ -3241,111 +5146,256 @@ abstract class Grid
 	//  Instance methods
 	////////////////////////////////////////////////////////////////////
 
-		public Field getField(
-			Direction	direction)
+		public BufferedImage getImage()
 		{
-			return fields.get(direction);
+			return image;
 		}
 
 		//--------------------------------------------------------------
 
-		public boolean isInField()
+		/**
+		 * Returns the image of this session rotated about its centre by the negation of the specified skew angle.
+		 * Areas of the rotated image that lie outside the image of this session are white.
+		 *
+		 * @param  skewAngle
+		 *           the skew angle, in radians.
+		 * @return the image of this session rotated by {@code -skewAngle}, or the image itself if {@code skewAngle}
+		 *         is zero.
+		 */
+
+		public synchronized BufferedImage getImage(
+			double	skewAngle)
 		{
-			return !fields.isEmpty();
+			if (skewAngle == 0.0)
+				return image;
+
+			DetectionSession session = getDeskewedSession(skewAngle);
+			if (session.image == null)
+				session.image = createDeskewedImage(image, skewAngle);
+			return session.image;
 		}
 
 		//--------------------------------------------------------------
 
-		public boolean isFieldOrigin()
+		public PixelRaster getRaster()
 		{
-			for (Direction direction : fieldOrigins.keySet())
-			{
-				if (fieldOrigins.get(direction))
-					return true;
-			}
-			return false;
+			return raster;
 		}
 
 		//--------------------------------------------------------------
 
-		public int getFieldNumber()
+		/**
+		 * Returns {@code true} if the specified image has the same dimensions and pixels as the image of this session.
+		 */
+
+		public boolean hasImage(
+			BufferedImage	image)
 		{
-			for (Direction direction : fieldOrigins.keySet())
+			// Test for same image
+			if (image == this.image)
+				return true;
+
+			// Test dimensions
+			int width = image.getWidth();
+			int height = image.getHeight();
+			if ((width != this.image.getWidth()) || (height != this.image.getHeight()))
+				return false;
+
+			// Compare pixels a row at a time
+			int[] rgbBuffer1 = new int[width];
+			int[] rgbBuffer2 = new int[width];
+			for (int y = 0; y < height; y++)
 			{
-				if (fieldOrigins.get(direction))
-					return fields.get(direction).number;
+				image.getRGB(0, y, width, 1, rgbBuffer1, 0, width);
+				this.image.getRGB(0, y, width, 1, rgbBuffer2, 0, width);
+				if (!Arrays.equals(rgbBuffer1, rgbBuffer2))
+					return false;
 			}
-			return 0;
+			return true;
 		}
 
 		//--------------------------------------------------------------
 
-		protected List<Field> getFields()
+		/**
+		 * Returns the raster of the specified region of the image of this session.
+		 *
+		 * @param  region
+		 *           the region of the image, or {@code null} for the whole image.
+		 * @return the raster of {@code region} of the image of this session.
+		 */
+
+		public synchronized PixelRaster getGridRaster(
+			Rectangle	region)
 		{
-			List<Field> fields = new ArrayList<>();
-			for (Direction direction : this.fields.keySet())
-				fields.add(this.fields.get(direction));
-			return fields;
+			if (region == null)
+				return raster;
+			if (!region.equals(gridRegion))
+			{
+				gridRaster = raster.getSubraster(region);
+				gridRegion = new Rectangle(region);
+			}
+			return gridRaster;
 		}
 
 		//--------------------------------------------------------------
 
-		protected void setField(
-			Direction	direction,
-			Field		field)
+		/**
+		 * Returns the raster of the specified region of the image of this session after the image has been rotated
+		 * about its centre by the negation of the specified skew angle.
+		 *
+		 * @param  skewAngle
+		 *           the skew angle, in radians.
+		 * @param  region
+		 *           the region of the rotated image, or {@code null} for the whole image.
+		 * @return the raster of {@code region} of the image of this session rotated by {@code -skewAngle}.
+		 */
+
+		public synchronized PixelRaster getGridRaster(
+			double		skewAngle,
+			Rectangle	region)
 		{
-			fields.put(direction, field);
+			return (skewAngle == 0.0) ? getGridRaster(region) : getDeskewedSession(skewAngle).getGridRaster(region);
 		}
 
 		//--------------------------------------------------------------
 
-		protected void setFieldOrigin(
-			Direction	direction,
-			Field		field)
+		public synchronized Info findGrid(
+			DetectionMethod	method,
+			double			brightnessThreshold,
+			int				minLineLength,
+			int				minLineSeparation,
+			int				endpointTolerance)
+			throws AppException
 		{
-			fields.put(direction, field);
-			fieldOrigins.put(direction, Boolean.TRUE);
+			// Look for grid in the cache of results of earlier sessions
+			int darkLimit = PixelRaster.getDarkLimit(brightnessThreshold);
+			GridDetectionCache.InfoKey cacheKey = new GridDetectionCache.InfoKey(raster, method, darkLimit,
+																				 minLineLength, minLineSeparation,
+																				 endpointTolerance);
+			Info info = GridDetectionCache.INSTANCE.getGridInfo(cacheKey);
+			if (info == null)
+			{
+				info = findGridUncached(method, brightnessThreshold, minLineLength, minLineSeparation,
+										endpointTolerance);
+				if (info != null)
+					GridDetectionCache.INSTANCE.putGridInfo(cacheKey, info);
+			}
+			return info;
 		}
 
 		//--------------------------------------------------------------
 
-		protected void resetFields()
+		private Info findGridUncached(
+			DetectionMethod	method,
+			double			brightnessThreshold,
+			int				minLineLength,
+			int				minLineSeparation,
+			int				endpointTolerance)
+			throws AppException
 		{
-			fields.clear();
-			fieldOrigins.clear();
-			for (Direction direction : Direction.DEFINED_DIRECTIONS)
-				fieldOrigins.put(direction, Boolean.FALSE);
-		}
+			// Find the grid in a deskewed raster
+			if (method == DetectionMethod.DESKEWED_PROJECTION)
+			{
+				int darkLimit = PixelRaster.getDarkLimit(brightnessThreshold);
+				Double skewAngle = skewAngles.get(darkLimit);
+				if (skewAngle == null)
+				{
+					skewAngle = Grid.getSkewAngle(raster, darkLimit);
+					skewAngles.put(darkLimit, skewAngle);
+				}
+				if (skewAngle == 0.0)
+					method = DetectionMethod.PROJECTION;
+				else
+				{
+					Info info = getDeskewedSession(skewAngle).findGridUncached(DetectionMethod.PROJECTION,
+																			   brightnessThreshold, minLineLength,
+																			   minLineSeparation, endpointTolerance);
+					return (info == null) ? null : info.withSkewAngle(skewAngle);
+				}
+			}
 
-		//--------------------------------------------------------------
+			// The other methods have no intermediate results to cache
+			if (method != DetectionMethod.PROJECTION)
+				return Grid.findGrid(raster, method, brightnessThreshold, minLineLength, minLineSeparation,
+									 endpointTolerance);
 
-		protected void writeContents(
-			XmlWriter	writer,
-			int			fieldNumber,
-			char		entry)
-			throws IOException
-		{
-			AttributeList attributes = new AttributeList();
-			if (fieldNumber > 0)
+			// Get run profiles
+			int darkLimit = PixelRaster.getDarkLimit(brightnessThreshold);
+			RunProfiles profiles = runProfiles.get(darkLimit);
+			if (profiles == null)
 			{
-				attributes.add(HtmlConstants.AttrName.CLASS, HtmlConstants.Class.FIELD_NUMBER);
-				writer.writeElementStart(HtmlConstants.ElementName.DIV, attributes, 0, false, false);
-				writer.write(Integer.toString(fieldNumber));
-				writer.writeEndTag(HtmlConstants.ElementName.DIV);
+				profiles = extractRunProfiles(raster, darkLimit);
+				runProfiles.put(darkLimit, profiles);
 			}
 
-			if (entry != Entries.UNDEFINED_VALUE)
+			// Get candidate lines
+			CandidateLinesKey linesKey = new CandidateLinesKey(darkLimit, minLineLength, endpointTolerance);
+			CandidateLines lines = candidateLines.get(linesKey);
+			if (lines == null)
 			{
-				attributes.clear();
-				attributes.add(HtmlConstants.AttrName.CLASS, HtmlConstants.Class.ENTRY);
-				writer.writeElementStart(HtmlConstants.ElementName.DIV, attributes, 0, false, false);
-				writer.write(entry);
-				writer.writeEndTag(HtmlConstants.ElementName.DIV);
+				lines = findCandidateLines(profiles, minLineLength, endpointTolerance);
+				candidateLines.put(linesKey, lines);
+			}
+
+			// Get grid
+			GridKey gridKey = new GridKey(linesKey, minLineSeparation);
+			Info info = grids.get(gridKey);
+			if (info == null)
+			{
+				info = Grid.findGrid(lines, minLineSeparation, endpointTolerance);
+				grids.put(gridKey, info);
+			}
+			return info;
+		}
+
+		//--------------------------------------------------------------
+
+		/**
+		 * Returns the child session of the raster of this session deskewed by the specified angle.  The session is
+		 * created if it does not exist, in which case the least recently used child session may be discarded.
+		 */
+
+		private DetectionSession getDeskewedSession(
+			double	skewAngle)
+		{
+			DetectionSession session = deskewedSessions.get(skewAngle);
+			if (session == null)
+			{
+				session = new DetectionSession(null, raster.createDeskewedRaster(skewAngle));
+				deskewedSessions.put(skewAngle, session);
 			}
+			return session;
 		}
 
 		//--------------------------------------------------------------
 
+	////////////////////////////////////////////////////////////////////
+	//  Member records
+	////////////////////////////////////////////////////////////////////
+
+
+		// RECORD: CANDIDATE-LINES KEY
+
+
+		private record CandidateLinesKey(
+			int	darkLimit,
+			int	minLineLength,
+			int	endpointTolerance)
+		{ }
+
+		//==============================================================
+
+
+		// RECORD: GRID KEY
+
+
+		private record GridKey(
+			CandidateLinesKey	linesKey,
+			int					minLineSeparation)
+		{ }
+
+		//==============================================================
+
 	}
 
 	//==================================================================
@@ -3460,26 +5510,234 @@ abstract class Grid
 			private Orientation(
 				String	text)
 			{
-				this.text = text;
+				this.text = text;
+			}
+
+			//----------------------------------------------------------
+
+		////////////////////////////////////////////////////////////////
+		//  Instance methods : overriding methods
+		////////////////////////////////////////////////////////////////
+
+			@Override
+			public String toString()
+			{
+				return text;
+			}
+
+			//----------------------------------------------------------
+
+		}
+
+		//==============================================================
+
+	}
+
+	//==================================================================
+
+
+	// CLASS: RUN-EXTRACTION TASK
+
+
+	/**
+	 * This class implements a fork-join task that extracts the longest dark run of each row or column (line) of a
+	 * rectangular tile of a raster.  The tile is split in half along its longer dimension recursively until its area
+	 * is small enough to be processed directly, so the work is divided evenly between the worker threads whatever the
+	 * shape of the raster.  When a tile is split across its lines, the two halves write disjoint elements of the run
+	 * profile; when it is split along its lines, the second half writes to its own run profile, which is merged with
+	 * the first, together with any run that crosses the boundary between the halves.
+	 * <p>
+	 * The worker threads of the pool don't share the interrupted status of the thread that requested the extraction,
+	 * so a task tests the status of that thread itself and does nothing if it has been interrupted.
+	 * </p>
+	 */
+
+	private static class RunExtractionTask
+		extends RecursiveAction
+	{
+
+	////////////////////////////////////////////////////////////////////
+	//  Constants
+	////////////////////////////////////////////////////////////////////
+
+		private static final	int	MAX_TILE_AREA	= 1 << 16;
+
+	////////////////////////////////////////////////////////////////////
+	//  Instance variables
+	////////////////////////////////////////////////////////////////////
+
+		private	Thread				requester;
+		private	Line.Orientation	orientation;
+		private	PixelRaster			raster;
+		private	int					darkLimit;
+		private	int[]				runStarts;
+		private	int[]				runEnds;
+		private	int					indexOffset;
+		private	int					startIndex;
+		private	int					endIndex;
+		private	int					startPosition;
+		private	int					endPosition;
+
+	////////////////////////////////////////////////////////////////////
+	//  Constructors
+	////////////////////////////////////////////////////////////////////
+
+		/**
+		 * @param indexOffset
+		 *          the offset that is subtracted from the index of a line to give the index of its run in {@code
+		 *          runStarts} and {@code runEnds}.
+		 * @param startIndex
+		 *          the index of the first line of the tile (inclusive).
+		 * @param endIndex
+		 *          the index of the last line of the tile (exclusive).
+		 * @param startPosition
+		 *          the position of the start of the tile along its lines (inclusive).
+		 * @param endPosition
+		 *          the position of the end of the tile along its lines (exclusive).
+		 */
+
+		private RunExtractionTask(
+			Thread				requester,
+			Line.Orientation	orientation,
+			PixelRaster			raster,
+			int					darkLimit,
+			int[]				runStarts,
+			int[]				runEnds,
+			int					indexOffset,
+			int					startIndex,
+			int					endIndex,
+			int					startPosition,
+			int					endPosition)
+		{
+			this.requester = requester;
+			this.orientation = orientation;
+			this.raster = raster;
+			this.darkLimit = darkLimit;
+			this.runStarts = runStarts;
+			this.runEnds = runEnds;
+			this.indexOffset = indexOffset;
+			this.startIndex = startIndex;
+			this.endIndex = endIndex;
+			this.startPosition = startPosition;
+			this.endPosition = endPosition;
+		}
+
+		//--------------------------------------------------------------
+
+	////////////////////////////////////////////////////////////////////
+	//  Instance methods : overriding methods
+	////////////////////////////////////////////////////////////////////
+
+		@Override
+		protected void compute()
+		{
+			if (requester.isInterrupted())
+				return;
+
+			int numLines = endIndex - startIndex;
+			int length = endPosition - startPosition;
+			if ((long)numLines * (long)length <= MAX_TILE_AREA)
+			{
+				if (orientation == Line.Orientation.HORIZONTAL)
+				{
+					extractRowRuns(raster, darkLimit, runStarts, runEnds, indexOffset, startIndex, endIndex,
+								   startPosition, endPosition);
+				}
+				else
+				{
+					extractColumnRuns(raster, darkLimit, runStarts, runEnds, indexOffset, startIndex, endIndex,
+									  startPosition, endPosition);
+				}
+			}
+			else if (numLines >= length)
+			{
+				int midIndex = (startIndex + endIndex) >>> 1;
+				invokeAll(createSubtask(runStarts, runEnds, indexOffset, startIndex, midIndex, startPosition,
+										endPosition),
+						  createSubtask(runStarts, runEnds, indexOffset, midIndex, endIndex, startPosition,
+										endPosition));
+			}
+			else
+			{
+				int midPosition = (startPosition + endPosition) >>> 1;
+				int[] runStarts2 = new int[numLines];
+				int[] runEnds2 = new int[numLines];
+				Arrays.fill(runEnds2, -1);
+				invokeAll(createSubtask(runStarts, runEnds, indexOffset, startIndex, endIndex, startPosition,
+										midPosition),
+						  createSubtask(runStarts2, runEnds2, startIndex, startIndex, endIndex, midPosition,
+										endPosition));
+				mergeRuns(midPosition, runStarts2, runEnds2);
 			}
+		}
 
-			//----------------------------------------------------------
+		//--------------------------------------------------------------
 
-		////////////////////////////////////////////////////////////////
-		//  Instance methods : overriding methods
-		////////////////////////////////////////////////////////////////
+	////////////////////////////////////////////////////////////////////
+	//  Instance methods
+	////////////////////////////////////////////////////////////////////
 
-			@Override
-			public String toString()
+		private RunExtractionTask createSubtask(
+			int[]	runStarts,
+			int[]	runEnds,
+			int		indexOffset,
+			int		startIndex,
+			int		endIndex,
+			int		startPosition,
+			int		endPosition)
+		{
+			return new RunExtractionTask(requester, orientation, raster, darkLimit, runStarts, runEnds, indexOffset,
+										 startIndex, endIndex, startPosition, endPosition);
+		}
+
+		//--------------------------------------------------------------
+
+		/**
+		 * Merges the runs of the second half of this task's tile, which is split at the specified position along its
+		 * lines, with those of the first half.  A run that crosses the boundary between the halves is found from the
+		 * raster; it contains the run of each half that ends or starts at the boundary.  As in a sequential scan, the
+		 * first of the longest runs of a line is kept.
+		 */
+
+		private void mergeRuns(
+			int		midPosition,
+			int[]	runStarts2,
+			int[]	runEnds2)
+		{
+			for (int i = startIndex; i < endIndex; i++)
 			{
-				return text;
+				// Add the run that crosses the boundary
+				int index = i - indexOffset;
+				if (isDark(i, midPosition - 1) && isDark(i, midPosition))
+				{
+					int start = midPosition - 1;
+					while ((start > startPosition) && isDark(i, start - 1))
+						--start;
+					int end = midPosition;
+					while ((end < endPosition - 1) && isDark(i, end + 1))
+						++end;
+					updateRunProfile(runStarts, runEnds, index, start, end);
+				}
+
+				// Add the longest run of the second half
+				int index2 = i - startIndex;
+				if (runEnds2[index2] >= 0)
+					updateRunProfile(runStarts, runEnds, index, runStarts2[index2], runEnds2[index2]);
 			}
+		}
 
-			//----------------------------------------------------------
+		//--------------------------------------------------------------
 
+		private boolean isDark(
+			int	index,
+			int	position)
+		{
+			int level = (orientation == Line.Orientation.HORIZONTAL) ? raster.getLevel(position, index)
+																	 : raster.getLevel(index, position);
+			return (level < darkLimit);
 		}
 
-		//==============================================================
+		//--------------------------------------------------------------
 
 	}
 
@@ -3571,6 +5829,249 @@ abstract class Grid
 
 	//==================================================================
 
+////////////////////////////////////////////////////////////////////////
+//  Member classes : inner classes
+////////////////////////////////////////////////////////////////////////
+
+
+	// CLASS: CELL BASE
+
+
+	/**
+	 * This class is the base class of a view of a cell of a grid.  A cell holds no state of its own: its separators
+	 * are held by the grid, and its fields are the fields of the grid that contain it.  A cell is therefore cheap to
+	 * create, and a new one is created whenever a cell of a grid is requested.
+	 */
+
+	protected abstract class Cell
+	{
+
+	////////////////////////////////////////////////////////////////////
+	//  Constants
+	////////////////////////////////////////////////////////////////////
+
+		private static final	double	ENTRY_TOP_OFFSET_FRACTION	= 0.1;
+		private static final	int		ENTRY_LEFT_OFFSET			= 1;
+
+		private static final	String	STYLE_SELECTOR1	= HtmlConstants.ElementName.DIV + CssSelector.ID
+															+ HtmlConstants.Id.GRID + CssSelector.CHILD
+															+ HtmlConstants.ElementName.DIV
+															+ CssSelector.CHILD
+															+ HtmlConstants.ElementName.DIV;
+		private static final	String	STYLE_SELECTOR2	= HtmlConstants.ElementName.DIV + CssSelector.CLASS
+															+ HtmlConstants.Class.FIELD_NUMBER;
+		private static final	String	STYLE_SELECTOR3	= HtmlConstants.ElementName.DIV + CssSelector.CLASS
+															+ HtmlConstants.Class.ENTRY;
+
+		private static final	CssRuleSet	CONTAINER_RULE_SET	= CssRuleSet.of
+		(
+			STYLE_SELECTOR1,
+			StrKVPair.of(CssProperty.DISPLAY,        "table-cell"),
+			StrKVPair.of(CssProperty.POSITION,       "relative"),
+			StrKVPair.of(CssProperty.VERTICAL_ALIGN, "top"),
+			StrKVPair.of(CssProperty.WIDTH,          "%dpx"),
+			StrKVPair.of(CssProperty.HEIGHT,         "%dpx"),
+			StrKVPair.of(CssProperty.BORDER,         "1px solid %s")
+		);
+		private static final	CssRuleSet	FIELD_NUMBER_RULE_SET	= CssRuleSet.of
+		(
+			STYLE_SELECTOR2,
+			StrKVPair.of(CssProperty.POSITION,    "absolute"),
+			StrKVPair.of(CssProperty.Z_INDEX,     "2"),
+			StrKVPair.of(CssProperty.WIDTH,       "100%"),
+			StrKVPair.of(CssProperty.HEIGHT,      "100%"),
+			StrKVPair.of(CssProperty.TOP,         "%dpx"),
+			StrKVPair.of(CssProperty.LEFT,        "%dpx"),
+			StrKVPair.of(CssProperty.TEXT_ALIGN,  "left"),
+			StrKVPair.of(CssProperty.LINE_HEIGHT, "100%"),
+			StrKVPair.of(CssProperty.FONT_SIZE,   "%s%%")
+		);
+		private static final	CssRuleSet	ENTRY_RULE_SET	= CssRuleSet.of
+		(
+			STYLE_SELECTOR3,
+			StrKVPair.of(CssProperty.POSITION,    "absolute"),
+			StrKVPair.of(CssProperty.Z_INDEX,     "3"),
+			StrKVPair.of(CssProperty.WIDTH,       "100%"),
+			StrKVPair.of(CssProperty.HEIGHT,      "100%"),
+			StrKVPair.of(CssProperty.TOP,         "%s%%"),
+			StrKVPair.of(CssProperty.LEFT,        "%dpx"),
+			StrKVPair.of(CssProperty.TEXT_ALIGN,  "center"),
+			StrKVPair.of(CssProperty.LINE_HEIGHT, "125%"),
+			StrKVPair.of(CssProperty.FONT_SIZE,   "125%"),
+			StrKVPair.of(CssProperty.COLOUR,      "%s")
+		);
+
+	////////////////////////////////////////////////////////////////////
+	//  Instance variables
+	////////////////////////////////////////////////////////////////////
+
+		protected	int	row;
+		protected	int	column;
+
+	////////////////////////////////////////////////////////////////////
+	//  Constructors
+	////////////////////////////////////////////////////////////////////
+
+		protected Cell(
+			int	row,
+			int	column)
+		{
+			this.row = row;
+			this.column = column;
+		}
+
+		//--------------------------------------------------------------
+
+	////////////////////////////////////////////////////////////////////
+	//  Class methods
+	////////////////////////////////////////////////////////////////////
+
+		public static List<CssRuleSet> getStyleRuleSets(
+			int		cellSize,
+			int		cellOffsetTop,
+			int		cellOffsetLeft,
+			Color	gridColour,
+			Color	entryColour,
+			int		fieldNumOffsetTop,
+			int		fieldNumOffsetLeft,
+			double	fieldNumFontSizeFactor)
+		{
+			// Initialise list of rule sets
+			List<CssRuleSet> ruleSets = new ArrayList<>();
+
+			// Add rule set: cell container
+			CssRuleSet ruleSet = CONTAINER_RULE_SET.clone();
+			ruleSet.replacePropertyValue(CssProperty.WIDTH, cellSize);
+			ruleSet.replacePropertyValue(CssProperty.HEIGHT, cellSize);
+			ruleSet.replacePropertyValue(CssProperty.BORDER, ColourUtils.colourToHexString(gridColour));
+			ruleSets.add(ruleSet);
+
+			// Add rule set: field number
+			ruleSet = FIELD_NUMBER_RULE_SET.clone();
+			ruleSet.replacePropertyValue(CssProperty.TOP, cellOffsetTop + fieldNumOffsetTop);
+			ruleSet.replacePropertyValue(CssProperty.LEFT, cellOffsetLeft + fieldNumOffsetLeft);
+			ruleSet.replacePropertyValue(CssProperty.FONT_SIZE,
+										 AppConstants.FORMAT_1_1.format(fieldNumFontSizeFactor * 100.0));
+			ruleSets.add(ruleSet);
+
+			// Add rule set: entry
+			ruleSet = ENTRY_RULE_SET.clone();
+			double offset = (double)cellOffsetTop / (double)cellSize + ENTRY_TOP_OFFSET_FRACTION;
+			ruleSet.replacePropertyValue(CssProperty.TOP, AppConstants.FORMAT_1_3.format(offset * 100.0));
+			ruleSet.replacePropertyValue(CssProperty.LEFT, cellOffsetLeft + ENTRY_LEFT_OFFSET);
+			ruleSet.replacePropertyValue(CssProperty.COLOUR, ColourUtils.colourToHexString(entryColour));
+			ruleSets.add(ruleSet);
+
+			// Return list of rule sets
+			return ruleSets;
+		}
+
+		//--------------------------------------------------------------
+
+	////////////////////////////////////////////////////////////////////
+	//  Abstract methods
+	////////////////////////////////////////////////////////////////////
+
+		protected abstract void write(
+			XmlWriter	writer,
+			int			indent,
+			int			cellSize,
+			int			fieldNumber,
+			char		entry)
+			throws IOException;
+
+		//--------------------------------------------------------------
+
+	////////////////////////////////////////////////////////////////////
+	//  Instance methods
+	////////////////////////////////////////////////////////////////////
+
+		public Field getField(
+			Direction	direction)
+		{
+			Field[] fields = cellFields.get(direction);
+			return (fields == null) ? null : fields[row * numColumns + column];
+		}
+
+		//--------------------------------------------------------------
+
+		public boolean isInField()
+		{
+			for (Direction direction : Direction.DEFINED_DIRECTIONS)
+			{
+				if (getField(direction) != null)
+					return true;
+			}
+			return false;
+		}
+
+		//--------------------------------------------------------------
+
+		public boolean isFieldOrigin()
+		{
+			return (getFieldNumber() > 0);
+		}
+
+		//--------------------------------------------------------------
+
+		public int getFieldNumber()
+		{
+			for (Direction direction : Direction.DEFINED_DIRECTIONS)
+			{
+				Field field = getField(direction);
+				if ((field != null) && (field.row == row) && (field.column == column))
+					return field.number;
+			}
+			return 0;
+		}
+
+		//--------------------------------------------------------------
+
+		protected List<Field> getFields()
+		{
+			List<Field> fields = new ArrayList<>();
+			for (Direction direction : Direction.DEFINED_DIRECTIONS)
+			{
+				Field field = getField(direction);
+				if (field != null)
+					fields.add(field);
+			}
+			return fields;
+		}
+
+		//--------------------------------------------------------------
+
+		protected void writeContents(
+			XmlWriter	writer,
+			int			fieldNumber,
+			char		entry)
+			throws IOException
+		{
+			AttributeList attributes = new AttributeList();
+			if (fieldNumber > 0)
+			{
+				attributes.add(HtmlConstants.AttrName.CLASS, HtmlConstants.Class.FIELD_NUMBER);
+				writer.writeElementStart(HtmlConstants.ElementName.DIV, attributes, 0, false, false);
+				writer.write(Integer.toString(fieldNumber));
+				writer.writeEndTag(HtmlConstants.ElementName.DIV);
+			}
+
+			if (entry != Entries.UNDEFINED_VALUE)
+			{
+				attributes.clear();
+				attributes.add(HtmlConstants.AttrName.CLASS, HtmlConstants.Class.ENTRY);
+				writer.writeElementStart(HtmlConstants.ElementName.DIV, attributes, 0, false, false);
+				writer.write(entry);
+				writer.writeEndTag(HtmlConstants.ElementName.DIV);
+			}
+		}
+
+		//--------------------------------------------------------------
+
+	}
+
+	//==================================================================
+
 }
 
 //----------------------------------------------------------------------
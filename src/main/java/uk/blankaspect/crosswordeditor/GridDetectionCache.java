@@ -0,0 +1,585 @@
+/*====================================================================*\
+
+GridDetectionCache.java
+
+Class: grid-detection cache.
+
+\*====================================================================*/
+
+
+// PACKAGE
+
+
+package uk.blankaspect.crosswordeditor;
+
+//----------------------------------------------------------------------
+
+
+// IMPORTS
+
+
+import java.io.File;
+
+import java.nio.charset.StandardCharsets;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import java.util.stream.Collectors;
+
+import uk.blankaspect.common.exception.AppException;
+import uk.blankaspect.common.exception.FileException;
+
+import uk.blankaspect.common.misc.FileWritingMode;
+import uk.blankaspect.common.misc.TextFile;
+
+//----------------------------------------------------------------------
+
+
+// CLASS: GRID-DETECTION CACHE
+
+
+/**
+ * This class implements a cache of the results of grid detection and grid extraction, so that a grid image that has
+ * been processed before (for example, an image that is pasted again after the capture dialog was cancelled) is not
+ * processed again.  A result is keyed by a {@linkplain PixelRaster#getContentHash() hash of the raster} of the image
+ * and by the parameters of detection or extraction:
+ * <ul>
+ *   <li>the location and dimensions of a grid that was found in an image are keyed by the raster of the whole image
+ *       and the parameters of detection;</li>
+ *   <li>a grid that was extracted from an image is keyed by the raster of the selected region of the image and the
+ *       parameters of extraction.</li>
+ * </ul>
+ * <p>
+ * Each kind of result is held in a map of bounded size from which the least recently used entry is removed.  If the
+ * {@linkplain AppConfig#isPersistentGridDetectionCache() corresponding configuration property} is set, the cache is
+ * read from a file in the configuration directory when it is first used and written to the file when the application
+ * exits.  The file is only a cache: if it cannot be read or one of its lines is malformed, the affected entries are
+ * ignored.
+ * </p>
+ * <p>
+ * The methods of this class may be called on any thread.
+ * </p>
+ */
+
+class GridDetectionCache
+{
+
+////////////////////////////////////////////////////////////////////////
+//  Constants
+////////////////////////////////////////////////////////////////////////
+
+	/** The single instance of the cache. */
+	public static final	GridDetectionCache	INSTANCE	= new GridDetectionCache();
+
+	/** The maximum number of grid locations that are held in the cache. */
+	private static final	int		MAX_NUM_GRID_INFOS	= 64;
+
+	/** The maximum number of extracted grids that are held in the cache. */
+	private static final	int		MAX_NUM_GRIDS		= 32;
+
+	/** The name of the file in the configuration directory to which the cache is written. */
+	private static final	String	FILENAME	= CrosswordEditorApp.NAME_KEY + "-gridDetectionCache.txt";
+
+	private static final	String	INFO_PREFIX		= "info";
+	private static final	String	GRID_PREFIX		= "grid";
+	private static final	String	FIELD_SEPARATOR	= " ";
+	private static final	String	LINE_SEPARATOR	= ",";
+
+	private static final	int		NUM_INFO_FIELDS	= 18;
+	private static final	int		NUM_GRID_FIELDS	= 14;
+
+////////////////////////////////////////////////////////////////////////
+//  Instance variables
+////////////////////////////////////////////////////////////////////////
+
+	private	Map<InfoKey, Grid.Info>	gridInfos;
+	private	Map<GridKey, Grid>		grids;
+	private	boolean					read;
+	private	boolean					changed;
+
+////////////////////////////////////////////////////////////////////////
+//  Constructors
+////////////////////////////////////////////////////////////////////////
+
+	private GridDetectionCache()
+	{
+		// Initialise instance variables
+		gridInfos = new LruMap<>(MAX_NUM_GRID_INFOS);
+		grids = new LruMap<>(MAX_NUM_GRIDS);
+	}
+
+	//------------------------------------------------------------------
+
+////////////////////////////////////////////////////////////////////////
+//  Class methods
+////////////////////////////////////////////////////////////////////////
+
+	private static File getFile()
+	{
+		File directory = AppConfig.INSTANCE.getDirectory();
+		return (directory == null) ? null : new File(directory, FILENAME);
+	}
+
+	//------------------------------------------------------------------
+
+////////////////////////////////////////////////////////////////////////
+//  Instance methods
+////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Returns the location and dimensions of the grid that was found with the specified key.
+	 *
+	 * @param  key
+	 *           the key of the grid.
+	 * @return the location and dimensions of the grid that was found with {@code key}, or {@code null} if there is no
+	 *         such grid in the cache.
+	 */
+
+	public synchronized Grid.Info getGridInfo(
+		InfoKey	key)
+	{
+		readIfPersistent();
+		return gridInfos.get(key);
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Adds the location and dimensions of the grid that was found with the specified key to the cache.
+	 *
+	 * @param key
+	 *          the key of the grid.
+	 * @param gridInfo
+	 *          the location and dimensions of the grid.
+	 */
+
+	public synchronized void putGridInfo(
+		InfoKey		key,
+		Grid.Info	gridInfo)
+	{
+		readIfPersistent();
+		gridInfos.put(key, gridInfo);
+		changed = true;
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Returns a copy of the grid that was extracted with the specified key.
+	 *
+	 * @param  key
+	 *           the key of the grid.
+	 * @return a copy of the grid that was extracted with {@code key}, or {@code null} if there is no such grid in the
+	 *         cache.
+	 */
+
+	public synchronized Grid getGrid(
+		GridKey	key)
+	{
+		readIfPersistent();
+		Grid grid = grids.get(key);
+		return (grid == null) ? null : grid.createCopy();
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Adds a copy of the grid that was extracted with the specified key to the cache.
+	 *
+	 * @param key
+	 *          the key of the grid.
+	 * @param grid
+	 *          the grid.
+	 */
+
+	public synchronized void putGrid(
+		GridKey	key,
+		Grid	grid)
+	{
+		readIfPersistent();
+		grids.put(key, grid.createCopy());
+		changed = true;
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Writes the cache to its file in the configuration directory if the cache is persistent and it has changed since
+	 * it was read.
+	 *
+	 * @throws AppException
+	 *           if an error occurred when writing the file.
+	 */
+
+	public synchronized void write()
+		throws AppException
+	{
+		// Test whether cache needs to be written
+		if (!changed || !AppConfig.INSTANCE.isPersistentGridDetectionCache())
+			return;
+
+		// Get file
+		File file = getFile();
+		if (file == null)
+			return;
+
+		// Create directory
+		File directory = file.getParentFile();
+		if (!directory.exists() && !directory.mkdirs())
+			throw new FileException(ErrorId.FAILED_TO_CREATE_DIRECTORY, directory);
+
+		// Write entries, least recently used first, so that the order is restored when the file is read
+		StringBuilder buffer = new StringBuilder(4096);
+		for (Map.Entry<InfoKey, Grid.Info> entry : gridInfos.entrySet())
+		{
+			InfoKey key = entry.getKey();
+			Grid.Info info = entry.getValue();
+			appendLine(buffer, INFO_PREFIX, Long.toHexString(key.contentHash), key.width, key.height,
+					   key.method.getKey(), key.darkLimit, key.minLineLength, key.minLineSeparation,
+					   key.endpointTolerance, info.x(), info.y(), info.width(), info.height(), info.numColumns(),
+					   info.numRows(), linesToString(info.columnLines()), linesToString(info.rowLines()),
+					   info.skewAngle());
+		}
+		for (Map.Entry<GridKey, Grid> entry : grids.entrySet())
+		{
+			GridKey key = entry.getKey();
+			Grid grid = entry.getValue();
+			appendLine(buffer, GRID_PREFIX, Long.toHexString(key.contentHash), key.width, key.height,
+					   key.separator.getKey(), key.numColumns, key.numRows, key.xOffset, key.yOffset,
+					   key.sampleSize, key.brightnessThreshold, key.barWidthThreshold, grid.getSymmetry().getKey(),
+					   String.join("", grid.getGridDefinition()));
+		}
+		TextFile.write(file, StandardCharsets.UTF_8, buffer, FileWritingMode.USE_TEMP_FILE);
+
+		// Reset changed status
+		changed = false;
+	}
+
+	//------------------------------------------------------------------
+
+	private void appendLine(
+		StringBuilder	buffer,
+		Object...		fields)
+	{
+		for (int i = 0; i < fields.length; i++)
+		{
+			if (i > 0)
+				buffer.append(FIELD_SEPARATOR);
+			buffer.append(fields[i]);
+		}
+		buffer.append('\n');
+	}
+
+	//------------------------------------------------------------------
+
+	private String linesToString(
+		int[]	lines)
+	{
+		return Arrays.stream(lines).mapToObj(Integer::toString).collect(Collectors.joining(LINE_SEPARATOR));
+	}
+
+	//------------------------------------------------------------------
+
+	private int[] parseLines(
+		String	str)
+	{
+		return Arrays.stream(str.split(LINE_SEPARATOR)).mapToInt(Integer::parseInt).toArray();
+	}
+
+	//------------------------------------------------------------------
+
+	private void readIfPersistent()
+	{
+		// Test whether cache has been read
+		if (read)
+			return;
+		read = true;
+
+		// Test whether cache is persistent
+		if (!AppConfig.INSTANCE.isPersistentGridDetectionCache())
+			return;
+
+		// Read lines of file
+		File file = getFile();
+		if ((file == null) || !file.isFile())
+			return;
+		List<String> lines = null;
+		try
+		{
+			lines = TextFile.readLines(file, StandardCharsets.UTF_8);
+		}
+		catch (AppException e)
+		{
+			return;
+		}
+
+		// Parse lines, ignoring malformed lines
+		for (String line : lines)
+		{
+			try
+			{
+				parseLine(line);
+			}
+			catch (AppException | IllegalArgumentException e)
+			{
+				// ignore
+			}
+		}
+	}
+
+	//------------------------------------------------------------------
+
+	private void parseLine(
+		String	line)
+		throws AppException
+	{
+		String[] fields = line.split(FIELD_SEPARATOR);
+		int index = 0;
+		String prefix = fields[index++];
+		if (prefix.equals(INFO_PREFIX) && (fields.length == NUM_INFO_FIELDS))
+		{
+			long contentHash = Long.parseUnsignedLong(fields[index++], 16);
+			int width = Integer.parseInt(fields[index++]);
+			int height = Integer.parseInt(fields[index++]);
+			Grid.DetectionMethod method = Grid.DetectionMethod.forKey(fields[index++]);
+			if (method == null)
+				throw new IllegalArgumentException();
+			InfoKey key = new InfoKey(contentHash, width, height, method, Integer.parseInt(fields[index++]),
+									  Integer.parseInt(fields[index++]), Integer.parseInt(fields[index++]),
+									  Integer.parseInt(fields[index++]));
+			Grid.Info info = new Grid.Info(Integer.parseInt(fields[index++]), Integer.parseInt(fields[index++]),
+										   Integer.parseInt(fields[index++]), Integer.parseInt(fields[index++]),
+										   Integer.parseInt(fields[index++]), Integer.parseInt(fields[index++]),
+										   parseLines(fields[index++]), parseLines(fields[index++]),
+										   Double.parseDouble(fields[index++]));
+			gridInfos.put(key, info);
+		}
+		else if (prefix.equals(GRID_PREFIX) && (fields.length == NUM_GRID_FIELDS))
+		{
+			long contentHash = Long.parseUnsignedLong(fields[index++], 16);
+			int width = Integer.parseInt(fields[index++]);
+			int height = Integer.parseInt(fields[index++]);
+			Grid.Separator separator = Grid.Separator.forKey(fields[index++]);
+			if (separator == null)
+				throw new IllegalArgumentException();
+			GridKey key = new GridKey(contentHash, width, height, separator, Integer.parseInt(fields[index++]),
+									  Integer.parseInt(fields[index++]), Integer.parseInt(fields[index++]),
+									  Integer.parseInt(fields[index++]), Integer.parseInt(fields[index++]),
+									  Double.parseDouble(fields[index++]), Integer.parseInt(fields[index++]));
+			Grid.Symmetry symmetry = Grid.Symmetry.forKey(fields[index++]);
+			if ((symmetry == null) || !symmetry.supportsDimensions(key.numColumns, key.numRows))
+				throw new IllegalArgumentException();
+			grids.put(key, separator.createGrid(key.numColumns, key.numRows, symmetry, fields[index++]));
+		}
+	}
+
+	//------------------------------------------------------------------
+
+////////////////////////////////////////////////////////////////////////
+//  Enumerated types
+////////////////////////////////////////////////////////////////////////
+
+
+	// ERROR IDENTIFIERS
+
+
+	private enum ErrorId
+		implements AppException.IId
+	{
+
+	////////////////////////////////////////////////////////////////////
+	//  Constants
+	////////////////////////////////////////////////////////////////////
+
+		FAILED_TO_CREATE_DIRECTORY
+		("Failed to create the directory for the grid-detection cache.");
+
+	////////////////////////////////////////////////////////////////////
+	//  Constructors
+	////////////////////////////////////////////////////////////////////
+
+		private ErrorId(String message)
+		{
+			this.message = message;
+		}
+
+		//--------------------------------------------------------------
+
+	////////////////////////////////////////////////////////////////////
+	//  Instance methods : AppException.IId interface
+	////////////////////////////////////////////////////////////////////
+
+		public String getMessage()
+		{
+			return message;
+		}
+
+		//--------------------------------------------------------------
+
+	////////////////////////////////////////////////////////////////////
+	//  Instance variables
+	////////////////////////////////////////////////////////////////////
+
+		private	String	message;
+
+	}
+
+	//==================================================================
+
+////////////////////////////////////////////////////////////////////////
+//  Member records
+////////////////////////////////////////////////////////////////////////
+
+
+	// RECORD: KEY OF GRID INFORMATION
+
+
+	/**
+	 * This record encapsulates the key of the location and dimensions of a grid that was found in an image.  The
+	 * brightness threshold is represented by the {@linkplain PixelRaster#getDarkLimit(double) dark limit} that is
+	 * derived from it, so that thresholds that select the same dark pixels share an entry.
+	 */
+
+	public record InfoKey(
+		long					contentHash,
+		int						width,
+		int						height,
+		Grid.DetectionMethod	method,
+		int						darkLimit,
+		int						minLineLength,
+		int						minLineSeparation,
+		int						endpointTolerance)
+	{
+
+	////////////////////////////////////////////////////////////////////
+	//  Constructors
+	////////////////////////////////////////////////////////////////////
+
+		public InfoKey(
+			PixelRaster				raster,
+			Grid.DetectionMethod	method,
+			int						darkLimit,
+			int						minLineLength,
+			int						minLineSeparation,
+			int						endpointTolerance)
+		{
+			this(raster.getContentHash(), raster.getWidth(), raster.getHeight(), method, darkLimit, minLineLength,
+				 minLineSeparation, endpointTolerance);
+		}
+
+		//--------------------------------------------------------------
+
+	}
+
+	//==================================================================
+
+
+	// RECORD: KEY OF EXTRACTED GRID
+
+
+	/**
+	 * This record encapsulates the key of a grid that was extracted from an image.  A parameter that does not apply to
+	 * the kind of separator of the grid should be zero.
+	 */
+
+	public record GridKey(
+		long			contentHash,
+		int				width,
+		int				height,
+		Grid.Separator	separator,
+		int				numColumns,
+		int				numRows,
+		int				xOffset,
+		int				yOffset,
+		int				sampleSize,
+		double			brightnessThreshold,
+		int				barWidthThreshold)
+	{
+
+	////////////////////////////////////////////////////////////////////
+	//  Constructors
+	////////////////////////////////////////////////////////////////////
+
+		public GridKey(
+			PixelRaster		raster,
+			Grid.Separator	separator,
+			int				numColumns,
+			int				numRows,
+			int				xOffset,
+			int				yOffset,
+			int				sampleSize,
+			double			brightnessThreshold,
+			int				barWidthThreshold)
+		{
+			this(raster.getContentHash(), raster.getWidth(), raster.getHeight(), separator, numColumns, numRows,
+				 xOffset, yOffset, sampleSize, brightnessThreshold, barWidthThreshold);
+		}
+
+		//--------------------------------------------------------------
+
+	}
+
+	//==================================================================
+
+////////////////////////////////////////////////////////////////////////
+//  Member classes : non-inner classes
+////////////////////////////////////////////////////////////////////////
+
+
+	// CLASS: LEAST-RECENTLY-USED MAP
+
+
+	/**
+	 * This class implements a map of bounded size that is iterated in order of access, from which the least recently
+	 * used entry is removed when the size limit is exceeded.
+	 */
+
+	private static class LruMap<K, V>
+		extends LinkedHashMap<K, V>
+	{
+
+	////////////////////////////////////////////////////////////////////
+	//  Instance variables
+	////////////////////////////////////////////////////////////////////
+
+		private	int	maxSize;
+
+	////////////////////////////////////////////////////////////////////
+	//  Constructors
+	////////////////////////////////////////////////////////////////////
+
+		private LruMap(
+			int	maxSize)
+		{
+			// Call superclass constructor
+			super(16, 0.75f, true);
+
+			// Initialise instance variables
+			this.maxSize = maxSize;
+		}
+
+		//--------------------------------------------------------------
+
+	////////////////////////////////////////////////////////////////////
+	//  Instance methods : overriding methods
+	////////////////////////////////////////////////////////////////////
+
+		@Override
+		protected boolean removeEldestEntry(
+			Map.Entry<K, V>	eldest)
+		{
+			return (size() > maxSize);
+		}
+
+		//--------------------------------------------------------------
+
+	}
+
+	//==================================================================
+
+}
+
+//----------------------------------------------------------------------
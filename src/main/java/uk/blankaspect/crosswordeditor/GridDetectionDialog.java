@@ -0,0 +1,654 @@
+/*====================================================================*\
+
+GridDetectionDialog.java
+
+Class: grid-detection dialog.
+
+\*====================================================================*/
+
+
+// PACKAGE
+
+
+package uk.blankaspect.crosswordeditor;
+
+//----------------------------------------------------------------------
+
+
+// IMPORTS
+
+
+import java.awt.BorderLayout;
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.GridBagConstraints;
+import java.awt.GridBagLayout;
+import java.awt.GridLayout;
+import java.awt.Insets;
+import java.awt.Point;
+import java.awt.RenderingHints;
+import java.awt.Window;
+
+import java.awt.event.ActionEvent;
+import java.awt.event.KeyEvent;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+
+import java.awt.image.BufferedImage;
+
+import javax.swing.AbstractAction;
+import javax.swing.BorderFactory;
+import javax.swing.Box;
+import javax.swing.JButton;
+import javax.swing.JComponent;
+import javax.swing.JDialog;
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import javax.swing.KeyStroke;
+
+import uk.blankaspect.common.exception.AppException;
+
+import uk.blankaspect.common.function.IProcedure0;
+
+import uk.blankaspect.ui.swing.border.TitledBorder;
+
+import uk.blankaspect.ui.swing.button.FButton;
+
+import uk.blankaspect.ui.swing.colour.Colours;
+
+import uk.blankaspect.ui.swing.combobox.FComboBox;
+
+import uk.blankaspect.ui.swing.label.FLabel;
+
+import uk.blankaspect.ui.swing.misc.GuiUtils;
+
+import uk.blankaspect.ui.swing.spinner.FIntegerSpinner;
+
+import uk.blankaspect.ui.swing.workaround.LinuxWorkarounds;
+
+//----------------------------------------------------------------------
+
+
+// CLASS: GRID-DETECTION DIALOG
+
+
+/**
+ * This class implements a modal dialog in which a grid is detected in an image on a background thread.  The grid
+ * that is found with the current parameters is drawn over a reduced copy of the image; when a parameter is changed,
+ * detection is repeated after a short delay, and a detection that is in progress is superseded.
+ */
+
+class GridDetectionDialog
+	extends JDialog
+{
+
+////////////////////////////////////////////////////////////////////////
+//  Constants
+////////////////////////////////////////////////////////////////////////
+
+	/** The internal margins of a command button. */
+	private static final	Insets	BUTTON_MARGINS	= new Insets(3, 8, 3, 8);
+
+	/** The maximum width and height of the view of the image. */
+	private static final	int		MAX_VIEW_WIDTH	= 640;
+	private static final	int		MAX_VIEW_HEIGHT	= 480;
+
+	/** The delay (in milliseconds) between the last change to a parameter and the start of detection. */
+	private static final	int		DETECTION_DELAY	= 250;
+
+	/** The colours of the overlay of the detected grid. */
+	private static final	Color	GRID_LINE_COLOUR	= new Color(224, 32, 0);
+	private static final	Color	GRID_FILL_COLOUR	= new Color(255, 96, 0, 40);
+
+	/** The command that is associated with the <i>cancel</i> button of the dialog. */
+	private static final	String	CANCEL_COMMAND	= "cancel";
+
+	/** The name of the threads on which grids are detected. */
+	private static final	String	THREAD_NAME	= "gridDetection";
+
+	/** Miscellaneous strings.  The labels of the parameters are those of the capture dialog. */
+	private static final	String	DETECT_GRID_STR	= "Detect grid";
+	private static final	String	DETECTING_STR	= "Detecting grid" + AppConstants.ELLIPSIS_STR;
+	private static final	String	GRID_FOUND_STR	= "Grid found: %d columns, %d rows";
+
+////////////////////////////////////////////////////////////////////////
+//  Class variables
+////////////////////////////////////////////////////////////////////////
+
+	private static	Point	location;
+
+////////////////////////////////////////////////////////////////////////
+//  Instance variables
+////////////////////////////////////////////////////////////////////////
+
+	private	Grid.DetectionSession				session;
+	private	BackgroundWorker<Grid.Info>			worker;
+	private	Grid.Info							gridInfo;
+	private	Result								result;
+	private	ImageView							imageView;
+	private	FComboBox<Grid.DetectionMethod>		methodComboBox;
+	private	FIntegerSpinner						brightnessThresholdSpinner;
+	private	FIntegerSpinner						minLengthSpinner;
+	private	FIntegerSpinner						minSeparationSpinner;
+	private	FIntegerSpinner						endpointToleranceSpinner;
+	private	JLabel								statusLabel;
+
+////////////////////////////////////////////////////////////////////////
+//  Constructors
+////////////////////////////////////////////////////////////////////////
+
+	private GridDetectionDialog(
+		Window					owner,
+		Grid.DetectionSession	session,
+		Params					params)
+	{
+		// Call superclass constructor
+		super(owner, DETECT_GRID_STR, ModalityType.APPLICATION_MODAL);
+
+		// Set icons
+		setIconImages(owner.getIconImages());
+
+		// Initialise instance variables
+		this.session = session;
+		worker = new BackgroundWorker<>(THREAD_NAME, DETECTION_DELAY, this::onDetectionFinished);
+
+
+		//----  Image view
+
+		imageView = new ImageView(session.getImage());
+		imageView.setBorder(BorderFactory.createLineBorder(Colours.LINE_BORDER));
+
+
+		//----  Control panel
+
+		GridBagLayout gridBag = new GridBagLayout();
+		GridBagConstraints gbc = new GridBagConstraints();
+
+		JPanel controlPanel = new JPanel(gridBag);
+		TitledBorder.setPaddedBorder(controlPanel, CaptureDialog.GRID_LINE_STR);
+
+		int gridY = 0;
+
+		// Combo box: detection method
+		methodComboBox = new FComboBox<>(Grid.DetectionMethod.values());
+		methodComboBox.setSelectedValue(params.method);
+		methodComboBox.addActionListener(event -> requestDetection());
+		addControl(controlPanel, gridBag, gbc, gridY++, CaptureDialog.DETECTION_METHOD_STR, methodComboBox);
+
+		// Spinner: brightness threshold
+		brightnessThresholdSpinner = CaptureDialog.createGridLineBrightnessThresholdSpinner(params.brightnessThreshold);
+		brightnessThresholdSpinner.addChangeListener(event -> requestDetection());
+		addControl(controlPanel, gridBag, gbc, gridY++, CaptureDialog.BRIGHTNESS_THRESHOLD_STR,
+				   brightnessThresholdSpinner);
+
+		// Spinner: minimum line length
+		minLengthSpinner = CaptureDialog.createGridLineMinLengthSpinner(params.minLineLength);
+		minLengthSpinner.addChangeListener(event -> requestDetection());
+		addControl(controlPanel, gridBag, gbc, gridY++, CaptureDialog.MIN_LENGTH_STR, minLengthSpinner);
+
+		// Spinner: minimum line separation
+		minSeparationSpinner = CaptureDialog.createGridLineMinSeparationSpinner(params.minLineSeparation);
+		minSeparationSpinner.addChangeListener(event -> requestDetection());
+		addControl(controlPanel, gridBag, gbc, gridY++, CaptureDialog.MIN_SEPARATION_STR, minSeparationSpinner);
+
+		// Spinner: line endpoint tolerance
+		endpointToleranceSpinner = CaptureDialog.createGridLineEndpointToleranceSpinner(params.endpointTolerance);
+		endpointToleranceSpinner.addChangeListener(event -> requestDetection());
+		addControl(controlPanel, gridBag, gbc, gridY++, CaptureDialog.ENDPOINT_TOLERANCE_STR,
+				   endpointToleranceSpinner);
+
+
+		//----  Status label
+
+		statusLabel = new FLabel(DETECTING_STR);
+		statusLabel.setBorder(BorderFactory.createEmptyBorder(2, 4, 2, 4));
+
+
+		//----  Button panel
+
+		JPanel innerButtonPane = new JPanel(new GridLayout(1, 0, 8, 0));
+
+		// Create procedure to close dialog
+		IProcedure0 closeDialog = () ->
+		{
+			worker.cancel();
+			location = getLocation();
+			setVisible(false);
+			dispose();
+		};
+
+		// Button: OK
+		JButton okButton = new FButton(AppConstants.OK_STR);
+		okButton.setMargin(BUTTON_MARGINS);
+		okButton.addActionListener(event ->
+		{
+			// Set result; the grid is discarded if detection is pending or in progress, because it was found with
+			// other parameters
+			result = new Result(getParams(), worker.isBusy() ? null : gridInfo);
+
+			// Close dialog
+			closeDialog.invoke();
+		});
+		innerButtonPane.add(okButton);
+
+		// Button: cancel
+		JButton cancelButton = new FButton(AppConstants.CANCEL_STR);
+		cancelButton.setMargin(BUTTON_MARGINS);
+		cancelButton.addActionListener(event -> closeDialog.invoke());
+		innerButtonPane.add(cancelButton);
+
+		// Create button pane
+		JPanel buttonPane = new JPanel(new BorderLayout());
+		buttonPane.add(innerButtonPane, BorderLayout.LINE_END);
+		buttonPane.setBorder(BorderFactory.createCompoundBorder(
+				BorderFactory.createMatteBorder(1, 0, 0, 0, Colours.LINE_BORDER),
+				BorderFactory.createEmptyBorder(4, 12, 4, 12)));
+
+
+		//----  Main panel
+
+		Box upperPane = Box.createHorizontalBox();
+		upperPane.setBorder(BorderFactory.createEmptyBorder(4, 4, 4, 4));
+		upperPane.add(imageView);
+		upperPane.add(Box.createHorizontalStrut(4));
+		Box controlPane = Box.createVerticalBox();
+		controlPane.add(controlPanel);
+		controlPane.add(Box.createVerticalGlue());
+		upperPane.add(controlPane);
+
+		JPanel mainPane = new JPanel(new BorderLayout());
+		mainPane.add(upperPane, BorderLayout.PAGE_START);
+		mainPane.add(statusLabel, BorderLayout.CENTER);
+		mainPane.add(buttonPane, BorderLayout.PAGE_END);
+
+		// Close dialog if Escape key is pressed
+		mainPane.getInputMap(JComponent.WHEN_ANCESTOR_OF_FOCUSED_COMPONENT)
+				.put(KeyStroke.getKeyStroke(KeyEvent.VK_ESCAPE, 0), CANCEL_COMMAND);
+		mainPane.getActionMap().put(CANCEL_COMMAND, new AbstractAction()
+		{
+			@Override
+			public void actionPerformed(
+				ActionEvent	event)
+			{
+				closeDialog.invoke();
+			}
+		});
+
+
+		//----  Window
+
+		// Set content pane
+		setContentPane(mainPane);
+
+		// Dispose of window explicitly
+		setDefaultCloseOperation(DO_NOTHING_ON_CLOSE);
+
+		// Handle window events
+		addWindowListener(new WindowAdapter()
+		{
+			@Override
+			public void windowOpened(
+				WindowEvent	event)
+			{
+				// WORKAROUND for a bug that has been observed on Linux/GNOME whereby a window is displaced downwards
+				// when its location is set.  The error in the y coordinate is the height of the title bar of the
+				// window.  The workaround is to set the location of the window again with an adjustment for the error.
+				LinuxWorkarounds.fixWindowYCoord(event.getWindow(), location);
+			}
+
+			@Override
+			public void windowClosing(
+				WindowEvent	event)
+			{
+				closeDialog.invoke();
+			}
+		});
+
+		// Prevent dialog from being resized
+		setResizable(false);
+
+		// Resize dialog to its preferred size
+		pack();
+
+		// Set location of dialog
+		if (location == null)
+			location = GuiUtils.getComponentLocation(this, owner);
+		setLocation(location);
+
+		// Set default button
+		getRootPane().setDefaultButton(okButton);
+
+		// Start detection with the initial parameters
+		Params initialParams = getParams();
+		worker.submitNow(() -> findGrid(initialParams));
+	}
+
+	//------------------------------------------------------------------
+
+////////////////////////////////////////////////////////////////////////
+//  Class methods
+////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Displays a dialog in which a grid is detected in the image of the specified session, and returns the result.
+	 *
+	 * @param  owner
+	 *           the owner of the dialog.
+	 * @param  session
+	 *           the detection session of the image.
+	 * @param  params
+	 *           the initial parameters of detection.
+	 * @return the result of the dialog, or {@code null} if the dialog was cancelled.
+	 */
+
+	public static Result show(
+		Window					owner,
+		Grid.DetectionSession	session,
+		Params					params)
+	{
+		GridDetectionDialog dialog = new GridDetectionDialog(owner, session, params);
+		dialog.setVisible(true);
+		return dialog.result;
+	}
+
+	//------------------------------------------------------------------
+
+	private static void addControl(
+		JPanel				panel,
+		GridBagLayout		gridBag,
+		GridBagConstraints	gbc,
+		int					gridY,
+		String				text,
+		JComponent			component)
+	{
+		// Label
+		JLabel label = new FLabel(text);
+
+		gbc.gridx = 0;
+		gbc.gridy = gridY;
+		gbc.gridwidth = 1;
+		gbc.gridheight = 1;
+		gbc.weightx = 0.0;
+		gbc.weighty = 0.0;
+		gbc.anchor = GridBagConstraints.LINE_END;
+		gbc.fill = GridBagConstraints.NONE;
+		gbc.insets = AppConstants.COMPONENT_INSETS;
+		gridBag.setConstraints(label, gbc);
+		panel.add(label);
+
+		// Component
+		gbc.gridx = 1;
+		gbc.gridy = gridY;
+		gbc.gridwidth = 1;
+		gbc.gridheight = 1;
+		gbc.weightx = 0.0;
+		gbc.weighty = 0.0;
+		gbc.anchor = GridBagConstraints.LINE_START;
+		gbc.fill = GridBagConstraints.NONE;
+		gbc.insets = AppConstants.COMPONENT_INSETS;
+		gridBag.setConstraints(component, gbc);
+		panel.add(component);
+	}
+
+	//------------------------------------------------------------------
+
+////////////////////////////////////////////////////////////////////////
+//  Instance methods
+////////////////////////////////////////////////////////////////////////
+
+	private Params getParams()
+	{
+		return new Params(methodComboBox.getSelectedValue(), brightnessThresholdSpinner.getIntValue(),
+						  minLengthSpinner.getIntValue(), minSeparationSpinner.getIntValue(),
+						  endpointToleranceSpinner.getIntValue());
+	}
+
+	//------------------------------------------------------------------
+
+	private Grid.Info findGrid(
+		Params	params)
+		throws AppException
+	{
+		return session.findGrid(params.method, params.getBrightnessThreshold(), params.minLineLength,
+								params.minLineSeparation, params.endpointTolerance);
+	}
+
+	//------------------------------------------------------------------
+
+	private void requestDetection()
+	{
+		Params params = getParams();
+		statusLabel.setText(DETECTING_STR);
+		worker.submit(() -> findGrid(params));
+	}
+
+	//------------------------------------------------------------------
+
+	private void onDetectionFinished(
+		BackgroundWorker.Result<Grid.Info>	detectionResult)
+	{
+		gridInfo = detectionResult.value();
+		if (gridInfo == null)
+			statusLabel.setText(detectionResult.exception().toString());
+		else
+			statusLabel.setText(String.format(GRID_FOUND_STR, gridInfo.numColumns(), gridInfo.numRows()));
+		imageView.repaint();
+	}
+
+	//------------------------------------------------------------------
+
+////////////////////////////////////////////////////////////////////////
+//  Member records
+////////////////////////////////////////////////////////////////////////
+
+
+	// RECORD: DETECTION PARAMETERS
+
+
+	/**
+	 * This record encapsulates the parameters of grid detection as they are set in the dialog.
+	 *
+	 * @param method
+	 *          the detection method.
+	 * @param brightnessThreshold
+	 *          the brightness threshold of grid lines, as a percentage.
+	 * @param minLineLength
+	 *          the minimum length of a grid line.
+	 * @param minLineSeparation
+	 *          the minimum separation of adjacent grid lines.
+	 * @param endpointTolerance
+	 *          the tolerance of the endpoints of grid lines.
+	 */
+
+	public record Params(
+		Grid.DetectionMethod	method,
+		int						brightnessThreshold,
+		int						minLineLength,
+		int						minLineSeparation,
+		int						endpointTolerance)
+	{
+
+	////////////////////////////////////////////////////////////////////
+	//  Instance methods
+	////////////////////////////////////////////////////////////////////
+
+		public double getBrightnessThreshold()
+		{
+			return (double)brightnessThreshold * CaptureDialog.BRIGHTNESS_THRESHOLD_FACTOR;
+		}
+
+		//--------------------------------------------------------------
+
+	}
+
+	//==================================================================
+
+
+	// RECORD: RESULT OF DIALOG
+
+
+	/**
+	 * This record encapsulates the result of the dialog.
+	 *
+	 * @param params
+	 *          the parameters of detection when the dialog was accepted.
+	 * @param gridInfo
+	 *          the grid that was found with {@code params}, or {@code null} if no grid was found.
+	 */
+
+	public record Result(
+		Params		params,
+		Grid.Info	gridInfo)
+	{ }
+
+	//==================================================================
+
+////////////////////////////////////////////////////////////////////////
+//  Member classes : inner classes
+////////////////////////////////////////////////////////////////////////
+
+
+	// CLASS: IMAGE VIEW
+
+
+	/**
+	 * This class implements a view of a reduced copy of the image, over which the bounds of the detected grid and the
+	 * positions of its lines are drawn.
+	 */
+
+	private class ImageView
+		extends JComponent
+	{
+
+	////////////////////////////////////////////////////////////////////
+	//  Instance variables
+	////////////////////////////////////////////////////////////////////
+
+		private	BufferedImage	viewImage;
+		private	double			scale;
+
+	////////////////////////////////////////////////////////////////////
+	//  Constructors
+	////////////////////////////////////////////////////////////////////
+
+		private ImageView(
+			BufferedImage	image)
+		{
+			// Create reduced copy of image
+			int width = image.getWidth();
+			int height = image.getHeight();
+			scale = Math.min(1.0, Math.min((double)MAX_VIEW_WIDTH / (double)width,
+										   (double)MAX_VIEW_HEIGHT / (double)height));
+			int viewWidth = Math.max(1, (int)Math.round((double)width * scale));
+			int viewHeight = Math.max(1, (int)Math.round((double)height * scale));
+			viewImage = new BufferedImage(viewWidth, viewHeight, BufferedImage.TYPE_INT_RGB);
+			Graphics2D gr = viewImage.createGraphics();
+			gr.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+			gr.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+			gr.drawImage(image, 0, 0, viewWidth, viewHeight, null);
+			gr.dispose();
+		}
+
+		//--------------------------------------------------------------
+
+	////////////////////////////////////////////////////////////////////
+	//  Instance methods : overriding methods
+	////////////////////////////////////////////////////////////////////
+
+		@Override
+		public Dimension getPreferredSize()
+		{
+			Insets insets = getInsets();
+			return new Dimension(viewImage.getWidth() + insets.left + insets.right,
+								 viewImage.getHeight() + insets.top + insets.bottom);
+		}
+
+		//--------------------------------------------------------------
+
+		@Override
+		public Dimension getMaximumSize()
+		{
+			return getPreferredSize();
+		}
+
+		//--------------------------------------------------------------
+
+		@Override
+		protected void paintComponent(
+			Graphics	gr)
+		{
+			// Draw image
+			Insets insets = getInsets();
+			gr.drawImage(viewImage, insets.left, insets.top, null);
+
+			// Draw grid
+			Grid.Info info = gridInfo;
+			if (info != null)
+			{
+				// Create graphics context; if the grid was found in a deskewed image, rotate the context so that the
+				// grid is drawn at the angle of the lines of the image
+				Graphics2D gr2d = (Graphics2D)gr.create();
+				if (info.skewAngle() != 0.0)
+				{
+					gr2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+					gr2d.rotate(info.skewAngle(), (double)insets.left + 0.5 * (double)viewImage.getWidth(),
+								(double)insets.top + 0.5 * (double)viewImage.getHeight());
+				}
+
+				// Get bounds of grid
+				int left = toViewX(info.x());
+				int top = toViewY(info.y());
+				int right = toViewX(info.x() + info.width());
+				int bottom = toViewY(info.y() + info.height());
+
+				// Fill cells
+				gr2d.setColor(GRID_FILL_COLOUR);
+				gr2d.fillRect(left, top, right - left, bottom - top);
+
+				// Draw the lines that were detected
+				gr2d.setColor(GRID_LINE_COLOUR);
+				for (int x : info.columnLines())
+				{
+					int viewX = toViewX(x);
+					gr2d.drawLine(viewX, top, viewX, bottom);
+				}
+				for (int y : info.rowLines())
+				{
+					int viewY = toViewY(y);
+					gr2d.drawLine(left, viewY, right, viewY);
+				}
+				gr2d.dispose();
+			}
+		}
+
+		//--------------------------------------------------------------
+
+	////////////////////////////////////////////////////////////////////
+	//  Instance methods
+	////////////////////////////////////////////////////////////////////
+
+		private int toViewX(
+			int	x)
+		{
+			return getInsets().left + (int)Math.round((double)x * scale);
+		}
+
+		//--------------------------------------------------------------
+
+		private int toViewY(
+			int	y)
+		{
+			return getInsets().top + (int)Math.round((double)y * scale);
+		}
+
+		//--------------------------------------------------------------
+
+	}
+
+	//==================================================================
+
+}
+
+//----------------------------------------------------------------------
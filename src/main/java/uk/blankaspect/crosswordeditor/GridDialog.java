@@ -92,6 +92,7 @@ class GridDialog
 
 	private static final	String	TITLE_STR				= "Grid";
 	private static final	String	SYMMETRY_STR			= "Symmetry";
+	private static final	String	SEPARATOR_SYMMETRY_STR	= "Symmetry of separators";
 	private static final	String	FULLY_INTERSECTING_STR	= "Highlight fully intersecting fields";
 	private static final	String	UNDO_STR				= "Undo";
 	private static final	String	REDO_STR				= "Redo";
@@ -138,6 +139,7 @@ class GridDialog
 
 	private	boolean						accepted;
 	private	FComboBox<Grid.Symmetry>	symmetryComboBox;
+	private	JLabel						separatorSymmetryLabel;
 	private	JCheckBox					highlightFullyIntersectingCheckBox;
 	private	GridPane					gridPane;
 	private	Map<Direction, NumberField>	numFieldsFields;
@@ -206,6 +208,36 @@ class GridDialog
 		gridBag.setConstraints(symmetryComboBox, gbc);
 		controlPanel.add(symmetryComboBox);
 
+		// Label: symmetry of separators
+		JLabel separatorSymmetryTitleLabel = new FLabel(SEPARATOR_SYMMETRY_STR);
+
+		gbc.gridx = 0;
+		gbc.gridy = gridY;
+		gbc.gridwidth = 1;
+		gbc.gridheight = 1;
+		gbc.weightx = 0.0;
+		gbc.weighty = 0.0;
+		gbc.anchor = GridBagConstraints.LINE_END;
+		gbc.fill = GridBagConstraints.NONE;
+		gbc.insets = AppConstants.COMPONENT_INSETS;
+		gridBag.setConstraints(separatorSymmetryTitleLabel, gbc);
+		controlPanel.add(separatorSymmetryTitleLabel);
+
+		// Label: symmetry of separators, value
+		separatorSymmetryLabel = new FLabel(grid.getSeparatorSymmetry().toString());
+
+		gbc.gridx = 1;
+		gbc.gridy = gridY++;
+		gbc.gridwidth = 1;
+		gbc.gridheight = 1;
+		gbc.weightx = 0.0;
+		gbc.weighty = 0.0;
+		gbc.anchor = GridBagConstraints.LINE_START;
+		gbc.fill = GridBagConstraints.NONE;
+		gbc.insets = AppConstants.COMPONENT_INSETS;
+		gridBag.setConstraints(separatorSymmetryLabel, gbc);
+		controlPanel.add(separatorSymmetryLabel);
+
 		// Check box: highlight fully intersecting fields
 		highlightFullyIntersectingCheckBox = new FCheckBox(FULLY_INTERSECTING_STR);
 		highlightFullyIntersectingCheckBox.setSelected(highlightFullyIntersecting);
@@ -449,6 +481,7 @@ class GridDialog
 	public void stateChanged(ChangeEvent event)
 	{
 		symmetryComboBox.setSelectedValue(gridPane.getGrid().getSymmetry());
+		updateSeparatorSymmetry();
 	}
 
 	//------------------------------------------------------------------
@@ -516,6 +549,13 @@ class GridDialog
 
 	//------------------------------------------------------------------
 
+	private void updateSeparatorSymmetry()
+	{
+		separatorSymmetryLabel.setText(gridPane.getGrid().getSeparatorSymmetry().toString());
+	}
+
+	//------------------------------------------------------------------
+
 	private void updateHighlighting()
 	{
 		gridPane.setHighlightFullyIntersecting(highlightFullyIntersectingCheckBox.isSelected());
@@ -552,6 +592,7 @@ class GridDialog
 	{
 		gridPane.setSymmetry(symmetryComboBox.getSelectedValue());
 		updateNumFields();
+		updateSeparatorSymmetry();
 	}
 
 	//------------------------------------------------------------------
@@ -507,13 +507,12 @@ abstract class GridPane
 			if (grid.isIncorrectEntries())
 			{
 				gr2d.setColor(CrosswordView.Colour.ISOLATED_CELL_BACKGROUND.get());
-				for (row = 0; row < numRows; row++)
+				for (int index = grid.getNextIncorrectEntryIndex(0); index >= 0;
+						index = grid.getNextIncorrectEntryIndex(index + 1))
 				{
-					for (column = 0; column < numColumns; column++)
-					{
-						if (grid.isIncorrectEntry(row, column))
-							gr2d.fillRect(column * cellSize + 1, row * cellSize + 1, cellSize - 1, cellSize - 1);
-					}
+					row = index / numColumns;
+					column = index % numColumns;
+					gr2d.fillRect(column * cellSize + 1, row * cellSize + 1, cellSize - 1, cellSize - 1);
 				}
 			}
 
@@ -0,0 +1,1124 @@
+/*====================================================================*\
+
+PixelRaster.java
+
+Pixel raster class.
+
+\*====================================================================*/
+
+
+// PACKAGE
+
+
+package uk.blankaspect.crosswordeditor;
+
+//----------------------------------------------------------------------
+
+
+// IMPORTS
+
+
+import java.awt.Rectangle;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.Raster;
+import java.awt.image.SampleModel;
+import java.awt.image.SinglePixelPackedSampleModel;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+import java.nio.ByteOrder;
+
+import java.util.Arrays;
+
+//----------------------------------------------------------------------
+
+
+// PIXEL RASTER CLASS
+
+
+/**
+ * This class implements a plane of the brightness levels of the pixels of an image.  The brightness level of a pixel
+ * is the maximum of its red, green and blue components, so that a level divided by {@link #MAX_LEVEL} is equal to the
+ * value that is returned by {@code ColourUtils.getBrightness(int)} for the pixel.
+ * <p>
+ * The image is converted once, when the raster is created.  Where the data buffer of the image is a {@link
+ * DataBufferInt} or {@link DataBufferByte} of a common layout, the levels are read directly from the buffer;
+ * otherwise, the pixels are obtained a row at a time with {@link BufferedImage#getRGB(int, int, int, int, int[], int,
+ * int)}.
+ * </p>
+ */
+
+class PixelRaster
+{
+
+////////////////////////////////////////////////////////////////////////
+//  Constants
+////////////////////////////////////////////////////////////////////////
+
+	public static final	int	MAX_LEVEL	= 255;
+
+	private static final	int	NUM_COLOUR_BANDS	= 3;
+
+	/** The multiplier of the content hash: the golden ratio as a 64-bit fraction. */
+	private static final	long	HASH_MULTIPLIER	= 0x9E3779B97F4A7C15L;
+
+	/** The maximum skew angle, in radians, that is found by {@link #getSkewAngle(int)}. */
+	private static final	double	MAX_SKEW_ANGLE	= Math.toRadians(10.0);
+
+	/** The intervals between the angles of the coarse and fine passes of {@link #getSkewAngle(int)}. */
+	private static final	double	COARSE_SKEW_ANGLE_STEP	= Math.toRadians(0.25);
+	private static final	double	FINE_SKEW_ANGLE_STEP	= Math.toRadians(0.025);
+
+	/**
+	 * The range, in radians, either side of the best coarse angle over which the fine pass searches.  It is wider than
+	 * a coarse step so that both flanks of the peak of the fine pass lie within the range.
+	 */
+	private static final	double	FINE_SKEW_ANGLE_RANGE	= Math.toRadians(0.5);
+
+	/** The maximum number of edge pixels that are used to estimate the skew angle. */
+	private static final	int		MAX_NUM_EDGE_PIXELS	= 1 << 17;
+
+	/**
+	 * Flag: if {@code true}, the dark masks of rows are created by {@link DarkMaskVectorKernel}.  The vector API is an
+	 * incubator module that is resolved only if it is added to the boot layer (for example, with the JVM option
+	 * {@code --add-modules jdk.incubator.vector}); otherwise, the scalar kernel is used.
+	 */
+	private static final	boolean	VECTOR_DARK_MASK	=
+			ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent();
+
+	/** A view of a byte array as an array of little-endian {@code long}s. */
+	private static final	VarHandle	LONG_VIEW	=
+			MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+////////////////////////////////////////////////////////////////////////
+//  Instance variables
+////////////////////////////////////////////////////////////////////////
+
+	private	int		width;
+	private	int		height;
+	private	byte[]	levels;
+	private	int[]	histogram;
+	private	Long	contentHash;
+
+	/**
+	 * The summed-area table of the levels, which is created when it is first needed.  A raster may be shared by
+	 * threads, so the table is published through a volatile reference only after it has been filled.
+	 */
+	private volatile	int[]	summedAreaTable;
+
+////////////////////////////////////////////////////////////////////////
+//  Constructors
+////////////////////////////////////////////////////////////////////////
+
+	public PixelRaster(
+		BufferedImage	image)
+	{
+		// Initialise instance variables
+		width = image.getWidth();
+		height = image.getHeight();
+		levels = new byte[width * height];
+		histogram = new int[MAX_LEVEL + 1];
+
+		// Extract brightness levels from image
+		if (!extractPackedInt(image) && !extractInterleavedByte(image))
+			extractRgb(image);
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Creates a raster of the specified dimensions whose levels are all zero.  The levels may be set with {@link
+	 * #setRows(int, PixelRaster)}.
+	 */
+
+	public PixelRaster(
+		int	width,
+		int	height)
+	{
+		this(width, height, new byte[width * height], new int[MAX_LEVEL + 1]);
+		histogram[0] = width * height;
+	}
+
+	//------------------------------------------------------------------
+
+	private PixelRaster(
+		int		width,
+		int		height,
+		byte[]	levels,
+		int[]	histogram)
+	{
+		this.width = width;
+		this.height = height;
+		this.levels = levels;
+		this.histogram = histogram;
+	}
+
+	//------------------------------------------------------------------
+
+////////////////////////////////////////////////////////////////////////
+//  Class methods
+////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Returns the number of brightness levels that are below the specified brightness threshold.  A pixel whose level
+	 * is less than the returned value satisfies {@code level / MAX_LEVEL < brightnessThreshold}.
+	 *
+	 * @param  brightnessThreshold
+	 *           the brightness threshold, in the range 0.0 to 1.0.
+	 * @return the number of brightness levels that are below {@code brightnessThreshold}.
+	 */
+
+	public static int getDarkLimit(
+		double	brightnessThreshold)
+	{
+		int limit = 0;
+		while ((limit <= MAX_LEVEL) && ((double)limit / (double)MAX_LEVEL < brightnessThreshold))
+			++limit;
+		return limit;
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Returns the number of {@code long} words of a dark mask of the specified length.
+	 *
+	 * @param  length
+	 *           the number of pixels of the mask.
+	 * @return the number of words of a mask of {@code length} pixels.
+	 * @see    #getRowDarkMask(int, int, int, int, long[])
+	 */
+
+	public static int getNumMaskWords(
+		int	length)
+	{
+		return (length + Long.SIZE - 1) >>> 6;
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Returns the index of the first set bit of the specified mask that is not less than the specified index.
+	 *
+	 * @param  mask
+	 *           the mask.
+	 * @param  fromIndex
+	 *           the index of the bit at which the search will start.
+	 * @param  length
+	 *           the number of bits of the mask.
+	 * @return the index of the first set bit of {@code mask} at or after {@code fromIndex}, or {@code length} if there
+	 *         is no such bit.
+	 */
+
+	public static int nextSetBit(
+		long[]	mask,
+		int		fromIndex,
+		int		length)
+	{
+		if (fromIndex >= length)
+			return length;
+		int i = fromIndex >>> 6;
+		long word = mask[i] & (-1L << fromIndex);
+		while (word == 0)
+		{
+			if (++i >= mask.length)
+				return length;
+			word = mask[i];
+		}
+		return Math.min((i << 6) + Long.numberOfTrailingZeros(word), length);
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Returns the index of the first clear bit of the specified mask that is not less than the specified index.
+	 *
+	 * @param  mask
+	 *           the mask.
+	 * @param  fromIndex
+	 *           the index of the bit at which the search will start.
+	 * @param  length
+	 *           the number of bits of the mask.
+	 * @return the index of the first clear bit of {@code mask} at or after {@code fromIndex}, or {@code length} if
+	 *         there is no such bit.
+	 */
+
+	public static int nextClearBit(
+		long[]	mask,
+		int		fromIndex,
+		int		length)
+	{
+		if (fromIndex >= length)
+			return length;
+		int i = fromIndex >>> 6;
+		long word = ~mask[i] & (-1L << fromIndex);
+		while (word == 0)
+		{
+			if (++i >= mask.length)
+				return length;
+			word = ~mask[i];
+		}
+		return Math.min((i << 6) + Long.numberOfTrailingZeros(word), length);
+	}
+
+	//------------------------------------------------------------------
+
+	private static int getLevel(
+		int	rgb)
+	{
+		int red = (rgb >> 16) & 0xFF;
+		int green = (rgb >> 8) & 0xFF;
+		int blue = rgb & 0xFF;
+		return Math.max(Math.max(red, green), blue);
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Returns the brightness threshold that separates the pixels of the specified histogram of brightness levels into
+	 * dark and light classes by Otsu's method.
+	 *
+	 * @param  histogram
+	 *           the histogram of brightness levels, which must have {@link #MAX_LEVEL} + 1 elements.
+	 * @return the brightness threshold, in the range 0.0 to 1.0, that separates the pixels of {@code histogram} into
+	 *         dark and light classes.
+	 * @see    #getOtsuThreshold()
+	 */
+
+	public static double getOtsuThreshold(
+		int[]	histogram)
+	{
+		// Get the number of pixels and the sum of their levels
+		long numPixels = 0;
+		long levelSum = 0;
+		for (int i = 0; i <= MAX_LEVEL; i++)
+		{
+			numPixels += histogram[i];
+			levelSum += (long)i * (long)histogram[i];
+		}
+
+		// Find the levels that maximise the between-class variance when they are the highest level of the dark class.
+		// Where there is a range of such levels (ie, no pixels have the levels between them), take its midpoint.
+		int minMaxLevel = 0;
+		int maxMaxLevel = 0;
+		double maxVariance = -1.0;
+		long numDarkPixels = 0;
+		long darkLevelSum = 0;
+		for (int i = 0; i < MAX_LEVEL; i++)
+		{
+			numDarkPixels += histogram[i];
+			darkLevelSum += (long)i * (long)histogram[i];
+			long numLightPixels = numPixels - numDarkPixels;
+			if ((numDarkPixels > 0) && (numLightPixels > 0))
+			{
+				double meanDiff = (double)darkLevelSum / (double)numDarkPixels
+									- (double)(levelSum - darkLevelSum) / (double)numLightPixels;
+				double variance = (double)numDarkPixels * (double)numLightPixels * meanDiff * meanDiff;
+				if (maxVariance < variance)
+				{
+					maxVariance = variance;
+					minMaxLevel = i;
+					maxMaxLevel = i;
+				}
+				else if (maxVariance == variance)
+					maxMaxLevel = i;
+			}
+		}
+
+		// Return the threshold that lies midway between the highest dark level and the next level
+		return ((double)((minMaxLevel + maxMaxLevel) / 2) + 0.5) / (double)MAX_LEVEL;
+	}
+
+	//------------------------------------------------------------------
+
+////////////////////////////////////////////////////////////////////////
+//  Instance methods
+////////////////////////////////////////////////////////////////////////
+
+	public int getWidth()
+	{
+		return width;
+	}
+
+	//------------------------------------------------------------------
+
+	public int getHeight()
+	{
+		return height;
+	}
+
+	//------------------------------------------------------------------
+
+	public int getLevel(
+		int	x,
+		int	y)
+	{
+		return levels[y * width + x] & 0xFF;
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Returns the histogram of the brightness levels of the raster.  The returned array is not a copy, and it must not
+	 * be modified.
+	 *
+	 * @return the histogram of the brightness levels of the raster.
+	 */
+
+	public int[] getHistogram()
+	{
+		return histogram;
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Sets the levels of the rows of this raster that start at the specified row to the levels of the specified raster,
+	 * and updates the histogram of this raster.  The raster must have the same width as this raster.
+	 *
+	 * @param  y
+	 *           the index of the first row of this raster whose levels will be set.
+	 * @param  raster
+	 *           the raster whose levels will be copied to this raster.
+	 * @throws IllegalArgumentException
+	 *           if {@code raster} does not have the same width as this raster or its rows do not lie within this
+	 *           raster.
+	 */
+
+	public void setRows(
+		int			y,
+		PixelRaster	raster)
+	{
+		// Validate arguments
+		if ((raster.width != width) || (y < 0) || (y + raster.height > height))
+			throw new IllegalArgumentException();
+
+		// Replace levels and update histogram
+		int offset = y * width;
+		int length = raster.levels.length;
+		for (int i = 0; i < length; i++)
+		{
+			--histogram[levels[offset + i] & 0xFF];
+			++histogram[raster.levels[i] & 0xFF];
+		}
+		System.arraycopy(raster.levels, 0, levels, offset, length);
+
+		// Invalidate summed-area table and content hash
+		summedAreaTable = null;
+		contentHash = null;
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Returns a 64-bit hash of the dimensions and levels of this raster.  The hash is computed when this method is first
+	 * called, eight levels at a time, so the cost of subsequent calls does not depend on the size of the raster.  The
+	 * hash is not cryptographic; it identifies a raster in a cache with a negligible probability of collision.
+	 *
+	 * @return a 64-bit hash of the dimensions and levels of this raster.
+	 */
+
+	public synchronized long getContentHash()
+	{
+		if (contentHash == null)
+			contentHash = createContentHash();
+		return contentHash;
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Returns the brightness levels of the raster in row-major order.  The returned array is not a copy, and it must
+	 * not be modified.
+	 *
+	 * @return the brightness levels of the raster in row-major order.
+	 */
+
+	public byte[] getLevels()
+	{
+		return levels;
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Returns the brightness threshold that separates the pixels of this raster into dark and light classes by Otsu's
+	 * method: the threshold maximises the variance between the two classes.  The histogram of brightness levels from
+	 * which the threshold is derived is created when the raster is created, so the cost of this method does not
+	 * depend on the size of the raster.
+	 *
+	 * @return the brightness threshold, in the range 0.0 to 1.0, that separates the pixels of this raster into dark
+	 *         and light classes.  A pixel is in the dark class if its level divided by {@link #MAX_LEVEL} is less than
+	 *         the threshold.
+	 */
+
+	public double getOtsuThreshold()
+	{
+		return getOtsuThreshold(histogram);
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Returns the sum of the brightness levels of the specified rectangular region of this raster.  The sum is
+	 * obtained from a summed-area table, which is created when this method is first called, so the cost of the method
+	 * does not depend on the size of the region.  The method may be called concurrently by several threads; the table
+	 * is created only once.
+	 * <p>
+	 * The elements of the summed-area table are allowed to overflow: the sum of a region is the difference of four
+	 * elements, which is correct in {@code int} arithmetic provided that the sum itself does not exceed {@link
+	 * Integer#MAX_VALUE}.  This holds for any region of fewer than about 8.4 million pixels.
+	 * </p>
+	 *
+	 * @param  x1
+	 *           the x coordinate of the left edge of the region (inclusive).
+	 * @param  y1
+	 *           the y coordinate of the top edge of the region (inclusive).
+	 * @param  x2
+	 *           the x coordinate of the right edge of the region (exclusive).
+	 * @param  y2
+	 *           the y coordinate of the bottom edge of the region (exclusive).
+	 * @return the sum of the brightness levels of the specified region of this raster.
+	 */
+
+	public int getLevelSum(
+		int	x1,
+		int	y1,
+		int	x2,
+		int	y2)
+	{
+		// Get summed-area table
+		int[] table = summedAreaTable;
+		if (table == null)
+			table = getSummedAreaTable();
+
+		// Return sum of levels of region
+		int stride = width + 1;
+		return table[y2 * stride + x2] - table[y1 * stride + x2] - table[y2 * stride + x1] + table[y1 * stride + x1];
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Returns a raster whose levels are a copy of the specified region of this raster.
+	 *
+	 * @param  region
+	 *           the region of this raster that will be copied.
+	 * @return a raster whose levels are a copy of {@code region} of this raster.
+	 * @throws IllegalArgumentException
+	 *           if {@code region} does not lie within the bounds of this raster.
+	 */
+
+	public PixelRaster getSubraster(
+		Rectangle	region)
+	{
+		// Validate argument
+		if ((region.x < 0) || (region.width < 0) || (region.x + region.width > width)
+				|| (region.y < 0) || (region.height < 0) || (region.y + region.height > height))
+			throw new IllegalArgumentException();
+
+		// Copy levels of region
+		byte[] outLevels = new byte[region.width * region.height];
+		for (int y = 0; y < region.height; y++)
+			System.arraycopy(levels, (region.y + y) * width + region.x, outLevels, y * region.width, region.width);
+
+		// Create histogram of region
+		int[] outHistogram = new int[MAX_LEVEL + 1];
+		for (byte level : outLevels)
+			++outHistogram[level & 0xFF];
+
+		// Return new raster
+		return new PixelRaster(region.width, region.height, outLevels, outHistogram);
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Sets the specified mask to the dark pixels of the specified span of a row of this raster.  Bit <i>i</i> of the
+	 * mask (bit {@code i & 63} of word {@code i >>> 6}) is set if the level of the pixel at ({@code startColumn + i},
+	 * {@code y}) is less than the dark limit.  The unused bits of the last word are cleared.
+	 *
+	 * @param darkLimit
+	 *          the number of brightness levels that are considered dark.
+	 * @param y
+	 *          the index of the row.
+	 * @param startColumn
+	 *          the index of the first column of the span (inclusive).
+	 * @param endColumn
+	 *          the index of the last column of the span (exclusive).
+	 * @param mask
+	 *          the mask, which must have at least {@link #getNumMaskWords(int) getNumMaskWords(endColumn -
+	 *          startColumn)} words.
+	 */
+
+	public void getRowDarkMask(
+		int		darkLimit,
+		int		y,
+		int		startColumn,
+		int		endColumn,
+		long[]	mask)
+	{
+		if (VECTOR_DARK_MASK)
+			DarkMaskVectorKernel.getDarkMask(levels, darkLimit, y * width + startColumn, endColumn - startColumn, mask);
+		else
+			getDarkMask(darkLimit, y * width + startColumn, 1, endColumn - startColumn, mask);
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Sets the specified mask to the dark pixels of the specified span of a column of this raster.  Bit <i>i</i> of the
+	 * mask is set if the level of the pixel at ({@code x}, {@code startRow + i}) is less than the dark limit.
+	 *
+	 * @param darkLimit
+	 *          the number of brightness levels that are considered dark.
+	 * @param x
+	 *          the index of the column.
+	 * @param startRow
+	 *          the index of the first row of the span (inclusive).
+	 * @param endRow
+	 *          the index of the last row of the span (exclusive).
+	 * @param mask
+	 *          the mask, which must have at least {@link #getNumMaskWords(int) getNumMaskWords(endRow - startRow)}
+	 *          words.
+	 * @see   #getRowDarkMask(int, int, int, int, long[])
+	 */
+
+	public void getColumnDarkMask(
+		int		darkLimit,
+		int		x,
+		int		startRow,
+		int		endRow,
+		long[]	mask)
+	{
+		getDarkMask(darkLimit, startRow * width + x, width, endRow - startRow, mask);
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Returns a raster whose width and height are half those of this raster (rounded up).  Each level of the returned
+	 * raster is the minimum of the levels of the corresponding 2&times;2 block of this raster, so that dark lines that
+	 * are one pixel wide are preserved.
+	 *
+	 * @return a raster that is reduced to half the width and height of this raster.
+	 */
+
+	public PixelRaster createReducedRaster()
+	{
+		int outWidth = (width + 1) / 2;
+		int outHeight = (height + 1) / 2;
+		byte[] outLevels = new byte[outWidth * outHeight];
+		int[] outHistogram = new int[MAX_LEVEL + 1];
+		int index = 0;
+		for (int y = 0; y < outHeight; y++)
+		{
+			int row1 = 2 * y * width;
+			int row2 = Math.min(2 * y + 1, height - 1) * width;
+			for (int x = 0; x < outWidth; x++)
+			{
+				int x1 = 2 * x;
+				int x2 = Math.min(x1 + 1, width - 1);
+				int level = Math.min(Math.min(levels[row1 + x1] & 0xFF, levels[row1 + x2] & 0xFF),
+									 Math.min(levels[row2 + x1] & 0xFF, levels[row2 + x2] & 0xFF));
+				outLevels[index++] = (byte)level;
+				++outHistogram[level];
+			}
+		}
+		return new PixelRaster(outWidth, outHeight, outLevels, outHistogram);
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Returns a raster of the same size as this raster whose levels are those of this raster rotated about its centre
+	 * by the negation of the specified angle, so that lines of this raster that are skewed by the angle are
+	 * axis-aligned in the returned raster.  The levels are resampled with bilinear interpolation in a single pass;
+	 * the coordinates of the source of each row are incremented along the row.  Pixels whose source lies outside this
+	 * raster are set to {@link #MAX_LEVEL}.
+	 *
+	 * @param  angle
+	 *           the skew angle, in radians.  A positive angle is clockwise: a line of this raster whose skew angle is
+	 *           positive descends from left to right.
+	 * @return a raster whose levels are those of this raster rotated by {@code -angle}.
+	 */
+
+	public PixelRaster createDeskewedRaster(
+		double	angle)
+	{
+		double cos = Math.cos(angle);
+		double sin = Math.sin(angle);
+		double centreX = 0.5 * (double)(width - 1);
+		double centreY = 0.5 * (double)(height - 1);
+		byte[] outLevels = new byte[levels.length];
+		int[] outHistogram = new int[MAX_LEVEL + 1];
+		int index = 0;
+		for (int y = 0; y < height; y++)
+		{
+			// Get the coordinates of the source of the first pixel of the row
+			double dy = (double)y - centreY;
+			double sourceX = centreX - centreX * cos - dy * sin;
+			double sourceY = centreY - centreX * sin + dy * cos;
+
+			// Resample the row
+			for (int x = 0; x < width; x++)
+			{
+				int x0 = (int)Math.floor(sourceX);
+				int y0 = (int)Math.floor(sourceY);
+				double fx = sourceX - (double)x0;
+				double fy = sourceY - (double)y0;
+				int level00, level10, level01, level11;
+				if ((x0 >= 0) && (x0 < width - 1) && (y0 >= 0) && (y0 < height - 1))
+				{
+					int i = y0 * width + x0;
+					level00 = levels[i] & 0xFF;
+					level10 = levels[i + 1] & 0xFF;
+					level01 = levels[i + width] & 0xFF;
+					level11 = levels[i + width + 1] & 0xFF;
+				}
+				else
+				{
+					level00 = getLevelOrMax(x0, y0);
+					level10 = getLevelOrMax(x0 + 1, y0);
+					level01 = getLevelOrMax(x0, y0 + 1);
+					level11 = getLevelOrMax(x0 + 1, y0 + 1);
+				}
+				double top = (double)level00 + fx * (double)(level10 - level00);
+				double bottom = (double)level01 + fx * (double)(level11 - level01);
+				int level = (int)(top + fy * (bottom - top) + 0.5);
+				outLevels[index++] = (byte)level;
+				++outHistogram[level];
+
+				sourceX += cos;
+				sourceY += sin;
+			}
+		}
+		return new PixelRaster(width, height, outLevels, outHistogram);
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Estimates the skew angle of the lines of this raster with a Hough transform of its edge pixels.
+	 * <p>
+	 * An edge pixel is a dark pixel whose upper neighbour (for the edges of near-horizontal lines) or left neighbour
+	 * (for the edges of near-vertical lines) is light.  The edge pixels are collected in a single pass over the
+	 * raster; if there are more than {@link #MAX_NUM_EDGE_PIXELS} of them, a regular sample of them is used, so the
+	 * cost of the transform is bounded.  For each candidate angle,
+	 * the edge pixels are accumulated by their distance from the origin along the normal to lines of that angle, in a
+	 * flat accumulator of all angles; the estimated angle is the one whose accumulated counts have the greatest sum of
+	 * squares, which is the angle at which the edges are most concentrated on lines.  The angles are searched in a
+	 * coarse pass over the range &plusmn;{@link #MAX_SKEW_ANGLE} and a fine pass around the best coarse angle, and the
+	 * best fine angle is interpolated between the steps of the fine pass.
+	 * </p>
+	 *
+	 * @param  darkLimit
+	 *           the number of brightness levels that are considered dark.
+	 * @return the estimated skew angle, in radians.  A positive angle is clockwise.
+	 */
+
+	public double getSkewAngle(
+		int	darkLimit)
+	{
+		// Collect a regular sample of the edge pixels of both orientations in a single pass.  The sampled coordinates
+		// are stored in pairs; whenever the sample exceeds its maximum size, every other edge pixel of each
+		// orientation is discarded and the sampling interval is doubled.
+		int[] hEdges = new int[64];
+		int[] vEdges = new int[64];
+		int numHEdges = 0;
+		int numVEdges = 0;
+		int hCount = 0;
+		int vCount = 0;
+		int sampleMask = 0;
+		for (int y = 1; y < height; y++)
+		{
+			int index = y * width + 1;
+			for (int x = 1; x < width; x++)
+			{
+				if ((levels[index] & 0xFF) < darkLimit)
+				{
+					if (((levels[index - width] & 0xFF) >= darkLimit) && ((hCount++ & sampleMask) == 0))
+					{
+						if (2 * numHEdges == hEdges.length)
+							hEdges = Arrays.copyOf(hEdges, 2 * hEdges.length);
+						hEdges[2 * numHEdges] = x;
+						hEdges[2 * numHEdges + 1] = y;
+						++numHEdges;
+					}
+					if (((levels[index - 1] & 0xFF) >= darkLimit) && ((vCount++ & sampleMask) == 0))
+					{
+						if (2 * numVEdges == vEdges.length)
+							vEdges = Arrays.copyOf(vEdges, 2 * vEdges.length);
+						vEdges[2 * numVEdges] = x;
+						vEdges[2 * numVEdges + 1] = y;
+						++numVEdges;
+					}
+					if (numHEdges + numVEdges > MAX_NUM_EDGE_PIXELS)
+					{
+						numHEdges = decimateEdges(hEdges, numHEdges);
+						numVEdges = decimateEdges(vEdges, numVEdges);
+						sampleMask = 2 * sampleMask + 1;
+					}
+				}
+				++index;
+			}
+		}
+		if (numHEdges + numVEdges == 0)
+			return 0.0;
+
+		// Search angles in a coarse pass and then a fine pass
+		double angle = findSkewAngle(hEdges, numHEdges, vEdges, numVEdges, 0.0, COARSE_SKEW_ANGLE_STEP,
+									 (int)Math.round(MAX_SKEW_ANGLE / COARSE_SKEW_ANGLE_STEP));
+		return findSkewAngle(hEdges, numHEdges, vEdges, numVEdges, angle, FINE_SKEW_ANGLE_STEP,
+							 (int)Math.round(FINE_SKEW_ANGLE_RANGE / FINE_SKEW_ANGLE_STEP));
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Returns the level of the pixel at the specified coordinates, or {@link #MAX_LEVEL} if the coordinates lie
+	 * outside this raster.
+	 */
+
+	private int getLevelOrMax(
+		int	x,
+		int	y)
+	{
+		return ((x < 0) || (x >= width) || (y < 0) || (y >= height)) ? MAX_LEVEL : levels[y * width + x] & 0xFF;
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Discards every other pair of coordinates of the specified edge pixels, starting with the second, and returns the
+	 * number of edge pixels that remain.
+	 */
+
+	private static int decimateEdges(
+		int[]	edges,
+		int		numEdges)
+	{
+		int numRemaining = (numEdges + 1) / 2;
+		for (int i = 1; i < numRemaining; i++)
+		{
+			edges[2 * i] = edges[4 * i];
+			edges[2 * i + 1] = edges[4 * i + 1];
+		}
+		return numRemaining;
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Performs a Hough transform of the specified edge pixels over the angles {@code centreAngle + i * angleStep} for
+	 * {@code -numSteps <= i <= numSteps}, and returns the angle at which the accumulated counts have the greatest sum
+	 * of squares.  Each row of the accumulator holds the counts of horizontal edges followed by those of vertical edges.
+	 * <p>
+	 * The vote of an edge pixel is divided between the two distances on either side of its exact distance in
+	 * proportion to its proximity to them.  If each vote went wholly to the nearest distance, the sum of squares of an
+	 * angle would depend on how the lines happen to fall relative to the boundaries between distances, which biases
+	 * the estimate by a step or more; with divided votes, the sum varies smoothly with the angle.  Near its maximum,
+	 * however, the sum is still too flat and uneven to locate the peak to within a step, so the returned angle is the
+	 * midpoint of the flanks of the peak at half its height above the ends of the range, which is interpolated between
+	 * the steps.
+	 * </p>
+	 */
+
+	private double findSkewAngle(
+		int[]	hEdges,
+		int		numHEdges,
+		int[]	vEdges,
+		int		numVEdges,
+		double	centreAngle,
+		double	angleStep,
+		int		numSteps)
+	{
+		// Create tables of sines and cosines of angles
+		int numAngles = 2 * numSteps + 1;
+		float[] sines = new float[numAngles];
+		float[] cosines = new float[numAngles];
+		double maxSin = 0.0;
+		for (int i = 0; i < numAngles; i++)
+		{
+			double angle = centreAngle + (double)(i - numSteps) * angleStep;
+			sines[i] = (float)Math.sin(angle);
+			cosines[i] = (float)Math.cos(angle);
+			maxSin = Math.max(maxSin, Math.abs(sines[i]));
+		}
+
+		// Get the offsets and ranges of the distances of horizontal edges (y cos - x sin) and vertical edges
+		// (x cos + y sin) over all angles
+		int hOffset = (int)Math.ceil(maxSin * (double)width) + 1;
+		int vOffset = (int)Math.ceil(maxSin * (double)height) + 1;
+		int numHDistances = height + 2 * hOffset;
+		int numVDistances = width + 2 * vOffset;
+		int rowLength = numHDistances + numVDistances;
+
+		// Accumulate edges, dividing the vote of each edge between the distances on either side of it
+		float[] accumulator = new float[numAngles * rowLength];
+		for (int i = 0; i < numHEdges; i++)
+		{
+			float x = (float)hEdges[2 * i];
+			float y = (float)hEdges[2 * i + 1];
+			int index = 0;
+			for (int j = 0; j < numAngles; j++)
+			{
+				float distance = y * cosines[j] - x * sines[j] + (float)hOffset;
+				int k = (int)distance;
+				float fraction = distance - (float)k;
+				accumulator[index + k] += 1.0f - fraction;
+				accumulator[index + k + 1] += fraction;
+				index += rowLength;
+			}
+		}
+		for (int i = 0; i < numVEdges; i++)
+		{
+			float x = (float)vEdges[2 * i];
+			float y = (float)vEdges[2 * i + 1];
+			int index = numHDistances;
+			for (int j = 0; j < numAngles; j++)
+			{
+				float distance = x * cosines[j] + y * sines[j] + (float)vOffset;
+				int k = (int)distance;
+				float fraction = distance - (float)k;
+				accumulator[index + k] += 1.0f - fraction;
+				accumulator[index + k + 1] += fraction;
+				index += rowLength;
+			}
+		}
+
+		// Find the angle whose counts have the greatest sum of squares; of equal sums, prefer the smallest angle
+		double[] sums = new double[numAngles];
+		int maxIndex = numSteps;
+		for (int j = 0; j < numAngles; j++)
+		{
+			double sum = 0.0;
+			int index = j * rowLength;
+			for (int k = 0; k < rowLength; k++)
+			{
+				double count = accumulator[index++];
+				sum += count * count;
+			}
+			sums[j] = sum;
+			if ((sum > sums[maxIndex])
+					|| ((sum == sums[maxIndex]) && (Math.abs(j - numSteps) < Math.abs(maxIndex - numSteps))))
+				maxIndex = j;
+		}
+
+		// Refine the angle to the midpoint of the two angles either side of the best angle at which the sum falls to
+		// halfway between its maximum and the greater of the sums at the ends of the range
+		double position = maxIndex;
+		double level = 0.5 * (sums[maxIndex] + Math.max(sums[0], sums[numAngles - 1]));
+		if (sums[maxIndex] > level)
+		{
+			int lower = maxIndex;
+			while ((lower > 0) && (sums[lower - 1] > level))
+				--lower;
+			int upper = maxIndex;
+			while ((upper < numAngles - 1) && (sums[upper + 1] > level))
+				++upper;
+			if ((lower > 0) && (upper < numAngles - 1))
+			{
+				double lowerPosition = (double)lower - (sums[lower] - level) / (sums[lower] - sums[lower - 1]);
+				double upperPosition = (double)upper + (sums[upper] - level) / (sums[upper] - sums[upper + 1]);
+				position = 0.5 * (lowerPosition + upperPosition);
+			}
+		}
+		return centreAngle + (position - (double)numSteps) * angleStep;
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Packs the dark pixels of a span of the levels of this raster into words of a mask.  The comparison with the dark
+	 * limit is branchless: the sign bit of {@code level - darkLimit} is the mask bit.  This is the scalar kernel, which
+	 * is used for the masks of columns, and for those of rows if the vector API is not available.
+	 */
+
+	private void getDarkMask(
+		int		darkLimit,
+		int		index,
+		int		step,
+		int		length,
+		long[]	mask)
+	{
+		int numWords = getNumMaskWords(length);
+		for (int i = 0; i < numWords; i++)
+		{
+			int numBits = Math.min(Long.SIZE, length - (i << 6));
+			long word = 0;
+			for (int j = 0; j < numBits; j++)
+			{
+				word |= (long)(((levels[index] & 0xFF) - darkLimit) >>> 31) << j;
+				index += step;
+			}
+			mask[i] = word;
+		}
+	}
+
+	//------------------------------------------------------------------
+
+	private long createContentHash()
+	{
+		// Combine the levels eight at a time
+		long hash = ((long)width << 32) | height;
+		int length = levels.length;
+		int end = length & ~7;
+		for (int i = 0; i < end; i += 8)
+		{
+			hash = (hash ^ (long)LONG_VIEW.get(levels, i)) * HASH_MULTIPLIER;
+			hash ^= hash >>> 32;
+		}
+
+		// Combine the remaining levels
+		long tail = 0;
+		for (int i = end; i < length; i++)
+			tail = (tail << 8) | (levels[i] & 0xFF);
+		hash = (hash ^ tail) * HASH_MULTIPLIER;
+		return hash ^ (hash >>> 32);
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Returns the summed-area table of this raster, creating it if it has not been created.  The method is
+	 * synchronised so that threads that share the raster do not create the table at the same time.
+	 */
+
+	private synchronized int[] getSummedAreaTable()
+	{
+		if (summedAreaTable == null)
+			summedAreaTable = createSummedAreaTable();
+		return summedAreaTable;
+	}
+
+	//------------------------------------------------------------------
+
+	private int[] createSummedAreaTable()
+	{
+		// The table has an extra leading row and column of zeros so that sums of regions at the edges of the raster
+		// don't need special treatment
+		int stride = width + 1;
+		int[] table = new int[stride * (height + 1)];
+		int index = 0;
+		for (int y = 0; y < height; y++)
+		{
+			int rowSum = 0;
+			int i = (y + 1) * stride + 1;
+			for (int x = 0; x < width; x++)
+			{
+				rowSum += levels[index++] & 0xFF;
+				table[i] = table[i - stride] + rowSum;
+				++i;
+			}
+		}
+		return table;
+	}
+
+	//------------------------------------------------------------------
+
+	private boolean extractPackedInt(
+		BufferedImage	image)
+	{
+		// Test for image type whose pixels are packed RGB values that are returned unchanged by getRGB()
+		int imageType = image.getType();
+		if ((imageType != BufferedImage.TYPE_INT_RGB) && (imageType != BufferedImage.TYPE_INT_ARGB))
+			return false;
+
+		Raster raster = image.getRaster();
+		DataBuffer dataBuffer = raster.getDataBuffer();
+		if (!(dataBuffer instanceof DataBufferInt)
+				|| !(raster.getSampleModel() instanceof SinglePixelPackedSampleModel sampleModel))
+			return false;
+
+		// Extract levels
+		int[] data = ((DataBufferInt)dataBuffer).getData();
+		int scanlineStride = sampleModel.getScanlineStride();
+		int offset = dataBuffer.getOffset() - raster.getSampleModelTranslateY() * scanlineStride
+						- raster.getSampleModelTranslateX();
+		int index = 0;
+		for (int y = 0; y < height; y++)
+		{
+			int i = offset + y * scanlineStride;
+			for (int x = 0; x < width; x++)
+			{
+				int level = getLevel(data[i++]);
+				levels[index++] = (byte)level;
+				++histogram[level];
+			}
+		}
+		return true;
+	}
+
+	//------------------------------------------------------------------
+
+	private boolean extractInterleavedByte(
+		BufferedImage	image)
+	{
+		// Test for image type whose colour components are stored in interleaved bytes
+		int imageType = image.getType();
+		if ((imageType != BufferedImage.TYPE_3BYTE_BGR) && (imageType != BufferedImage.TYPE_4BYTE_ABGR))
+			return false;
+
+		Raster raster = image.getRaster();
+		DataBuffer dataBuffer = raster.getDataBuffer();
+		SampleModel sm = raster.getSampleModel();
+		if (!(dataBuffer instanceof DataBufferByte) || !(sm instanceof ComponentSampleModel sampleModel)
+				|| (sampleModel.getNumBands() < NUM_COLOUR_BANDS))
+			return false;
+
+		// Extract levels
+		byte[] data = ((DataBufferByte)dataBuffer).getData();
+		int[] bandOffsets = sampleModel.getBandOffsets();
+		int offset0 = bandOffsets[0];
+		int offset1 = bandOffsets[1];
+		int offset2 = bandOffsets[2];
+		int pixelStride = sampleModel.getPixelStride();
+		int scanlineStride = sampleModel.getScanlineStride();
+		int offset = dataBuffer.getOffset() - raster.getSampleModelTranslateY() * scanlineStride
+						- raster.getSampleModelTranslateX() * pixelStride;
+		int index = 0;
+		for (int y = 0; y < height; y++)
+		{
+			int i = offset + y * scanlineStride;
+			for (int x = 0; x < width; x++)
+			{
+				int level = Math.max(Math.max(data[i + offset0] & 0xFF, data[i + offset1] & 0xFF),
+									 data[i + offset2] & 0xFF);
+				levels[index++] = (byte)level;
+				++histogram[level];
+				i += pixelStride;
+			}
+		}
+		return true;
+	}
+
+	//------------------------------------------------------------------
+
+	private void extractRgb(
+		BufferedImage	image)
+	{
+		int[] rgbBuffer = new int[width];
+		int index = 0;
+		for (int y = 0; y < height; y++)
+		{
+			image.getRGB(0, y, width, 1, rgbBuffer, 0, width);
+			for (int x = 0; x < width; x++)
+			{
+				int level = getLevel(rgbBuffer[x]);
+				levels[index++] = (byte)level;
+				++histogram[level];
+			}
+		}
+	}
+
+	//------------------------------------------------------------------
+
+}
+
+//----------------------------------------------------------------------
@@ -0,0 +1,561 @@
+/*====================================================================*\
+
+PngRowDecoder.java
+
+PNG row decoder class.
+
+\*====================================================================*/
+
+
+// PACKAGE
+
+
+package uk.blankaspect.crosswordeditor;
+
+//----------------------------------------------------------------------
+
+
+// IMPORTS
+
+
+import java.awt.image.WritableRaster;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import java.util.Arrays;
+
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+//----------------------------------------------------------------------
+
+
+// PNG ROW DECODER CLASS
+
+
+/**
+ * This class implements a decoder of the rows of a non-interlaced PNG file that advances through the image one row at
+ * a time, so that reading the whole image a strip at a time costs a single pass over the file.  (The PNG reader of
+ * Image I/O decodes the image from its first row whenever a region of it is read.)
+ * <p>
+ * The decoder only inflates and unfilters the image data: the samples of each row are set, unchanged, in the bands of
+ * a raster of the image type that Image I/O would use for the image, so that colour conversion is the same as when
+ * the image is read by Image I/O.  An interlaced image, and a greyscale or RGB image that has a transparent colour,
+ * are not supported.
+ * </p>
+ */
+
+class PngRowDecoder
+	implements Closeable
+{
+
+////////////////////////////////////////////////////////////////////////
+//  Constants
+////////////////////////////////////////////////////////////////////////
+
+	private static final	byte[]	SIGNATURE	= { (byte)0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n' };
+
+	private static final	int	CHUNK_TYPE_IHDR	= 0x49484452;
+	private static final	int	CHUNK_TYPE_IDAT	= 0x49444154;
+	private static final	int	CHUNK_TYPE_TRNS	= 0x74524E53;
+
+	private static final	int	COLOUR_TYPE_GREY		= 0;
+	private static final	int	COLOUR_TYPE_RGB			= 2;
+	private static final	int	COLOUR_TYPE_PALETTE		= 3;
+	private static final	int	COLOUR_TYPE_GREY_ALPHA	= 4;
+	private static final	int	COLOUR_TYPE_RGB_ALPHA	= 6;
+
+	private static final	int	FILTER_TYPE_NONE	= 0;
+	private static final	int	FILTER_TYPE_SUB		= 1;
+	private static final	int	FILTER_TYPE_UP		= 2;
+	private static final	int	FILTER_TYPE_AVERAGE	= 3;
+	private static final	int	FILTER_TYPE_PAETH	= 4;
+
+	private static final	int	CRC_SIZE	= 4;
+
+	private static final	int	BUFFER_SIZE	= 1 << 16;
+
+////////////////////////////////////////////////////////////////////////
+//  Instance variables
+////////////////////////////////////////////////////////////////////////
+
+	private	File			file;
+	private	int				width;
+	private	int				height;
+	private	int				bitDepth;
+	private	int				numChannels;
+	private	int				bytesPerPixel;
+	private	int				rowLength;
+	private	byte[]			row;
+	private	byte[]			previousRow;
+	private	int[]			samples;
+	private	int				rowIndex;
+	private	DataInputStream	inStream;
+	private	InputStream		dataStream;
+
+////////////////////////////////////////////////////////////////////////
+//  Constructors
+////////////////////////////////////////////////////////////////////////
+
+	private PngRowDecoder(
+		File	file)
+	{
+		this.file = file;
+	}
+
+	//------------------------------------------------------------------
+
+////////////////////////////////////////////////////////////////////////
+//  Class methods
+////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Creates a decoder for the specified PNG file and positions it at the first row of the image.
+	 *
+	 * @param  file
+	 *           the PNG file.
+	 * @return a decoder for {@code file}, or {@code null} if the image of the file is not supported by the decoder.
+	 * @throws IOException
+	 *           if an error occurred when reading the file, or if the file is not a valid PNG file.
+	 */
+
+	public static PngRowDecoder open(
+		File	file)
+		throws IOException
+	{
+		PngRowDecoder decoder = new PngRowDecoder(file);
+		try
+		{
+			if (decoder.start())
+				return decoder;
+		}
+		catch (IOException e)
+		{
+			decoder.close();
+			throw e;
+		}
+		decoder.close();
+		return null;
+	}
+
+	//------------------------------------------------------------------
+
+	private static int paeth(
+		int	a,
+		int	b,
+		int	c)
+	{
+		int p = a + b - c;
+		int pa = Math.abs(p - a);
+		int pb = Math.abs(p - b);
+		int pc = Math.abs(p - c);
+		return ((pa <= pb) && (pa <= pc)) ? a : (pb <= pc) ? b : c;
+	}
+
+	//------------------------------------------------------------------
+
+////////////////////////////////////////////////////////////////////////
+//  Instance methods : Closeable interface
+////////////////////////////////////////////////////////////////////////
+
+	@Override
+	public void close()
+	{
+		if (inStream != null)
+		{
+			try
+			{
+				inStream.close();
+			}
+			catch (IOException e)
+			{
+				// ignore
+			}
+			inStream = null;
+			dataStream = null;
+		}
+	}
+
+	//------------------------------------------------------------------
+
+////////////////////////////////////////////////////////////////////////
+//  Instance methods
+////////////////////////////////////////////////////////////////////////
+
+	public int getWidth()
+	{
+		return width;
+	}
+
+	//------------------------------------------------------------------
+
+	public int getHeight()
+	{
+		return height;
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Returns the number of samples of each pixel of the image, which is the number of bands of a raster to which rows
+	 * are decoded.
+	 */
+
+	public int getNumChannels()
+	{
+		return numChannels;
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Returns the index of the next row that will be decoded.
+	 */
+
+	public int getRowIndex()
+	{
+		return rowIndex;
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Moves the decoder to the specified row.  If the row precedes the next row, the file is reopened and decoded from
+	 * its first row; otherwise, the intervening rows are decoded and discarded.
+	 *
+	 * @param  index
+	 *           the index of the row.
+	 * @throws IOException
+	 *           if an error occurred when reading the file.
+	 */
+
+	public void seekRow(
+		int	index)
+		throws IOException
+	{
+		if (index < rowIndex)
+		{
+			close();
+			start();
+		}
+		while (rowIndex < index)
+			decodeRow();
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Decodes the specified number of rows, starting at the next row, and sets their samples in the corresponding
+	 * rows of the specified raster, starting at its first row.
+	 *
+	 * @param  raster
+	 *           the raster, whose width must be the width of the image and whose number of bands must be {@link
+	 *           #getNumChannels()}.
+	 * @param  numRows
+	 *           the number of rows that will be decoded.
+	 * @throws IOException
+	 *           if an error occurred when reading the file, or if the image data are malformed.
+	 */
+
+	public void readRows(
+		WritableRaster	raster,
+		int				numRows)
+		throws IOException
+	{
+		for (int y = 0; y < numRows; y++)
+		{
+			decodeRow();
+			unpackSamples();
+			raster.setPixels(0, y, width, 1, samples);
+		}
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Opens the file, reads its header and the chunks that precede the image data, and initialises the decoder.
+	 *
+	 * @return {@code true} if the image is supported by the decoder.
+	 */
+
+	private boolean start()
+		throws IOException
+	{
+		// Open file
+		inStream = new DataInputStream(new BufferedInputStream(new FileInputStream(file), BUFFER_SIZE));
+
+		// Read signature
+		byte[] signature = new byte[SIGNATURE.length];
+		inStream.readFully(signature);
+		if (!Arrays.equals(signature, SIGNATURE))
+			throw new IOException("Not a PNG file");
+
+		// Read header
+		int length = inStream.readInt();
+		if ((inStream.readInt() != CHUNK_TYPE_IHDR) || (length < 13))
+			throw new IOException("Malformed PNG header");
+		width = inStream.readInt();
+		height = inStream.readInt();
+		bitDepth = inStream.readUnsignedByte();
+		int colourType = inStream.readUnsignedByte();
+		int compressionMethod = inStream.readUnsignedByte();
+		int filterMethod = inStream.readUnsignedByte();
+		int interlaceMethod = inStream.readUnsignedByte();
+		inStream.skipNBytes(length - 13 + CRC_SIZE);
+		if ((compressionMethod != 0) || (filterMethod != 0) || (interlaceMethod != 0))
+			return false;
+
+		// Get number of channels
+		numChannels = switch (colourType)
+		{
+			case COLOUR_TYPE_GREY, COLOUR_TYPE_PALETTE -> 1;
+			case COLOUR_TYPE_GREY_ALPHA                -> 2;
+			case COLOUR_TYPE_RGB                       -> 3;
+			case COLOUR_TYPE_RGB_ALPHA                 -> 4;
+			default                                    -> 0;
+		};
+		boolean validBitDepth = switch (bitDepth)
+		{
+			case 1, 2, 4 -> (colourType == COLOUR_TYPE_GREY) || (colourType == COLOUR_TYPE_PALETTE);
+			case 8       -> true;
+			case 16      -> (colourType != COLOUR_TYPE_PALETTE);
+			default      -> false;
+		};
+		if ((numChannels == 0) || !validBitDepth || (width <= 0) || (height <= 0))
+			return false;
+
+		// Skip chunks up to first chunk of image data
+		while (true)
+		{
+			length = inStream.readInt();
+			int type = inStream.readInt();
+			if (type == CHUNK_TYPE_IDAT)
+				break;
+			if ((type == CHUNK_TYPE_TRNS) && ((colourType == COLOUR_TYPE_GREY) || (colourType == COLOUR_TYPE_RGB)))
+				return false;
+			inStream.skipNBytes((long)length + CRC_SIZE);
+		}
+
+		// Initialise rows
+		int bitsPerPixel = numChannels * bitDepth;
+		bytesPerPixel = Math.max(1, bitsPerPixel / 8);
+		rowLength = (int)(((long)width * (long)bitsPerPixel + 7) / 8);
+		row = new byte[rowLength];
+		previousRow = new byte[rowLength];
+		samples = new int[width * numChannels];
+		rowIndex = 0;
+
+		// Create stream of image data
+		dataStream = new InflaterInputStream(new ImageDataInputStream(length), new Inflater(), BUFFER_SIZE);
+
+		return true;
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Inflates and unfilters the next row of the image.
+	 */
+
+	private void decodeRow()
+		throws IOException
+	{
+		// Validate row index
+		if (rowIndex >= height)
+			throw new EOFException();
+
+		// Swap rows
+		byte[] temp = previousRow;
+		previousRow = row;
+		row = temp;
+
+		// Read filter type and filtered row
+		int filterType = dataStream.read();
+		if (filterType < 0)
+			throw new EOFException();
+		int offset = 0;
+		while (offset < rowLength)
+		{
+			int count = dataStream.read(row, offset, rowLength - offset);
+			if (count < 0)
+				throw new EOFException();
+			offset += count;
+		}
+
+		// Reverse filter
+		switch (filterType)
+		{
+			case FILTER_TYPE_NONE:
+				// do nothing
+				break;
+
+			case FILTER_TYPE_SUB:
+				for (int i = bytesPerPixel; i < rowLength; i++)
+					row[i] += row[i - bytesPerPixel];
+				break;
+
+			case FILTER_TYPE_UP:
+				for (int i = 0; i < rowLength; i++)
+					row[i] += previousRow[i];
+				break;
+
+			case FILTER_TYPE_AVERAGE:
+				for (int i = 0; i < rowLength; i++)
+				{
+					int left = (i < bytesPerPixel) ? 0 : row[i - bytesPerPixel] & 0xFF;
+					row[i] += (byte)((left + (previousRow[i] & 0xFF)) >>> 1);
+				}
+				break;
+
+			case FILTER_TYPE_PAETH:
+				for (int i = 0; i < rowLength; i++)
+				{
+					int left = 0;
+					int upperLeft = 0;
+					if (i >= bytesPerPixel)
+					{
+						left = row[i - bytesPerPixel] & 0xFF;
+						upperLeft = previousRow[i - bytesPerPixel] & 0xFF;
+					}
+					row[i] += (byte)paeth(left, previousRow[i] & 0xFF, upperLeft);
+				}
+				break;
+
+			default:
+				throw new IOException("Invalid PNG filter type");
+		}
+
+		// Increment row index
+		++rowIndex;
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Unpacks the samples of the current row.
+	 */
+
+	private void unpackSamples()
+	{
+		switch (bitDepth)
+		{
+			case 8:
+				for (int i = 0; i < samples.length; i++)
+					samples[i] = row[i] & 0xFF;
+				break;
+
+			case 16:
+				for (int i = 0; i < samples.length; i++)
+					samples[i] = ((row[2 * i] & 0xFF) << 8) | (row[2 * i + 1] & 0xFF);
+				break;
+
+			default:
+			{
+				int samplesPerByte = 8 / bitDepth;
+				int mask = (1 << bitDepth) - 1;
+				for (int i = 0; i < samples.length; i++)
+				{
+					int shift = 8 - bitDepth * (i % samplesPerByte + 1);
+					samples[i] = ((row[i / samplesPerByte] & 0xFF) >>> shift) & mask;
+				}
+				break;
+			}
+		}
+	}
+
+	//------------------------------------------------------------------
+
+////////////////////////////////////////////////////////////////////////
+//  Member classes : inner classes
+////////////////////////////////////////////////////////////////////////
+
+
+	// CLASS: IMAGE-DATA INPUT STREAM
+
+
+	/**
+	 * This class implements an input stream of the concatenated data of the consecutive IDAT chunks of the file.
+	 */
+
+	private class ImageDataInputStream
+		extends InputStream
+	{
+
+	////////////////////////////////////////////////////////////////////
+	//  Instance variables
+	////////////////////////////////////////////////////////////////////
+
+		private	int		chunkRemaining;
+		private	boolean	ended;
+
+	////////////////////////////////////////////////////////////////////
+	//  Constructors
+	////////////////////////////////////////////////////////////////////
+
+		private ImageDataInputStream(
+			int	chunkLength)
+		{
+			chunkRemaining = chunkLength;
+		}
+
+		//--------------------------------------------------------------
+
+	////////////////////////////////////////////////////////////////////
+	//  Instance methods : overriding methods
+	////////////////////////////////////////////////////////////////////
+
+		@Override
+		public int read()
+			throws IOException
+		{
+			byte[] buffer = new byte[1];
+			return (read(buffer, 0, 1) < 0) ? -1 : buffer[0] & 0xFF;
+		}
+
+		//--------------------------------------------------------------
+
+		@Override
+		public int read(
+			byte[]	buffer,
+			int		offset,
+			int		length)
+			throws IOException
+		{
+			// Move to next IDAT chunk if current chunk is exhausted
+			while (chunkRemaining == 0)
+			{
+				if (ended)
+					return -1;
+				inStream.skipNBytes(CRC_SIZE);
+				chunkRemaining = inStream.readInt();
+				if (inStream.readInt() != CHUNK_TYPE_IDAT)
+				{
+					chunkRemaining = 0;
+					ended = true;
+				}
+			}
+
+			// Read data from chunk
+			int count = inStream.read(buffer, offset, Math.min(length, chunkRemaining));
+			if (count < 0)
+				throw new EOFException();
+			chunkRemaining -= count;
+			return count;
+		}
+
+		//--------------------------------------------------------------
+
+	}
+
+	//==================================================================
+
+}
+
+//----------------------------------------------------------------------
@@ -152,6 +152,7 @@ class PreferencesDialog
 	private	BooleanComboBox							selectTextOnFocusGainedComboBox;
 	private	BooleanComboBox							saveMainWindowLocationComboBox;
 	private	FIntegerSpinner							maxEditListLengthSpinner;
+	private	FIntegerSpinner							maxEditListSizeSpinner;
 	private	BooleanComboBox							clearEditListOnSaveComboBox;
 
 	// Appearance panel
@@ -171,6 +172,8 @@ class PreferencesDialog
 	private	EntryCharsField							gridEntryCharsField;
 	private	BooleanComboBox							navigateOverSeparatorsComboBox;
 	private	DimensionsSpinnerPanel					gridImageViewportSizePanel;
+	private	BooleanComboBox							persistentDetectionCacheComboBox;
+	private	BooleanComboBox							captureTextComboBox;
 	private	Map<Grid.Separator, FIntegerSpinner>	gridCellSizeSpinners;
 	private	FIntegerSpinner							gridBarWidthSpinner;
 
@@ -223,10 +226,12 @@ class PreferencesDialog
 
 	// General panel
 	private static final	int		MAX_EDIT_LIST_LENGTH_FIELD_LENGTH	= 4;
+	private static final	int		MAX_EDIT_LIST_SIZE_FIELD_LENGTH		= 4;
 
 	private static final	String	SELECT_TEXT_ON_FOCUS_GAINED_STR	= "Select text when focus is gained";
 	private static final	String	SAVE_MAIN_WINDOW_LOCATION_STR	= "Save location of main window";
 	private static final	String	MAX_EDIT_HISTORY_SIZE_STR		= "Maximum size of edit history";
+	private static final	String	MAX_EDIT_HISTORY_MEMORY_STR		= "Maximum memory for edit history (MB)";
 	private static final	String	CLEAR_EDIT_HISTORY_ON_SAVE_STR	= "Clear edit history on save";
 
 	// Appearance panel
@@ -259,6 +264,8 @@ class PreferencesDialog
 	private static final	String	GRID_ENTRY_CHARS_STR			= "Grid-entry characters";
 	private static final	String	NAVIGATE_OVER_SEPARATORS_STR	= "Navigate over separators";
 	private static final	String	IMAGE_VIEWPORT_SIZE_STR			= "Capture-image viewport size";
+	private static final	String	PERSISTENT_DETECTION_CACHE_STR	= "Keep grid-detection cache on disk";
+	private static final	String	CAPTURE_TEXT_STR				= "Capture text from grid image";
 	private static final	String	WIDTH_STR						= "width";
 	private static final	String	HEIGHT_STR						= "height";
 	private static final	String	CELL_SIZE_STR					= "Cell size";
@@ -860,6 +867,39 @@ class PreferencesDialog
 		gridBag.setConstraints(maxEditListLengthSpinner, gbc);
 		controlPanel.add(maxEditListLengthSpinner);
 
+		// Label: maximum edit list size
+		JLabel maxEditListSizeLabel = new FLabel(MAX_EDIT_HISTORY_MEMORY_STR);
+
+		gbc.gridx = 0;
+		gbc.gridy = gridY;
+		gbc.gridwidth = 1;
+		gbc.gridheight = 1;
+		gbc.weightx = 0.0;
+		gbc.weighty = 0.0;
+		gbc.anchor = GridBagConstraints.LINE_END;
+		gbc.fill = GridBagConstraints.NONE;
+		gbc.insets = AppConstants.COMPONENT_INSETS;
+		gridBag.setConstraints(maxEditListSizeLabel, gbc);
+		controlPanel.add(maxEditListSizeLabel);
+
+		// Spinner: maximum edit list size
+		maxEditListSizeSpinner = new FIntegerSpinner(config.getMaxEditListSize(),
+													 CrosswordDocument.MIN_MAX_EDIT_LIST_SIZE,
+													 CrosswordDocument.MAX_MAX_EDIT_LIST_SIZE,
+													 MAX_EDIT_LIST_SIZE_FIELD_LENGTH);
+
+		gbc.gridx = 1;
+		gbc.gridy = gridY++;
+		gbc.gridwidth = 1;
+		gbc.gridheight = 1;
+		gbc.weightx = 0.0;
+		gbc.weighty = 0.0;
+		gbc.anchor = GridBagConstraints.LINE_START;
+		gbc.fill = GridBagConstraints.NONE;
+		gbc.insets = AppConstants.COMPONENT_INSETS;
+		gridBag.setConstraints(maxEditListSizeSpinner, gbc);
+		controlPanel.add(maxEditListSizeSpinner);
+
 		// Label: clear edit list on save
 		JLabel clearEditListOnSaveLabel = new FLabel(CLEAR_EDIT_HISTORY_ON_SAVE_STR);
 
@@ -1425,6 +1465,66 @@ class PreferencesDialog
 		gridBag.setConstraints(gridImageViewportSizePanel, gbc);
 		controlPanel.add(gridImageViewportSizePanel);
 
+		// Label: persistent detection cache
+		JLabel persistentDetectionCacheLabel = new GridPanelLabel(PERSISTENT_DETECTION_CACHE_STR);
+
+		gbc.gridx = 0;
+		gbc.gridy = gridY;
+		gbc.gridwidth = 1;
+		gbc.gridheight = 1;
+		gbc.weightx = 0.0;
+		gbc.weighty = 0.0;
+		gbc.anchor = GridBagConstraints.LINE_END;
+		gbc.fill = GridBagConstraints.NONE;
+		gbc.insets = AppConstants.COMPONENT_INSETS;
+		gridBag.setConstraints(persistentDetectionCacheLabel, gbc);
+		controlPanel.add(persistentDetectionCacheLabel);
+
+		// Combo box: persistent detection cache
+		persistentDetectionCacheComboBox = new BooleanComboBox(config.isPersistentGridDetectionCache());
+
+		gbc.gridx = 1;
+		gbc.gridy = gridY++;
+		gbc.gridwidth = 1;
+		gbc.gridheight = 1;
+		gbc.weightx = 0.0;
+		gbc.weighty = 0.0;
+		gbc.anchor = GridBagConstraints.LINE_START;
+		gbc.fill = GridBagConstraints.NONE;
+		gbc.insets = AppConstants.COMPONENT_INSETS;
+		gridBag.setConstraints(persistentDetectionCacheComboBox, gbc);
+		controlPanel.add(persistentDetectionCacheComboBox);
+
+		// Label: capture text
+		JLabel captureTextLabel = new GridPanelLabel(CAPTURE_TEXT_STR);
+
+		gbc.gridx = 0;
+		gbc.gridy = gridY;
+		gbc.gridwidth = 1;
+		gbc.gridheight = 1;
+		gbc.weightx = 0.0;
+		gbc.weighty = 0.0;
+		gbc.anchor = GridBagConstraints.LINE_END;
+		gbc.fill = GridBagConstraints.NONE;
+		gbc.insets = AppConstants.COMPONENT_INSETS;
+		gridBag.setConstraints(captureTextLabel, gbc);
+		controlPanel.add(captureTextLabel);
+
+		// Combo box: capture text
+		captureTextComboBox = new BooleanComboBox(config.isCaptureGridText());
+
+		gbc.gridx = 1;
+		gbc.gridy = gridY++;
+		gbc.gridwidth = 1;
+		gbc.gridheight = 1;
+		gbc.weightx = 0.0;
+		gbc.weighty = 0.0;
+		gbc.anchor = GridBagConstraints.LINE_START;
+		gbc.fill = GridBagConstraints.NONE;
+		gbc.insets = AppConstants.COMPONENT_INSETS;
+		gridBag.setConstraints(captureTextComboBox, gbc);
+		controlPanel.add(captureTextComboBox);
+
 
 		//----  Separator-specific panels
 
@@ -3022,6 +3122,7 @@ class PreferencesDialog
 		if (saveMainWindowLocationComboBox.getSelectedValue() != config.isMainWindowLocation())
 			config.setMainWindowLocation(saveMainWindowLocationComboBox.getSelectedValue() ? new Point() : null);
 		config.setMaxEditListLength(maxEditListLengthSpinner.getIntValue());
+		config.setMaxEditListSize(maxEditListSizeSpinner.getIntValue());
 		config.setClearEditListOnSave(clearEditListOnSaveComboBox.getSelectedValue());
 		config.setFilenameSuffix(filenameSuffixField.getText());
 	}
@@ -3060,6 +3161,8 @@ class PreferencesDialog
 		config.setGridEntryCharacters(gridEntryCharsField.getText());
 		config.setNavigateOverGridSeparators(navigateOverSeparatorsComboBox.getSelectedValue());
 		config.setGridImageViewportSize(gridImageViewportSizePanel.getDimensions());
+		config.setPersistentGridDetectionCache(persistentDetectionCacheComboBox.getSelectedValue());
+		config.setCaptureGridText(captureTextComboBox.getSelectedValue());
 		for (Grid.Separator separator : gridCellSizeSpinners.keySet())
 			config.setGridCellSize(separator, gridCellSizeSpinners.get(separator).getIntValue());
 		config.setBarGridBarWidth(gridBarWidthSpinner.getIntValue());
@@ -0,0 +1,504 @@
+/*====================================================================*\
+
+StripImageReader.java
+
+Strip image reader class.
+
+\*====================================================================*/
+
+
+// PACKAGE
+
+
+package uk.blankaspect.crosswordeditor;
+
+//----------------------------------------------------------------------
+
+
+// IMPORTS
+
+
+import java.awt.Rectangle;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.WritableRaster;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+
+import java.util.Iterator;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageTypeSpecifier;
+
+import javax.imageio.stream.ImageInputStream;
+
+import uk.blankaspect.common.exception.AppException;
+import uk.blankaspect.common.exception.FileException;
+
+//----------------------------------------------------------------------
+
+
+// STRIP IMAGE READER CLASS
+
+
+/**
+ * This class implements a reader of the first image of an image file that decodes the image in horizontal strips, so
+ * that an image that is too large to be held in memory as a {@link BufferedImage} can be searched for a grid.  Each
+ * strip is read with an {@link ImageReader} whose source region is set to the strip, and is converted to a {@link
+ * PixelRaster}.
+ * <p>
+ * The cost of reading a strip depends on the format of the file: a strip of a TIFF file with strips or tiles can be
+ * read directly, whereas the reader of a PNG or JPEG file must decode the rows that precede the strip.  The strips of
+ * a non-interlaced PNG file are therefore decoded by a {@link PngRowDecoder}, which advances through the image one row
+ * at a time, so that reading the strips of the image in order costs a single pass over the file.
+ * </p>
+ */
+
+class StripImageReader
+	implements Closeable
+{
+
+////////////////////////////////////////////////////////////////////////
+//  Constants
+////////////////////////////////////////////////////////////////////////
+
+	public static final	int	DEFAULT_STRIP_HEIGHT	= 256;
+
+	private static final	int	IMAGE_INDEX	= 0;
+
+////////////////////////////////////////////////////////////////////////
+//  Instance variables
+////////////////////////////////////////////////////////////////////////
+
+	private	File				file;
+	private	ImageInputStream	inStream;
+	private	ImageReader			reader;
+	private	int					width;
+	private	int					height;
+	private	int					stripHeight;
+	private	PngRowDecoder		pngDecoder;
+	private	ImageTypeSpecifier	imageType;
+
+////////////////////////////////////////////////////////////////////////
+//  Constructors
+////////////////////////////////////////////////////////////////////////
+
+	public StripImageReader(
+		File	file)
+		throws AppException
+	{
+		this(file, DEFAULT_STRIP_HEIGHT);
+	}
+
+	//------------------------------------------------------------------
+
+	public StripImageReader(
+		File	file,
+		int		stripHeight)
+		throws AppException
+	{
+		// Initialise instance variables
+		this.file = file;
+		this.stripHeight = stripHeight;
+
+		// Open input stream
+		try
+		{
+			inStream = ImageIO.createImageInputStream(file);
+		}
+		catch (IOException e)
+		{
+			throw new FileException(ErrorId.FAILED_TO_OPEN_FILE, file, e);
+		}
+		if (inStream == null)
+			throw new FileException(ErrorId.FAILED_TO_OPEN_FILE, file);
+
+		// Create image reader
+		Iterator<ImageReader> it = ImageIO.getImageReaders(inStream);
+		if (!it.hasNext())
+		{
+			close();
+			throw new FileException(ErrorId.UNSUPPORTED_IMAGE_FORMAT, file);
+		}
+		reader = it.next();
+		reader.setInput(inStream, true, true);
+
+		// Get dimensions of image
+		try
+		{
+			width = reader.getWidth(IMAGE_INDEX);
+			height = reader.getHeight(IMAGE_INDEX);
+		}
+		catch (IOException e)
+		{
+			close();
+			throw new FileException(ErrorId.ERROR_READING_FILE, file, e);
+		}
+
+		// Create row decoder for a PNG file whose samples can be set in a raster of the image type of the reader
+		try
+		{
+			if ("png".equalsIgnoreCase(reader.getFormatName()))
+			{
+				imageType = reader.getImageTypes(IMAGE_INDEX).next();
+				pngDecoder = PngRowDecoder.open(file);
+				if ((pngDecoder != null) && ((pngDecoder.getWidth() != width) || (pngDecoder.getHeight() != height)
+												|| (pngDecoder.getNumChannels() != imageType.getNumBands())))
+				{
+					pngDecoder.close();
+					pngDecoder = null;
+				}
+			}
+		}
+		catch (IOException e)
+		{
+			close();
+			throw new FileException(ErrorId.ERROR_READING_FILE, file, e);
+		}
+	}
+
+	//------------------------------------------------------------------
+
+////////////////////////////////////////////////////////////////////////
+//  Instance methods : Closeable interface
+////////////////////////////////////////////////////////////////////////
+
+	@Override
+	public void close()
+	{
+		if (pngDecoder != null)
+		{
+			pngDecoder.close();
+			pngDecoder = null;
+		}
+		if (reader != null)
+		{
+			reader.dispose();
+			reader = null;
+		}
+		if (inStream != null)
+		{
+			try
+			{
+				inStream.close();
+			}
+			catch (IOException e)
+			{
+				// ignore
+			}
+			inStream = null;
+		}
+	}
+
+	//------------------------------------------------------------------
+
+////////////////////////////////////////////////////////////////////////
+//  Instance methods
+////////////////////////////////////////////////////////////////////////
+
+	public File getFile()
+	{
+		return file;
+	}
+
+	//------------------------------------------------------------------
+
+	public int getWidth()
+	{
+		return width;
+	}
+
+	//------------------------------------------------------------------
+
+	public int getHeight()
+	{
+		return height;
+	}
+
+	//------------------------------------------------------------------
+
+	public int getStripHeight()
+	{
+		return stripHeight;
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Reads the strip of the image whose first row is the specified row.  The strip is the full width of the image and
+	 * has the strip height of this reader, or fewer rows if it is the last strip of the image.
+	 *
+	 * @param  y
+	 *           the index of the first row of the strip.
+	 * @return the raster of the strip.
+	 * @throws AppException
+	 *           if an error occurred when reading the strip.
+	 */
+
+	public PixelRaster readStrip(
+		int	y)
+		throws AppException
+	{
+		return new PixelRaster(readStripImage(y));
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Reads the specified region of the image a strip at a time and returns its raster.
+	 *
+	 * @param  region
+	 *           the region of the image that will be read.
+	 * @return the raster of {@code region} of the image.
+	 * @throws AppException
+	 *           if an error occurred when reading the region.
+	 */
+
+	public PixelRaster readRegion(
+		Rectangle	region)
+		throws AppException
+	{
+		PixelRaster raster = new PixelRaster(region.width, region.height);
+		for (int y = 0; y < region.height; y += stripHeight)
+		{
+			int stripHeight = Math.min(this.stripHeight, region.height - y);
+			BufferedImage image = null;
+			if (pngDecoder == null)
+				image = read(new Rectangle(region.x, region.y + y, region.width, stripHeight), 1);
+			else
+				image = decodeRows(region.y + y, stripHeight).getSubimage(region.x, 0, region.width, stripHeight);
+			raster.setRows(y, new PixelRaster(image));
+		}
+		return raster;
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Reads the whole image with the smallest subsampling period that reduces neither its width nor its height to more
+	 * than the specified size.  Optionally, the histogram of the brightness levels of all the pixels of the image is
+	 * also created; the histogram of a PNG file that is decoded by rows is created in the same pass as the preview.
+	 *
+	 * @param  maxSize
+	 *           the maximum width and height of the preview image.
+	 * @param  histogram
+	 *           if {@code true}, the histogram of the brightness levels of the image will be created.
+	 * @return a preview of the image, the subsampling period with which it was read and, if {@code histogram} is
+	 *         {@code true}, the histogram of the brightness levels of the image.
+	 * @throws AppException
+	 *           if an error occurred when reading the image.
+	 */
+
+	public Preview readPreview(
+		int		maxSize,
+		boolean	histogram)
+		throws AppException
+	{
+		// Get subsampling period
+		int period = Math.max(1, (Math.max(width, height) + maxSize - 1) / maxSize);
+
+		// Case: read image with image reader
+		if (pngDecoder == null)
+		{
+			return new Preview(read(new Rectangle(0, 0, width, height), period), period,
+							   histogram ? createHistogram() : null);
+		}
+
+		// Case: decode image by rows, subsampling the rows of each strip and accumulating the histogram of the strips
+		int previewWidth = (width + period - 1) / period;
+		int previewHeight = (height + period - 1) / period;
+		BufferedImage preview = imageType.createBufferedImage(previewWidth, previewHeight);
+		WritableRaster previewRaster = preview.getRaster();
+		int numBands = previewRaster.getNumBands();
+		int[] rowSamples = new int[width * numBands];
+		int[] previewRowSamples = new int[previewWidth * numBands];
+		int[] imageHistogram = histogram ? new int[PixelRaster.MAX_LEVEL + 1] : null;
+		for (int y0 = 0; y0 < height; y0 += stripHeight)
+		{
+			BufferedImage strip = readStripImage(y0);
+			if (histogram)
+			{
+				int[] stripHistogram = new PixelRaster(strip).getHistogram();
+				for (int i = 0; i < imageHistogram.length; i++)
+					imageHistogram[i] += stripHistogram[i];
+			}
+			for (int y = (y0 + period - 1) / period * period; y < y0 + strip.getHeight(); y += period)
+			{
+				strip.getRaster().getPixels(0, y - y0, width, 1, rowSamples);
+				int j = 0;
+				for (int x = 0; x < width; x += period)
+				{
+					System.arraycopy(rowSamples, x * numBands, previewRowSamples, j, numBands);
+					j += numBands;
+				}
+				previewRaster.setPixels(0, y / period, previewWidth, 1, previewRowSamples);
+			}
+		}
+		return new Preview(preview, period, imageHistogram);
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Reads the image a strip at a time and returns the histogram of the brightness levels of its pixels.
+	 *
+	 * @return the histogram of the brightness levels of the pixels of the image.
+	 * @throws AppException
+	 *           if an error occurred when reading the image.
+	 */
+
+	public int[] createHistogram()
+		throws AppException
+	{
+		int[] histogram = new int[PixelRaster.MAX_LEVEL + 1];
+		for (int y = 0; y < height; y += stripHeight)
+		{
+			int[] stripHistogram = readStrip(y).getHistogram();
+			for (int i = 0; i < histogram.length; i++)
+				histogram[i] += stripHistogram[i];
+		}
+		return histogram;
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Reads the strip of the image whose first row is the specified row.
+	 */
+
+	private BufferedImage readStripImage(
+		int	y)
+		throws AppException
+	{
+		int numRows = Math.min(stripHeight, height - y);
+		return (pngDecoder == null) ? read(new Rectangle(0, y, width, numRows), 1) : decodeRows(y, numRows);
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Decodes the specified rows of the image with the PNG decoder, which is moved to the first row.
+	 */
+
+	private BufferedImage decodeRows(
+		int	y,
+		int	numRows)
+		throws AppException
+	{
+		try
+		{
+			BufferedImage image = imageType.createBufferedImage(width, numRows);
+			pngDecoder.seekRow(y);
+			pngDecoder.readRows(image.getRaster(), numRows);
+			return image;
+		}
+		catch (IOException e)
+		{
+			throw new FileException(ErrorId.ERROR_READING_FILE, file, e);
+		}
+	}
+
+	//------------------------------------------------------------------
+
+	private BufferedImage read(
+		Rectangle	region,
+		int			period)
+		throws AppException
+	{
+		ImageReadParam param = reader.getDefaultReadParam();
+		param.setSourceRegion(region);
+		param.setSourceSubsampling(period, period, 0, 0);
+		try
+		{
+			return reader.read(IMAGE_INDEX, param);
+		}
+		catch (IOException e)
+		{
+			throw new FileException(ErrorId.ERROR_READING_FILE, file, e);
+		}
+	}
+
+	//------------------------------------------------------------------
+
+////////////////////////////////////////////////////////////////////////
+//  Enumerated types
+////////////////////////////////////////////////////////////////////////
+
+
+	// ENUMERATION: ERROR IDENTIFIERS
+
+
+	private enum ErrorId
+		implements AppException.IId
+	{
+
+	////////////////////////////////////////////////////////////////////
+	//  Constants
+	////////////////////////////////////////////////////////////////////
+
+		FAILED_TO_OPEN_FILE
+		("Failed to open the file."),
+
+		UNSUPPORTED_IMAGE_FORMAT
+		("The file is not in a supported image format."),
+
+		ERROR_READING_FILE
+		("An error occurred when reading the file.");
+
+	////////////////////////////////////////////////////////////////////
+	//  Instance variables
+	////////////////////////////////////////////////////////////////////
+
+		private	String	message;
+
+	////////////////////////////////////////////////////////////////////
+	//  Constructors
+	////////////////////////////////////////////////////////////////////
+
+		private ErrorId(
+			String	message)
+		{
+			this.message = message;
+		}
+
+		//--------------------------------------------------------------
+
+	////////////////////////////////////////////////////////////////////
+	//  Instance methods : AppException.IId interface
+	////////////////////////////////////////////////////////////////////
+
+		@Override
+		public String getMessage()
+		{
+			return message;
+		}
+
+		//--------------------------------------------------------------
+
+	}
+
+	//==================================================================
+
+////////////////////////////////////////////////////////////////////////
+//  Member records
+////////////////////////////////////////////////////////////////////////
+
+
+	// RECORD: PREVIEW IMAGE
+
+
+	public record Preview(
+		BufferedImage	image,
+		int				period,
+		int[]			histogram)
+	{ }
+
+	//==================================================================
+
+}
+
+//----------------------------------------------------------------------
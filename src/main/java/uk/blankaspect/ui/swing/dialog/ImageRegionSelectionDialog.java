@@ -26,11 +26,9 @@ import java.awt.Dimension;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
 import java.awt.GridLayout;
-import java.awt.Image;
 import java.awt.Insets;
 import java.awt.Point;
 import java.awt.Rectangle;
-import java.awt.RenderingHints;
 import java.awt.Stroke;
 import java.awt.Window;
 
@@ -67,6 +65,8 @@ import uk.blankaspect.ui.swing.colour.Colours;
 import uk.blankaspect.ui.swing.font.FontKey;
 import uk.blankaspect.ui.swing.font.FontUtils;
 
+import uk.blankaspect.ui.swing.image.ImageScaler;
+
 import uk.blankaspect.ui.swing.misc.GuiConstants;
 import uk.blankaspect.ui.swing.misc.GuiUtils;
 
@@ -304,15 +304,8 @@ public class ImageRegionSelectionDialog
 					scaleFactor = (imageWidth < imageHeight) ? (double)imageHeight / (double)viewHeight
 															 : (double)imageWidth / (double)viewWidth;
 
-					// Create scaled version of image
-					Image scaledImage0 = image.getScaledInstance(viewWidth, viewHeight, Image.SCALE_SMOOTH);
-
-					// Convert scaled image to buffered image
-					scaledImage = new BufferedImage(viewWidth, viewHeight, BufferedImage.TYPE_INT_RGB);
-					Graphics2D gr = scaledImage.createGraphics();
-					gr.setRenderingHint(RenderingHints.KEY_RENDERING,     RenderingHints.VALUE_RENDER_QUALITY);
-					gr.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
-					gr.drawImage(scaledImage0, 0, 0, null);
+					// Create scaled version of image by progressive halving
+					scaledImage = ImageScaler.scale(image, Math.max(1, viewWidth), Math.max(1, viewHeight));
 
 					// Scale selection
 					if ((selection != null) && (scaleFactor > 0.0))
@@ -0,0 +1,310 @@
+/*====================================================================*\
+
+ImageScaler.java
+
+Class: image scaler.
+
+\*====================================================================*/
+
+
+// PACKAGE
+
+
+package uk.blankaspect.ui.swing.image;
+
+//----------------------------------------------------------------------
+
+
+// IMPORTS
+
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+
+import java.awt.image.BufferedImage;
+
+import java.lang.ref.WeakReference;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+
+//----------------------------------------------------------------------
+
+
+// CLASS: IMAGE SCALER
+
+
+/**
+ * This class provides a method that reduces the size of an image quickly and with good quality.  An image is reduced
+ * by progressive halving: each level of a <i>mipmap</i> of the image is half the width and height of the previous
+ * level, and is drawn from it with bilinear interpolation, which at a scale of one half averages each 2&times;2 block
+ * of pixels.  The target size is then obtained from the smallest level that is not smaller than it by a single
+ * bilinear step.  This is much faster than area averaging ({@link java.awt.Image#SCALE_SMOOTH}) and, unlike a single
+ * bilinear or bicubic step, it does not drop pixels when the scale is small.
+ * <p>
+ * The mipmaps of the images that were most recently scaled are cached, so that an image that is scaled again (for
+ * example, when a dialog that displays it is reopened or resized) reuses the levels that were created before.  The
+ * cache holds only weak references to the images themselves, and the total number of pixels of the levels that it
+ * holds is bounded: the mipmaps that were least recently used are removed when the bound is exceeded.  A client that
+ * has finished with its images (for example, at the end of a session of capture) should call {@link #clearCache()}.
+ * </p>
+ */
+
+public class ImageScaler
+{
+
+////////////////////////////////////////////////////////////////////////
+//  Constants
+////////////////////////////////////////////////////////////////////////
+
+	/** The maximum number of images whose mipmaps are cached. */
+	private static final	int		MAX_NUM_CACHED_MIPMAPS	= 2;
+
+	/** The maximum total number of pixels of the levels of the cached mipmaps, other than the most recently used. */
+	private static final	long	MAX_NUM_CACHED_PIXELS	= 1L << 24;
+
+////////////////////////////////////////////////////////////////////////
+//  Class variables
+////////////////////////////////////////////////////////////////////////
+
+	/** The cached mipmaps, in order of most recent use. */
+	private static	LinkedList<Mipmap>	mipmaps	= new LinkedList<>();
+
+////////////////////////////////////////////////////////////////////////
+//  Constructors
+////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Prevents this class from being instantiated externally.
+	 */
+
+	private ImageScaler()
+	{
+	}
+
+	//------------------------------------------------------------------
+
+////////////////////////////////////////////////////////////////////////
+//  Class methods
+////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Returns a copy of the specified image that is scaled to the specified size.  If the size is not less than half
+	 * the size of the image in either dimension, the image is scaled in a single bilinear step.
+	 * <p>
+	 * The scaled image is always of type {@link BufferedImage#TYPE_INT_RGB}, whatever the type of the source image.
+	 * The levels of the mipmap of an image that has an alpha channel retain it, so that transparent pixels are averaged
+	 * correctly, but the scaled image is composited over black.
+	 * </p>
+	 *
+	 * @param  image
+	 *           the image that will be scaled.
+	 * @param  width
+	 *           the width of the scaled image.
+	 * @param  height
+	 *           the height of the scaled image.
+	 * @return an image of the specified size that is a scaled copy of {@code image}.
+	 * @throws IllegalArgumentException
+	 *           if {@code width} or {@code height} is not positive.
+	 */
+
+	public static BufferedImage scale(
+		BufferedImage	image,
+		int				width,
+		int				height)
+	{
+		// Validate arguments
+		if ((width <= 0) || (height <= 0))
+			throw new IllegalArgumentException();
+
+		// Get the smallest level of the mipmap of the image that is not smaller than the target size
+		BufferedImage level = getMipmap(image).getLevel(width, height);
+
+		// Remove the least recently used mipmaps if the levels of the cached mipmaps are too large
+		trimCache();
+
+		// Scale the level to the target size.  The level is copied even if it has the target size, because the levels
+		// of a cached mipmap must not be modified.
+		return resize(level, width, height, false);
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Removes all mipmaps from the cache.
+	 */
+
+	public static synchronized void clearCache()
+	{
+		mipmaps.clear();
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Returns the cached mipmap of the specified image, creating it if necessary.  Mipmaps whose images have been
+	 * garbage-collected are removed from the cache.
+	 */
+
+	private static synchronized Mipmap getMipmap(
+		BufferedImage	image)
+	{
+		// Search cache, removing entries for images that no longer exist
+		Iterator<Mipmap> it = mipmaps.iterator();
+		while (it.hasNext())
+		{
+			Mipmap mipmap = it.next();
+			BufferedImage source = mipmap.source.get();
+			if (source == null)
+				it.remove();
+			else if (source == image)
+			{
+				it.remove();
+				mipmaps.addFirst(mipmap);
+				return mipmap;
+			}
+		}
+
+		// Create mipmap and add it to cache
+		Mipmap mipmap = new Mipmap(image);
+		mipmaps.addFirst(mipmap);
+		while (mipmaps.size() > MAX_NUM_CACHED_MIPMAPS)
+			mipmaps.removeLast();
+		return mipmap;
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Removes the least recently used mipmaps from the cache while the total number of pixels of their levels exceeds
+	 * {@link #MAX_NUM_CACHED_PIXELS}.  The most recently used mipmap is always kept.
+	 */
+
+	private static synchronized void trimCache()
+	{
+		long numPixels = 0;
+		Iterator<Mipmap> it = mipmaps.iterator();
+		if (it.hasNext())
+			it.next();
+		while (it.hasNext())
+		{
+			numPixels += it.next().getNumPixels();
+			if (numPixels > MAX_NUM_CACHED_PIXELS)
+				it.remove();
+		}
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Returns a copy of the specified image that is drawn at the specified size with bilinear interpolation.
+	 */
+
+	private static BufferedImage resize(
+		BufferedImage	image,
+		int				width,
+		int				height,
+		boolean			alpha)
+	{
+		BufferedImage outImage =
+				new BufferedImage(width, height, alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+		Graphics2D gr = outImage.createGraphics();
+		gr.setRenderingHint(RenderingHints.KEY_RENDERING,     RenderingHints.VALUE_RENDER_QUALITY);
+		gr.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+		gr.drawImage(image, 0, 0, width, height, null);
+		gr.dispose();
+		return outImage;
+	}
+
+	//------------------------------------------------------------------
+
+////////////////////////////////////////////////////////////////////////
+//  Member classes : non-inner classes
+////////////////////////////////////////////////////////////////////////
+
+
+	// CLASS: MIPMAP
+
+
+	/**
+	 * This class implements a mipmap of an image, whose levels are created when they are first required.
+	 */
+
+	private static class Mipmap
+	{
+
+	////////////////////////////////////////////////////////////////////
+	//  Instance variables
+	////////////////////////////////////////////////////////////////////
+
+		private	WeakReference<BufferedImage>	source;
+		private	boolean							alpha;
+		private	List<BufferedImage>				levels;
+		private	long							numPixels;
+
+	////////////////////////////////////////////////////////////////////
+	//  Constructors
+	////////////////////////////////////////////////////////////////////
+
+		private Mipmap(
+			BufferedImage	image)
+		{
+			source = new WeakReference<>(image);
+			alpha = image.getColorModel().hasAlpha();
+			levels = new ArrayList<>();
+		}
+
+		//--------------------------------------------------------------
+
+	////////////////////////////////////////////////////////////////////
+	//  Instance methods
+	////////////////////////////////////////////////////////////////////
+
+		/**
+		 * Returns the smallest level of this mipmap whose width and height are not less than the specified size.  The
+		 * source image is the level of index 0; it is not held by the list of levels.
+		 */
+
+		private synchronized BufferedImage getLevel(
+			int	width,
+			int	height)
+		{
+			BufferedImage level = source.get();
+			int index = 0;
+			while ((level.getWidth() >= 2 * width) && (level.getHeight() >= 2 * height))
+			{
+				if (index < levels.size())
+					level = levels.get(index);
+				else
+				{
+					level = resize(level, (level.getWidth() + 1) / 2, (level.getHeight() + 1) / 2, alpha);
+					levels.add(level);
+					numPixels += (long)level.getWidth() * (long)level.getHeight();
+				}
+				++index;
+			}
+			return level;
+		}
+
+		//--------------------------------------------------------------
+
+		/**
+		 * Returns the total number of pixels of the levels of this mipmap, excluding the source image.
+		 */
+
+		private synchronized long getNumPixels()
+		{
+			return numPixels;
+		}
+
+		//--------------------------------------------------------------
+
+	}
+
+	//==================================================================
+
+}
+
+//----------------------------------------------------------------------
@@ -0,0 +1,255 @@
+/*====================================================================*\
+
+EditListTest.java
+
+Class: tests of the edit list.
+
+\*====================================================================*/
+
+
+// PACKAGE
+
+
+package uk.blankaspect.common.misc;
+
+//----------------------------------------------------------------------
+
+
+// IMPORTS
+
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+//----------------------------------------------------------------------
+
+
+// CLASS: TESTS OF THE EDIT LIST
+
+
+/**
+ * This class tests the circular buffer of {@link EditList} and the limits on its length and on the total retained size
+ * of its edits.
+ */
+
+class EditListTest
+{
+
+////////////////////////////////////////////////////////////////////////
+//  Class methods
+////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Undoes all the edits of the specified list and returns their identifiers in the order in which they were undone.
+	 */
+
+	private static List<Integer> undoAll(
+		EditList	editList)
+	{
+		List<Integer> ids = new ArrayList<>();
+		while (editList.canUndo())
+			ids.add(((Edit)editList.removeUndo()).id);
+		return ids;
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Redoes all the edits of the specified list and returns their identifiers in the order in which they were redone.
+	 */
+
+	private static List<Integer> redoAll(
+		EditList	editList)
+	{
+		List<Integer> ids = new ArrayList<>();
+		while (editList.canRedo())
+			ids.add(((Edit)editList.removeRedo()).id);
+		return ids;
+	}
+
+	//------------------------------------------------------------------
+
+////////////////////////////////////////////////////////////////////////
+//  Instance methods
+////////////////////////////////////////////////////////////////////////
+
+	@Test
+	void discardsOldestEditsBeyondMaximumLength()
+	{
+		EditList editList = new EditList(5);
+		for (int i = 0; i < 40; i++)
+			editList.add(new Edit(i, 0));
+		assertEquals(List.of(39, 38, 37, 36, 35), undoAll(editList));
+		assertEquals(List.of(35, 36, 37, 38, 39), redoAll(editList));
+	}
+
+	//------------------------------------------------------------------
+
+	@Test
+	void keepsOrderWhenBufferGrowsAfterWrapping()
+	{
+		// Wrap the buffer at its initial capacity, then make it grow
+		EditList editList = new EditList(40);
+		for (int i = 0; i < 16; i++)
+			editList.add(new Edit(i, 0));
+		for (int i = 0; i < 4; i++)
+			editList.removeUndo();
+		for (int i = 16; i < 30; i++)
+			editList.add(new Edit(i, 0));
+
+		List<Integer> expected = new ArrayList<>();
+		for (int i = 29; i >= 16; i--)
+			expected.add(i);
+		for (int i = 11; i >= 0; i--)
+			expected.add(i);
+		assertEquals(expected, undoAll(editList));
+	}
+
+	//------------------------------------------------------------------
+
+	@Test
+	void addingEditRemovesRedos()
+	{
+		EditList editList = new EditList(10, 1000);
+		for (int i = 0; i < 6; i++)
+			editList.add(new Edit(i, 10));
+		editList.removeUndo();
+		editList.removeUndo();
+		assertEquals(60, editList.getSize());
+
+		editList.add(new Edit(6, 10));
+		assertFalse(editList.canRedo());
+		assertNull(editList.getRedo());
+		assertEquals(50, editList.getSize());
+		assertEquals(List.of(6, 3, 2, 1, 0), undoAll(editList));
+	}
+
+	//------------------------------------------------------------------
+
+	@Test
+	void discardsOldestEditsBeyondMaximumSize()
+	{
+		EditList editList = new EditList(100, 100);
+		for (int i = 0; i < 10; i++)
+		{
+			editList.add(new Edit(i, 30));
+			assertTrue(editList.getSize() <= 100);
+		}
+		assertEquals(90, editList.getSize());
+		assertEquals(List.of(9, 8, 7), undoAll(editList));
+	}
+
+	//------------------------------------------------------------------
+
+	@Test
+	void keepsNewestEditThatExceedsMaximumSize()
+	{
+		EditList editList = new EditList(100, 100);
+		editList.add(new Edit(0, 40));
+		editList.add(new Edit(1, 40));
+		Edit edit = new Edit(2, 250);
+		editList.add(edit);
+		assertEquals(250, editList.getSize());
+		assertSame(edit, editList.getUndo());
+		assertEquals(List.of(2), undoAll(editList));
+
+		editList.add(new Edit(3, 10));
+		assertEquals(10, editList.getSize());
+	}
+
+	//------------------------------------------------------------------
+
+	@Test
+	void changedStateSurvivesDiscardOfUnchangedState()
+	{
+		EditList editList = new EditList(3);
+		editList.add(new Edit(0, 0));
+		editList.reset();
+		assertFalse(editList.isChanged());
+
+		editList.add(new Edit(1, 0));
+		assertTrue(editList.isChanged());
+		editList.removeUndo();
+		assertFalse(editList.isChanged());
+
+		// Discard the edit before which the list was unchanged
+		for (int i = 2; i < 6; i++)
+			editList.add(new Edit(i, 0));
+		while (editList.canUndo())
+		{
+			editList.removeUndo();
+			assertTrue(editList.isChanged());
+		}
+	}
+
+	//------------------------------------------------------------------
+
+	@Test
+	void clearEmptiesList()
+	{
+		EditList editList = new EditList(10, 100);
+		for (int i = 0; i < 5; i++)
+			editList.add(new Edit(i, 10));
+		editList.clear();
+		assertTrue(editList.isEmpty());
+		assertFalse(editList.canUndo());
+		assertEquals(0, editList.getSize());
+	}
+
+	//------------------------------------------------------------------
+
+////////////////////////////////////////////////////////////////////////
+//  Member records
+////////////////////////////////////////////////////////////////////////
+
+
+	// RECORD: EDIT
+
+
+	private record Edit(
+		int		id,
+		long	size)
+		implements EditList.IEdit
+	{
+
+	////////////////////////////////////////////////////////////////////
+	//  Instance methods : EditList.IEdit interface
+	////////////////////////////////////////////////////////////////////
+
+		@Override
+		public void undo()
+		{
+		}
+
+		//--------------------------------------------------------------
+
+		@Override
+		public void redo()
+		{
+		}
+
+		//--------------------------------------------------------------
+
+		@Override
+		public long retainedSize()
+		{
+			return size;
+		}
+
+		//--------------------------------------------------------------
+
+	}
+
+	//==================================================================
+
+}
+
+//----------------------------------------------------------------------
@@ -0,0 +1,165 @@
+/*====================================================================*\
+
+BackgroundWorkerTest.java
+
+Class: tests of the background worker.
+
+\*====================================================================*/
+
+
+// PACKAGE
+
+
+package uk.blankaspect.crosswordeditor;
+
+//----------------------------------------------------------------------
+
+
+// IMPORTS
+
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import javax.swing.SwingUtilities;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+//----------------------------------------------------------------------
+
+
+// CLASS: TESTS OF THE BACKGROUND WORKER
+
+
+/**
+ * This class tests that a {@link BackgroundWorker} passes the result of a job to its result handler and becomes idle,
+ * whether the job completes normally or throws an unchecked exception or an error.
+ */
+
+class BackgroundWorkerTest
+{
+
+////////////////////////////////////////////////////////////////////////
+//  Constants
+////////////////////////////////////////////////////////////////////////
+
+	/** The maximum time, in seconds, for which a test waits for the result of a job. */
+	private static final	long	TIMEOUT	= 10;
+
+////////////////////////////////////////////////////////////////////////
+//  Instance variables
+////////////////////////////////////////////////////////////////////////
+
+	/** The results of jobs, each paired with the busy state of the worker when the result was handled. */
+	private	BlockingQueue<HandledResult>	results;
+	private	BackgroundWorker<String>		worker;
+
+////////////////////////////////////////////////////////////////////////
+//  Constructors
+////////////////////////////////////////////////////////////////////////
+
+	BackgroundWorkerTest()
+	{
+		results = new LinkedBlockingQueue<>();
+		worker = new BackgroundWorker<>("test", 0,
+										result -> results.add(new HandledResult(result, worker.isBusy())));
+	}
+
+	//------------------------------------------------------------------
+
+////////////////////////////////////////////////////////////////////////
+//  Instance methods
+////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Submits the specified job on the event-dispatch thread, waits for its result to be handled, and returns the
+	 * result after checking that the worker was idle when the result was handled and is still idle.
+	 */
+
+	private BackgroundWorker.Result<String> runJob(
+		BackgroundWorker.IJob<String>	job)
+		throws Exception
+	{
+		SwingUtilities.invokeAndWait(() -> worker.submitNow(job));
+		HandledResult handledResult = results.poll(TIMEOUT, TimeUnit.SECONDS);
+		assertNotNull(handledResult, "Result was not handled");
+		assertFalse(handledResult.busy);
+
+		boolean[] busy = new boolean[1];
+		SwingUtilities.invokeAndWait(() -> busy[0] = worker.isBusy());
+		assertFalse(busy[0]);
+
+		return handledResult.result;
+	}
+
+	//------------------------------------------------------------------
+
+	@Test
+	void handlesValueOfJob()
+		throws Exception
+	{
+		BackgroundWorker.Result<String> result = runJob(() -> "value");
+		assertEquals("value", result.value());
+		assertNull(result.exception());
+	}
+
+	//------------------------------------------------------------------
+
+	@Test
+	void becomesIdleWhenJobThrowsRuntimeException()
+		throws Exception
+	{
+		BackgroundWorker.Result<String> result = runJob(() ->
+		{
+			throw new ArrayIndexOutOfBoundsException(-1);
+		});
+		assertNull(result.value());
+		assertNotNull(result.exception());
+		assertInstanceOf(ArrayIndexOutOfBoundsException.class, result.exception().getCause());
+
+		// The worker accepts another job
+		assertEquals("value", runJob(() -> "value").value());
+	}
+
+	//------------------------------------------------------------------
+
+	@Test
+	void becomesIdleWhenJobThrowsError()
+		throws Exception
+	{
+		BackgroundWorker.Result<String> result = runJob(() ->
+		{
+			throw new OutOfMemoryError();
+		});
+		assertNull(result.value());
+		assertNotNull(result.exception());
+		assertInstanceOf(OutOfMemoryError.class, result.exception().getCause());
+	}
+
+	//------------------------------------------------------------------
+
+////////////////////////////////////////////////////////////////////////
+//  Member records
+////////////////////////////////////////////////////////////////////////
+
+
+	// RECORD: HANDLED RESULT
+
+
+	private record HandledResult(
+		BackgroundWorker.Result<String>	result,
+		boolean							busy)
+	{ }
+
+	//==================================================================
+
+}
+
+//----------------------------------------------------------------------
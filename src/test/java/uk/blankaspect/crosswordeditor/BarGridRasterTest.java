@@ -0,0 +1,160 @@
+/*====================================================================*\
+
+BarGridRasterTest.java
+
+Class: tests of the detection of the bars of a bar grid in an image.
+
+\*====================================================================*/
+
+
+// PACKAGE
+
+
+package uk.blankaspect.crosswordeditor;
+
+//----------------------------------------------------------------------
+
+
+// IMPORTS
+
+
+import java.awt.image.BufferedImage;
+import java.awt.image.WritableRaster;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+//----------------------------------------------------------------------
+
+
+// CLASS: TESTS OF THE DETECTION OF THE BARS OF A BAR GRID IN AN IMAGE
+
+
+/**
+ * This class tests the detection of the bars of a bar grid in synthetic images whose cells are offset from the cells
+ * that are implied by the dimensions of the image.  At the extreme offsets, the centres of the outermost cells lie on
+ * the bounds of the image.
+ */
+
+class BarGridRasterTest
+{
+
+////////////////////////////////////////////////////////////////////////
+//  Constants
+////////////////////////////////////////////////////////////////////////
+
+	private static final	int		NUM_CELLS	= 4;
+	private static final	int		CELL_SIZE	= 25;
+	private static final	int		IMAGE_SIZE	= NUM_CELLS * CELL_SIZE;
+
+	private static final	int		LINE_THICKNESS	= 2;
+	private static final	int		BAR_THICKNESS	= 6;
+
+	private static final	double	BRIGHTNESS_THRESHOLD	= 0.5;
+	private static final	int		BAR_WIDTH_THRESHOLD		= 4;
+
+	private static final	int		DARK	= 0;
+	private static final	int		LIGHT	= PixelRaster.MAX_LEVEL;
+
+////////////////////////////////////////////////////////////////////////
+//  Class methods
+////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Returns the coordinate of the line that follows the specified cell in an image whose cells are offset by the
+	 * specified percentage of the cell size.
+	 */
+
+	private static int getLineCoord(
+		int	cell,
+		int	offset)
+	{
+		return (int)Math.round((double)(cell + 1) * (double)CELL_SIZE + 0.01 * (double)(offset * CELL_SIZE));
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Sets the pixels of the specified rectangle, clipped to the bounds of the image, to the specified level.
+	 */
+
+	private static void fill(
+		WritableRaster	raster,
+		int				x1,
+		int				y1,
+		int				x2,
+		int				y2,
+		int				level)
+	{
+		for (int y = Math.max(0, y1); y < Math.min(y2, IMAGE_SIZE); y++)
+		{
+			for (int x = Math.max(0, x1); x < Math.min(x2, IMAGE_SIZE); x++)
+				raster.setSample(x, y, 0, level);
+		}
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Creates and returns the image of a bar grid whose cells are offset by the specified percentage of the cell size.
+	 * The grid has a bar between cells (0, 0) and (0, 1), and a bar between cells (2, 3) and (3, 3).
+	 */
+
+	private static BufferedImage createImage(
+		int	offset)
+	{
+		BufferedImage image = new BufferedImage(IMAGE_SIZE, IMAGE_SIZE, BufferedImage.TYPE_BYTE_GRAY);
+		WritableRaster raster = image.getRaster();
+		fill(raster, 0, 0, IMAGE_SIZE, IMAGE_SIZE, LIGHT);
+
+		// Draw lines between cells
+		int halfThickness = LINE_THICKNESS / 2;
+		for (int i = 0; i < NUM_CELLS - 1; i++)
+		{
+			int coord = getLineCoord(i, offset);
+			fill(raster, coord - halfThickness, 0, coord + halfThickness, IMAGE_SIZE, DARK);
+			fill(raster, 0, coord - halfThickness, IMAGE_SIZE, coord + halfThickness, DARK);
+		}
+
+		// Draw bars
+		halfThickness = BAR_THICKNESS / 2;
+		int x = getLineCoord(0, offset);
+		int y = getLineCoord(0, offset);
+		fill(raster, x - halfThickness, y - CELL_SIZE + halfThickness, x + halfThickness, y - halfThickness, DARK);
+		x = getLineCoord(3, offset);
+		y = getLineCoord(2, offset);
+		fill(raster, x - CELL_SIZE + halfThickness, y - halfThickness, x - halfThickness, y + halfThickness, DARK);
+
+		return image;
+	}
+
+	//------------------------------------------------------------------
+
+////////////////////////////////////////////////////////////////////////
+//  Instance methods
+////////////////////////////////////////////////////////////////////////
+
+	@ParameterizedTest
+	@ValueSource(ints = { CaptureParams.MIN_X_OFFSET, -20, 0, 20, CaptureParams.MAX_X_OFFSET })
+	void detectsBarsAtOffset(
+		int	offset)
+		throws Exception
+	{
+		BarGrid expected = (BarGrid)new BarGrid(NUM_CELLS, NUM_CELLS, Grid.Symmetry.NONE).createCopy();
+		expected.toggleBar(0, 1, BarGrid.Edge.LEFT);
+		expected.toggleBar(3, 3, BarGrid.Edge.TOP);
+
+		PixelRaster raster = new PixelRaster(createImage(offset));
+		BarGrid grid = new BarGrid(NUM_CELLS, NUM_CELLS, raster, offset, offset, BRIGHTNESS_THRESHOLD,
+								   BAR_WIDTH_THRESHOLD);
+		assertEquals(Grid.Symmetry.NONE, grid.getSymmetry());
+		assertEquals(expected.getGridDefinition(), grid.getGridDefinition());
+	}
+
+	//------------------------------------------------------------------
+
+}
+
+//----------------------------------------------------------------------
@@ -0,0 +1,220 @@
+/*====================================================================*\
+
+GridEntriesTest.java
+
+Class: tests of the entries of a grid.
+
+\*====================================================================*/
+
+
+// PACKAGE
+
+
+package uk.blankaspect.crosswordeditor;
+
+//----------------------------------------------------------------------
+
+
+// IMPORTS
+
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+//----------------------------------------------------------------------
+
+
+// CLASS: TESTS OF THE ENTRIES OF A GRID
+
+
+/**
+ * This class tests the snapshots of the entries of a grid, which share their values with the grid until either of
+ * them is modified: that a modification of one of them does not affect the others, and that the shared values are
+ * charged in the retained size of only one of them.
+ */
+
+class GridEntriesTest
+{
+
+////////////////////////////////////////////////////////////////////////
+//  Constants
+////////////////////////////////////////////////////////////////////////
+
+	private static final	int		GRID_SIZE	= 15;
+
+	/** The retained size of entries that are not charged for their values. */
+	private static final	long	UNCHARGED_SIZE	= 32;
+
+	/** The retained size of entries that are charged for their values. */
+	private static final	long	CHARGED_SIZE	= 32 + 16 + 2 * GRID_SIZE * GRID_SIZE;
+
+////////////////////////////////////////////////////////////////////////
+//  Class methods
+////////////////////////////////////////////////////////////////////////
+
+	private static Grid createGrid()
+	{
+		return new BlockGrid(GRID_SIZE, GRID_SIZE, Grid.Symmetry.NONE);
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Returns the value of the specified cell of the specified entries, which are read by setting them in a new grid.
+	 */
+
+	private static char getValue(
+		Grid.Entries	entries,
+		int				row,
+		int				column)
+	{
+		Grid grid = createGrid();
+		grid.setEntries(entries);
+		return grid.getEntryValue(row, column);
+	}
+
+	//------------------------------------------------------------------
+
+////////////////////////////////////////////////////////////////////////
+//  Instance methods
+////////////////////////////////////////////////////////////////////////
+
+	@Test
+	void valuesAreChargedToFirstSnapshotOfState()
+	{
+		Grid grid = createGrid();
+		Grid.Entries snapshot1 = grid.getEntries();
+		Grid.Entries snapshot2 = grid.getEntries();
+		assertEquals(CHARGED_SIZE, snapshot1.retainedSize());
+		assertEquals(UNCHARGED_SIZE, snapshot2.retainedSize());
+
+		grid.setEntryValue(0, 0, 'A');
+		Grid.Entries snapshot3 = grid.getEntries();
+		assertEquals(CHARGED_SIZE, snapshot3.retainedSize());
+		assertEquals(CHARGED_SIZE, snapshot1.retainedSize());
+	}
+
+	//------------------------------------------------------------------
+
+	@Test
+	void editSequenceChargesEachStateOnce()
+	{
+		// Take the snapshots of a sequence of edits, each of which shares its old state with the new state of the
+		// edit before it
+		Grid grid = createGrid();
+		int numEdits = 10;
+		long totalSize = 0;
+		for (int i = 0; i < numEdits; i++)
+		{
+			Grid.Entries oldEntries = grid.getEntries();
+			grid.setEntryValue(i, i, (char)('A' + i));
+			Grid.Entries newEntries = grid.getEntries();
+			totalSize += oldEntries.retainedSize() + newEntries.retainedSize();
+		}
+
+		// The initial state and the state after each edit are charged once
+		assertEquals((numEdits + 1) * CHARGED_SIZE + (numEdits - 1) * UNCHARGED_SIZE, totalSize);
+	}
+
+	//------------------------------------------------------------------
+
+	@Test
+	void snapshotIsUnaffectedByLaterEdits()
+	{
+		Grid grid = createGrid();
+		grid.setEntryValue(0, 0, 'A');
+		Grid.Entries snapshot1 = grid.getEntries();
+		Grid.Entries snapshot2 = grid.getEntries();
+
+		grid.setEntryValue(0, 0, 'B');
+		grid.setEntryValue(1, 1, 'C');
+		assertEquals('A', getValue(snapshot1, 0, 0));
+		assertEquals('A', getValue(snapshot2, 0, 0));
+		assertEquals(Grid.Entries.UNDEFINED_VALUE, getValue(snapshot1, 1, 1));
+		assertEquals('B', grid.getEntryValue(0, 0));
+		assertEquals('C', grid.getEntryValue(1, 1));
+	}
+
+	//------------------------------------------------------------------
+
+	@Test
+	void gridIsUnaffectedByModificationOfSnapshot()
+	{
+		Grid grid = createGrid();
+		grid.setEntryValue(0, 0, 'A');
+		Grid.Entries snapshot = grid.getEntries();
+		snapshot.clear();
+		assertEquals(Grid.Entries.UNDEFINED_VALUE, getValue(snapshot, 0, 0));
+		assertEquals('A', grid.getEntryValue(0, 0));
+		assertFalse(grid.isEntriesEmpty());
+	}
+
+	//------------------------------------------------------------------
+
+	@Test
+	void setEntriesDoesNotShareModifications()
+	{
+		Grid source = createGrid();
+		source.setEntryValue(0, 0, 'A');
+		Grid.Entries entries = source.getEntries();
+
+		// Modify a grid whose entries were set from the snapshot
+		Grid grid = createGrid();
+		grid.setEntries(entries);
+		grid.setEntryValue(0, 0, 'B');
+		assertEquals('A', getValue(entries, 0, 0));
+		assertEquals('A', source.getEntryValue(0, 0));
+
+		// Modify the snapshot from which the entries of the grid were set
+		grid.setEntries(entries);
+		entries.clear();
+		assertEquals('A', grid.getEntryValue(0, 0));
+		assertEquals('A', source.getEntryValue(0, 0));
+	}
+
+	//------------------------------------------------------------------
+
+	@Test
+	void clonesOfCloneAreIndependent()
+	{
+		Grid grid = createGrid();
+		grid.setEntryValue(0, 0, 'A');
+		Grid.Entries entries = grid.getEntries();
+		Grid.Entries copy1 = entries.clone();
+		Grid.Entries copy2 = copy1.clone();
+
+		copy1.clear();
+		assertEquals(Grid.Entries.UNDEFINED_VALUE, getValue(copy1, 0, 0));
+		assertEquals('A', getValue(entries, 0, 0));
+		assertEquals('A', getValue(copy2, 0, 0));
+
+		entries.clear();
+		assertEquals('A', getValue(copy2, 0, 0));
+		assertEquals('A', grid.getEntryValue(0, 0));
+	}
+
+	//------------------------------------------------------------------
+
+	@Test
+	void cloneIsChargedOnlyAfterModification()
+	{
+		Grid grid = createGrid();
+		grid.setEntryValue(0, 0, 'A');
+		Grid.Entries entries = grid.getEntries();
+		Grid.Entries copy = entries.clone();
+		assertEquals(UNCHARGED_SIZE, copy.retainedSize());
+		assertEquals(CHARGED_SIZE, entries.retainedSize());
+
+		copy.clear();
+		assertEquals(CHARGED_SIZE, copy.retainedSize());
+		assertEquals(CHARGED_SIZE, entries.retainedSize());
+		assertEquals('A', grid.getEntryValue(0, 0));
+	}
+
+	//------------------------------------------------------------------
+
+}
+
+//----------------------------------------------------------------------
@@ -0,0 +1,208 @@
+/*====================================================================*\
+
+GridFieldsTest.java
+
+Class: tests of the incremental update of the fields of a grid.
+
+\*====================================================================*/
+
+
+// PACKAGE
+
+
+package uk.blankaspect.crosswordeditor;
+
+//----------------------------------------------------------------------
+
+
+// IMPORTS
+
+
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+//----------------------------------------------------------------------
+
+
+// CLASS: TESTS OF THE INCREMENTAL UPDATE OF THE FIELDS OF A GRID
+
+
+/**
+ * This class tests that the fields that are found by {@link Grid#updateFields(int[])} after a block or bar is toggled
+ * are the same as those that are found by {@link Grid#initFields()}, and that the entries of cells that remain in a
+ * field are kept.
+ */
+
+class GridFieldsTest
+{
+
+////////////////////////////////////////////////////////////////////////
+//  Constants
+////////////////////////////////////////////////////////////////////////
+
+	private static final	int		GRID_SIZE	= 13;
+
+	private static final	int		NUM_TOGGLES	= 400;
+
+	private static final	long	SEED	= 0x5EED_F1E1DL;
+
+	private static final	BarGrid.Edge[]	EDGES	= BarGrid.Edge.values();
+
+////////////////////////////////////////////////////////////////////////
+//  Class methods
+////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Returns a string that describes the extents and numbers of the fields of the specified grid.
+	 */
+
+	private static String describeFields(
+		Grid	grid)
+	{
+		StringBuilder buffer = new StringBuilder();
+		for (Direction direction : Direction.DEFINED_DIRECTIONS)
+		{
+			List<Grid.Field> fields = grid.getFields(direction);
+			for (Grid.Field field : fields)
+			{
+				buffer.append(direction).append(' ').append(field.getNumber()).append(": ")
+						.append(field.getRow()).append(',').append(field.getColumn()).append(" x ")
+						.append(field.getLength()).append('\n');
+				assertEquals(field, grid.getField(field.getNumber(), direction));
+			}
+		}
+		return buffer.toString();
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Returns a string that describes the entry values of the specified grid.
+	 */
+
+	private static String describeEntries(
+		Grid	grid)
+	{
+		StringBuilder buffer = new StringBuilder();
+		for (int row = 0; row < grid.getNumRows(); row++)
+		{
+			for (int column = 0; column < grid.getNumColumns(); column++)
+			{
+				char value = grid.getEntryValue(row, column);
+				buffer.append((value == 0) ? '#' : value);
+			}
+			buffer.append('\n');
+		}
+		return buffer.toString();
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Sets a letter in every cell of the specified grid that is in a field.
+	 */
+
+	private static void fillEntries(
+		Grid	grid)
+	{
+		for (int row = 0; row < grid.getNumRows(); row++)
+		{
+			for (int column = 0; column < grid.getNumColumns(); column++)
+			{
+				if (grid.getEntryValue(row, column) != 0)
+					grid.setEntryValue(row, column, (char)('A' + (row + column) % 26));
+			}
+		}
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Checks the fields and entries of the specified grid after an edit.  The fields must be the same as those that
+	 * {@link Grid#initFields()} finds in a copy of the grid, and the cells that were in a field before the edit and
+	 * are still in a field must have kept their entries.
+	 */
+
+	private static void checkFields(
+		Grid	grid,
+		String	entriesBefore)
+	{
+		String entriesAfter = describeEntries(grid);
+		for (int i = 0; i < entriesAfter.length(); i++)
+		{
+			char before = entriesBefore.charAt(i);
+			char after = entriesAfter.charAt(i);
+			if ((before != '#') && (after != '#'))
+				assertEquals(before, after);
+		}
+
+		Grid reference = grid.createCopy();
+		reference.initFields();
+		assertEquals(describeFields(reference), describeFields(grid));
+	}
+
+	//------------------------------------------------------------------
+
+////////////////////////////////////////////////////////////////////////
+//  Instance methods
+////////////////////////////////////////////////////////////////////////
+
+	@Test
+	void blockGridFieldsMatchInitialisedFields()
+	{
+		Random prng = new Random(SEED);
+		BlockGrid grid = (BlockGrid)new BlockGrid(GRID_SIZE, GRID_SIZE, Grid.Symmetry.NONE).createCopy();
+		for (int i = 0; i < NUM_TOGGLES; i++)
+		{
+			fillEntries(grid);
+			String entriesBefore = describeEntries(grid);
+			grid.toggleBlock(prng.nextInt(GRID_SIZE), prng.nextInt(GRID_SIZE));
+			checkFields(grid, entriesBefore);
+		}
+	}
+
+	//------------------------------------------------------------------
+
+	@Test
+	void barGridFieldsMatchInitialisedFields()
+	{
+		Random prng = new Random(SEED);
+		BarGrid grid = (BarGrid)new BarGrid(GRID_SIZE, GRID_SIZE, Grid.Symmetry.NONE).createCopy();
+		for (int i = 0; i < NUM_TOGGLES; i++)
+		{
+			fillEntries(grid);
+			String entriesBefore = describeEntries(grid);
+			grid.toggleBar(prng.nextInt(GRID_SIZE), prng.nextInt(GRID_SIZE), EDGES[prng.nextInt(EDGES.length)]);
+			checkFields(grid, entriesBefore);
+		}
+	}
+
+	//------------------------------------------------------------------
+
+	@Test
+	void undoneEditsRestoreFields()
+	{
+		Random prng = new Random(SEED);
+		BlockGrid grid = (BlockGrid)new BlockGrid(GRID_SIZE, GRID_SIZE, Grid.Symmetry.NONE).createCopy();
+		String initialFields = describeFields(grid);
+		int numToggles = 20;
+		for (int i = 0; i < numToggles; i++)
+			grid.toggleBlock(prng.nextInt(GRID_SIZE), prng.nextInt(GRID_SIZE));
+		String editedFields = describeFields(grid);
+		for (int i = 0; i < numToggles; i++)
+			grid.undoEdit();
+		assertEquals(initialFields, describeFields(grid));
+		for (int i = 0; i < numToggles; i++)
+			grid.redoEdit();
+		assertEquals(editedFields, describeFields(grid));
+	}
+
+	//------------------------------------------------------------------
+
+}
+
+//----------------------------------------------------------------------
@@ -0,0 +1,173 @@
+/*====================================================================*\
+
+GridSymmetryTest.java
+
+Class: tests of the numbers of asymmetric cells of a grid.
+
+\*====================================================================*/
+
+
+// PACKAGE
+
+
+package uk.blankaspect.crosswordeditor;
+
+//----------------------------------------------------------------------
+
+
+// IMPORTS
+
+
+import java.util.Random;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+//----------------------------------------------------------------------
+
+
+// CLASS: TESTS OF THE NUMBERS OF ASYMMETRIC CELLS OF A GRID
+
+
+/**
+ * This class tests that the numbers of asymmetric cells of a grid, which are updated incrementally as blocks and bars
+ * are toggled, edits are undone and redone and the symmetry of the grid is changed, are the same as the numbers that
+ * are found by scanning the whole grid.  Some of the grids are wider than 64 columns, so that the rows of blocks and
+ * of bars that are compared word by word span more than one word.
+ */
+
+class GridSymmetryTest
+{
+
+////////////////////////////////////////////////////////////////////////
+//  Constants
+////////////////////////////////////////////////////////////////////////
+
+	private static final	int		NUM_TOGGLES	= 300;
+
+	private static final	long	SEED	= 0x5EED_5E77L;
+
+	private static final	Grid.Symmetry[]	TRACKED_SYMMETRIES	=
+	{
+		Grid.Symmetry.ROTATION_HALF,
+		Grid.Symmetry.ROTATION_QUARTER,
+		Grid.Symmetry.REFLECTION_VERTICAL_AXIS,
+		Grid.Symmetry.REFLECTION_HORIZONTAL_AXIS
+	};
+
+	private static final	BarGrid.Edge[]	EDGES	= BarGrid.Edge.values();
+
+////////////////////////////////////////////////////////////////////////
+//  Class methods
+////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Checks that the numbers of asymmetric cells of the specified grid are the same as the numbers that are found by
+	 * scanning the grid, and that its separators have the symmetry that is enforced by the grid.
+	 */
+
+	private static void checkCounts(
+		Grid	grid)
+	{
+		for (Grid.Symmetry symmetry : TRACKED_SYMMETRIES)
+		{
+			if (symmetry.supportsDimensions(grid.getNumColumns(), grid.getNumRows()))
+			{
+				assertEquals(grid.countAsymmetricCells(symmetry), grid.getNumAsymmetricCells(symmetry),
+							 symmetry.name());
+			}
+		}
+		assertTrue(grid.isSymmetry(grid.getSymmetry()));
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Toggles random separators of the specified grid, changes its symmetry, and undoes and redoes all the edits,
+	 * checking the numbers of asymmetric cells of the grid after each step.
+	 */
+
+	private static void toggleSeparators(
+		Grid	grid,
+		Random	prng)
+	{
+		int numEdits = 0;
+		for (int i = 0; i < NUM_TOGGLES; i++)
+		{
+			int row = prng.nextInt(grid.getNumRows());
+			int column = prng.nextInt(grid.getNumColumns());
+			if (grid instanceof BlockGrid blockGrid)
+				blockGrid.toggleBlock(row, column);
+			else
+				((BarGrid)grid).toggleBar(row, column, EDGES[prng.nextInt(EDGES.length)]);
+			++numEdits;
+			checkCounts(grid);
+
+			// Occasionally change the symmetry of the grid
+			if (prng.nextInt(50) == 0)
+			{
+				Grid.Symmetry symmetry = grid.getSymmetry();
+				while (symmetry == grid.getSymmetry())
+				{
+					symmetry = Grid.Symmetry.values()[prng.nextInt(Grid.Symmetry.values().length)];
+					if (!symmetry.supportsDimensions(grid.getNumColumns(), grid.getNumRows()))
+						symmetry = grid.getSymmetry();
+				}
+				grid.setSymmetry(symmetry);
+				++numEdits;
+				checkCounts(grid);
+			}
+		}
+
+		for (int i = 0; i < numEdits; i++)
+		{
+			grid.undoEdit();
+			checkCounts(grid);
+		}
+		for (int i = 0; i < numEdits; i++)
+		{
+			grid.redoEdit();
+			checkCounts(grid);
+		}
+	}
+
+	//------------------------------------------------------------------
+
+////////////////////////////////////////////////////////////////////////
+//  Instance methods
+////////////////////////////////////////////////////////////////////////
+
+	@ParameterizedTest
+	@CsvSource({ "13, 13, NONE", "13, 13, ROTATION_QUARTER", "16, 16, ROTATION_HALF", "19, 11, NONE", "99, 99, NONE",
+				 "99, 99, ROTATION_HALF", "99, 99, REFLECTION_VERTICAL_AXIS", "130, 67, NONE" })
+	void blockGridCountsMatchRecount(
+		int				numColumns,
+		int				numRows,
+		Grid.Symmetry	symmetry)
+	{
+		Grid grid = new BlockGrid(numColumns, numRows, symmetry).createCopy();
+		toggleSeparators(grid, new Random(SEED));
+	}
+
+	//------------------------------------------------------------------
+
+	@ParameterizedTest
+	@CsvSource({ "13, 13, NONE", "13, 13, ROTATION_QUARTER", "16, 16, ROTATION_HALF", "19, 11, NONE", "99, 99, NONE",
+				 "99, 99, ROTATION_HALF", "99, 99, REFLECTION_VERTICAL_AXIS", "130, 67, NONE" })
+	void barGridCountsMatchRecount(
+		int				numColumns,
+		int				numRows,
+		Grid.Symmetry	symmetry)
+	{
+		Grid grid = new BarGrid(numColumns, numRows, symmetry).createCopy();
+		toggleSeparators(grid, new Random(SEED));
+	}
+
+	//------------------------------------------------------------------
+
+}
+
+//----------------------------------------------------------------------
@@ -0,0 +1,195 @@
+/*====================================================================*\
+
+PixelRasterSkewTest.java
+
+Class: tests of the estimation of the skew angle of a pixel raster.
+
+\*====================================================================*/
+
+
+// PACKAGE
+
+
+package uk.blankaspect.crosswordeditor;
+
+//----------------------------------------------------------------------
+
+
+// IMPORTS
+
+
+import java.awt.image.BufferedImage;
+import java.awt.image.WritableRaster;
+
+import org.junit.jupiter.api.Test;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+//----------------------------------------------------------------------
+
+
+// CLASS: TESTS OF THE ESTIMATION OF THE SKEW ANGLE OF A PIXEL RASTER
+
+
+/**
+ * This class tests {@link PixelRaster#getSkewAngle(int)} on synthetic images of grids that are rotated by known
+ * angles.  A pixel of an image is dark if its centre, rotated back about the centre of the image, lies within half the
+ * line thickness of a line of the grid, so the true skew angle is exact.
+ */
+
+class PixelRasterSkewTest
+{
+
+////////////////////////////////////////////////////////////////////////
+//  Constants
+////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * The maximum difference, in degrees, between an estimated skew angle and the true angle.  It is less than half
+	 * {@link #FINE_ANGLE_STEP}, which is the best accuracy that could be achieved by choosing the angle of the fine
+	 * pass whose accumulated counts are greatest, so the estimate must be interpolated between the steps.
+	 */
+	private static final	double	TOLERANCE	= 0.01;
+
+	/** The interval, in degrees, between the angles of the fine pass of {@link PixelRaster#getSkewAngle(int)}. */
+	private static final	double	FINE_ANGLE_STEP	= 0.025;
+
+	private static final	int		DARK_LIMIT	= 128;
+
+////////////////////////////////////////////////////////////////////////
+//  Class methods
+////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Creates and returns the image of a square grid that is rotated clockwise about the centre of the image by the
+	 * specified angle.
+	 */
+
+	private static BufferedImage createGridImage(
+		int		size,
+		int		numCells,
+		double	lineThickness,
+		double	angle)
+	{
+		BufferedImage image = new BufferedImage(size, size, BufferedImage.TYPE_BYTE_GRAY);
+		WritableRaster raster = image.getRaster();
+		double cos = Math.cos(Math.toRadians(angle));
+		double sin = Math.sin(Math.toRadians(angle));
+		double centre = 0.5 * (double)size;
+		double margin = (double)size / 6.0;
+		double cellSize = ((double)size - 2.0 * margin) / (double)numCells;
+		double halfThickness = 0.5 * lineThickness;
+		double gridMin = margin - halfThickness;
+		double gridMax = margin + (double)numCells * cellSize + halfThickness;
+		for (int y = 0; y < size; y++)
+		{
+			for (int x = 0; x < size; x++)
+			{
+				// Rotate the centre of the pixel back to the unskewed grid
+				double dx = (double)x + 0.5 - centre;
+				double dy = (double)y + 0.5 - centre;
+				double u = dx * cos + dy * sin + centre;
+				double v = dy * cos - dx * sin + centre;
+
+				// Test whether the point lies on a line of the grid
+				boolean dark = false;
+				if ((u >= gridMin) && (u <= gridMax) && (v >= gridMin) && (v <= gridMax))
+				{
+					double cu = (u - margin) / cellSize;
+					double cv = (v - margin) / cellSize;
+					dark = (Math.abs(cu - Math.rint(cu)) * cellSize <= halfThickness)
+								|| (Math.abs(cv - Math.rint(cv)) * cellSize <= halfThickness);
+				}
+				raster.setSample(x, y, 0, dark ? 0 : PixelRaster.MAX_LEVEL);
+			}
+		}
+		return image;
+	}
+
+	//------------------------------------------------------------------
+
+	private static double getSkewAngle(
+		BufferedImage	image)
+	{
+		return Math.toDegrees(new PixelRaster(image).getSkewAngle(DARK_LIMIT));
+	}
+
+	//------------------------------------------------------------------
+
+////////////////////////////////////////////////////////////////////////
+//  Instance methods
+////////////////////////////////////////////////////////////////////////
+
+	@ParameterizedTest
+	@ValueSource(doubles = { 0.5, 2.0, -3.0, 7.0, -7.0, 1.234, -0.8, 4.4, 9.5, -9.9 })
+	void estimatesAngleOfThinLines(
+		double	angle)
+	{
+		assertEquals(angle, getSkewAngle(createGridImage(800, 15, 1.5, angle)), TOLERANCE);
+	}
+
+	//------------------------------------------------------------------
+
+	@ParameterizedTest
+	@ValueSource(doubles = { 0.5, 2.0, -3.0, 7.0 })
+	void estimatesAngleOfThickLines(
+		double	angle)
+	{
+		assertEquals(angle, getSkewAngle(createGridImage(800, 15, 3.0, angle)), TOLERANCE);
+	}
+
+	//------------------------------------------------------------------
+
+	@ParameterizedTest
+	@ValueSource(doubles = { 0.75, -2.5 })
+	void estimatesAngleFromSampleOfEdgePixels(
+		double	angle)
+	{
+		// The grid has more edge pixels than are used for the estimate, so only a sample of them is used
+		assertEquals(angle, getSkewAngle(createGridImage(2400, 100, 2.0, angle)), TOLERANCE);
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Tests angles that lie midway between two angles of the fine pass, for which the error of an estimate that is not
+	 * interpolated between the steps would be at least half a step.  Within about 0.1&deg; of zero, the edges of
+	 * near-axial lines form long staircases that flatten the peak of the transform, and the error of the estimate
+	 * approaches half a step, so those angles are not tested here.
+	 */
+
+	@ParameterizedTest
+	@ValueSource(doubles = { 0.2625, -0.5125, 1.2375, -2.8875, 6.0625, -8.7625 })
+	void estimatesAngleBetweenFineSteps(
+		double	angle)
+	{
+		double error = Math.abs(getSkewAngle(createGridImage(800, 15, 1.5, angle)) - angle);
+		assertTrue(error <= TOLERANCE, "Error of " + error + " degrees exceeds tolerance");
+		assertTrue(error < 0.5 * FINE_ANGLE_STEP);
+	}
+
+	//------------------------------------------------------------------
+
+	@Test
+	void estimatesZeroForUnskewedGrid()
+	{
+		assertEquals(0.0, getSkewAngle(createGridImage(800, 15, 2.0, 0.0)), TOLERANCE);
+	}
+
+	//------------------------------------------------------------------
+
+	@Test
+	void estimatesZeroForBlankImage()
+	{
+		assertEquals(0.0, getSkewAngle(createGridImage(200, 4, 0.0, 0.0)));
+	}
+
+	//------------------------------------------------------------------
+
+}
+
+//----------------------------------------------------------------------